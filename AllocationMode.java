@@ -0,0 +1,44 @@
+/**
+ * This enum lists the allocation models CFLP can build, selected by the 11th argument (see README.md)
+ * 
+ * @author ryanhow
+ *
+ */
+public enum AllocationMode {
+	
+	SINGLE("single"), //Single allocation model
+	DIVISIBLE("divisible"), //Divisible demand model with plant to facility to customer routes s
+	ARC_FLOW("arcflow"); //Divisible demand model with separate plant to facility and facility to customer flows
+	
+	private final String argument;
+	
+	AllocationMode(String argument) {
+		this.argument = argument;
+	}
+	
+	/**
+	 * This method obtains the command line argument selecting this mode.
+	 * 
+	 * @return the argument
+	 */
+	public String getArgument() {
+		return argument;
+	}
+	
+	/**
+	 * This method obtains the mode for a command line argument. Any argument that is not recognized selects the
+	 * divisible demand model.
+	 * 
+	 * @param argument the command line argument
+	 * @return the allocation mode
+	 */
+	public static AllocationMode fromArgument(String argument) {
+		for(AllocationMode mode : values()) {
+			if(mode.argument.equals(argument)) {
+				return mode;
+			}
+		}
+		return DIVISIBLE;
+	}
+	
+}
@@ -0,0 +1,366 @@
+/**
+ * This program solves every instance of a manifest in a single JVM (see README.md). A fixed pool of workers builds
+ * and solves the models, each model limited to its share of the cores so the workers do not oversubscribe them. A
+ * gurobi environment must not be used from several threads at once, so every worker creates its own environment on
+ * its first instance and reuses it for the rest, and the licence is checked out once per worker rather than once per
+ * instance. The results and timings of every instance are written to a single CSV file in manifest order, with an
+ * error row for an instance whose worker failed.
+ *
+ * Every non-blank line of the manifest that does not start with # describes one instance: an instance directory
+ * holding the 9 CSV files (see CSVInstanceLoader.FILE_NAMES), the 10 of a coordinate instance or a binary instance
+ * file, the desired number of open facilities, the allocation mode and optionally --no-names, --no-mip-start and
+ * --metric followed by the metric of a coordinate instance.
+ *
+ * @author ryanhow
+ *
+ */
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import gurobi.*;
+
+public class BatchSolver {
+
+	private final static Logger LOGGER = Logger.getLogger(BatchSolver.class.getName());
+
+	private static final long HEURISTIC_TIME_LIMIT = 1000; //Wall clock limit of the greedy heuristic local search in milliseconds
+	private static final long SHUTDOWN_WAIT = 1; //Minutes between log messages while waiting for the workers to finish their solves
+	private static final String HEADER = "line,instance,p,allocation,status,objective,bound,gap,load_ms,build_ms,solve_ms,total_ms,error";
+
+	public static void main(String[] args) {
+		if(args.length != 2 && !(args.length == 4 && args[2].equals("--workers"))) {
+			LOGGER.log(Level.SEVERE, "Invalid input. Please reference README.md for execution instructions.");
+			return;
+		}
+
+		int processors = Runtime.getRuntime().availableProcessors();
+		int workers = Math.max(1, processors / 4);
+		if(args.length == 4) {
+			try {
+				workers = Integer.parseInt(args[3]);
+			} catch (NumberFormatException e) {
+				workers = 0;
+			}
+			if(workers < 1) {
+				LOGGER.log(Level.SEVERE, "The number of workers must be a positive integer.");
+				return;
+			}
+		}
+		int threads = Math.max(1, processors / workers); //Gurobi threads of every model
+
+		List<Entry> entries;
+		try {
+			entries = readManifest(args[0]);
+		} catch (IOException e) {
+			LOGGER.log(Level.SEVERE, "Error reading manifest '" + args[0] + "'. " + e.getMessage());
+			return;
+		}
+
+		//Gurobi Environment of each worker, created on its first instance
+		List<GRBEnv> envs = Collections.synchronizedList(new ArrayList<>());
+		ThreadLocal<GRBEnv> workerEnv = new ThreadLocal<>();
+
+		ExecutorService pool = Executors.newFixedThreadPool(workers);
+		try(BufferedWriter writer = Files.newBufferedWriter(Paths.get(args[1]))) {
+			List<Future<String>> results = new ArrayList<>();
+			for(Entry entry : entries) {
+				results.add(pool.submit(() -> solve(entry, workerEnv, envs, threads)));
+			}
+
+			writer.write(HEADER);
+			writer.newLine();
+			for(int n = 0; n < results.size(); n++) {
+				String row;
+				try {
+					row = results.get(n).get();
+				} catch (ExecutionException e) {
+					row = new Result(entries.get(n)).error("Error solving instance. " + e.getCause());
+				}
+				writer.write(row);
+				writer.newLine();
+				writer.flush();
+			}
+		} catch (IOException e) {
+			LOGGER.log(Level.SEVERE, "Error writing results file '" + args[1] + "'. " + e.getMessage());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			LOGGER.log(Level.SEVERE, "Interrupted while solving the batch.");
+		} finally {
+			pool.shutdownNow();
+		}
+
+		//The environments are disposed once no worker is left inside a solve
+		if(!awaitWorkers(pool)) {
+			return;
+		}
+		for(GRBEnv env : envs) {
+			try {
+				env.dispose();
+			} catch (GRBException e) {
+				LOGGER.log(Level.SEVERE, "Error disposing environment. " + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * This method waits for the workers of a shut down pool to finish. A gurobi solve does not respond to interrupts,
+	 * so a worker inside one finishes it first.
+	 *
+	 * @param pool the shut down pool
+	 * @return true if every worker finished, false if the wait was interrupted
+	 */
+	private static boolean awaitWorkers(ExecutorService pool) {
+		try {
+			while(!pool.awaitTermination(SHUTDOWN_WAIT, TimeUnit.MINUTES)) {
+				LOGGER.log(Level.INFO, "Waiting for the workers to finish their solves.");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			LOGGER.log(Level.SEVERE, "Interrupted while waiting for the workers, leaving their environments.");
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * This method reads the instances of a manifest. Malformed lines are kept so their error is reported in the
+	 * results file.
+	 *
+	 * @param manifest the path to the manifest
+	 * @return the instances in manifest order
+	 * @throws IOException if the manifest cannot be read
+	 */
+	private static List<Entry> readManifest(String manifest) throws IOException {
+		List<Entry> entries = new ArrayList<>();
+		List<String> lines = Files.readAllLines(Paths.get(manifest));
+		for(int line = 0; line < lines.size(); line++) {
+			String text = lines.get(line).trim();
+			if(text.isEmpty() || text.startsWith("#")) {
+				continue;
+			}
+			entries.add(new Entry(line + 1, text.split("\\s+")));
+		}
+		return entries;
+	}
+
+	/**
+	 * This method loads, builds and solves one instance.
+	 *
+	 * @param entry the instance
+	 * @param workerEnv the gurobi environment of the worker, created if the worker has none yet
+	 * @param envs every environment created, to be disposed after the batch
+	 * @param threads the number of threads gurobi may use for the model
+	 * @return the CSV row with the results and timings of the instance
+	 */
+	private static String solve(Entry entry, ThreadLocal<GRBEnv> workerEnv, List<GRBEnv> envs, int threads) {
+		Result result = new Result(entry);
+		if(entry.error != null) {
+			return result.error(entry.error);
+		}
+		GRBEnv env = workerEnv.get();
+		if(env == null) {
+			try {
+				env = new GRBEnv();
+			} catch (GRBException e) {
+				return result.error("Error creating gurobi enviornment. " + e.getMessage());
+			}
+			workerEnv.set(env);
+			envs.add(env);
+		}
+
+		long start = System.nanoTime();
+		CFLPInstance instance;
+		try {
+			instance = entry.instanceFiles.length == 1 ? BinaryInstanceFormat.read(entry.instanceFiles[0]) : CSVInstanceLoader.load(entry.instanceFiles, entry.metric);
+		} catch (IOException | RuntimeException e) {
+			return result.error("Error loading instance files. " + e.getMessage());
+		}
+		long loaded = System.nanoTime();
+		result.loadTime = loaded - start;
+
+		CFLPModel model = null;
+		try {
+			model = new CFLPModel(env, instance, entry.p, entry.allocation, entry.useNames);
+			GRBModel gurobiModel = model.getModel();
+			gurobiModel.set(GRB.IntParam.Threads, threads);
+			gurobiModel.set(GRB.IntParam.OutputFlag, 0);
+			if(!model.build()) {
+				return result.error("Error building model, see log.");
+			}
+			if(entry.mipStart) {
+				SingleAllocationSolution solution = new GreedyHeuristic(instance, entry.p).solve(HEURISTIC_TIME_LIMIT);
+				if(solution != null) {
+					model.setStart(solution);
+				}
+			}
+			long built = System.nanoTime();
+			result.buildTime = built - loaded;
+
+			if(!model.optimize()) {
+				return result.error("Error optimizing model, see log.");
+			}
+			long solved = System.nanoTime();
+			result.solveTime = solved - built;
+			result.totalTime = solved - start;
+
+			result.status = gurobiModel.get(GRB.IntAttr.Status);
+			if(gurobiModel.get(GRB.IntAttr.SolCount) > 0) {
+				result.objective = gurobiModel.get(GRB.DoubleAttr.ObjVal);
+				result.bound = gurobiModel.get(GRB.DoubleAttr.ObjBound);
+				result.gap = gurobiModel.get(GRB.DoubleAttr.MIPGap);
+			}
+			return result.toString();
+		} catch (GRBException e) {
+			return result.error("Error solving model. " + e.getMessage());
+		} finally {
+			if(model != null) {
+				model.dispose();
+			}
+		}
+	}
+
+	/**
+	 * This method quotes a CSV field if it contains a separator, quote or line break.
+	 *
+	 * @param field the field
+	 * @return the field as written to the CSV file
+	 */
+	private static String quote(String field) {
+		if(field.indexOf(',') < 0 && field.indexOf('"') < 0 && field.indexOf('\n') < 0) {
+			return field;
+		}
+		return "\"" + field.replace("\"", "\"\"") + "\"";
+	}
+
+	/**
+	 * This class is one instance of the manifest.
+	 */
+	private static final class Entry {
+
+		private final int line; //Line of the manifest
+		private final String instance; //Instance directory or binary instance file
+		private String[] instanceFiles;
+		private int p;
+		private AllocationMode allocation;
+		private boolean useNames = true;
+		private boolean mipStart = true;
+		private DistanceMetric metric = DistanceMetric.EUCLIDEAN;
+		private String error; //Why the line cannot be solved, or null
+
+		/**
+		 * This constructor parses a line of the manifest.
+		 *
+		 * @param line the line number
+		 * @param arguments the arguments on the line
+		 */
+		private Entry(int line, String[] arguments) {
+			this.line = line;
+			this.instance = arguments[0];
+			if(arguments.length < 3) {
+				error = "Expected an instance, the desired number of open facilities and the allocation mode.";
+				return;
+			}
+
+			if(BinaryInstanceFormat.isBinaryInstance(instance)) {
+				instanceFiles = new String[] {instance};
+			} else if(Files.isDirectory(Paths.get(instance))) {
+				instanceFiles = CSVInstanceLoader.instanceFiles(instance);
+			} else {
+				error = "Instance '" + instance + "' is neither an instance directory nor a binary instance file.";
+				return;
+			}
+
+			try {
+				p = Integer.parseInt(arguments[1]);
+			} catch (NumberFormatException e) {
+				error = "Invalid desired number of open facilities '" + arguments[1] + "'.";
+				return;
+			}
+			allocation = AllocationMode.fromArgument(arguments[2]);
+
+			for(int option = 3; option < arguments.length; option++) {
+				if(arguments[option].equals("--no-names")) {
+					useNames = false;
+				} else if(arguments[option].equals("--no-mip-start")) {
+					mipStart = false;
+				} else if(arguments[option].equals("--metric") && option + 1 < arguments.length) {
+					metric = DistanceMetric.fromArgument(arguments[++option]);
+					if(metric == null) {
+						error = "Invalid distance metric '" + arguments[option] + "'.";
+						return;
+					}
+				} else {
+					error = "Unknown option '" + arguments[option] + "'.";
+					return;
+				}
+			}
+		}
+
+	}
+
+	/**
+	 * This class is the results and timings of one instance, in nanoseconds.
+	 */
+	private static final class Result {
+
+		private final Entry entry;
+		private int status;
+		private double objective = Double.NaN;
+		private double bound = Double.NaN;
+		private double gap = Double.NaN;
+		private long loadTime;
+		private long buildTime;
+		private long solveTime;
+		private long totalTime;
+		private String error = "";
+
+		/**
+		 * @param entry the instance
+		 */
+		private Result(Entry entry) {
+			this.entry = entry;
+		}
+
+		/**
+		 * This method records an error and obtains the CSV row.
+		 *
+		 * @param error the error
+		 * @return the CSV row
+		 */
+		private String error(String error) {
+			this.error = error;
+			return toString();
+		}
+
+		@Override
+		public String toString() {
+			return String.format(Locale.ROOT, "%d,%s,%d,%s,%d,%s,%s,%s,%.3f,%.3f,%.3f,%.3f,%s", entry.line, quote(entry.instance),
+					entry.p, entry.allocation == null ? "" : entry.allocation.getArgument(), status, number(objective), number(bound),
+					number(gap), loadTime / 1e6, buildTime / 1e6, solveTime / 1e6, totalTime / 1e6, quote(error));
+		}
+
+		/**
+		 * @param value the value
+		 * @return the value as written to the CSV file, empty if there is none
+		 */
+		private static String number(double value) {
+			return Double.isNaN(value) ? "" : Double.toString(value);
+		}
+
+	}
+
+}
@@ -0,0 +1,385 @@
+/**
+ * This class solves the divisible demand model with Benders decomposition. The master problem holds the facility
+ * variables z, the desired number of open facilities and one estimate theta of the cost of every subproblem. The
+ * subproblems are the transportation LPs left once the open facilities are fixed (see BendersSubproblem).
+ *
+ * When no facility has a minimum activity level and every maximum activity level covers the total demand, the
+ * activity levels do not couple the products and there is one subproblem per product, solved in parallel. Otherwise
+ * a single subproblem covers every product.
+ *
+ * Cuts are either added iteratively, solving the master problem again after each round, or as lazy constraints from
+ * a callback on every new master incumbent, in which case the master problem is solved once.
+ *
+ * @author ryanhow
+ *
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import gurobi.*;
+
+public class BendersDecomposition {
+
+	private static final int MAX_ITERATIONS = 1000; //Master problem solves when cuts are added iteratively
+	private static final double OPTIMALITY_TOLERANCE = 1e-6; //Relative gap at which the decomposition stops
+
+	private final CFLPInstance instance;
+	private final int J;
+	private final boolean lazy; //Whether cuts are added as lazy constraints
+
+	private final GRBModel master;
+	private final GRBVar[] z; //If facility j is open or not
+	private final GRBVar[] theta; //Estimated cost of each subproblem
+	private final BendersSubproblem[] subproblems;
+	private final ExecutorService pool;
+
+	private double[] bestOpen;
+	private double bestCost = Double.POSITIVE_INFINITY;
+	private double lowerBound = Double.NEGATIVE_INFINITY;
+	private int iterations;
+	private int cuts;
+	private GRBException callbackException;
+
+	/**
+	 * This constructor builds the master problem and the subproblems.
+	 *
+	 * @param env the gurobi environment of the master problem
+	 * @param instance the CFLP instance
+	 * @param p the desired number of open facilities
+	 * @param lazy whether cuts are added as lazy constraints instead of iteratively
+	 * @throws GRBException if a model cannot be built
+	 */
+	public BendersDecomposition(GRBEnv env, CFLPInstance instance, int p, boolean lazy) throws GRBException {
+		this.instance = instance;
+		this.lazy = lazy;
+		int K = instance.numProducts();
+		J = instance.numFacilities();
+		int R = instance.numCustomers();
+
+		//Subproblems
+		double totalDemand = 0;
+		for(int r = 0; r < R; r++) {
+			totalDemand += instance.customerDemand(r);
+		}
+		boolean coupled = false;
+		for(int j = 0; j < J; j++) {
+			if(instance.minActivity(j) > 0 || instance.maxActivity(j) < totalDemand) {
+				coupled = true;
+			}
+		}
+		int parts = coupled ? 1 : K;
+		int processors = Runtime.getRuntime().availableProcessors();
+		int threads = parts > 1 ? Math.max(1, processors / parts) : 0;
+		subproblems = new BendersSubproblem[parts];
+		for(int n = 0; n < parts; n++) {
+			int[] products = new int[coupled ? K : 1];
+			for(int index = 0; index < products.length; index++) {
+				products[index] = coupled ? index : n;
+			}
+			subproblems[n] = new BendersSubproblem(instance, products, coupled, threads);
+		}
+		pool = Executors.newFixedThreadPool(Math.max(1, Math.min(parts, processors)));
+
+		//Master Problem
+		master = new GRBModel(env);
+		double[] facilityUpperBounds = new double[J];
+		Arrays.fill(facilityUpperBounds, 1);
+		char[] facilityTypes = new char[J];
+		Arrays.fill(facilityTypes, GRB.BINARY);
+		double[] facilityCosts = new double[J];
+		double[] facilityCapacities = new double[J];
+		for(int j = 0; j < J; j++) {
+			facilityCosts[j] = instance.fixedCost(j);
+			facilityCapacities[j] = instance.maxActivity(j);
+		}
+		z = master.addVars(null, facilityUpperBounds, facilityCosts, facilityTypes, null);
+		double[] estimateCosts = new double[parts];
+		Arrays.fill(estimateCosts, 1);
+		theta = master.addVars(null, null, estimateCosts, null, null);
+		master.set(GRB.IntAttr.ModelSense, GRB.MINIMIZE);
+
+		GRBLinExpr numberOfFacilities = new GRBLinExpr();
+		numberOfFacilities.addTerms(facilityUpperBounds, z);
+		master.addConstr(numberOfFacilities, GRB.EQUAL, p, "Desired number of open facilities");
+
+		//The open facilities must be able to serve the total demand, which saves early feasibility cuts
+		GRBLinExpr openCapacity = new GRBLinExpr();
+		openCapacity.addTerms(facilityCapacities, z);
+		master.addConstr(openCapacity, GRB.GREATER_EQUAL, totalDemand, "Open capacity covers demand");
+
+		if(lazy) {
+			master.set(GRB.IntParam.LazyConstraints, 1);
+		} else {
+			//Each master solve must be as tight as the decomposition, or the gap cannot reach its tolerance
+			master.set(GRB.DoubleParam.MIPGap, OPTIMALITY_TOLERANCE);
+		}
+	}
+
+	/**
+	 * This method solves the decomposition. The subproblems are left at the best solution found, see getFlows.
+	 *
+	 * @return true if a feasible solution was found, false otherwise
+	 * @throws GRBException if a model cannot be solved
+	 */
+	public boolean solve() throws GRBException {
+		if(lazy) {
+			master.setCallback(new GRBCallback() {
+				@Override
+				protected void callback() {
+					if(where != GRB.CB_MIPSOL) {
+						return;
+					}
+					try {
+						separate(rounded(getSolution(z)), getSolution(theta), this::addLazy);
+					} catch (GRBException e) {
+						callbackException = e;
+						abort();
+					}
+				}
+			});
+			master.optimize();
+			if(callbackException != null) {
+				throw callbackException;
+			}
+			if(master.get(GRB.IntAttr.SolCount) == 0) {
+				return false;
+			}
+			iterations = 1;
+			lowerBound = master.get(GRB.DoubleAttr.ObjBound);
+			bestCost = master.get(GRB.DoubleAttr.ObjVal);
+			bestOpen = rounded(master.get(GRB.DoubleAttr.X, z));
+		} else {
+			while(iterations < MAX_ITERATIONS) {
+				iterations++;
+				master.optimize();
+				if(master.get(GRB.IntAttr.Status) != GRB.Status.OPTIMAL) {
+					break;
+				}
+				//The incumbent of a master solved to a gap may lie above its optimum, its bound never does
+				lowerBound = master.get(GRB.DoubleAttr.ObjBound);
+				double[] open = rounded(master.get(GRB.DoubleAttr.X, z));
+				int added = separate(open, master.get(GRB.DoubleAttr.X, theta), (expr, sense, rhs) -> master.addConstr(expr, sense, rhs, null));
+				if(added == 0 || getGap() <= OPTIMALITY_TOLERANCE) {
+					break;
+				}
+			}
+			if(bestOpen == null) {
+				return false;
+			}
+		}
+
+		//Leave the subproblems at the best solution
+		return solveSubproblems(bestOpen);
+	}
+
+	/**
+	 * This method solves the subproblems for a set of open facilities and adds a feasibility cut for every infeasible
+	 * subproblem and an optimality cut for every subproblem whose cost is underestimated.
+	 *
+	 * @param open the value of z for each facility
+	 * @param estimates the value of theta for each subproblem
+	 * @param sink where the cuts are added
+	 * @return the number of cuts added
+	 * @throws GRBException if a subproblem cannot be solved or a cut cannot be added
+	 */
+	private int separate(double[] open, double[] estimates, CutSink sink) throws GRBException {
+		solveSubproblems(open);
+		double cost = 0;
+		for(int j = 0; j < J; j++) {
+			cost += instance.fixedCost(j) * open[j];
+		}
+
+		int added = 0;
+		for(int n = 0; n < subproblems.length; n++) {
+			BendersSubproblem subproblem = subproblems[n];
+			double cutConstant = subproblem.getCutConstant();
+			double[] cutCoefficients = subproblem.getCutCoefficients();
+			GRBLinExpr cut = new GRBLinExpr();
+			cut.addTerms(cutCoefficients, z);
+
+			if(!subproblem.isFeasible()) {
+				//The Farkas duals give the current facilities one sign, feasible facilities the other
+				double value = cutConstant;
+				for(int j = 0; j < J; j++) {
+					value += cutCoefficients[j] * open[j];
+				}
+				sink.add(cut, value > 0 ? GRB.LESS_EQUAL : GRB.GREATER_EQUAL, -cutConstant);
+				added++;
+				cost = Double.POSITIVE_INFINITY;
+				continue;
+			}
+
+			double objective = subproblem.getObjective();
+			cost += objective;
+			if(estimates[n] < objective - OPTIMALITY_TOLERANCE * Math.max(1, Math.abs(objective))) {
+				cut.addTerm(-1, theta[n]);
+				sink.add(cut, GRB.LESS_EQUAL, -cutConstant);
+				added++;
+			}
+		}
+
+		if(cost < bestCost) {
+			bestCost = cost;
+			bestOpen = open.clone();
+		}
+		cuts += added;
+		return added;
+	}
+
+	/**
+	 * This method solves every subproblem for a set of open facilities, in parallel when there are several.
+	 *
+	 * @param open the value of z for each facility
+	 * @return true if every subproblem is feasible, false otherwise
+	 * @throws GRBException if a subproblem cannot be solved
+	 */
+	private boolean solveSubproblems(double[] open) throws GRBException {
+		if(subproblems.length == 1) {
+			return subproblems[0].solve(open);
+		}
+
+		List<Callable<Boolean>> tasks = new ArrayList<>();
+		for(BendersSubproblem subproblem : subproblems) {
+			tasks.add(() -> subproblem.solve(open));
+		}
+		boolean feasible = true;
+		try {
+			for(Future<Boolean> task : pool.invokeAll(tasks)) {
+				feasible &= task.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new GRBException("Interrupted while solving Benders subproblems.");
+		} catch (ExecutionException e) {
+			if(e.getCause() instanceof GRBException) {
+				throw (GRBException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+		return feasible;
+	}
+
+	/**
+	 * This method rounds the facility values of a master solution.
+	 *
+	 * @param values the value of z for each facility
+	 * @return the rounded values
+	 */
+	private static double[] rounded(double[] values) {
+		double[] rounded = new double[values.length];
+		for(int j = 0; j < values.length; j++) {
+			rounded[j] = Math.round(values[j]);
+		}
+		return rounded;
+	}
+
+	/**
+	 * @param j the facility
+	 * @return true if facility j is open in the best solution, false otherwise
+	 */
+	public boolean isOpen(int j) {
+		return bestOpen != null && bestOpen[j] > 0.5;
+	}
+
+	/**
+	 * This method obtains the flows of the best solution.
+	 *
+	 * @return the amount of product k supplied by plant i to facility j to customer r, indexed
+	 * [((k * I + i) * J + j) * R + r]
+	 * @throws GRBException if the solution cannot be obtained
+	 */
+	public double[] getFlows() throws GRBException {
+		int K = instance.numProducts();
+		int route = instance.numPlants() * J * instance.numCustomers(); //Flows of a single product
+		double[] flows = new double[K * route];
+		for(BendersSubproblem subproblem : subproblems) {
+			int[] products = subproblem.getProducts();
+			double[] subproblemFlows = subproblem.getFlows();
+			for(int n = 0; n < products.length; n++) {
+				System.arraycopy(subproblemFlows, n * route, flows, products[n] * route, route);
+			}
+		}
+		return flows;
+	}
+
+	/**
+	 * @return the cost of the best solution, or positive infinity if there is none
+	 */
+	public double getCost() {
+		return bestCost;
+	}
+
+	/**
+	 * @return the best lower bound on the optimal cost
+	 */
+	public double getLowerBound() {
+		return lowerBound;
+	}
+
+	/**
+	 * @return the relative gap between the best solution and the lower bound
+	 */
+	public double getGap() {
+		if(bestCost == Double.POSITIVE_INFINITY || lowerBound == Double.NEGATIVE_INFINITY) {
+			return Double.POSITIVE_INFINITY;
+		}
+		return Math.max(0, bestCost - lowerBound) / Math.max(1e-10, Math.abs(bestCost));
+	}
+
+	/**
+	 * @return the number of master problem solves
+	 */
+	public int getIterations() {
+		return iterations;
+	}
+
+	/**
+	 * @return the number of cuts added to the master problem
+	 */
+	public int getCuts() {
+		return cuts;
+	}
+
+	/**
+	 * @return the number of subproblems
+	 */
+	public int getSubproblems() {
+		return subproblems.length;
+	}
+
+	/**
+	 * This method disposes the master problem and the subproblems.
+	 *
+	 * @throws GRBException if a model cannot be disposed
+	 */
+	public void dispose() throws GRBException {
+		pool.shutdown();
+		master.dispose();
+		for(BendersSubproblem subproblem : subproblems) {
+			subproblem.dispose();
+		}
+	}
+
+	/**
+	 * This interface adds a cut to the master problem, either as a constraint or as a lazy constraint.
+	 */
+	private interface CutSink {
+
+		/**
+		 * @param expr the left hand side of the cut
+		 * @param sense the sense of the cut
+		 * @param rhs the right hand side of the cut
+		 * @throws GRBException if the cut cannot be added
+		 */
+		void add(GRBLinExpr expr, char sense, double rhs) throws GRBException;
+
+	}
+
+}
@@ -0,0 +1,297 @@
+/**
+ * This class is a subproblem of the Benders decomposition of the divisible demand model. With the open facilities
+ * fixed, the divisible demand model is a transportation LP over the flows s of every product, built from its demand,
+ * plant capacity and activity level constraints with the open facilities moved into the right hand sides.
+ *
+ * When the activity levels do not couple the products (see BendersDecomposition), a subproblem covers a single
+ * product and the activity level of a facility is replaced by the total demand of the product, which only keeps the
+ * flows away from closed facilities. Every subproblem owns its gurobi environment so the subproblems can be solved
+ * on separate threads.
+ *
+ * @author ryanhow
+ *
+ */
+
+import java.util.Arrays;
+
+import gurobi.*;
+
+public class BendersSubproblem {
+
+	private final int[] products; //Products covered by the subproblem
+	private final int I;
+	private final int J;
+	private final int R;
+
+	private final GRBEnv env;
+	private final GRBModel model;
+	private final GRBVar[] s; //Amount of product products[n] supplied by plant i to facility j to customer r, indexed [((n * I + i) * J + j) * R + r]
+	private final GRBConstr[] rows;
+
+	//Right hand side of each row: constant + zCoefficient * z[facility], where facility is -1 for rows without z
+	private final double[] constant;
+	private final double[] zCoefficient;
+	private final int[] facility;
+
+	private boolean feasible;
+	private double objective;
+	private double[] duals; //Duals of the rows, or the Farkas duals when the subproblem is infeasible
+
+	/**
+	 * This constructor builds the subproblem LP.
+	 *
+	 * @param instance the CFLP instance
+	 * @param products the products covered by the subproblem
+	 * @param coupled whether the activity levels of the facilities hold across products
+	 * @param threads the number of threads gurobi may use, 0 for automatic
+	 * @throws GRBException if the environment or model cannot be built
+	 */
+	public BendersSubproblem(CFLPInstance instance, int[] products, boolean coupled, int threads) throws GRBException {
+		this.products = products.clone();
+		I = instance.numPlants();
+		J = instance.numFacilities();
+		R = instance.numCustomers();
+		int P = products.length;
+
+		env = new GRBEnv(true);
+		env.set(GRB.IntParam.OutputFlag, 0);
+		env.start();
+		model = new GRBModel(env);
+		model.set(GRB.IntParam.Threads, threads);
+		model.set(GRB.IntParam.Method, 1); //Dual simplex reuses the basis when only the right hand sides change
+		model.set(GRB.IntParam.InfUnbdInfo, 1);
+		model.set(GRB.IntParam.DualReductions, 0);
+
+		//Flows
+		double[] flowCosts = new double[P * I * J * R];
+		for(int n = 0; n < P; n++) {
+			int k = products[n];
+			for(int i = 0; i < I; i++) {
+				for(int j = 0; j < J; j++) {
+					double plantDistance = instance.plantDistance(i, j);
+					double marginalCost = instance.marginalCost(j);
+					for(int r = 0; r < R; r++) {
+						double transportationCost = instance.unitCost(k) * (plantDistance + instance.customerDistance(j, r));
+						flowCosts[index(n, i, j, r)] = transportationCost + marginalCost;
+					}
+				}
+			}
+		}
+		s = model.addVars(null, null, flowCosts, null, null);
+
+		int demandRows = P * R;
+		int capacityRows = P * I;
+		int activityRows = coupled ? 2 * J : P * J;
+		int count = demandRows + capacityRows + activityRows;
+		GRBLinExpr[] expressions = new GRBLinExpr[count];
+		char[] senses = new char[count];
+		constant = new double[count];
+		zCoefficient = new double[count];
+		facility = new int[count];
+		Arrays.fill(facility, -1);
+		int row = 0;
+
+		//Divisible Demand
+		double[] routeOnes = ones(I * J);
+		GRBVar[] routesToCustomer = new GRBVar[I * J];
+		for(int n = 0; n < P; n++) {
+			for(int r = 0; r < R; r++) {
+				for(int i = 0; i < I; i++) {
+					for(int j = 0; j < J; j++) {
+						routesToCustomer[i * J + j] = s[index(n, i, j, r)];
+					}
+				}
+				expressions[row] = new GRBLinExpr();
+				expressions[row].addTerms(routeOnes, routesToCustomer);
+				senses[row] = GRB.EQUAL;
+				constant[row++] = instance.demand(r, products[n]);
+			}
+		}
+
+		//Production Plant Capacity
+		double[] deliveryOnes = ones(J * R);
+		for(int n = 0; n < P; n++) {
+			for(int i = 0; i < I; i++) {
+				expressions[row] = new GRBLinExpr();
+				expressions[row].addTerms(deliveryOnes, s, index(n, i, 0, 0), J * R);
+				senses[row] = GRB.LESS_EQUAL;
+				constant[row++] = instance.capacity(i, products[n]);
+			}
+		}
+
+		//Maximum and Minimum Facility Activity Level
+		if(coupled) {
+			double[] throughputOnes = ones(P * I * R);
+			GRBVar[] routesThroughFacility = new GRBVar[P * I * R];
+			for(int j = 0; j < J; j++) {
+				for(int n = 0; n < P; n++) {
+					for(int i = 0; i < I; i++) {
+						System.arraycopy(s, index(n, i, j, 0), routesThroughFacility, (n * I + i) * R, R);
+					}
+				}
+				GRBLinExpr productFromFacility = new GRBLinExpr();
+				productFromFacility.addTerms(throughputOnes, routesThroughFacility);
+				expressions[row] = productFromFacility;
+				senses[row] = GRB.LESS_EQUAL;
+				zCoefficient[row] = instance.maxActivity(j);
+				facility[row++] = j;
+				expressions[row] = new GRBLinExpr(productFromFacility);
+				senses[row] = GRB.GREATER_EQUAL;
+				zCoefficient[row] = instance.minActivity(j);
+				facility[row++] = j;
+			}
+		} else {
+			double[] throughputOnes = ones(I * R);
+			GRBVar[] routesThroughFacility = new GRBVar[I * R];
+			for(int n = 0; n < P; n++) {
+				double productDemand = 0;
+				for(int r = 0; r < R; r++) {
+					productDemand += instance.demand(r, products[n]);
+				}
+				for(int j = 0; j < J; j++) {
+					for(int i = 0; i < I; i++) {
+						System.arraycopy(s, index(n, i, j, 0), routesThroughFacility, i * R, R);
+					}
+					expressions[row] = new GRBLinExpr();
+					expressions[row].addTerms(throughputOnes, routesThroughFacility);
+					senses[row] = GRB.LESS_EQUAL;
+					zCoefficient[row] = productDemand;
+					facility[row++] = j;
+				}
+			}
+		}
+
+		rows = model.addConstrs(expressions, senses, constant, null);
+	}
+
+	/**
+	 * This method solves the subproblem for a set of open facilities.
+	 *
+	 * @param open the value of z for each facility
+	 * @return true if the subproblem is feasible, false otherwise
+	 * @throws GRBException if the subproblem cannot be solved to optimality or infeasibility
+	 */
+	public boolean solve(double[] open) throws GRBException {
+		double[] rhs = new double[rows.length];
+		for(int row = 0; row < rows.length; row++) {
+			rhs[row] = facility[row] == -1 ? constant[row] : zCoefficient[row] * open[facility[row]];
+		}
+		model.set(GRB.DoubleAttr.RHS, rows, rhs);
+		model.optimize();
+
+		int status = model.get(GRB.IntAttr.Status);
+		if(status == GRB.Status.OPTIMAL) {
+			feasible = true;
+			objective = model.get(GRB.DoubleAttr.ObjVal);
+			duals = model.get(GRB.DoubleAttr.Pi, rows);
+		} else if(status == GRB.Status.INFEASIBLE) {
+			feasible = false;
+			objective = Double.POSITIVE_INFINITY;
+			duals = model.get(GRB.DoubleAttr.FarkasDual, rows);
+		} else {
+			throw new GRBException("Benders subproblem ended with status " + status + ".", status);
+		}
+		return feasible;
+	}
+
+	/**
+	 * This method obtains the constant of the cut from the last solve: the duals applied to the right hand sides
+	 * which do not depend on the open facilities.
+	 *
+	 * @return the cut constant
+	 */
+	public double getCutConstant() {
+		double cutConstant = 0;
+		for(int row = 0; row < rows.length; row++) {
+			if(facility[row] == -1) {
+				cutConstant += duals[row] * constant[row];
+			}
+		}
+		return cutConstant;
+	}
+
+	/**
+	 * This method obtains the coefficients of the open facilities in the cut from the last solve. Together with the
+	 * constant they give the subproblem objective as a function of z (an optimality cut) or, when the subproblem is
+	 * infeasible, a function of z whose sign separates the current facilities from the feasible ones (a feasibility
+	 * cut).
+	 *
+	 * @return the cut coefficient of each facility
+	 */
+	public double[] getCutCoefficients() {
+		double[] coefficients = new double[J];
+		for(int row = 0; row < rows.length; row++) {
+			if(facility[row] != -1) {
+				coefficients[facility[row]] += duals[row] * zCoefficient[row];
+			}
+		}
+		return coefficients;
+	}
+
+	/**
+	 * @return true if the last solve was feasible, false otherwise
+	 */
+	public boolean isFeasible() {
+		return feasible;
+	}
+
+	/**
+	 * @return the objective value of the last solve, or positive infinity if it was infeasible
+	 */
+	public double getObjective() {
+		return objective;
+	}
+
+	/**
+	 * @return the products covered by the subproblem
+	 */
+	public int[] getProducts() {
+		return products.clone();
+	}
+
+	/**
+	 * This method obtains every flow of the last solve.
+	 *
+	 * @return the flows, indexed [((n * I + i) * J + j) * R + r] where n is the position of the product in getProducts
+	 * @throws GRBException if the solution cannot be obtained
+	 */
+	public double[] getFlows() throws GRBException {
+		return model.get(GRB.DoubleAttr.X, s);
+	}
+
+	/**
+	 * This method creates an array of ones.
+	 *
+	 * @param length the length of the array
+	 * @return the array
+	 */
+	private static double[] ones(int length) {
+		double[] ones = new double[length];
+		Arrays.fill(ones, 1);
+		return ones;
+	}
+
+	/**
+	 * This method obtains the index of a flow variable.
+	 *
+	 * @param n the position of the product in the subproblem
+	 * @param i the production plant
+	 * @param j the facility
+	 * @param r the customer
+	 * @return the index in s
+	 */
+	private int index(int n, int i, int j, int r) {
+		return ((n * I + i) * J + j) * R + r;
+	}
+
+	/**
+	 * This method disposes the gurobi model and environment of the subproblem.
+	 *
+	 * @throws GRBException if they cannot be disposed
+	 */
+	public void dispose() throws GRBException {
+		model.dispose();
+		env.dispose();
+	}
+
+}
@@ -0,0 +1,413 @@
+/**
+ * This class reads and writes the binary CFLP instance format. A binary instance holds the same data as the 9 CSV
+ * files (see README.md) as a header followed by one little-endian primitive array per parameter:
+ *
+ * <pre>
+ * magic "CFLPBIN1" | version | K | I | J | R | padding
+ * drk (int, R * K) | pik (int, I * K) | qj_min (int, J) | qj_max (int, J)
+ * fj (double, J) | gj (double, J) | ck (double, K) | lij (double, I * J) | ljr (double, J * R)
+ * </pre>
+ *
+ * A coordinate instance (see CoordinateDistances) is written as version 2, which stores the distance metric in the
+ * padding of the header and replaces lij and ljr with the locations of the plants, facilities and customers:
+ *
+ * <pre>
+ * ... | ck (double, K) | plants (double, I * 2) | facilities (double, J * 2) | customers (double, R * 2)
+ * </pre>
+ *
+ * Every array starts on an 8 byte boundary. Reading memory-maps the file and bulk copies each array in parallel, so
+ * reloading an instance costs a memory copy instead of a parse.
+ *
+ * Running this class converts a CSV instance to the binary format:
+ * java BinaryInstanceFormat [9 or 10 CSV files in the order of the CFLP arguments] [output file] [--metric metric]
+ *
+ * @author ryanhow
+ *
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class BinaryInstanceFormat {
+
+	private final static Logger LOGGER = Logger.getLogger(BinaryInstanceFormat.class.getName());
+
+	private static final byte[] MAGIC = "CFLPBIN1".getBytes(StandardCharsets.US_ASCII);
+	private static final int MATRIX_VERSION = 1; //Distances as the lij and ljr matrices
+	private static final int COORDINATE_VERSION = 2; //Distances computed from the locations, metric in the padding
+	private static final int HEADER_SIZE = 32; //Magic, version, K, I, J, R and padding to 8 bytes
+	private static final int SEGMENT_SIZE = 1 << 26; //Bytes copied by one task when reading
+	private static final int WRITE_BUFFER_SIZE = 1 << 20; //Bytes buffered when writing
+
+	private BinaryInstanceFormat() {
+	}
+
+	public static void main(String[] args) {
+		DistanceMetric metric = DistanceMetric.EUCLIDEAN;
+		if(args.length > 2 && args[args.length - 2].equals("--metric")) {
+			metric = DistanceMetric.fromArgument(args[args.length - 1]);
+			args = Arrays.copyOf(args, args.length - 2);
+		}
+		if((args.length != 10 && args.length != 11) || metric == null) {
+			LOGGER.log(Level.SEVERE, "Invalid input. Expected the 9 or 10 CSV instance files followed by the output file.");
+			return;
+		}
+		try {
+			CFLPInstance instance = CSVInstanceLoader.load(Arrays.copyOf(args, args.length - 1), metric);
+			write(instance, args[args.length - 1]);
+		} catch (IOException e) {
+			LOGGER.log(Level.SEVERE, "Error converting instance. " + e.getMessage());
+		}
+	}
+
+	/**
+	 * This method checks if a file starts with the binary instance header.
+	 *
+	 * @param filePath the path to the file
+	 * @return true if the file is a binary instance, false otherwise
+	 */
+	public static boolean isBinaryInstance(String filePath) {
+		Path path = Paths.get(filePath);
+		if(!Files.isRegularFile(path)) {
+			return false;
+		}
+		try (InputStream in = Files.newInputStream(path)) {
+			byte[] magic = new byte[MAGIC.length];
+			int read = in.readNBytes(magic, 0, magic.length);
+			return read == MAGIC.length && Arrays.equals(magic, MAGIC);
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * This method writes an instance in the binary format, as version 2 if its distances are computed from locations.
+	 *
+	 * @param instance the instance
+	 * @param filePath the path to the output file
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void write(CFLPInstance instance, String filePath) throws IOException {
+		int K = instance.numProducts();
+		int I = instance.numPlants();
+		int J = instance.numFacilities();
+		int R = instance.numCustomers();
+		CoordinateDistances locations = instance.distances() instanceof CoordinateDistances ? (CoordinateDistances) instance.distances() : null;
+
+		try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			buffer.put(MAGIC);
+			buffer.putInt(locations != null ? COORDINATE_VERSION : MATRIX_VERSION).putInt(K).putInt(I).putInt(J).putInt(R);
+			if(locations != null) {
+				buffer.putInt(locations.getMetric().ordinal());
+			}
+			pad(buffer);
+
+			for(int r = 0; r < R; r++) {
+				for(int k = 0; k < K; k++) {
+					putInt(channel, buffer, instance.demand(r, k));
+				}
+			}
+			pad(buffer);
+			for(int i = 0; i < I; i++) {
+				for(int k = 0; k < K; k++) {
+					putInt(channel, buffer, instance.capacity(i, k));
+				}
+			}
+			pad(buffer);
+			for(int j = 0; j < J; j++) {
+				putInt(channel, buffer, instance.minActivity(j));
+			}
+			pad(buffer);
+			for(int j = 0; j < J; j++) {
+				putInt(channel, buffer, instance.maxActivity(j));
+			}
+			pad(buffer);
+			for(int j = 0; j < J; j++) {
+				putDouble(channel, buffer, instance.fixedCost(j));
+			}
+			for(int j = 0; j < J; j++) {
+				putDouble(channel, buffer, instance.marginalCost(j));
+			}
+			for(int k = 0; k < K; k++) {
+				putDouble(channel, buffer, instance.unitCost(k));
+			}
+			if(locations != null) {
+				for(int i = 0; i < I; i++) {
+					putLocation(channel, buffer, locations.plantLocation(i));
+				}
+				for(int j = 0; j < J; j++) {
+					putLocation(channel, buffer, locations.facilityLocation(j));
+				}
+				for(int r = 0; r < R; r++) {
+					putLocation(channel, buffer, locations.customerLocation(r));
+				}
+				flush(channel, buffer);
+				return;
+			}
+			for(int i = 0; i < I; i++) {
+				for(int j = 0; j < J; j++) {
+					putDouble(channel, buffer, instance.plantDistance(i, j));
+				}
+			}
+			for(int j = 0; j < J; j++) {
+				for(int r = 0; r < R; r++) {
+					putDouble(channel, buffer, instance.customerDistance(j, r));
+				}
+			}
+			flush(channel, buffer);
+		}
+	}
+
+	/**
+	 * This method reads a binary instance. The file is memory-mapped and each parameter array is copied out of the
+	 * mapping in parallel segments.
+	 *
+	 * @param filePath the path to the binary instance
+	 * @return the instance
+	 * @throws IOException if the file cannot be read or is not a valid binary instance
+	 */
+	public static CFLPInstance read(String filePath) throws IOException {
+		try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+			if(channel.size() < HEADER_SIZE) {
+				throw new IOException("File '" + filePath + "' is too small to be a binary instance.");
+			}
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			byte[] magic = new byte[MAGIC.length];
+			header.get(magic);
+			if(!Arrays.equals(magic, MAGIC)) {
+				throw new IOException("File '" + filePath + "' is not a binary instance.");
+			}
+			int version = header.getInt();
+			if(version != MATRIX_VERSION && version != COORDINATE_VERSION) {
+				throw new IOException("File '" + filePath + "' has unsupported binary instance version " + version + ".");
+			}
+			int K = header.getInt();
+			int I = header.getInt();
+			int J = header.getInt();
+			int R = header.getInt();
+			int metric = header.getInt();
+			if(K < 0 || I < 0 || J < 0 || R < 0 || (version == COORDINATE_VERSION && (metric < 0 || metric >= DistanceMetric.values().length))) {
+				throw new IOException("File '" + filePath + "' has a corrupt header.");
+			}
+
+			int[] drk = new int[checkedLength(filePath, (long) R * K)];
+			int[] pik = new int[checkedLength(filePath, (long) I * K)];
+			int[] qj_min = new int[J];
+			int[] qj_max = new int[J];
+			double[] fj = new double[J];
+			double[] gj = new double[J];
+			double[] ck = new double[K];
+			boolean coordinates = version == COORDINATE_VERSION;
+			double[] lij = new double[checkedLength(filePath, coordinates ? 2L * I : (long) I * J)]; //Plant locations of a coordinate instance
+			double[] ljr = new double[checkedLength(filePath, coordinates ? 2L * J : (long) J * R)]; //Facility locations of a coordinate instance
+			double[] customers = new double[coordinates ? checkedLength(filePath, 2L * R) : 0];
+
+			List<RecursiveAction> copies = new ArrayList<>();
+			long offset = HEADER_SIZE;
+			offset = mapIntegers(channel, offset, drk, copies);
+			offset = mapIntegers(channel, offset, pik, copies);
+			offset = mapIntegers(channel, offset, qj_min, copies);
+			offset = mapIntegers(channel, offset, qj_max, copies);
+			offset = mapDoubles(channel, offset, fj, copies);
+			offset = mapDoubles(channel, offset, gj, copies);
+			offset = mapDoubles(channel, offset, ck, copies);
+			offset = mapDoubles(channel, offset, lij, copies);
+			offset = mapDoubles(channel, offset, ljr, copies);
+			offset = mapDoubles(channel, offset, customers, copies);
+			if(offset != channel.size()) {
+				throw new IOException("File '" + filePath + "' has " + channel.size() + " bytes but its header describes " + offset + ".");
+			}
+			ForkJoinTask.invokeAll(copies);
+
+			if(coordinates) {
+				Distances distances = new CoordinateDistances(I, J, R, lij, ljr, customers, DistanceMetric.values()[metric]);
+				return new CFLPInstance(K, I, J, R, drk, pik, qj_min, qj_max, fj, gj, ck, distances);
+			}
+			return new CFLPInstance(K, I, J, R, drk, pik, qj_min, qj_max, fj, gj, ck, lij, ljr);
+		}
+	}
+
+	/**
+	 * This method checks that an array described by the header fits in a java array.
+	 *
+	 * @param filePath the path to the binary instance
+	 * @param length the length of the array
+	 * @return the length of the array
+	 * @throws IOException if the array is too large
+	 */
+	private static int checkedLength(String filePath, long length) throws IOException {
+		if(length < 0 || length > Integer.MAX_VALUE) {
+			throw new IOException("File '" + filePath + "' describes an array of " + length + " values.");
+		}
+		return (int) length;
+	}
+
+	/**
+	 * This method maps an integer array of the file and queues the tasks copying it.
+	 *
+	 * @param channel the channel of the file
+	 * @param offset the position of the array in the file
+	 * @param values the array to fill
+	 * @param copies the copy tasks
+	 * @return the position of the next array in the file
+	 * @throws IOException if the array lies outside the file
+	 */
+	private static long mapIntegers(FileChannel channel, long offset, int[] values, List<RecursiveAction> copies) throws IOException {
+		int perSegment = SEGMENT_SIZE / Integer.BYTES;
+		for(int start = 0; start < values.length; start += perSegment) {
+			int length = Math.min(perSegment, values.length - start);
+			MappedByteBuffer segment = map(channel, offset + (long) start * Integer.BYTES, (long) length * Integer.BYTES);
+			int first = start;
+			copies.add(copy(() -> segment.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(values, first, length)));
+		}
+		return align(offset + (long) values.length * Integer.BYTES);
+	}
+
+	/**
+	 * This method maps a double array of the file and queues the tasks copying it.
+	 *
+	 * @param channel the channel of the file
+	 * @param offset the position of the array in the file
+	 * @param values the array to fill
+	 * @param copies the copy tasks
+	 * @return the position of the next array in the file
+	 * @throws IOException if the array lies outside the file
+	 */
+	private static long mapDoubles(FileChannel channel, long offset, double[] values, List<RecursiveAction> copies) throws IOException {
+		int perSegment = SEGMENT_SIZE / Double.BYTES;
+		for(int start = 0; start < values.length; start += perSegment) {
+			int length = Math.min(perSegment, values.length - start);
+			MappedByteBuffer segment = map(channel, offset + (long) start * Double.BYTES, (long) length * Double.BYTES);
+			int first = start;
+			copies.add(copy(() -> segment.order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(values, first, length)));
+		}
+		return align(offset + (long) values.length * Double.BYTES);
+	}
+
+	/**
+	 * This method maps a region of the file.
+	 *
+	 * @param channel the channel of the file
+	 * @param offset the start of the region
+	 * @param length the length of the region
+	 * @return the mapped region
+	 * @throws IOException if the region lies outside the file
+	 */
+	private static MappedByteBuffer map(FileChannel channel, long offset, long length) throws IOException {
+		if(offset + length > channel.size()) {
+			throw new IOException("Binary instance is truncated at byte " + channel.size() + ".");
+		}
+		return channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+	}
+
+	/**
+	 * This method wraps a bulk copy into a fork join action.
+	 *
+	 * @param copy the bulk copy
+	 * @return the action
+	 */
+	private static RecursiveAction copy(Runnable copy) {
+		return new RecursiveAction() {
+			@Override
+			protected void compute() {
+				copy.run();
+			}
+		};
+	}
+
+	/**
+	 * @param offset a position in the file
+	 * @return the position rounded up to the next 8 byte boundary
+	 */
+	private static long align(long offset) {
+		return (offset + 7) & ~7L;
+	}
+
+	/**
+	 * This method pads the buffered output to the next 8 byte boundary. The buffer size is a multiple of 8 so
+	 * the buffer position is aligned exactly when the file position is.
+	 *
+	 * @param buffer the output buffer
+	 */
+	private static void pad(ByteBuffer buffer) {
+		while(buffer.position() % 8 != 0) {
+			buffer.put((byte) 0);
+		}
+	}
+
+	/**
+	 * This method appends an integer to the buffered output.
+	 *
+	 * @param channel the channel of the file
+	 * @param buffer the output buffer
+	 * @param value the value
+	 * @throws IOException if the file cannot be written
+	 */
+	private static void putInt(FileChannel channel, ByteBuffer buffer, int value) throws IOException {
+		if(buffer.remaining() < Integer.BYTES) {
+			flush(channel, buffer);
+		}
+		buffer.putInt(value);
+	}
+
+	/**
+	 * This method appends a double to the buffered output.
+	 *
+	 * @param channel the channel of the file
+	 * @param buffer the output buffer
+	 * @param value the value
+	 * @throws IOException if the file cannot be written
+	 */
+	private static void putDouble(FileChannel channel, ByteBuffer buffer, double value) throws IOException {
+		if(buffer.remaining() < Double.BYTES) {
+			flush(channel, buffer);
+		}
+		buffer.putDouble(value);
+	}
+
+	/**
+	 * This method appends the two coordinates of a location to the buffered output.
+	 *
+	 * @param channel the channel of the file
+	 * @param buffer the output buffer
+	 * @param location the location
+	 * @throws IOException if the file cannot be written
+	 */
+	private static void putLocation(FileChannel channel, ByteBuffer buffer, double[] location) throws IOException {
+		putDouble(channel, buffer, location[0]);
+		putDouble(channel, buffer, location[1]);
+	}
+
+	/**
+	 * This method writes the buffered output to the file.
+	 *
+	 * @param channel the channel of the file
+	 * @param buffer the output buffer
+	 * @throws IOException if the file cannot be written
+	 */
+	private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while(buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+}
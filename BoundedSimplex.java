@@ -0,0 +1,801 @@
+/**
+ * This class solves the linear relaxation of a LinearProgram with the bounded variable revised simplex method.
+ * Every row a * x + s = b receives a slack s bounded by its sense (s >= 0 for <=, s <= 0 for >= and s = 0 for =), so
+ * the slacks form the first basis and no artificial columns are needed. Nonbasic columns rest at one of their bounds
+ * and are flipped to the other without a pivot when that bound is reached first.
+ *
+ * The basis inverse is held dense and updated by each pivot, and it is rebuilt from the basis columns every
+ * REINVERSION_PERIOD pivots to clear the rounding error. While a basic column is outside its bounds the method
+ * minimizes the sum of the infeasibilities (a composite phase 1) and then the objective, and columns are priced by
+ * the largest reduced cost. A run of degenerate pivots widens the bounds of the basic columns by a small random
+ * amount, which moves them off the bounds they are stuck at, and a basic column which rounding has left just outside
+ * its bounds has them widened the same way rather than starting phase 1 over. The bounds are restored once the
+ * widened program is solved and the basis is cleaned up from there, where a run of degenerate pivots switches
+ * pricing to Bland's rule instead, which cannot cycle. Both ratio tests are Harris' two pass tests, which relax the
+ * bounds by the tolerance to find the step and then take the largest pivot element within it.
+ *
+ * The bounds of the structural columns may be changed between solves, as BranchAndBound does, and each solve starts
+ * from the basis of the last one. That basis usually stays dual feasible, so the dual simplex method first restores
+ * primal feasibility in a few pivots and the primal method only cleans up what is left. The basis can also be carried
+ * over to a new linear program with the same rows and more columns (see getBasis), which stays primal feasible.
+ *
+ * @author ryanhow
+ *
+ */
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class BoundedSimplex {
+
+	private static final double PRIMAL_TOLERANCE = 1e-7; //Largest bound violation of a feasible column
+	private static final double DUAL_TOLERANCE = 1e-7; //Largest reduced cost of the wrong sign at an optimal basis
+	private static final double PIVOT_TOLERANCE = 1e-9; //Smallest pivot element accepted by the ratio test
+	private static final double SINGULAR_TOLERANCE = 1e-11; //Smallest pivot element accepted when the basis is rebuilt
+	private static final int REINVERSION_PERIOD = 100; //Pivots between rebuilds of the basis inverse
+	private static final int DEGENERATE_PIVOTS = 50; //Degenerate pivots in a row before the bounds are perturbed, or pricing switches to Bland's rule
+	private static final double PERTURBATION = 1e-6; //Relative amount by which the bounds of a basic column are widened
+
+	/**
+	 * This enum is the outcome of a solve.
+	 */
+	public enum Status {
+		OPTIMAL, INFEASIBLE, UNBOUNDED, ITERATION_LIMIT
+	}
+
+	private final LinearProgram lp;
+	private final int n; //Structural columns, followed by one slack column per row
+	private final int m; //Rows
+
+	private final double[] lower; //Lower bound of each column
+	private final double[] upper; //Upper bound of each column
+	private final double[] values; //Value of each column
+	private final boolean[] atUpper; //If a nonbasic column rests at its upper bound
+
+	private final int[] basis; //Column of each basis position
+	private final int[] positions; //Basis position of each column, or -1 if it is nonbasic
+	private final double[][] inverse; //Basis inverse, indexed [position][row]
+	private int updates; //Pivots since the basis inverse was rebuilt
+	private boolean stale = true; //If the basic values must be recomputed after a bound change
+	private double[] savedLower; //Lower bounds before they were perturbed, or null
+	private double[] savedUpper; //Upper bounds before they were perturbed
+	private boolean perturbable; //If the bounds may still be perturbed in this solve
+	private final Random random = new Random(0);
+
+	//Work arrays
+	private final double[] basicCosts;
+	private final double[] duals;
+	private final double[] column;
+	private final double[] pivotRow; //Entries of the pivot row of the dual ratio test, 0 for ineligible columns
+	private final double[] reducedCosts; //Magnitudes of the reduced costs of the dual ratio test
+
+	private long iterations;
+
+	/**
+	 * This constructor starts from the slack basis with every structural column at its lower bound, or at its upper
+	 * bound if the lower bound is infinite.
+	 *
+	 * @param lp the linear program
+	 */
+	public BoundedSimplex(LinearProgram lp) {
+		lp.compile();
+		this.lp = lp;
+		n = lp.numColumns();
+		m = lp.numRows();
+		lower = new double[n + m];
+		upper = new double[n + m];
+		values = new double[n + m];
+		atUpper = new boolean[n + m];
+		for(int j = 0; j < n; j++) {
+			lower[j] = lp.lowerBound(j);
+			upper[j] = lp.upperBound(j);
+		}
+		for(int row = 0; row < m; row++) {
+			char sense = lp.sense(row);
+			lower[n + row] = sense == LinearProgram.GREATER_EQUAL ? Double.NEGATIVE_INFINITY : 0;
+			upper[n + row] = sense == LinearProgram.LESS_EQUAL ? Double.POSITIVE_INFINITY : 0;
+		}
+		basis = new int[m];
+		positions = new int[n + m];
+		inverse = new double[m][m];
+		basicCosts = new double[m];
+		duals = new double[m];
+		column = new double[m];
+		pivotRow = new double[n + m];
+		reducedCosts = new double[n + m];
+		slackBasis();
+	}
+
+	/**
+	 * This method changes the bounds of a structural column. A nonbasic column moves to the new bound it rested at.
+	 *
+	 * @param j the column
+	 * @param lowerBound the new lower bound
+	 * @param upperBound the new upper bound
+	 */
+	public void setBounds(int j, double lowerBound, double upperBound) {
+		if(lower[j] == lowerBound && upper[j] == upperBound) {
+			return;
+		}
+		lower[j] = lowerBound;
+		upper[j] = upperBound;
+		if(positions[j] == -1) {
+			atUpper[j] = atUpper[j] && upperBound < Double.POSITIVE_INFINITY || lowerBound == Double.NEGATIVE_INFINITY;
+			values[j] = atUpper[j] ? upperBound : lowerBound;
+			stale = true;
+		}
+	}
+
+	/**
+	 * This method obtains the basis of the last solve, so that a linear program with the same rows and more columns,
+	 * such as the restricted master of a column generation, can start from it.
+	 *
+	 * @return the column of each basis position, a slack given as -1 - row
+	 */
+	public int[] getBasis() {
+		int[] basicColumns = new int[m];
+		for(int position = 0; position < m; position++) {
+			basicColumns[position] = basis[position] < n ? basis[position] : n - 1 - basis[position];
+		}
+		return basicColumns;
+	}
+
+	/**
+	 * @return if each nonbasic structural column rests at its upper bound
+	 */
+	public boolean[] getNonbasicAtUpper() {
+		return Arrays.copyOf(atUpper, n);
+	}
+
+	/**
+	 * This method replaces the basis by the basis of an earlier solve (see getBasis). The structural columns beyond
+	 * those of the earlier solve are nonbasic at their lower bound, and a basis which is numerically singular is
+	 * replaced by the slack basis.
+	 *
+	 * @param basicColumns the column of each basis position, a slack given as -1 - row
+	 * @param nonbasicAtUpper if each nonbasic structural column of the earlier solve rests at its upper bound
+	 */
+	public void setBasis(int[] basicColumns, boolean[] nonbasicAtUpper) {
+		Arrays.fill(positions, -1);
+		for(int j = 0; j < n + m; j++) {
+			atUpper[j] = j < nonbasicAtUpper.length && nonbasicAtUpper[j] && upper[j] < Double.POSITIVE_INFINITY || lower[j] == Double.NEGATIVE_INFINITY;
+			values[j] = atUpper[j] ? upper[j] : lower[j];
+		}
+		for(int position = 0; position < m; position++) {
+			int j = basicColumns[position] >= 0 ? basicColumns[position] : n - 1 - basicColumns[position];
+			basis[position] = j;
+			positions[j] = position;
+		}
+		reinvert();
+		stale = true;
+	}
+
+	/**
+	 * @param j a structural column
+	 * @return the lower bound of the column
+	 */
+	public double lowerBound(int j) {
+		return lower[j];
+	}
+
+	/**
+	 * @param j a structural column
+	 * @return the upper bound of the column
+	 */
+	public double upperBound(int j) {
+		return upper[j];
+	}
+
+	/**
+	 * This method solves the linear program from the current basis.
+	 *
+	 * @param maxIterations the largest number of pivots and bound flips
+	 * @return the outcome of the solve
+	 */
+	public Status solve(long maxIterations) {
+		if(stale) {
+			computeBasicValues();
+		}
+		long iterationLimit = iterations + maxIterations;
+		perturbable = true;
+		Status status = solveFromBasis(iterationLimit);
+		if(savedLower != null) {
+			//The widened program relaxes the original one, so only its optimal basis needs cleaning up
+			restoreBounds();
+			perturbable = false;
+			if(status == Status.OPTIMAL) {
+				status = solveFromBasis(iterationLimit);
+			}
+		}
+		return status;
+	}
+
+	/**
+	 * This method runs the dual simplex method while the basis is dual feasible and then the primal method.
+	 *
+	 * @param iterationLimit the iteration count at which the methods stop
+	 * @return the outcome of the solve
+	 */
+	private Status solveFromBasis(long iterationLimit) {
+		if(isDualFeasible()) {
+			Status status = solveDual(iterationLimit);
+			if(status == Status.INFEASIBLE) {
+				return status;
+			}
+		}
+		return solvePrimal(iterationLimit);
+	}
+
+	/**
+	 * This method widens the bounds of every basic column, so that the basic columns resting at a bound can move and
+	 * the following pivots are not degenerate.
+	 */
+	private void perturbBounds() {
+		for(int position = 0; position < m; position++) {
+			widenBounds(basis[position]);
+		}
+	}
+
+	/**
+	 * This method widens the finite bounds of a column past its value by a small random amount relative to the bound,
+	 * unless they have already been widened.
+	 *
+	 * @param j the column
+	 */
+	private void widenBounds(int j) {
+		if(savedLower == null) {
+			savedLower = lower.clone();
+			savedUpper = upper.clone();
+		}
+		if(lower[j] > Double.NEGATIVE_INFINITY && lower[j] == savedLower[j]) {
+			lower[j] = Math.min(lower[j], values[j]) - PERTURBATION * (1 + random.nextDouble()) * (1 + Math.abs(lower[j]));
+		}
+		if(upper[j] < Double.POSITIVE_INFINITY && upper[j] == savedUpper[j]) {
+			upper[j] = Math.max(upper[j], values[j]) + PERTURBATION * (1 + random.nextDouble()) * (1 + Math.abs(upper[j]));
+		}
+	}
+
+	/**
+	 * @param j a column
+	 * @return true if the column lies outside its bounds by more than the tolerance but within the perturbation
+	 */
+	private boolean isRoundingError(int j) {
+		double violation = Math.max(lower[j] - values[j], values[j] - upper[j]);
+		double bound = values[j] < lower[j] ? lower[j] : upper[j];
+		return violation > PRIMAL_TOLERANCE && violation <= PERTURBATION * (1 + Math.abs(bound));
+	}
+
+	/**
+	 * This method restores the bounds from before the perturbation, moving the nonbasic columns to them.
+	 */
+	private void restoreBounds() {
+		System.arraycopy(savedLower, 0, lower, 0, n + m);
+		System.arraycopy(savedUpper, 0, upper, 0, n + m);
+		savedLower = null;
+		savedUpper = null;
+		for(int j = 0; j < n + m; j++) {
+			if(positions[j] == -1) {
+				values[j] = atUpper[j] ? upper[j] : lower[j];
+			}
+		}
+		computeBasicValues();
+	}
+
+	/**
+	 * This method runs the dual simplex method, which keeps the reduced costs of the basis optimal while the basic
+	 * columns are moved into their bounds one at a time, the infeasible basic column furthest outside its bounds
+	 * leaving first.
+	 *
+	 * @param iterationLimit the iteration count at which the method stops
+	 * @return OPTIMAL once the basis is feasible, INFEASIBLE if a basic column cannot reach its bounds, or
+	 * ITERATION_LIMIT
+	 */
+	private Status solveDual(long iterationLimit) {
+		while(iterations < iterationLimit) {
+			if(updates >= REINVERSION_PERIOD) {
+				reinvert();
+				computeBasicValues();
+				if(!isDualFeasible()) {
+					return Status.ITERATION_LIMIT;
+				}
+			}
+
+			//Leaving column
+			int leaving = -1;
+			double violation = PRIMAL_TOLERANCE;
+			for(int position = 0; position < m; position++) {
+				int b = basis[position];
+				double outside = Math.max(lower[b] - values[b], values[b] - upper[b]);
+				if(outside > violation) {
+					leaving = position;
+					violation = outside;
+				}
+			}
+			if(leaving == -1) {
+				return Status.OPTIMAL;
+			}
+			int left = basis[leaving];
+			boolean aboveUpper = values[left] > upper[left];
+
+			//Harris ratio test over the pivot row, which keeps every reduced cost on the side of its bound within the
+			//tolerance and takes the largest pivot element among the columns reaching it first
+			computeDuals(false);
+			double[] inverseRow = inverse[leaving];
+			double maxRatio = Double.POSITIVE_INFINITY;
+			for(int j = 0; j < n + m; j++) {
+				pivotRow[j] = 0;
+				if(positions[j] != -1 || lower[j] == upper[j]) {
+					continue;
+				}
+				double alpha = j < n ? rowProduct(inverseRow, j) : inverseRow[j - n];
+				//The leaving column moves by -alpha per unit of the entering column
+				boolean eligible = atUpper[j] ? (aboveUpper ? alpha < -PIVOT_TOLERANCE : alpha > PIVOT_TOLERANCE)
+						: (aboveUpper ? alpha > PIVOT_TOLERANCE : alpha < -PIVOT_TOLERANCE);
+				if(!eligible) {
+					continue;
+				}
+				pivotRow[j] = alpha;
+				reducedCosts[j] = Math.abs(cost(j) - dot(j));
+				maxRatio = Math.min(maxRatio, (reducedCosts[j] + DUAL_TOLERANCE) / Math.abs(alpha));
+			}
+			int entering = -1;
+			for(int j = 0; j < n + m; j++) {
+				double alpha = pivotRow[j];
+				if(alpha != 0 && reducedCosts[j] / Math.abs(alpha) <= maxRatio && (entering == -1 || Math.abs(alpha) > Math.abs(pivotRow[entering]))) {
+					entering = j;
+				}
+			}
+			if(entering == -1) {
+				return Status.INFEASIBLE;
+			}
+
+			//Step the entering column until the leaving column reaches the bound it violates
+			computeColumn(entering);
+			double bound = aboveUpper ? upper[left] : lower[left];
+			double step = (values[left] - bound) / column[leaving];
+			values[entering] += step;
+			for(int position = 0; position < m; position++) {
+				values[basis[position]] -= step * column[position];
+			}
+			atUpper[left] = aboveUpper;
+			values[left] = bound;
+			positions[left] = -1;
+			basis[leaving] = entering;
+			positions[entering] = leaving;
+			pivot(leaving);
+			iterations++;
+		}
+		return Status.ITERATION_LIMIT;
+	}
+
+	/**
+	 * This method checks if every nonbasic column rests at the bound its reduced cost favours, so the basis is
+	 * optimal once it is feasible.
+	 *
+	 * @return true if the basis is dual feasible
+	 */
+	private boolean isDualFeasible() {
+		computeDuals(false);
+		for(int j = 0; j < n + m; j++) {
+			if(positions[j] != -1 || lower[j] == upper[j]) {
+				continue;
+			}
+			double reducedCost = cost(j) - dot(j);
+			if(atUpper[j] ? reducedCost > DUAL_TOLERANCE : reducedCost < -DUAL_TOLERANCE) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * This method computes the duals of the basis, the product of the basic costs and the basis inverse.
+	 *
+	 * @param phaseOne whether the basic costs are those of phase 1, already in basicCosts
+	 */
+	private void computeDuals(boolean phaseOne) {
+		if(!phaseOne) {
+			for(int position = 0; position < m; position++) {
+				basicCosts[position] = cost(basis[position]);
+			}
+		}
+		Arrays.fill(duals, 0);
+		for(int position = 0; position < m; position++) {
+			double basicCost = basicCosts[position];
+			if(basicCost == 0) {
+				continue;
+			}
+			double[] inverseRow = inverse[position];
+			for(int row = 0; row < m; row++) {
+				duals[row] += basicCost * inverseRow[row];
+			}
+		}
+	}
+
+	/**
+	 * This method runs the primal simplex method, with the phase 1 costs while a basic column is infeasible.
+	 *
+	 * @param iterationLimit the iteration count at which the method stops
+	 * @return the outcome of the solve
+	 */
+	private Status solvePrimal(long iterationLimit) {
+		int degenerate = 0;
+		while(iterations < iterationLimit) {
+			if(updates >= REINVERSION_PERIOD) {
+				reinvert();
+				computeBasicValues();
+			}
+
+			//Phase 1 costs while a basic column is infeasible, the objective otherwise
+			boolean infeasible = false;
+			for(int position = 0; position < m; position++) {
+				int b = basis[position];
+				if(perturbable && isRoundingError(b)) {
+					widenBounds(b);
+				}
+				if(values[b] < lower[b] - PRIMAL_TOLERANCE) {
+					basicCosts[position] = -1;
+					infeasible = true;
+				} else if(values[b] > upper[b] + PRIMAL_TOLERANCE) {
+					basicCosts[position] = 1;
+					infeasible = true;
+				} else {
+					basicCosts[position] = 0;
+				}
+			}
+			computeDuals(infeasible);
+
+			if(degenerate > DEGENERATE_PIVOTS && perturbable) {
+				perturbBounds();
+				degenerate = 0;
+			}
+
+			//Pricing
+			boolean bland = degenerate > DEGENERATE_PIVOTS;
+			int entering = -1;
+			double best = 0;
+			for(int j = 0; j < n + m; j++) {
+				if(positions[j] != -1 || lower[j] == upper[j]) {
+					continue;
+				}
+				double reducedCost = (infeasible ? 0 : cost(j)) - dot(j);
+				double improvement = atUpper[j] ? reducedCost : -reducedCost;
+				if(improvement > DUAL_TOLERANCE && improvement > best) {
+					entering = j;
+					best = improvement;
+					if(bland) {
+						break;
+					}
+				}
+			}
+			if(entering == -1) {
+				return infeasible ? Status.INFEASIBLE : Status.OPTIMAL;
+			}
+			double direction = atUpper[entering] ? -1 : 1;
+
+			//Harris ratio test, where x[basis[position]] changes by -direction * column[position] per unit step. The
+			//largest step with the bounds relaxed by the tolerance is found first, and the leaving column is the one
+			//with the largest pivot element whose limit is within that step, which avoids tiny pivots
+			computeColumn(entering);
+			double maxStep = upper[entering] - lower[entering];
+			for(int position = 0; position < m; position++) {
+				if(Math.abs(column[position]) >= PIVOT_TOLERANCE) {
+					maxStep = Math.min(maxStep, ratio(position, -direction * column[position], PRIMAL_TOLERANCE));
+				}
+			}
+			double step = upper[entering] - lower[entering];
+			int leaving = -1;
+			if(maxStep < step) {
+				for(int position = 0; position < m; position++) {
+					if(Math.abs(column[position]) < PIVOT_TOLERANCE) {
+						continue;
+					}
+					double limit = ratio(position, -direction * column[position], 0);
+					if(limit <= maxStep && (leaving == -1 || isBetterPivot(bland, position, leaving))) {
+						leaving = position;
+						step = limit;
+					}
+				}
+			}
+			if(step == Double.POSITIVE_INFINITY) {
+				return Status.UNBOUNDED;
+			}
+			degenerate = step < PRIMAL_TOLERANCE ? degenerate + 1 : 0;
+			iterations++;
+			boolean leavesAtUpper = false;
+			if(leaving != -1) {
+				//A basic column outside its bounds leaves at the bound it violated, one inside at the bound it reached
+				int b = basis[leaving];
+				leavesAtUpper = direction * column[leaving] > 0 ? values[b] > upper[b] + PRIMAL_TOLERANCE : values[b] >= lower[b] - PRIMAL_TOLERANCE;
+			}
+
+			//Step
+			values[entering] += direction * step;
+			for(int position = 0; position < m; position++) {
+				values[basis[position]] -= direction * step * column[position];
+			}
+			if(leaving == -1) {
+				atUpper[entering] = !atUpper[entering];
+				values[entering] = atUpper[entering] ? upper[entering] : lower[entering];
+				continue;
+			}
+			int left = basis[leaving];
+			atUpper[left] = leavesAtUpper;
+			values[left] = leavesAtUpper ? upper[left] : lower[left];
+			positions[left] = -1;
+			basis[leaving] = entering;
+			positions[entering] = leaving;
+			pivot(leaving);
+		}
+		return Status.ITERATION_LIMIT;
+	}
+
+	/**
+	 * This method finds how far the entering column may move before a basic column reaches a bound. A basic column
+	 * outside its bounds may move until it reaches the bound it violates.
+	 *
+	 * @param position the basis position
+	 * @param rate the change of the basic column per unit of the entering column
+	 * @param tolerance the amount by which the bounds are relaxed
+	 * @return the step at which the basic column reaches the bound, at least 0, or infinity if it never does
+	 */
+	private double ratio(int position, double rate, double tolerance) {
+		int b = basis[position];
+		double value = values[b];
+		if(rate < 0) {
+			double bound = value > upper[b] + PRIMAL_TOLERANCE ? upper[b] : lower[b];
+			return bound == Double.NEGATIVE_INFINITY || value < lower[b] - PRIMAL_TOLERANCE ? Double.POSITIVE_INFINITY : Math.max(0, value - bound + tolerance) / -rate;
+		}
+		double bound = value < lower[b] - PRIMAL_TOLERANCE ? lower[b] : upper[b];
+		return bound == Double.POSITIVE_INFINITY || value > upper[b] + PRIMAL_TOLERANCE ? Double.POSITIVE_INFINITY : Math.max(0, bound - value + tolerance) / rate;
+	}
+
+	/**
+	 * @param bland whether pricing follows Bland's rule
+	 * @param position a basis position which ties with the chosen one
+	 * @param chosen the chosen basis position
+	 * @return true if the tying position should leave instead, by the lowest column under Bland's rule and by the
+	 * largest pivot element otherwise
+	 */
+	private boolean isBetterPivot(boolean bland, int position, int chosen) {
+		if(bland) {
+			return basis[position] < basis[chosen];
+		}
+		return Math.abs(column[position]) > Math.abs(column[chosen]);
+	}
+
+	/**
+	 * @param j a column
+	 * @return the objective coefficient of the column, 0 for slacks
+	 */
+	private double cost(int j) {
+		return j < n ? lp.cost(j) : 0;
+	}
+
+	/**
+	 * @param j a column
+	 * @return the product of the duals and the column
+	 */
+	private double dot(int j) {
+		if(j >= n) {
+			return duals[j - n];
+		}
+		double sum = 0;
+		for(int entry = lp.columnStart(j); entry < lp.columnEnd(j); entry++) {
+			sum += duals[lp.rowIndex(entry)] * lp.value(entry);
+		}
+		return sum;
+	}
+
+	/**
+	 * @param inverseRow a row of the basis inverse
+	 * @param j a structural column
+	 * @return the product of the row and the column, the entry of the column in terms of the basis at that row
+	 */
+	private double rowProduct(double[] inverseRow, int j) {
+		double sum = 0;
+		for(int entry = lp.columnStart(j); entry < lp.columnEnd(j); entry++) {
+			sum += inverseRow[lp.rowIndex(entry)] * lp.value(entry);
+		}
+		return sum;
+	}
+
+	/**
+	 * This method computes the entering column in terms of the basis, the product of the basis inverse and the column.
+	 *
+	 * @param j the entering column
+	 */
+	private void computeColumn(int j) {
+		if(j >= n) {
+			for(int position = 0; position < m; position++) {
+				column[position] = inverse[position][j - n];
+			}
+			return;
+		}
+		Arrays.fill(column, 0);
+		for(int entry = lp.columnStart(j); entry < lp.columnEnd(j); entry++) {
+			int row = lp.rowIndex(entry);
+			double value = lp.value(entry);
+			for(int position = 0; position < m; position++) {
+				column[position] += inverse[position][row] * value;
+			}
+		}
+	}
+
+	/**
+	 * This method updates the basis inverse after the column in the work array entered at a basis position.
+	 *
+	 * @param leaving the basis position
+	 */
+	private void pivot(int leaving) {
+		double[] pivotRow = inverse[leaving];
+		double pivot = column[leaving];
+		for(int row = 0; row < m; row++) {
+			pivotRow[row] /= pivot;
+		}
+		for(int position = 0; position < m; position++) {
+			double factor = column[position];
+			if(position == leaving || factor == 0) {
+				continue;
+			}
+			double[] inverseRow = inverse[position];
+			for(int row = 0; row < m; row++) {
+				inverseRow[row] -= factor * pivotRow[row];
+			}
+		}
+		updates++;
+	}
+
+	/**
+	 * This method rebuilds the basis inverse from the basis columns by Gauss-Jordan elimination with partial
+	 * pivoting. A basis which has become numerically singular is replaced by the slack basis.
+	 */
+	private void reinvert() {
+		double[][] matrix = new double[m][m]; //Basis, indexed [row][position]
+		for(int position = 0; position < m; position++) {
+			int j = basis[position];
+			if(j >= n) {
+				matrix[j - n][position] = 1;
+				continue;
+			}
+			for(int entry = lp.columnStart(j); entry < lp.columnEnd(j); entry++) {
+				matrix[lp.rowIndex(entry)][position] = lp.value(entry);
+			}
+		}
+		//Solve matrix * inverse = identity with the rows of the inverse indexed by position
+		double[][] result = new double[m][m]; //Indexed [row][row], row operations follow those on matrix
+		for(int row = 0; row < m; row++) {
+			result[row][row] = 1;
+		}
+		for(int position = 0; position < m; position++) {
+			int pivotRow = position;
+			for(int row = position + 1; row < m; row++) {
+				if(Math.abs(matrix[row][position]) > Math.abs(matrix[pivotRow][position])) {
+					pivotRow = row;
+				}
+			}
+			if(Math.abs(matrix[pivotRow][position]) < SINGULAR_TOLERANCE) {
+				slackBasis();
+				return;
+			}
+			double[] swap = matrix[pivotRow];
+			matrix[pivotRow] = matrix[position];
+			matrix[position] = swap;
+			swap = result[pivotRow];
+			result[pivotRow] = result[position];
+			result[position] = swap;
+
+			double pivot = matrix[position][position];
+			for(int col = 0; col < m; col++) {
+				matrix[position][col] /= pivot;
+				result[position][col] /= pivot;
+			}
+			for(int row = 0; row < m; row++) {
+				double factor = matrix[row][position];
+				if(row == position || factor == 0) {
+					continue;
+				}
+				for(int col = 0; col < m; col++) {
+					matrix[row][col] -= factor * matrix[position][col];
+					result[row][col] -= factor * result[position][col];
+				}
+			}
+		}
+		for(int position = 0; position < m; position++) {
+			System.arraycopy(result[position], 0, inverse[position], 0, m);
+		}
+		updates = 0;
+	}
+
+	/**
+	 * This method makes every slack basic and every structural column nonbasic at a bound.
+	 */
+	private void slackBasis() {
+		for(int j = 0; j < n; j++) {
+			positions[j] = -1;
+			atUpper[j] = atUpper[j] && upper[j] < Double.POSITIVE_INFINITY || lower[j] == Double.NEGATIVE_INFINITY;
+			values[j] = atUpper[j] ? upper[j] : lower[j];
+		}
+		for(int row = 0; row < m; row++) {
+			basis[row] = n + row;
+			positions[n + row] = row;
+			Arrays.fill(inverse[row], 0);
+			inverse[row][row] = 1;
+		}
+		updates = 0;
+		stale = true;
+	}
+
+	/**
+	 * This method computes the basic values from the nonbasic ones, x[B] = inverse * (b - N * x[N]).
+	 */
+	private void computeBasicValues() {
+		double[] residual = new double[m];
+		for(int row = 0; row < m; row++) {
+			residual[row] = lp.rhs(row);
+		}
+		for(int j = 0; j < n + m; j++) {
+			if(positions[j] != -1 || values[j] == 0) {
+				continue;
+			}
+			if(j >= n) {
+				residual[j - n] -= values[j];
+				continue;
+			}
+			for(int entry = lp.columnStart(j); entry < lp.columnEnd(j); entry++) {
+				residual[lp.rowIndex(entry)] -= lp.value(entry) * values[j];
+			}
+		}
+		for(int position = 0; position < m; position++) {
+			double[] inverseRow = inverse[position];
+			double value = 0;
+			for(int row = 0; row < m; row++) {
+				value += inverseRow[row] * residual[row];
+			}
+			values[basis[position]] = value;
+		}
+		stale = false;
+	}
+
+	/**
+	 * @param j a structural column
+	 * @return the value of the column in the last solution
+	 */
+	public double getValue(int j) {
+		return values[j];
+	}
+
+	/**
+	 * @return the value of every structural column in the last solution
+	 */
+	public double[] getValues() {
+		return Arrays.copyOf(values, n);
+	}
+
+	/**
+	 * @return the dual of every row at the last basis, so the reduced cost of a column a with cost c is c - duals * a
+	 */
+	public double[] getDuals() {
+		computeDuals(false);
+		return duals.clone();
+	}
+
+	/**
+	 * @return the objective of the last solution
+	 */
+	public double getObjective() {
+		double objective = 0;
+		for(int j = 0; j < n; j++) {
+			objective += lp.cost(j) * values[j];
+		}
+		return objective;
+	}
+
+	/**
+	 * @return the number of pivots and bound flips of every solve
+	 */
+	public long getIterations() {
+		return iterations;
+	}
+
+}
@@ -0,0 +1,308 @@
+/**
+ * This class solves a LinearProgram with integer columns by depth first branch and bound over the relaxations
+ * solved by BoundedSimplex. Each node keeps only the bound it changes and a link to its parent, and every node is
+ * solved from the basis of the node before it, so a child starts a few pivots away from its optimum.
+ *
+ * The branching column is the most fractional integer column of the highest priority, and the child on the side
+ * the relaxation leans to is explored first, so the dive reaches an integer solution early. An optional rounding
+ * turns a relaxation into a start which is completed by the linear program, and starts are tried before the root
+ * so nodes which cannot beat them are pruned from the beginning. The search ends when every node is solved or
+ * pruned within the relative gap MIP_GAP, the default of gurobi.
+ *
+ * @author ryanhow
+ *
+ */
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+
+public class BranchAndBound {
+
+	private final static Logger LOGGER = Logger.getLogger(BranchAndBound.class.getName());
+
+	private static final double MIP_GAP = 1e-4; //Relative gap at which a node is pruned
+	private static final double ABSOLUTE_GAP = 1e-9; //Absolute gap at which a node is pruned
+	private static final double INTEGRALITY_TOLERANCE = 1e-6; //Largest distance of an integer column from an integer
+	private static final int ITERATIONS_PER_COLUMN = 100; //Simplex iterations of one relaxation per row and column
+	private static final int ROUNDING_FREQUENCY = 100; //Nodes between roundings after the root
+
+	private final LinearProgram lp;
+	private final BoundedSimplex simplex;
+	private final long maxIterations;
+	private final int[] integerColumns;
+	private Rounding rounding;
+
+	private double[] incumbent; //Values of the best integer solution, or null
+	private double incumbentObjective = Double.POSITIVE_INFINITY;
+	private double bound = Double.NEGATIVE_INFINITY;
+	private long nodes;
+
+	/**
+	 * This interface turns the values of a relaxation into a start, in which NaN leaves a column to the linear
+	 * program.
+	 */
+	public interface Rounding {
+
+		/**
+		 * @param relaxation the values of a relaxation
+		 * @return the start, or null to try none
+		 */
+		double[] round(double[] relaxation);
+
+	}
+
+	/**
+	 * This class is a node of the tree, the bound change of one column on top of the bounds of its parent.
+	 */
+	private static final class Node {
+
+		private final Node parent;
+		private final int column;
+		private final double lowerBound;
+		private final double upperBound;
+		private final double bound; //Objective of the parent relaxation
+
+		/**
+		 * @param parent the parent node, or null for the root
+		 * @param column the column whose bounds change, or -1 for the root
+		 * @param lowerBound the new lower bound of the column
+		 * @param upperBound the new upper bound of the column
+		 * @param bound the objective of the parent relaxation
+		 */
+		private Node(Node parent, int column, double lowerBound, double upperBound, double bound) {
+			this.parent = parent;
+			this.column = column;
+			this.lowerBound = lowerBound;
+			this.upperBound = upperBound;
+			this.bound = bound;
+		}
+
+	}
+
+	/**
+	 * This constructor prepares the search of a linear program.
+	 *
+	 * @param lp the linear program
+	 */
+	public BranchAndBound(LinearProgram lp) {
+		this.lp = lp;
+		simplex = new BoundedSimplex(lp);
+		maxIterations = (long) ITERATIONS_PER_COLUMN * (lp.numRows() + lp.numColumns());
+		integerColumns = IntStream.range(0, lp.numColumns()).filter(lp::isInteger).toArray();
+	}
+
+	/**
+	 * @param rounding the rounding of the relaxations, or null for none
+	 */
+	public void setRounding(Rounding rounding) {
+		this.rounding = rounding;
+	}
+
+	/**
+	 * This method fixes the integer columns of a start and completes it with the linear program. The result becomes
+	 * the incumbent if it is integer and better than the incumbent.
+	 *
+	 * @param start the value of each column, NaN to leave a column to the linear program
+	 * @return true if the start became the incumbent
+	 */
+	public boolean tryStart(double[] start) {
+		for(int j : integerColumns) {
+			if(!Double.isNaN(start[j])) {
+				double value = Math.round(start[j]);
+				simplex.setBounds(j, Math.max(lp.lowerBound(j), value), Math.min(lp.upperBound(j), value));
+			}
+		}
+		boolean improved = false;
+		if(simplex.solve(maxIterations) == BoundedSimplex.Status.OPTIMAL && isIntegral()) {
+			improved = updateIncumbent();
+		}
+		for(int j : integerColumns) {
+			simplex.setBounds(j, lp.lowerBound(j), lp.upperBound(j));
+		}
+		return improved;
+	}
+
+	/**
+	 * This method searches the tree.
+	 *
+	 * @return true if every node was solved or pruned, false if a relaxation could not be solved
+	 */
+	public boolean solve() {
+		Deque<Node> open = new ArrayDeque<>();
+		open.push(new Node(null, -1, 0, 0, Double.NEGATIVE_INFINITY));
+		double prunedBound = Double.POSITIVE_INFINITY; //Smallest bound of the nodes pruned within the gap
+		Node applied = null;
+		while(!open.isEmpty()) {
+			Node node = open.pop();
+			if(isPruned(node.bound)) {
+				prunedBound = Math.min(prunedBound, node.bound);
+				continue;
+			}
+			apply(applied, node);
+			applied = node;
+			nodes++;
+
+			BoundedSimplex.Status status = simplex.solve(maxIterations);
+			if(status == BoundedSimplex.Status.INFEASIBLE) {
+				continue;
+			}
+			if(status != BoundedSimplex.Status.OPTIMAL) {
+				LOGGER.log(Level.SEVERE, "Error solving relaxation of branch and bound node. Simplex ended with status " + status + ".");
+				bound = Math.min(prunedBound, node.bound);
+				return false;
+			}
+			double objective = simplex.getObjective();
+			if(isPruned(objective)) {
+				prunedBound = Math.min(prunedBound, objective);
+				continue;
+			}
+
+			int branch = selectBranchColumn();
+			if(branch == -1) {
+				updateIncumbent();
+				continue;
+			}
+			//The child the relaxation leans to is pushed last so it is explored first
+			double value = simplex.getValue(branch);
+			double floor = Math.floor(value);
+			Node down = new Node(node, branch, simplex.lowerBound(branch), floor, objective);
+			Node up = new Node(node, branch, floor + 1, simplex.upperBound(branch), objective);
+			if(rounding != null && (nodes == 1 || nodes % ROUNDING_FREQUENCY == 0)) {
+				double[] start = rounding.round(simplex.getValues());
+				if(start != null) {
+					tryStart(start);
+					applied = null;
+				}
+			}
+			if(value - floor >= 0.5) {
+				open.push(down);
+				open.push(up);
+			} else {
+				open.push(up);
+				open.push(down);
+			}
+		}
+		bound = Math.min(prunedBound, incumbentObjective);
+		return true;
+	}
+
+	/**
+	 * This method sets the bounds of the simplex to those of a node. Only the integer columns are branched on, so
+	 * they are reset to the bounds of the linear program and the changes of the node and its ancestors are applied
+	 * from the root down.
+	 *
+	 * @param previous the node the simplex bounds belong to, or null if they are those of the linear program
+	 * @param node the node
+	 */
+	private void apply(Node previous, Node node) {
+		if(previous != null && node.parent == previous) {
+			simplex.setBounds(node.column, node.lowerBound, node.upperBound);
+			return;
+		}
+		for(int j : integerColumns) {
+			simplex.setBounds(j, lp.lowerBound(j), lp.upperBound(j));
+		}
+		Deque<Node> path = new ArrayDeque<>();
+		for(Node ancestor = node; ancestor != null && ancestor.column != -1; ancestor = ancestor.parent) {
+			path.push(ancestor);
+		}
+		for(Node change : path) {
+			simplex.setBounds(change.column, change.lowerBound, change.upperBound);
+		}
+	}
+
+	/**
+	 * @param objective the objective of a relaxation
+	 * @return true if the relaxation cannot improve the incumbent by more than the gap
+	 */
+	private boolean isPruned(double objective) {
+		return objective >= incumbentObjective - Math.max(ABSOLUTE_GAP, MIP_GAP * Math.abs(incumbentObjective));
+	}
+
+	/**
+	 * This method finds the most fractional integer column of the highest priority in the relaxation.
+	 *
+	 * @return the column, or -1 if the relaxation is integer
+	 */
+	private int selectBranchColumn() {
+		int branch = -1;
+		double bestFraction = 0;
+		for(int j : integerColumns) {
+			double value = simplex.getValue(j);
+			double fraction = Math.abs(value - Math.round(value));
+			if(fraction <= INTEGRALITY_TOLERANCE) {
+				continue;
+			}
+			if(branch == -1 || lp.priority(j) > lp.priority(branch) || (lp.priority(j) == lp.priority(branch) && fraction > bestFraction)) {
+				branch = j;
+				bestFraction = fraction;
+			}
+		}
+		return branch;
+	}
+
+	/**
+	 * @return true if every integer column of the relaxation is integer
+	 */
+	private boolean isIntegral() {
+		return selectBranchColumn() == -1;
+	}
+
+	/**
+	 * This method makes the relaxation the incumbent, with the integer columns rounded, if it is better.
+	 *
+	 * @return true if the incumbent changed
+	 */
+	private boolean updateIncumbent() {
+		double objective = simplex.getObjective();
+		if(objective >= incumbentObjective) {
+			return false;
+		}
+		incumbent = simplex.getValues();
+		for(int j : integerColumns) {
+			incumbent[j] = Math.round(incumbent[j]);
+		}
+		incumbentObjective = objective;
+		return true;
+	}
+
+	/**
+	 * @return the values of the best integer solution, or null if none was found
+	 */
+	public double[] getIncumbent() {
+		return incumbent == null ? null : Arrays.copyOf(incumbent, incumbent.length);
+	}
+
+	/**
+	 * @return the objective of the best integer solution, or infinity if none was found
+	 */
+	public double getObjective() {
+		return incumbentObjective;
+	}
+
+	/**
+	 * @return the smallest objective any integer solution may have, known once the search ends
+	 */
+	public double getBound() {
+		return bound;
+	}
+
+	/**
+	 * @return the number of nodes solved
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * @return the number of simplex iterations of every node
+	 */
+	public long getIterations() {
+		return simplex.getIterations();
+	}
+
+}
@@ -0,0 +1,1108 @@
+/**
+ * This class solves the single allocation model by branch and price. A column of the restricted master is a feasible
+ * customer set of one facility, customers whose total demand lies within the activity levels of the facility and who
+ * are served by it at their assignment costs. The master opens p facilities z[j], chooses one customer set for each
+ * open facility and serves every customer once, while the plant to facility flows x[k][i][j] stay ordinary columns
+ * bound by the plant capacities and the product balance of each facility. Every column already respects the activity
+ * levels, so the relaxation is much tighter than that of CFLPModel on networks whose facilities are nearly full.
+ *
+ * The restricted master is a linear program solved by gurobi or in pure java (see RestrictedMaster). Its duals price
+ * the customers and the products of each facility, and the cheapest customer set of every facility is an exact 0-1
+ * knapsack over the customer demands within its maximum activity level, solved in pure java and in parallel across
+ * the facilities. A node whose master is infeasible is made feasible by a first phase over artificial columns rather
+ * than by a large cost on them, and the duals are smoothed between rounds, which keeps the degenerate master from
+ * stalling the column generation.
+ *
+ * The search branches on the open facilities z[j] first and then on the assignments y[j][r], which the knapsack
+ * respects by fixing or leaving out customers, and explores the node with the lowest bound first. The relaxation of
+ * every fractional node is rounded by opening the p facilities it opens the most.
+ *
+ * @author ryanhow
+ *
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import gurobi.GRB;
+import gurobi.GRBException;
+
+public class BranchAndPrice implements CFLPSolver {
+
+	private final static Logger LOGGER = Logger.getLogger(BranchAndPrice.class.getName());
+
+	private static final double INTEGRALITY_TOLERANCE = 1e-6; //Largest distance from an integer of an integral z[j] or y[j][r]
+	private static final double PRICING_TOLERANCE = 1e-9; //Relative reduced cost below which a customer set enters the master
+	private static final double FEASIBILITY_TOLERANCE = 1e-7; //Largest artificial value of the first phase which leaves a node feasible
+	private static final double SMOOTHING = 0.8; //Weight of the duals with the best Lagrangian bound in the duals the facilities are priced at
+
+	//Sets
+	private final int K; //Set of commodities/products
+	private final int I; //Set of production plant
+	private final int J; //Set of potential candidate facility locations
+	private final int R; //Set of customers
+
+	//Parameters
+	private final CFLPInstance instance; //Demands, capacities, activity levels, costs and distances
+	private int p; //Desired number of facilities to be open
+	private final RestrictedMaster master;
+	private final double gapTarget; //Relative gap at which a node is no longer explored
+
+	//Rows of the master
+	private int desiredFacilities; //Desired number of open facilities row, the only row which depends on p
+	private int customerRows; //First of the rows serving each customer once
+	private int convexityRows; //First of the rows choosing one customer set of each open facility
+	private int balanceRows; //First of the facility product flow balance rows, indexed [j * K + k]
+	private int capacityRows; //First of the production plant capacity rows, indexed [k * I + i]
+
+	//Columns of the master
+	private int zColumns; //First z[j] column
+	private int xColumns; //First x[k][i][j] column, flattened as in CFLPModel
+	private int artificialColumns; //First artificial column of the first phase, one per customer, two for p and one per facility
+	private int artificialCount;
+	private int[] artificialRows; //Row of each artificial column
+	private double[] artificialCoefficients; //Coefficient of each artificial column in its row
+	private final List<CustomerSet> customerSets = new ArrayList<>(); //Customer sets of the master, in column order
+	private final Set<CustomerSet> knownSets = new HashSet<>();
+	private boolean phaseOne; //Whether the master minimizes the artificial columns instead of the cost
+
+	//Decisions of the node being solved
+	private final byte[] fixed; //Value z[j] is fixed to, or -1
+	private final int[] assigned; //Facility customer r is fixed to, or -1
+	private final int[] required; //Customers fixed to facility j
+	private final BitSet excluded = new BitSet(); //Pairs j * R + r fixed to y[j][r] = 0
+
+	//Incumbent
+	private SingleAllocationSolution start; //MIP start, or null
+	private boolean[] open; //If facility j is open or not, or null without an incumbent
+	private int[] assignment; //Facility serving customer r
+	private double[] flows; //Amount of product k supplied by plant i to facility j, indexed [(k * I + i) * J + j]
+	private double objective = Double.NaN;
+
+	private double bound = Double.NEGATIVE_INFINITY;
+	private double rootBound = Double.NaN;
+	private boolean finished;
+	private int status = GRB.Status.LOADED; //Gurobi's status code of the last solve
+	private double runtime;
+	private long nodes;
+
+	/**
+	 * This class is a customer set of one facility, a column of the master.
+	 */
+	private static class CustomerSet {
+
+		final int facility;
+		final int[] customers; //Customers in increasing order
+		double cost; //Assignment cost of the customers
+		double reducedCost; //Reduced cost when it was priced
+		int column = -1;
+
+		CustomerSet(int facility, int[] customers) {
+			this.facility = facility;
+			this.customers = customers;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if(!(other instanceof CustomerSet)) {
+				return false;
+			}
+			CustomerSet set = (CustomerSet) other;
+			return facility == set.facility && Arrays.equals(customers, set.customers);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * facility + Arrays.hashCode(customers);
+		}
+
+	}
+
+	/**
+	 * This class is a node of the search, holding its branching decision and the node it was branched from.
+	 */
+	private static class Node {
+
+		final Node parent; //Node branched on, or null for the root
+		final int facility;
+		final int customer; //Customer of an assignment decision y[j][r], or -1 for a facility decision z[j]
+		final boolean value;
+		final double bound; //Bound of the node branched on
+		final int depth;
+
+		Node(Node parent, int facility, int customer, boolean value, double bound) {
+			this.parent = parent;
+			this.facility = facility;
+			this.customer = customer;
+			this.value = value;
+			this.bound = bound;
+			this.depth = parent == null ? 0 : parent.depth + 1;
+		}
+
+	}
+
+	/**
+	 * This constructor creates a search for an instance around an empty restricted master.
+	 *
+	 * @param instance the CFLP instance
+	 * @param p the desired number of open facilities
+	 * @param master the empty restricted master
+	 * @param gapTarget the relative gap at which the search stops
+	 */
+	public BranchAndPrice(CFLPInstance instance, int p, RestrictedMaster master, double gapTarget) {
+		this.instance = instance;
+		this.p = p;
+		this.master = master;
+		this.gapTarget = gapTarget;
+		K = instance.numProducts();
+		I = instance.numPlants();
+		J = instance.numFacilities();
+		R = instance.numCustomers();
+		fixed = new byte[J];
+		assigned = new int[R];
+		required = new int[J];
+	}
+
+	/**
+	 * This method adds the rows, the facility and flow columns and the artificial columns of the first phase to the
+	 * master. The customer sets arrive during the search.
+	 *
+	 * @return true if the master was built, false otherwise
+	 */
+	public boolean build() {
+		try {
+			// Desired Open Facilities
+			desiredFacilities = master.addRow(LinearProgram.EQUAL, p);
+
+			// Single Allocation for Demand
+			customerRows = desiredFacilities + 1;
+			for(int r = 0; r < R; r++) {
+				master.addRow(LinearProgram.EQUAL, 1);
+			}
+
+			// One Customer Set of each Open Facility
+			convexityRows = customerRows + R;
+			for(int j = 0; j < J; j++) {
+				master.addRow(LinearProgram.EQUAL, 0);
+			}
+
+			// Facility Product Flow Balance
+			balanceRows = convexityRows + J;
+			for(int j = 0; j < J; j++) {
+				for(int k = 0; k < K; k++) {
+					master.addRow(LinearProgram.EQUAL, 0);
+				}
+			}
+
+			// Production Plant Capacity
+			capacityRows = balanceRows + J * K;
+			for(int k = 0; k < K; k++) {
+				for(int i = 0; i < I; i++) {
+					master.addRow(LinearProgram.LESS_EQUAL, instance.capacity(i, k));
+				}
+			}
+
+			//Open facilities, each counted towards p and choosing one customer set when open
+			zColumns = master.addColumn(instance.fixedCost(0), 1, new int[] {desiredFacilities, convexityRows}, new double[] {1, -1});
+			for(int j = 1; j < J; j++) {
+				master.addColumn(instance.fixedCost(j), 1, new int[] {desiredFacilities, convexityRows + j}, new double[] {1, -1});
+			}
+
+			//Plant to facility flows
+			xColumns = zColumns + J;
+			for(int k = 0; k < K; k++) {
+				for(int i = 0; i < I; i++) {
+					for(int j = 0; j < J; j++) {
+						int[] rows = {balanceRows + j * K + k, capacityRows + k * I + i};
+						master.addColumn(instance.unitCost(k) * instance.plantDistance(i, j), Double.POSITIVE_INFINITY, rows, new double[] {1, 1});
+					}
+				}
+			}
+
+			//Artificial columns, which find customer sets for a node whose master is infeasible
+			artificialColumns = xColumns + K * I * J;
+			artificialCount = R + 2 + J;
+			artificialRows = new int[artificialCount];
+			artificialCoefficients = new double[artificialCount];
+			for(int r = 0; r < R; r++) {
+				artificialRows[r] = customerRows + r;
+				artificialCoefficients[r] = 1;
+			}
+			artificialRows[R] = desiredFacilities;
+			artificialCoefficients[R] = 1;
+			artificialRows[R + 1] = desiredFacilities;
+			artificialCoefficients[R + 1] = -1;
+			for(int j = 0; j < J; j++) {
+				artificialRows[R + 2 + j] = convexityRows + j;
+				artificialCoefficients[R + 2 + j] = 1;
+			}
+			for(int a = 0; a < artificialCount; a++) {
+				master.addColumn(1, 0, new int[] {artificialRows[a]}, new double[] {artificialCoefficients[a]});
+			}
+		} catch (GRBException e) {
+			LOGGER.log(Level.SEVERE, "Error building restricted master. " + e.getMessage());
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * This method changes the desired number of open facilities. The customer sets of earlier solves stay in the
+	 * master, since they do not depend on p.
+	 *
+	 * @param p the desired number of open facilities
+	 * @return true if the master was changed, false otherwise
+	 */
+	public boolean setDesiredFacilities(int p) {
+		try {
+			master.setRhs(desiredFacilities, p);
+		} catch (GRBException e) {
+			LOGGER.log(Level.SEVERE, "Error changing desired open facilities. " + e.getMessage());
+			return false;
+		}
+		this.p = p;
+		return true;
+	}
+
+	/**
+	 * This method sets a single allocation solution as the starting incumbent. The customer sets of its open
+	 * facilities also seed the master.
+	 *
+	 * @param solution the single allocation solution
+	 * @return true
+	 */
+	public boolean setStart(SingleAllocationSolution solution) {
+		start = solution;
+		return true;
+	}
+
+	/**
+	 * This method sets the open facilities of the starting incumbent, whose customers are assigned by
+	 * SingleAllocationSolution.assign.
+	 *
+	 * @param open if each facility is open or not
+	 * @return true
+	 */
+	public boolean setStart(boolean[] open) {
+		SingleAllocationSolution solution = SingleAllocationSolution.assign(instance, open);
+		if(solution != null) {
+			start = solution;
+		}
+		return true;
+	}
+
+	/**
+	 * This method solves the model by branch and price, starting from the starting incumbent if there is one.
+	 *
+	 * @return true if the search finished, false if the master could not be solved
+	 */
+	public boolean optimize() {
+		long begin = System.nanoTime();
+		nodes = 0;
+		open = null;
+		objective = Double.NaN;
+		rootBound = Double.NaN;
+		finished = false;
+		status = GRB.Status.NUMERIC;
+		double prunedBound = Double.POSITIVE_INFINITY; //Lowest bound of the nodes left within the gap target
+
+		PriorityQueue<Node> queue = new PriorityQueue<>(Comparator.comparingDouble((Node node) -> node.bound).thenComparingInt(node -> -node.depth));
+		queue.add(new Node(null, -1, -1, false, Double.NEGATIVE_INFINITY));
+		try {
+			if(start != null) {
+				offer(start);
+				seed(start);
+			}
+			while(!queue.isEmpty()) {
+				Node node = queue.poll();
+				if(isPruned(node.bound)) {
+					prunedBound = Math.min(prunedBound, node.bound);
+					continue;
+				}
+				nodes++;
+				activate(node);
+				double nodeBound = Math.max(node.bound, solveRelaxation(node.bound));
+				if(Double.isNaN(nodeBound)) {
+					runtime = (System.nanoTime() - begin) / 1e9;
+					return false;
+				}
+				if(node.parent == null) {
+					rootBound = nodeBound;
+				}
+				if(isPruned(nodeBound)) {
+					prunedBound = Math.min(prunedBound, nodeBound);
+					continue;
+				}
+				if(nodeBound == Double.POSITIVE_INFINITY) {
+					continue;
+				}
+				double[] values = master.getValues();
+
+				//Branch on the open facility furthest from an integer
+				int facility = mostFractional(values, zColumns, J);
+				if(facility != -1) {
+					round(values);
+					queue.add(new Node(node, facility, -1, false, nodeBound));
+					queue.add(new Node(node, facility, -1, true, nodeBound));
+					continue;
+				}
+
+				//Then on the assignment furthest from an integer
+				Map<Integer, Double> served = serve(values);
+				int pair = -1;
+				double fractionality = INTEGRALITY_TOLERANCE;
+				for(Map.Entry<Integer, Double> entry : served.entrySet()) {
+					double distance = Math.min(entry.getValue(), 1 - entry.getValue());
+					if(distance > fractionality) {
+						pair = entry.getKey();
+						fractionality = distance;
+					}
+				}
+				if(pair == -1) {
+					offer(values, served, master.getObjective());
+					continue;
+				}
+				round(values);
+				queue.add(new Node(node, pair / R, pair % R, false, nodeBound));
+				queue.add(new Node(node, pair / R, pair % R, true, nodeBound));
+			}
+		} catch (GRBException e) {
+			LOGGER.log(Level.SEVERE, "Error solving restricted master. " + e.getMessage());
+			runtime = (System.nanoTime() - begin) / 1e9;
+			return false;
+		}
+		finished = true;
+		status = open != null ? GRB.Status.OPTIMAL : GRB.Status.INFEASIBLE;
+		bound = open == null ? Double.POSITIVE_INFINITY : Math.min(objective, prunedBound);
+		runtime = (System.nanoTime() - begin) / 1e9;
+		return true;
+	}
+
+	/**
+	 * This method checks a bound against the incumbent and the gap target.
+	 *
+	 * @param nodeBound the bound of a node
+	 * @return true if the node cannot improve the incumbent by more than the gap target
+	 */
+	private boolean isPruned(double nodeBound) {
+		return open != null && objective - nodeBound <= gapTarget * Math.abs(objective);
+	}
+
+	/**
+	 * This method applies the decisions of a node and its ancestors to the master: the fixed facilities get their
+	 * bounds and every customer set which breaks a decision is bound to zero.
+	 *
+	 * @param node the node
+	 * @throws GRBException if the bounds cannot be changed
+	 */
+	private void activate(Node node) throws GRBException {
+		Arrays.fill(fixed, (byte) -1);
+		Arrays.fill(assigned, -1);
+		Arrays.fill(required, 0);
+		excluded.clear();
+		for(Node decision = node; decision.parent != null; decision = decision.parent) {
+			if(decision.customer == -1) {
+				fixed[decision.facility] = (byte) (decision.value ? 1 : 0);
+			} else if(decision.value) {
+				assigned[decision.customer] = decision.facility;
+			} else {
+				excluded.set(decision.facility * R + decision.customer);
+			}
+		}
+		for(int r = 0; r < R; r++) {
+			if(assigned[r] != -1) {
+				required[assigned[r]]++;
+			}
+		}
+
+		for(int j = 0; j < J; j++) {
+			master.setBounds(zColumns + j, fixed[j] == 1 ? 1 : 0, fixed[j] == 0 ? 0 : 1);
+		}
+		for(CustomerSet set : customerSets) {
+			master.setBounds(set.column, 0, isAllowed(set) ? Double.POSITIVE_INFINITY : 0);
+		}
+	}
+
+	/**
+	 * @param set a customer set
+	 * @return true if the customer set keeps to the decisions of the active node
+	 */
+	private boolean isAllowed(CustomerSet set) {
+		int j = set.facility;
+		if(fixed[j] == 0) {
+			return false;
+		}
+		int count = 0;
+		for(int r : set.customers) {
+			if(excluded.get(j * R + r) || (assigned[r] != -1 && assigned[r] != j)) {
+				return false;
+			}
+			if(assigned[r] == j) {
+				count++;
+			}
+		}
+		return count == required[j];
+	}
+
+	/**
+	 * This method solves the relaxation of the active node by column generation. A node whose master is infeasible
+	 * first prices customer sets at no cost against artificial columns, as in the first phase of the simplex method,
+	 * until its master is feasible or the Lagrangian bound of the first phase shows that it cannot be.
+	 *
+	 * @param parentBound the bound of the node branched on
+	 * @return the bound of the node, infinity if it is infeasible, or NaN if the master could not be solved
+	 * @throws GRBException if gurobi fails
+	 */
+	private double solveRelaxation(double parentBound) throws GRBException {
+		BoundedSimplex.Status status = master.solve();
+		if(status == BoundedSimplex.Status.INFEASIBLE) {
+			setPhaseOne(true);
+			double infeasibility = generateColumns(Double.NEGATIVE_INFINITY);
+			setPhaseOne(false);
+			if(Double.isNaN(infeasibility)) {
+				return Double.NaN;
+			}
+			if(infeasibility > FEASIBILITY_TOLERANCE) {
+				return Double.POSITIVE_INFINITY;
+			}
+		} else if(status != BoundedSimplex.Status.OPTIMAL) {
+			return Double.NaN;
+		}
+		return generateColumns(parentBound);
+	}
+
+	/**
+	 * This method switches the master between the phases. The first phase costs only the artificial columns, the
+	 * second bounds them to zero and restores the costs of the other columns.
+	 *
+	 * @param phaseOne whether the first phase starts or ends
+	 * @throws GRBException if the master cannot be changed
+	 */
+	private void setPhaseOne(boolean phaseOne) throws GRBException {
+		this.phaseOne = phaseOne;
+		for(int j = 0; j < J; j++) {
+			master.setCost(zColumns + j, phaseOne ? 0 : instance.fixedCost(j));
+		}
+		for(int k = 0; k < K; k++) {
+			for(int i = 0; i < I; i++) {
+				for(int j = 0; j < J; j++) {
+					master.setCost(xColumns + (k * I + i) * J + j, phaseOne ? 0 : instance.unitCost(k) * instance.plantDistance(i, j));
+				}
+			}
+		}
+		for(CustomerSet set : customerSets) {
+			master.setCost(set.column, phaseOne ? 0 : set.cost);
+		}
+		for(int a = 0; a < artificialCount; a++) {
+			master.setBounds(artificialColumns + a, 0, phaseOne ? Double.POSITIVE_INFINITY : 0);
+		}
+	}
+
+	/**
+	 * This method generates customer sets for the active node in the current phase. Each round prices the cheapest
+	 * customer set of every facility and the Lagrangian bound of the round, which prunes the node early against the
+	 * incumbent, ends the phase once the master meets it.
+	 *
+	 * The duals are smoothed towards the ones that gave the best Lagrangian bound so far, which damps the swings of
+	 * the degenerate duals of the master between rounds, and the facilities are priced again at the duals of the
+	 * master only if no customer set prices out at the smoothed ones.
+	 *
+	 * @param parentBound the bound of the node branched on
+	 * @return the objective of the master, a bound above it which prunes the node, infinity if the master is
+	 * infeasible, or NaN if it could not be solved
+	 * @throws GRBException if gurobi fails
+	 */
+	private double generateColumns(double parentBound) throws GRBException {
+		double[] center = null; //Duals with the best Lagrangian bound of the phase
+		double bestBound = parentBound;
+		while(true) {
+			BoundedSimplex.Status status = master.solve();
+			if(status == BoundedSimplex.Status.INFEASIBLE) {
+				return Double.POSITIVE_INFINITY;
+			}
+			if(status != BoundedSimplex.Status.OPTIMAL) {
+				return Double.NaN;
+			}
+			double masterObjective = master.getObjective();
+			double tolerance = PRICING_TOLERANCE * Math.max(1, Math.abs(masterObjective));
+			if(masterObjective - bestBound <= tolerance) {
+				return masterObjective;
+			}
+			if(phaseOne ? bestBound > FEASIBILITY_TOLERANCE : isPruned(bestBound)) {
+				return bestBound;
+			}
+
+			//Price at the smoothed duals, and at the duals of the master if no customer sets price out there
+			double[] duals = master.getDuals();
+			boolean added = false;
+			for(double smoothing = center == null ? 0 : SMOOTHING; !added; smoothing = 0) {
+				double[] smoothed = duals.clone();
+				for(int row = 0; smoothing > 0 && row < duals.length; row++) {
+					smoothed[row] = smoothing * center[row] + (1 - smoothing) * duals[row];
+				}
+				List<CustomerSet> priced = IntStream.range(0, J).parallel()
+						.filter(j -> fixed[j] != 0)
+						.mapToObj(j -> price(j, smoothed))
+						.filter(Objects::nonNull)
+						.collect(Collectors.toList());
+				double roundBound = lagrangianBound(smoothed, priced);
+				if(roundBound > bestBound || center == null) {
+					bestBound = Math.max(bestBound, roundBound);
+					center = smoothed;
+				}
+
+				//The reduced cost of the customer sets is taken at the duals of the master
+				for(CustomerSet set : priced) {
+					if(reducedCost(set, duals) < -tolerance && knownSets.add(set)) {
+						addCustomerSet(set);
+						added = true;
+					}
+				}
+				if(smoothing == 0) {
+					break;
+				}
+			}
+			if(!added) {
+				return masterObjective;
+			}
+		}
+	}
+
+	/**
+	 * This method computes the Lagrangian bound of the master at a set of duals: the duals times the right hand
+	 * sides plus the lowest reduced cost each column reaches within its bounds. The customer sets of a facility add
+	 * up to at most one, and a flow or an artificial column is bound by the row it alone keeps feasible.
+	 *
+	 * @param duals the duals of the rows
+	 * @param priced the cheapest customer set of every facility at the duals
+	 * @return the lower bound on the objective of the master in the current phase
+	 */
+	private double lagrangianBound(double[] duals, List<CustomerSet> priced) {
+		double scale = phaseOne ? 0 : 1;
+		double bound = p * duals[desiredFacilities];
+		for(int r = 0; r < R; r++) {
+			bound += duals[customerRows + r];
+		}
+		for(int j = 0; j < J; j++) {
+			double reducedCost = scale * instance.fixedCost(j) - duals[desiredFacilities] + duals[convexityRows + j];
+			bound += reducedCost * (reducedCost < 0 ? (fixed[j] == 0 ? 0 : 1) : (fixed[j] == 1 ? 1 : 0));
+		}
+		for(int k = 0; k < K; k++) {
+			for(int i = 0; i < I; i++) {
+				double capacityDual = Math.min(0, duals[capacityRows + k * I + i]);
+				bound += capacityDual * instance.capacity(i, k);
+				for(int j = 0; j < J; j++) {
+					double reducedCost = scale * instance.unitCost(k) * instance.plantDistance(i, j) - duals[balanceRows + j * K + k] - capacityDual;
+					bound += Math.min(0, reducedCost) * instance.capacity(i, k);
+				}
+			}
+		}
+		for(int a = 0; phaseOne && a < artificialCount; a++) {
+			double reducedCost = 1 - duals[artificialRows[a]] * artificialCoefficients[a];
+			bound += Math.min(0, reducedCost) * (a == R || a == R + 1 ? J : 1);
+		}
+		for(CustomerSet set : priced) {
+			bound += Math.min(0, set.reducedCost);
+		}
+		return bound;
+	}
+
+	/**
+	 * @param set a customer set
+	 * @param duals the duals of the rows
+	 * @return the reduced cost of the customer set in the current phase
+	 */
+	private double reducedCost(CustomerSet set, double[] duals) {
+		int j = set.facility;
+		double reducedCost = (phaseOne ? 0 : set.cost) - duals[convexityRows + j];
+		for(int r : set.customers) {
+			reducedCost -= duals[customerRows + r];
+			for(int k = 0; k < K; k++) {
+				reducedCost += duals[balanceRows + j * K + k] * instance.demand(r, k);
+			}
+		}
+		return reducedCost;
+	}
+
+	/**
+	 * This method finds the customer set of a facility with the lowest reduced cost. The price of customer r is its
+	 * assignment cost, or nothing in the first phase, less its dual plus the duals of its products at the facility, and the cheapest set within the
+	 * activity levels is a 0-1 knapsack over the customer demands. Only customers with a negative price are worth
+	 * adding past the minimum activity level, so the other customers are only packed up to it, and with them the
+	 * smaller knapsack is taken, since dropping any of them would leave the set below the minimum.
+	 *
+	 * @param j the facility
+	 * @param duals the duals of the rows
+	 * @return the cheapest customer set, or null if the decisions of the node leave none
+	 */
+	private CustomerSet price(int j, double[] duals) {
+		List<Integer> chosen = new ArrayList<>();
+		double reducedCost = -duals[convexityRows + j];
+		long forcedDemand = 0;
+		int[] items = new int[R];
+		double[] prices = new double[R];
+		int count = 0;
+		int largestDemand = 0;
+		for(int r = 0; r < R; r++) {
+			if(assigned[r] != -1 && assigned[r] != j || excluded.get(j * R + r)) {
+				continue;
+			}
+			double price = (phaseOne ? 0 : instance.assignmentCost(j, r)) - duals[customerRows + r];
+			for(int k = 0; k < K; k++) {
+				price += duals[balanceRows + j * K + k] * instance.demand(r, k);
+			}
+			int demand = instance.customerDemand(r);
+			if(assigned[r] == j || (demand == 0 && price < 0)) {
+				chosen.add(r);
+				reducedCost += price;
+				forcedDemand += demand;
+			} else if(demand > 0) {
+				items[count] = r;
+				prices[count++] = price;
+				largestDemand = Math.max(largestDemand, demand);
+			}
+		}
+		long maxDemand = instance.maxActivity(j) - forcedDemand;
+		if(maxDemand < 0) {
+			return null;
+		}
+		int capacity = (int) Math.min(maxDemand, Integer.MAX_VALUE - 1);
+		int minimum = (int) Math.max(0, instance.minActivity(j) - forcedDemand);
+
+		//Customers with a negative price up to the maximum activity level
+		int[] negative = IntStream.range(0, count).filter(n -> prices[n] < 0 && instance.customerDemand(items[n]) <= capacity).toArray();
+		int[] best = knapsack(items, prices, negative, minimum, capacity);
+		double bestPrice = total(prices, best);
+
+		//Every customer up to the minimum activity level plus one customer
+		if(minimum > 0) {
+			int smallCapacity = (int) Math.min(capacity, (long) minimum + largestDemand - 1);
+			int[] every = IntStream.range(0, count).filter(n -> instance.customerDemand(items[n]) <= smallCapacity).toArray();
+			int[] small = knapsack(items, prices, every, minimum, smallCapacity);
+			if(total(prices, small) < bestPrice) {
+				best = small;
+				bestPrice = total(prices, small);
+			}
+		}
+		if(best == null) {
+			return null;
+		}
+
+		for(int n : best) {
+			chosen.add(items[n]);
+		}
+		CustomerSet set = new CustomerSet(j, chosen.stream().mapToInt(Integer::intValue).sorted().toArray());
+		set.reducedCost = reducedCost + bestPrice;
+		return set;
+	}
+
+	/**
+	 * This method solves a 0-1 knapsack by dynamic programming over the total demand, keeping a bit per item and
+	 * demand to recover the chosen items.
+	 *
+	 * @param items the customer of each item
+	 * @param prices the price of each item
+	 * @param candidates the items which may be chosen
+	 * @param minimum the smallest total demand
+	 * @param capacity the largest total demand
+	 * @return the chosen items with the lowest total price and a total demand within the bounds, or null if none
+	 */
+	private int[] knapsack(int[] items, double[] prices, int[] candidates, int minimum, int capacity) {
+		if(minimum > capacity) {
+			return null;
+		}
+		double[] cheapest = new double[capacity + 1];
+		Arrays.fill(cheapest, Double.POSITIVE_INFINITY);
+		cheapest[0] = 0;
+		long[][] taken = new long[candidates.length][(capacity >> 6) + 1];
+		for(int t = 0; t < candidates.length; t++) {
+			int demand = instance.customerDemand(items[candidates[t]]);
+			double price = prices[candidates[t]];
+			for(int c = capacity; c >= demand; c--) {
+				double value = cheapest[c - demand] + price;
+				if(value < cheapest[c]) {
+					cheapest[c] = value;
+					taken[t][c >> 6] |= 1L << (c & 63);
+				}
+			}
+		}
+
+		int total = -1;
+		for(int c = minimum; c <= capacity; c++) {
+			if(cheapest[c] < Double.POSITIVE_INFINITY && (total == -1 || cheapest[c] < cheapest[total])) {
+				total = c;
+			}
+		}
+		if(total == -1) {
+			return null;
+		}
+		List<Integer> chosen = new ArrayList<>();
+		for(int t = candidates.length - 1; t >= 0; t--) {
+			if((taken[t][total >> 6] >>> (total & 63) & 1) != 0) {
+				chosen.add(candidates[t]);
+				total -= instance.customerDemand(items[candidates[t]]);
+			}
+		}
+		return chosen.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	/**
+	 * @param prices the price of each item
+	 * @param chosen the chosen items, or null
+	 * @return the total price of the chosen items, or infinity without any
+	 */
+	private static double total(double[] prices, int[] chosen) {
+		if(chosen == null) {
+			return Double.POSITIVE_INFINITY;
+		}
+		double total = 0;
+		for(int n : chosen) {
+			total += prices[n];
+		}
+		return total;
+	}
+
+	/**
+	 * This method adds a customer set to the master as a column with its customers, its facility and the demand of
+	 * each product it draws from the facility, at no cost in the first phase.
+	 *
+	 * @param set the customer set
+	 * @throws GRBException if the column cannot be added
+	 */
+	private void addCustomerSet(CustomerSet set) throws GRBException {
+		int j = set.facility;
+		int size = set.customers.length;
+		int[] rows = new int[size + 1 + K];
+		double[] coefficients = new double[size + 1 + K];
+		set.cost = 0;
+		for(int n = 0; n < size; n++) {
+			int r = set.customers[n];
+			rows[n] = customerRows + r;
+			coefficients[n] = 1;
+			set.cost += instance.assignmentCost(j, r);
+			for(int k = 0; k < K; k++) {
+				coefficients[size + 1 + k] -= instance.demand(r, k);
+			}
+		}
+		rows[size] = convexityRows + j;
+		coefficients[size] = 1;
+		for(int k = 0; k < K; k++) {
+			rows[size + 1 + k] = balanceRows + j * K + k;
+		}
+		set.column = master.addColumn(phaseOne ? 0 : set.cost, Double.POSITIVE_INFINITY, rows, coefficients);
+		customerSets.add(set);
+	}
+
+	/**
+	 * This method adds the customer set of every open facility of a solution to the master.
+	 *
+	 * @param solution the single allocation solution
+	 * @throws GRBException if a column cannot be added
+	 */
+	private void seed(SingleAllocationSolution solution) throws GRBException {
+		for(int j = 0; j < J; j++) {
+			if(!solution.isOpen(j)) {
+				continue;
+			}
+			int facility = j;
+			CustomerSet set = new CustomerSet(j, IntStream.range(0, R).filter(r -> solution.getAssignment(r) == facility).toArray());
+			if(knownSets.add(set)) {
+				addCustomerSet(set);
+			}
+		}
+	}
+
+	/**
+	 * @param values the value of each column of the master
+	 * @param first the first column of the family
+	 * @param count the number of columns of the family
+	 * @return the index in the family of the column furthest from an integer, or -1 if every column is integral
+	 */
+	private static int mostFractional(double[] values, int first, int count) {
+		int index = -1;
+		double fractionality = INTEGRALITY_TOLERANCE;
+		for(int n = 0; n < count; n++) {
+			double value = values[first + n];
+			double distance = Math.min(value - Math.floor(value), Math.ceil(value) - value);
+			if(distance > fractionality) {
+				index = n;
+				fractionality = distance;
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * This method sums the customer sets of the relaxation into the assignments y[j][r].
+	 *
+	 * @param values the value of each column of the master
+	 * @return the nonzero assignments, keyed by j * R + r
+	 */
+	private Map<Integer, Double> serve(double[] values) {
+		Map<Integer, Double> served = new HashMap<>();
+		for(CustomerSet set : customerSets) {
+			double value = values[set.column];
+			if(value > INTEGRALITY_TOLERANCE) {
+				for(int r : set.customers) {
+					served.merge(set.facility * R + r, value, Double::sum);
+				}
+			}
+		}
+		return served;
+	}
+
+	/**
+	 * This method rounds a relaxation by opening the p facilities with the largest z[j], ties going to the lower
+	 * facility, and assigning the customers with SingleAllocationSolution.assign.
+	 *
+	 * @param values the value of each column of the master
+	 */
+	private void round(double[] values) {
+		Integer[] order = new Integer[J];
+		for(int j = 0; j < J; j++) {
+			order[j] = j;
+		}
+		Arrays.sort(order, (a, b) -> Double.compare(values[zColumns + b], values[zColumns + a]));
+		boolean[] rounded = new boolean[J];
+		for(int n = 0; n < Math.min(p, J); n++) {
+			rounded[order[n]] = true;
+		}
+		offer(SingleAllocationSolution.assign(instance, rounded));
+	}
+
+	/**
+	 * This method makes a single allocation solution the incumbent if it is feasible and cheaper.
+	 *
+	 * @param solution the single allocation solution, or null
+	 */
+	private void offer(SingleAllocationSolution solution) {
+		if(solution == null || !solution.isFeasible(p) || (open != null && solution.getCost() >= objective)) {
+			return;
+		}
+		open = new boolean[J];
+		assignment = new int[R];
+		flows = new double[K * I * J];
+		for(int j = 0; j < J; j++) {
+			open[j] = solution.isOpen(j);
+		}
+		for(int r = 0; r < R; r++) {
+			assignment[r] = solution.getAssignment(r);
+		}
+		for(int k = 0; k < K; k++) {
+			for(int i = 0; i < I; i++) {
+				for(int j = 0; j < J; j++) {
+					flows[(k * I + i) * J + j] = solution.getFlow(k, i, j);
+				}
+			}
+		}
+		objective = solution.getCost();
+	}
+
+	/**
+	 * This method makes an integral relaxation the incumbent if it is cheaper.
+	 *
+	 * @param values the value of each column of the master
+	 * @param served the assignments of the relaxation, each zero or one
+	 * @param cost the objective of the relaxation
+	 */
+	private void offer(double[] values, Map<Integer, Double> served, double cost) {
+		if(open != null && cost >= objective) {
+			return;
+		}
+		open = new boolean[J];
+		assignment = new int[R];
+		for(int j = 0; j < J; j++) {
+			open[j] = values[zColumns + j] > 0.5;
+		}
+		for(Map.Entry<Integer, Double> entry : served.entrySet()) {
+			if(entry.getValue() > 0.5) {
+				assignment[entry.getKey() % R] = entry.getKey() / R;
+			}
+		}
+		flows = Arrays.copyOfRange(values, xColumns, xColumns + K * I * J);
+		objective = cost;
+	}
+
+	/**
+	 * @return true if the search found a feasible solution
+	 */
+	public boolean hasSolution() {
+		return open != null;
+	}
+
+	/**
+	 * @return the objective of the incumbent, or NaN without one
+	 */
+	public double getObjective() {
+		return objective;
+	}
+
+	/**
+	 * @return the best lower bound of the last solve
+	 */
+	public double getBound() {
+		return bound;
+	}
+
+	/**
+	 * @return the relative gap between the incumbent and the bound, as gurobi computes it
+	 */
+	public double getGap() {
+		if(open == null) {
+			return Double.POSITIVE_INFINITY;
+		}
+		if(objective == bound) {
+			return 0;
+		}
+		return Math.abs(bound - objective) / Math.abs(objective);
+	}
+
+	/**
+	 * @return the wall clock time of the last solve in seconds
+	 */
+	public double getRuntime() {
+		return runtime;
+	}
+
+	/**
+	 * @return gurobi's status code of the last solve: optimal or infeasible once the search finished, a numerical
+	 * failure if it did not, and loaded before the first solve
+	 */
+	public int getStatus() {
+		return status;
+	}
+
+	/**
+	 * @return the number of nodes of the last solve
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * @return the number of columns of the restricted master
+	 */
+	public int numVariables() {
+		return master.numColumns();
+	}
+
+	/**
+	 * @return the number of rows of the restricted master
+	 */
+	public int numConstraints() {
+		return master.numRows();
+	}
+
+	/**
+	 * @return the number of nonzero entries of the restricted master
+	 */
+	public long numNonzeros() {
+		return master.numNonzeros();
+	}
+
+	/**
+	 * @return the number of customer sets in the master
+	 */
+	public int getColumns() {
+		return customerSets.size();
+	}
+
+	/**
+	 * @return the bound of the root node of the last solve
+	 */
+	public double getRootBound() {
+		return rootBound;
+	}
+
+	/**
+	 * This method obtains the open facilities of the incumbent solution.
+	 *
+	 * @return if each facility is open or not, or null if there is no incumbent
+	 */
+	public boolean[] getOpenFacilities() {
+		return open == null ? null : open.clone();
+	}
+
+	/**
+	 * This method prints the solution to the console.
+	 */
+	public void printSolution() {
+		System.out.println();
+		System.out.println("***OPTIMAL SOLUTION***");
+		System.out.println();
+
+		if(open == null) {
+			LOGGER.log(Level.SEVERE, "Error obtaining objective function value. Model is infeasible.");
+			return;
+		}
+		System.out.println("Total Cost: " + objective);
+		System.out.println();
+
+		new SolutionPrinter(instance, AllocationMode.SINGLE, this::getSolutionValues).print();
+	}
+
+	/**
+	 * This method writes the nonzero values of the incumbent solution to a CSV or JSON file (see SolutionWriter).
+	 * The status is gurobi's code for an optimal solve, or for a numerical failure if the search did not finish.
+	 *
+	 * @param filePath the path to the solution file, JSON if it ends in .json and CSV otherwise
+	 * @return true if the file was written, false otherwise
+	 */
+	public boolean writeSolution(String filePath) {
+		if(open == null) {
+			LOGGER.log(Level.SEVERE, "Error writing solution file. Model has no solution.");
+			return false;
+		}
+		SolutionPrinter printer = new SolutionPrinter(instance, AllocationMode.SINGLE, this::getSolutionValues);
+		return printer.write(filePath, objective, finished ? GRB.Status.OPTIMAL : GRB.Status.NUMERIC);
+	}
+
+	/**
+	 * This method expands a range of the solution values of a decision variable family from the incumbent (see
+	 * SolutionPrinter).
+	 *
+	 * @param family the decision variable family, z, x or y
+	 * @param from the first flat index
+	 * @param to one past the last flat index
+	 * @return the value of each variable in the range
+	 */
+	private double[] getSolutionValues(String family, int from, int to) {
+		if(family.equals("x")) {
+			return Arrays.copyOfRange(flows, from, to);
+		}
+		double[] values = new double[to - from];
+		for(int n = from; n < to; n++) {
+			if(family.equals("z")) {
+				values[n - from] = open[n] ? 1 : 0;
+			} else {
+				values[n - from] = assignment[n % R] == n / R ? 1 : 0;
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * This method releases the restricted master.
+	 */
+	public void dispose() {
+		try {
+			master.dispose();
+		} catch (GRBException e) {
+			LOGGER.log(Level.SEVERE, "Error disposing restricted master. " + e.getMessage());
+		}
+	}
+
+}
@@ -5,14 +5,11 @@
  *
  */
 
-import java.io.File;
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
-import java.util.Scanner;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -22,6 +19,14 @@ public class CFLP {
 	
 	private final static Logger LOGGER = Logger.getLogger(CFLP.class.getName());
 	
+	private static final int LAGRANGIAN_ITERATIONS = 1000; //Maximum subgradient iterations of the Lagrangian relaxation
+	private static final long LAGRANGIAN_TIME_LIMIT = 10000; //Wall clock limit of the Lagrangian relaxation in milliseconds
+	private static final long HEURISTIC_TIME_LIMIT = 1000; //Wall clock limit of the greedy heuristic local search in milliseconds
+	private static final int SWEEP_REPAIR_SWAPS = 100; //Facility swaps tried when repairing the previous incumbent of a sweep
+	private static final int CANDIDATE_PRICING_ROUNDS = 20; //Maximum solves which add back left out candidate pairs
+	private static final double CROSS_CHECK_TOLERANCE = 2e-4; //Relative objective difference of the cross-check, twice the MIP gap of both solvers
+	private static final double BOUND_CHECK_TOLERANCE = 1e-9; //Relative amount a lower bound may exceed a feasible cost through rounding
+	
 	//Sets
 	private static int K = 0; //Set of commodities/products
 	private static int I = 0; //Set of production plant
@@ -29,713 +34,1056 @@ public class CFLP {
 	private static int R = 0; //Set of customers
 
 	//Parameters
-	private static List<List<Integer>> drk = new ArrayList<>(); //Demand of product k for customer r
-	private static List<List<Integer>> pik = new ArrayList<>(); //Capacity of product k for plant i
-	private static List<Integer> qj_min = new ArrayList<>(); //Minimum activity level for facility j
-	private static List<Integer> qj_max = new ArrayList<>(); //Maximum activity level for facility j
-	private static List<Double> fj = new ArrayList<>(); //Facility fixed cost
-	private static List<Double> gj = new ArrayList<>(); //Facility marginal cost
-	private static List<Double> ck = new ArrayList<>(); //Unit transportation cost for product k
-	private static List<List<Double>> lij = new ArrayList<>(); //Distance from plant i to facility j
-	private static List<List<Double>> ljr = new ArrayList<>(); //Distance from facility j to customer r
+	private static CFLPInstance instance; //Demands, capacities, activity levels, costs and distances
 	private static int p; //Desired number of facilities to be open
-	private static boolean singleAllocation; //Single allocation or divisible demand
+	private static int sweepTo = -1; //Last desired number of facilities of a sweep starting at p, or -1 without a sweep
+	private static AllocationMode allocation; //Single allocation, divisible demand or arc-flow divisible demand
+	
+	//Options
+	private static boolean useNames = true; //Whether variables and constraints are given descriptive names
+	private static boolean lagrangian = false; //Whether to bound the single allocation model with the Lagrangian relaxation instead of gurobi
+	private static boolean heuristic = false; //Whether to solve the single allocation model with the greedy heuristic instead of gurobi
+	private static boolean mipStart = true; //Whether to give gurobi the greedy heuristic solution as a MIP start
+	private static boolean benders = false; //Whether to solve the divisible demand model with Benders decomposition
+	private static boolean lazyCuts = false; //Whether Benders cuts are added as lazy constraints instead of iteratively
+	private static int servePort = -1; //Port on which the solved model accepts demand updates, or -1 to exit after solving
+	private static String metricsPrefix = null; //Path prefix of the JSON and Prometheus metrics files, or null to skip metrics
+	private static String solutionFile = null; //CSV or JSON file receiving the nonzero values of the solution, or null
+	private static boolean printSolution = true; //Whether the solution tables are printed to the console
+	private static int nearestFacilities = 0; //Cheapest facilities kept as candidates of each customer, or 0 to keep them all
+	private static double maxDistance = Double.POSITIVE_INFINITY; //Largest facility to customer distance kept as a candidate
+	private static boolean verifyCandidates = false; //Whether left out candidate pairs with a negative reduced cost are added back after the solve
+	private static boolean linkingCuts = false; //Whether the single allocation model is strengthened with linking and cover cuts from a callback
+	private static String backend = "gurobi"; //Solver backend, gurobi, java, or check to solve with gurobi and compare with java
+	private static DistanceMetric metric = DistanceMetric.EUCLIDEAN; //Metric of the distances of a coordinate instance
+	private static int cachedDistanceRows = 0; //Facility to customer distance rows cached for a coordinate instance, or 0 for no cache
+	private static int racers = 0; //Racing gurobi solves of the portfolio, or 0 to solve once
+	private static double gapTarget = 1e-4; //Relative MIP gap at which gurobi stops, its default unless --gap is given
+	private static int[] evaluatedFacilities = null; //Open facilities whose flows are evaluated without solving the model, or null
+	private static boolean branchAndPrice = false; //Whether to solve the single allocation model by branch and price over customer sets
+	private static String cacheDirectory = null; //Directory of the cache of built models and their solutions, or null for no cache
+	private static long cacheSize = 1024; //Largest total size of the model cache in megabytes
+	private static double timeLimit = Double.POSITIVE_INFINITY; //Wall clock budget of the run in seconds, from the start of main
+	private static String incumbentFile = null; //CSV or JSON file replaced by every improving incumbent during the solve, or null
 	
-	//Decision Variables
-	private static GRBVar[][][] x; //Amount of product k supplied by plant i to facility j (single allocation model)
-	private static GRBVar[] z; //If facility j is open or not (both models)
-	private static GRBVar[][] y; //If customer r receives supply from facility j (single allocation model)
-	private static GRBVar[][][][] s; //Amount of product k supplied by plant i to facility j to customer r (divisible demand model)
+	private static RunMetrics metrics; //Phase timings and solver progress, or null
+	private static ModelCache cache; //Cache entry of the instance, or null
+	private static long startTime; //System.nanoTime at the start of the run, which the time budget counts from
 	
 	
 	public static void main(String[] args) {		
-		if(args.length != 11) {
+		startTime = System.nanoTime();
+		
+		//A binary instance replaces the 9 CSV files with a single file, and a coordinate instance has 10 CSV files
+		int instanceArgs = 9;
+		if(args.length > 0 && BinaryInstanceFormat.isBinaryInstance(args[0])) {
+			instanceArgs = 1;
+		} else if(args.length > 11 && !args[11].startsWith("--")) {
+			instanceArgs = 10;
+		}
+		if(args.length < instanceArgs + 2) {
 			LOGGER.log(Level.SEVERE, "Invalid input. Please reference README.md for execution instructions.");
 			return;
 		}
 		
-		init(args);
+		if(!parseOptions(Arrays.copyOfRange(args, instanceArgs + 2, args.length))) {
+			return;
+		}
 		
-		//Gurobi Environment 
-		GRBEnv env;
-		GRBModel model;
-		try {
-			env = new GRBEnv();
-			model = new GRBModel(env);
-		} catch (GRBException e) {
-			LOGGER.log(Level.SEVERE, "Error creating gurobi enviornment and model. " + e.getMessage());
+		if(metricsPrefix != null) {
+			metrics = new RunMetrics();
+		}
+		
+		if(!init(Arrays.copyOfRange(args, 0, instanceArgs), args[instanceArgs], args[instanceArgs + 1])) {
+			return;
+		}
+		endPhase("load");
+		if(metrics != null) {
+			metrics.recordInstance(instance, p, allocation);
+		}
+		
+		if(lagrangian) {
+			solveLagrangianRelaxation();
+			endPhase("lagrangian");
+			writeMetrics(null);
 			return;
 		}
 		
-		addDecisionVariables(model, env);
-			
+		if(heuristic) {
+			solveGreedyHeuristic();
+			endPhase("heuristic");
+			writeMetrics(null);
+			return;
+		}
 		
-		//Objective Function
-		try {
-			model.set(GRB.IntAttr.ModelSense, GRB.MINIMIZE);
-		} catch (GRBException e) {
-			LOGGER.log(Level.SEVERE, "Error setting objective function. " + e.getMessage());
-			cleanup(model, env);
+		if(benders) {
+			solveBendersDecomposition();
+			endPhase("benders");
+			writeMetrics(null);
 			return;
 		}
-				
-		addConstraints(model, env);
 		
-		//Solving Model
+		if(evaluatedFacilities != null) {
+			evaluateFacilities();
+			endPhase("evaluate");
+			writeMetrics(null);
+			return;
+		}
+		
+		if(branchAndPrice) {
+			solveBranchAndPrice();
+			return;
+		}
+		
+		//Pure Java Solver, without a gurobi environment
+		if(backend.equals("java")) {
+			JavaCFLPModel model = new JavaCFLPModel(instance, p, allocation);
+			model.build();
+			endPhase("build");
+			solve(model, null, null);
+			return;
+		}
+		
+		//Model Cache
+		if(cacheDirectory != null) {
+			try {
+				cache = new ModelCache(cacheDirectory, cacheSize * 1024 * 1024, Arrays.copyOfRange(args, 0, instanceArgs), p, allocation, metric, useNames);
+			} catch (IOException e) {
+				LOGGER.log(Level.SEVERE, "Error opening model cache, solving without it. " + e.getMessage());
+			}
+		}
+		
+		//Gurobi Environment, with the model read from the cache when it has one
+		GRBEnv env;
+		CFLPModel model = null;
+		boolean cached = false;
 		try {
-			model.optimize();
+			env = new GRBEnv();
+			if(cache != null) {
+				model = cache.load(env, instance, p, allocation);
+			}
+			cached = model != null;
+			if(!cached) {
+				model = new CFLPModel(env, instance, p, allocation, useNames);
+			}
+			model.getModel().set(GRB.DoubleParam.MIPGap, gapTarget);
 		} catch (GRBException e) {
-			LOGGER.log(Level.SEVERE, "Error optimizing model. " + e.getMessage());
-			cleanup(model, env);
+			LOGGER.log(Level.SEVERE, "Error creating gurobi enviornment and model. " + e.getMessage());
 			return;
 		}
+		endPhase(cached ? "load_cached_model" : "create_environment");
 		
-		printSolution(model, env, x, y, z, s);
+		//Candidate Facilities of each Customer
+		if(nearestFacilities > 0 || maxDistance < Double.POSITIVE_INFINITY) {
+			model.setCandidates(CandidateFilter.select(instance, nearestFacilities, maxDistance));
+			endPhase("select_candidates");
+		}
 		
-		cleanup(model, env);
+		//Decision Variables, Objective Function and Constraints, stored before the solve so a cut short run still caches them
+		model.setMetrics(metrics);
+		if(!cached) {
+			if(!model.build()) {
+				cleanup(model, env);
+				return;
+			}
+			if(cache != null && cache.store(model)) {
+				endPhase("store_cached_model");
+			}
+		}
 		
+		//Portfolio of racing solves of the built model
+		if(racers > 0) {
+			solve(new PortfolioSolver(model, racers, gapTarget), null, env);
+			return;
+		}
+		solve(model, model, env);
 	}
 	
 	/**
-	 * This method initializes all the sets, parameters and decision variables. 
+	 * This method solves a built model and prints and writes its solution. A gurobi model also gets the solver
+	 * callback, the candidate verification, the cross-check and the demand service. The model is cleaned up after.
 	 * 
-	 * @param args the command line arguments
+	 * @param solver the built model
+	 * @param model the same model if it is solved with gurobi, or null
+	 * @param env the gurobi environment, or null without one
 	 */
-	private static void init(String[] args) {
-		//Customer Demand
-		if (!fileExists(args[0])) {
-			logFileDNE(args[0]);
-			return;
+	private static void solve(CFLPSolver solver, CFLPModel model, GRBEnv env) {
+		//MIP Start, unless the model cache gave the last solution of the model
+		if(mipStart && (cache == null || !cache.isStartLoaded())) {
+			setMIPStart(solver, p);
+			endPhase("mip_start");
 		}
-		Scanner scanner = getScanner(args[0]);
-
-		while (scanner.hasNextLine()) {
-			R++;
-			String[] rawLine = scanner.nextLine().split(",");
-			List<Integer> demands = new ArrayList<>();
-			for (String demand : rawLine) {
-				demands.add(Integer.parseInt(demand));
+		
+		//Linking Cuts and Solver Progress, which share the one callback of the model
+		LinkingCutCallback cuts = null;
+		ProgressCallback progress = null;
+		if(model != null && linkingCuts) {
+			cuts = model.createLinkingCutCallback();
+			if(cuts == null) {
+				cleanup(solver, env);
+				return;
 			}
-			drk.add(demands);
-			K = demands.size();
+			progress = cuts;
+		} else if(model != null && (metrics != null || incumbentFile != null)) {
+			progress = new ProgressCallback();
 		}
-
-		//Plant Capacity
-		if (!fileExists(args[1])) {
-			logFileDNE(args[1]);
-			return;
+		IncumbentWriter incumbents = null;
+		if(progress != null && incumbentFile != null) {
+			incumbents = model.createIncumbentWriter(incumbentFile);
+			progress.stream(incumbents);
 		}
-		scanner = getScanner(args[1]);
-
-		while (scanner.hasNextLine()) {
-			I++;
-			String[] rawLine = scanner.nextLine().split(",");
-			List<Integer> capacities = new ArrayList<>();
-			for (String capacity : rawLine) {
-				capacities.add(Integer.parseInt(capacity));
+		if(progress != null) {
+			try {
+				model.getModel().setCallback(progress);
+				if(metrics != null) {
+					metrics.setProgress(progress);
+				}
+			} catch (GRBException e) {
+				LOGGER.log(Level.SEVERE, "Error setting solver callback. " + e.getMessage());
+				if(cuts != null) {
+					cleanup(solver, env);
+					return;
+				}
 			}
-			pik.add(capacities);
 		}
-
-		//Facility Minimum Activity Level
-		if (!fileExists(args[2])) {
-			logFileDNE(args[2]);
+		if(metrics != null) {
+			metrics.start();
+		}
+		
+		//Sweep
+		if(sweepTo != -1) {
+			sweepDesiredFacilities(solver);
+			endPhase("sweep");
+			writeMetrics(solver);
+			cleanup(solver, env);
 			return;
 		}
-		scanner = getScanner(args[2]);
-
-		while (scanner.hasNextLine()) {
-			String[] rawLine = scanner.nextLine().split(",");
-			for (String activityLevel : rawLine) {
-				qj_min.add(Integer.parseInt(activityLevel));
+		
+		//Time Budget, whatever loading, building and the MIP start left of it
+		if(timeLimit < Double.POSITIVE_INFINITY) {
+			double remaining = Math.max(0, timeLimit - (System.nanoTime() - startTime) / 1e9);
+			if(solver instanceof PortfolioSolver) {
+				((PortfolioSolver) solver).setTimeLimit(remaining);
+			} else {
+				try {
+					model.getModel().set(GRB.DoubleParam.TimeLimit, remaining);
+				} catch (GRBException e) {
+					LOGGER.log(Level.SEVERE, "Error setting time limit. " + e.getMessage());
+					cleanup(solver, env);
+					return;
+				}
 			}
-			J = rawLine.length;
 		}
-
-		//Facility Maximum Activity Level
-		if (!fileExists(args[3])) {
-			logFileDNE(args[3]);
-			return;
+		
+		//Solving Model, or only the flows of a cached solution already proved optimal
+		boolean reused = model != null && cache != null && servePort == -1 && cache.isStartLoaded() && cache.isSolved(gapTarget) && model.fixToStart();
+		boolean finished = solver.optimize();
+		
+		//An error inside the callback only loses its cuts, samples or incumbent writes, the solve itself goes on
+		if(progress != null && progress.getException() != null) {
+			LOGGER.log(Level.SEVERE, "Error in solver callback. " + progress.getException().getMessage());
 		}
-		scanner = getScanner(args[3]);
-		populateIntegerVectorParam(scanner, qj_max);
-
-		//Facility Fixed Cost
-		if (!fileExists(args[4])) {
-			logFileDNE(args[4]);
+		if(!finished) {
+			cleanup(solver, env);
 			return;
 		}
-		scanner = getScanner(args[4]);
-		populateDoubleVectorParam(scanner, fj);
+		endPhase(reused ? "reuse_cached_solution" : "optimize");
+		if(reused) {
+			System.out.println();
+			System.out.println("Model Cache: optimal solution of entry " + cache.getKey() + " reused");
+		}
+		if(incumbents != null) {
+			model.finishIncumbents(incumbents);
+			System.out.println();
+			System.out.println("Incumbents Written: " + incumbents.getIncumbents());
+		}
+		if(cuts != null) {
+			System.out.println();
+			System.out.println("Linking Cuts: " + cuts.getLinkingCuts());
+			System.out.println("Cover Cuts: " + cuts.getCoverCuts());
+		}
+		if(solver instanceof JavaCFLPModel) {
+			JavaCFLPModel search = (JavaCFLPModel) solver;
+			System.out.println();
+			System.out.println("Branch and Bound Nodes: " + search.getNodes());
+			System.out.println("Simplex Iterations: " + search.getIterations());
+		}
+		if(solver instanceof BranchAndPrice) {
+			BranchAndPrice search = (BranchAndPrice) solver;
+			System.out.println();
+			System.out.println("Branch and Price Nodes: " + search.getNodes());
+			System.out.println("Customer Set Columns: " + search.getColumns());
+			System.out.println("Root Bound: " + search.getRootBound());
+		}
+		CFLPModel winner = model;
+		if(solver instanceof PortfolioSolver) {
+			PortfolioSolver portfolio = (PortfolioSolver) solver;
+			portfolio.printRacers();
+			winner = portfolio.getWinner();
+		}
+		if(cache != null && winner != null && !reused && cache.storeSolution(winner, gapTarget)) {
+			endPhase("store_cached_solution");
+		}
 		
-		//Facility Marginal Cost
-		if (!fileExists(args[5])) {
-			logFileDNE(args[5]);
-			return;
+		//Candidate Verification
+		if(verifyCandidates && model.isRestricted()) {
+			if(!verifyCandidates(model)) {
+				cleanup(solver, env);
+				return;
+			}
+			endPhase("verify_candidates");
+		}
+		
+		//Cross-Check
+		if(backend.equals("check")) {
+			crossCheck(solver);
+			endPhase("cross_check");
+		}
+		
+		if(printSolution) {
+			solver.printSolution();
+			endPhase("print_solution");
+		}
+		if(solutionFile != null) {
+			solver.writeSolution(solutionFile);
+			endPhase("write_solution");
+		}
+		writeMetrics(solver);
+		
+		//Demand Updates
+		if(servePort != -1) {
+			try {
+				new DemandService(model, instance).serve(servePort);
+			} catch (IOException e) {
+				LOGGER.log(Level.SEVERE, "Error listening for demand updates on port " + servePort + ". " + e.getMessage());
+			}
+		}
+		
+		cleanup(solver, env);
+		
+	}
+	
+	/**
+	 * This method initializes all the sets and parameters. 
+	 * 
+	 * @param instanceFiles the 9 CSV instance files, the 10 of a coordinate instance or a single binary instance file
+	 * @param desiredFacilities the desired number of open facilities
+	 * @param allocationMode the allocation mode argument
+	 * @return true if the instance was loaded, false otherwise
+	 */
+	private static boolean init(String[] instanceFiles, String desiredFacilities, String allocationMode) {
+		for(String file : instanceFiles) {
+			if (!fileExists(file)) {
+				logFileDNE(file);
+				return false;
+			}
 		}
-		scanner = getScanner(args[5]);
-		populateDoubleVectorParam(scanner, gj);
 
-		//Product Unit Transportation Cost
-		if (!fileExists(args[6])) {
-			logFileDNE(args[6]);
-			return;
+		//Customer Demand, Plant Capacity, Facility Activity Levels, Costs and Distances
+		try {
+			if(instanceFiles.length == 1) {
+				instance = BinaryInstanceFormat.read(instanceFiles[0]);
+			} else {
+				instance = CSVInstanceLoader.load(instanceFiles, metric);
+			}
+		} catch (IOException e) {
+			LOGGER.log(Level.SEVERE, "Error loading instance files. " + e.getMessage());
+			return false;
 		}
-		scanner = getScanner(args[6]);
-		populateDoubleVectorParam(scanner, ck);
+		if(instance.distances() instanceof CoordinateDistances) {
+			((CoordinateDistances) instance.distances()).setCacheSize(cachedDistanceRows);
+		}
+		K = instance.numProducts();
+		I = instance.numPlants();
+		J = instance.numFacilities();
+		R = instance.numCustomers();
 
-		//Distance from Plant to Facility
-		if (!fileExists(args[7])) {
-			logFileDNE(args[7]);
-			return;
+		//Desired Open Facilities, or a sweep over a range of them
+		int range = desiredFacilities.indexOf("..");
+		if(range == -1) {
+			p = Integer.parseInt(desiredFacilities);
+		} else {
+			p = Integer.parseInt(desiredFacilities.substring(0, range));
+			sweepTo = Integer.parseInt(desiredFacilities.substring(range + 2));
+			if(p < 0 || sweepTo < p) {
+				LOGGER.log(Level.SEVERE, "Invalid desired open facilities range '" + desiredFacilities + "'.");
+				return false;
+			}
+			if(lagrangian || heuristic || benders || servePort != -1 || racers > 0 || timeLimit < Double.POSITIVE_INFINITY || incumbentFile != null) {
+				LOGGER.log(Level.SEVERE, "A desired open facilities range is only supported when solving once with gurobi, without a time limit or incumbent file.");
+				return false;
+			}
 		}
-		scanner = getScanner(args[7]);
-		populateDistanceMatrix(scanner, lij);
 
-		//Distance from Facility to Customer
-		if (!fileExists(args[8])) {
-			logFileDNE(args[8]);
+		//Single Allocation, Divisible Demand or Arc-Flow Divisible Demand
+		allocation = AllocationMode.fromArgument(allocationMode);
+		return true;
+	}
+	
+	/**
+	 * This method bounds the single allocation model with the Lagrangian relaxation and prints the bound along with
+	 * the best feasible solution found. Gurobi is not used.
+	 */
+	private static void solveLagrangianRelaxation() {
+		if(allocation != AllocationMode.SINGLE) {
+			LOGGER.log(Level.SEVERE, "The Lagrangian relaxation only supports the single allocation model.");
 			return;
 		}
-		scanner = getScanner(args[8]);
-		populateDistanceMatrix(scanner, ljr);
-
-		//Desired Open Facilities
-		p = Integer.parseInt(args[9]);
-
-		//Single Allocation or Divisible Demand
-		singleAllocation = args[10].equals("single") ? true : false;
 		
-		z = new GRBVar[J];
-		if(singleAllocation) {
-			x = new GRBVar[K][I][J];
-			y = new GRBVar[J][R];
+		LagrangianRelaxation relaxation = new LagrangianRelaxation(instance, p);
+		relaxation.solve(LAGRANGIAN_ITERATIONS, LAGRANGIAN_TIME_LIMIT);
+		
+		System.out.println();
+		System.out.println("***LAGRANGIAN RELAXATION***");
+		System.out.println();
+		System.out.println("Iterations: " + relaxation.getIterations());
+		System.out.println("Lower Bound: " + relaxation.getLowerBound());
+		SingleAllocationSolution solution = relaxation.getBestSolution();
+		if(solution == null) {
+			System.out.println("No feasible solution found.");
 		} else {
-			s = new GRBVar[K][I][J][R];
+			System.out.println("Total Cost: " + solution.getCost());
+			System.out.format("Gap: %.4f%%%n", 100 * relaxation.getGap());
+			System.out.println();
+			
+			//A valid lower bound never exceeds the cost of a feasible solution
+			if(relaxation.getLowerBound() > solution.getCost() + BOUND_CHECK_TOLERANCE * Math.abs(solution.getCost())) {
+				LOGGER.log(Level.SEVERE, "Bound check failed. The Lagrangian lower bound " + relaxation.getLowerBound()
+						+ " exceeds the cost " + solution.getCost() + " of the repaired solution.");
+			}
+			printSolution(solution);
+		}
+		
+		if(backend.equals("check")) {
+			checkLagrangianBound(relaxation, solution);
 		}
 	}
 	
 	/**
-	 * This method checks to see if a file exists.
+	 * This method solves the single allocation model with the pure java solver and checks the Lagrangian relaxation
+	 * against it: the lower bound may not exceed the cost of the java solution, nor the cost of the repaired solution
+	 * fall below the lower bound of the java solver. A failure is logged.
 	 * 
-	 * @param filePath the path to the file to check 
-	 * @return true if the file exists, false otherwise
+	 * @param relaxation the solved Lagrangian relaxation
+	 * @param solution the best repaired solution, or null if there is none
 	 */
-	private static boolean fileExists(String filePath) {
-		Path pathToFile = Paths.get(filePath);
-		return Files.exists(pathToFile);
+	private static void checkLagrangianBound(LagrangianRelaxation relaxation, SingleAllocationSolution solution) {
+		JavaCFLPModel check = new JavaCFLPModel(instance, p, allocation);
+		check.build();
+		check.optimize();
+		
+		System.out.println();
+		System.out.println("***BOUND CHECK***");
+		System.out.println();
+		System.out.format("%-12s%-20s%-20s%n", "Solver", "Total Cost", "Lower Bound");
+		System.out.format("%-12s%-20.2f%-20.2f%n", "lagrangian", solution != null ? solution.getCost() : Double.NaN, relaxation.getLowerBound());
+		System.out.format("%-12s%-20.2f%-20.2f%n", "java", check.getObjective(), check.getBound());
+		
+		if(!check.hasSolution()) {
+			if(solution != null) {
+				LOGGER.log(Level.SEVERE, "Bound check failed. Only the Lagrangian relaxation found a feasible solution.");
+			}
+		} else if(relaxation.getLowerBound() > check.getObjective() + BOUND_CHECK_TOLERANCE * Math.abs(check.getObjective())) {
+			LOGGER.log(Level.SEVERE, "Bound check failed. The Lagrangian lower bound " + relaxation.getLowerBound()
+					+ " exceeds the cost " + check.getObjective() + " of the java solution.");
+		} else if(solution != null && solution.getCost() < check.getBound() - BOUND_CHECK_TOLERANCE * Math.abs(check.getBound())) {
+			LOGGER.log(Level.SEVERE, "Bound check failed. The repaired cost " + solution.getCost()
+					+ " is below the lower bound " + check.getBound() + " of the java solver.");
+		}
+		check.dispose();
 	}
 	
 	/**
-	 * This method logs that the file does not exist.
-	 * 
-	 * @param file the file which does not exist
+	 * This method solves the single allocation model with the greedy heuristic and prints the solution. Gurobi is not
+	 * used.
 	 */
-	private static void logFileDNE(String file) {
-		LOGGER.log(Level.SEVERE, "File '" + file + "' does not exist.");
+	private static void solveGreedyHeuristic() {
+		if(allocation != AllocationMode.SINGLE) {
+			LOGGER.log(Level.SEVERE, "The greedy heuristic only supports the single allocation model.");
+			return;
+		}
+		
+		GreedyHeuristic greedy = new GreedyHeuristic(instance, p);
+		SingleAllocationSolution solution = greedy.solve(HEURISTIC_TIME_LIMIT);
+		
+		System.out.println();
+		System.out.println("***GREEDY HEURISTIC***");
+		System.out.println();
+		if(solution == null) {
+			System.out.println("No feasible solution found.");
+			return;
+		}
+		System.out.println("Improving Moves: " + greedy.getMoves());
+		System.out.println("Total Cost: " + solution.getCost());
+		System.out.println();
+		printSolution(solution);
 	}
 	
 	/**
-	 * This method obtains a scanner object.
-	 * 
-	 * @param filePath the file path to the file to read
-	 * @return the scanner object or null on error
+	 * This method solves the divisible demand model with Benders decomposition and prints the solution.
 	 */
-	private static Scanner getScanner(String filePath) {
-		if(filePath == null || filePath.length() == 0) {
-			LOGGER.log(Level.SEVERE, "filePath provided to getScanner was null or empty.");
-			return null;
+	private static void solveBendersDecomposition() {
+		if(allocation != AllocationMode.DIVISIBLE) {
+			LOGGER.log(Level.SEVERE, "Benders decomposition only supports the divisible demand model.");
+			return;
+		}
+		
+		GRBEnv env;
+		BendersDecomposition decomposition;
+		try {
+			env = new GRBEnv();
+		} catch (GRBException e) {
+			LOGGER.log(Level.SEVERE, "Error creating gurobi enviornment. " + e.getMessage());
+			return;
+		}
+		try {
+			decomposition = new BendersDecomposition(env, instance, p, lazyCuts);
+		} catch (GRBException e) {
+			LOGGER.log(Level.SEVERE, "Error building Benders master problem and subproblems. " + e.getMessage());
+			cleanup(env);
+			return;
+		}
+		
+		try {
+			boolean solved = decomposition.solve();
+			
+			System.out.println();
+			System.out.println("***BENDERS DECOMPOSITION***");
+			System.out.println();
+			System.out.println("Subproblems: " + decomposition.getSubproblems());
+			System.out.println("Master Solves: " + decomposition.getIterations());
+			System.out.println("Cuts: " + decomposition.getCuts());
+			if(!solved) {
+				System.out.println("No feasible solution found.");
+			} else {
+				System.out.println("Lower Bound: " + decomposition.getLowerBound());
+				System.out.println("Total Cost: " + decomposition.getCost());
+				System.out.format("Gap: %.4f%%%n", 100 * decomposition.getGap());
+				System.out.println();
+				
+				for(int j = 0; j < J; j++) {
+					System.out.println("Facility " + (j + 1) + ": " + (decomposition.isOpen(j) ? "Open" : "Closed"));
+				}
+				System.out.println();
+				
+				double[] flows = decomposition.getFlows();
+				for(int k = 0; k < K; k++) {
+					System.out.println("Product " + (k + 1));
+					for(int i = 0; i < I; i++) {
+						for(int j = 0; j < J; j++) {
+							for(int r = 0; r < R; r++) {
+								double product = flows[((k * I + i) * J + j) * R + r];
+								if(product > 0) {
+									System.out.println("Plant " + (i + 1) + " ▷ " + "Facility " + (j + 1) + " ▷ " + "Customer " + (r + 1) + ": " + product);
+								}
+							}
+						}
+					}
+					System.out.println();
+				}
+			}
+		} catch (GRBException e) {
+			LOGGER.log(Level.SEVERE, "Error solving Benders decomposition. " + e.getMessage());
 		}
+		
 		try {
-			return new Scanner(new File(filePath));
-		} catch (Exception e) {
-			LOGGER.log(Level.SEVERE, "Error getting scanner for '" + filePath + "'. " + e.getMessage());
-			return null;
+			decomposition.dispose();
+		} catch (GRBException e) {
+			LOGGER.log(Level.SEVERE, "Error disposing Benders master problem and subproblems. " + e.getMessage());
 		}
+		cleanup(env);
 	}
 	
 	/**
-	 * This method populates the integer parameter structure.
-	 * 
-	 * @param scanner the scanner object reading in the file
-	 * @param vectorParam the structure holding the parameter values
+	 * This method solves the single allocation model by branch and price, with the restricted master solved by gurobi
+	 * or, with the java solver, in pure java.
 	 */
-	private static void populateIntegerVectorParam(Scanner scanner, List<Integer> vectorParam) {
-		String[] rawLine = scanner.nextLine().split(",");
-		for (String value : rawLine) {
-			vectorParam.add(Integer.parseInt(value));
+	private static void solveBranchAndPrice() {
+		if(allocation != AllocationMode.SINGLE) {
+			LOGGER.log(Level.SEVERE, "Branch and price only supports the single allocation model.");
+			return;
+		}
+		
+		GRBEnv env = null;
+		RestrictedMaster master;
+		if(backend.equals("java")) {
+			master = new JavaRestrictedMaster();
+		} else {
+			try {
+				env = new GRBEnv();
+				master = new GurobiRestrictedMaster(env);
+			} catch (GRBException e) {
+				LOGGER.log(Level.SEVERE, "Error creating gurobi enviornment and restricted master. " + e.getMessage());
+				return;
+			}
+		}
+		endPhase("create_environment");
+		
+		BranchAndPrice search = new BranchAndPrice(instance, p, master, gapTarget);
+		if(!search.build()) {
+			cleanup(search, env);
+			return;
+		}
+		endPhase("build");
+		solve(search, null, env);
+	}
+		
+	/**
+	 * This method evaluates the given open facilities under the divisible demand model and prints the cost and flows
+	 * of the cheapest way to serve the demand through them. Gurobi is not used.
+	 */
+	private static void evaluateFacilities() {
+		if(allocation == AllocationMode.SINGLE) {
+			LOGGER.log(Level.SEVERE, "The facility evaluation only supports the divisible demand models.");
+			return;
+		}
+		for(int j : evaluatedFacilities) {
+			if(j >= J) {
+				LOGGER.log(Level.SEVERE, "Invalid facility '" + (j + 1) + "', the instance has " + J + " facilities.");
+				return;
+			}
+		}
+		
+		long start = System.nanoTime();
+		FacilityEvaluation evaluation = new FacilityEvaluator(instance).evaluate(evaluatedFacilities);
+		double runtime = (System.nanoTime() - start) / 1e9;
+		
+		System.out.println();
+		System.out.println("***FACILITY EVALUATION***");
+		System.out.println();
+		System.out.format("Runtime: %.4f s%n", runtime);
+		if(evaluation == null) {
+			System.out.println("The open facilities cannot serve the demand.");
+			return;
+		}
+		System.out.println("Activity Levels Coupled: " + (evaluation.isCoupled() ? "Yes" : "No"));
+		System.out.println("Fixed Cost: " + evaluation.getFixedCost());
+		System.out.println("Flow Cost: " + evaluation.getFlowCost());
+		System.out.println("Total Cost: " + evaluation.getCost());
+		System.out.println();
+		if(!printSolution) {
+			return;
+		}
+		
+		for(int j = 0; j < J; j++) {
+			System.out.println("Facility " + (j + 1) + ": " + (evaluation.isOpen(j) ? "Open, Activity " + evaluation.getActivity(j) : "Closed"));
+		}
+		System.out.println();
+		
+		for(int k = 0; k < K; k++) {
+			System.out.println("Product " + (k + 1));
+			for(int n = 0; n < evaluation.numFlows(k); n++) {
+				System.out.println("Plant " + (evaluation.getPlant(k, n) + 1) + " ▷ " + "Facility " + (evaluation.getFacility(k, n) + 1) + " ▷ "
+						+ "Customer " + (evaluation.getCustomer(k, n) + 1) + ": " + evaluation.getAmount(k, n));
+			}
+			System.out.println();
 		}
 	}
 	
 	/**
-	 * This method populates the double parameter structure.
+	 * This method solves the built model for every desired number of open facilities from p to sweepTo and prints the
+	 * cost of each. Between solves only the right hand side of the desired open facilities constraint changes, and
+	 * each solve starts from the previous incumbent with facilities opened or closed to match the new p.
 	 * 
-	 * @param scanner the scanner object reading in the file
-	 * @param vectorParam the structure holding the parameter values
+	 * @param model the CFLP model
 	 */
-	private static void populateDoubleVectorParam(Scanner scanner, List<Double> vectorParam) {
-		String[] rawLine = scanner.nextLine().split(",");
-		for (String value : rawLine) {
-			vectorParam.add(Double.parseDouble(value));
+	private static void sweepDesiredFacilities(CFLPSolver model) {
+		System.out.println();
+		System.out.println("***DESIRED OPEN FACILITIES SWEEP***");
+		System.out.println();
+		System.out.format("%-8s%-20s%-20s%-12s%-12s%n", "p", "Total Cost", "Lower Bound", "Gap %", "Runtime (s)");
+		
+		double[] rank = GreedyHeuristic.rankFacilities(instance);
+		boolean[] previous = null;
+		for(int desired = p; desired <= sweepTo; desired++) {
+			if(!model.setDesiredFacilities(desired)) {
+				return;
+			}
+			
+			//MIP Start
+			if(previous != null) {
+				boolean[] open = GreedyHeuristic.resize(previous, desired, rank);
+				SingleAllocationSolution solution = allocation == AllocationMode.SINGLE ? SingleAllocationSolution.repair(instance, open, rank, SWEEP_REPAIR_SWAPS) : null;
+				if(solution != null) {
+					model.setStart(solution);
+				} else {
+					model.setStart(open);
+				}
+			} else if(mipStart && desired != p) {
+				setMIPStart(model, desired);
+			}
+			
+			if(!model.optimize()) {
+				return;
+			}
+			
+			double runtime = model.getRuntime();
+			if(!model.hasSolution()) {
+				System.out.format("%-8d%-20s%-20s%-12s%-12.2f%n", desired, "Infeasible", "", "", runtime);
+				continue;
+			}
+			System.out.format("%-8d%-20.2f%-20.2f%-12.4f%-12.2f%n", desired, model.getObjective(), model.getBound(), 100 * model.getGap(), runtime);
+			previous = model.getOpenFacilities();
 		}
+		System.out.println();
 	}
 	
 	/**
-	 * This method populates the double distance matrix.
+	 * This method adds back the left out candidate pairs with a negative reduced cost and solves again, until no pair
+	 * is added back or the rounds run out.
 	 * 
-	 * @param scanner the scanner object reading in the file
-	 * @param matrixParam the structure holding the parameter values
+	 * @param model the solved CFLP model
+	 * @return true if gurobi finished every solve, false otherwise
 	 */
-	private static void populateDistanceMatrix(Scanner scanner, List<List<Double>> matrixParam) {
-		while(scanner.hasNextLine()) {
-			String[] rawLine = scanner.nextLine().split(",");
-			List<Double> distances = new ArrayList<>();
-			for(String distance : rawLine) {
-				distances.add(Double.parseDouble(distance));
+	private static boolean verifyCandidates(CFLPModel model) {
+		for(int round = 0; round < CANDIDATE_PRICING_ROUNDS; round++) {
+			int added = model.addNegativeReducedCostCandidates();
+			if(added <= 0) {
+				return true;
+			}
+			System.out.println("Candidate pairs added back: " + added);
+			if(!model.optimize()) {
+				return false;
 			}
-			matrixParam.add(distances);
 		}
+		LOGGER.log(Level.SEVERE, "Left out candidate pairs may still improve the solution after " + CANDIDATE_PRICING_ROUNDS + " rounds.");
+		return true;
 	}
 	
 	/**
-	 * This method adds decision variables to the model based on if the model is single allocation or divisible demand.
+	 * This method solves the instance again with the pure java solver and compares the objective with that of the
+	 * solved model. A difference beyond the gap both solvers stop at is logged.
 	 * 
-	 * @param model the gurobi model
-	 * @param env the gurobi environment
+	 * @param model the solved CFLP model
 	 */
-	private static void addDecisionVariables(GRBModel model, GRBEnv env) {
-		for(int j = 0; j < J; j++) {
-			try {
-				z[j] = model.addVar(0, 1, fj.get(j), GRB.BINARY, "z" + j);
-			} catch (GRBException e) {
-				logDecisionVariableError("zj", e);
-				cleanup(model, env);
-				return;
-			}
+	private static void crossCheck(CFLPSolver model) {
+		JavaCFLPModel check = new JavaCFLPModel(instance, p, allocation);
+		check.build();
+		if(mipStart) {
+			setMIPStart(check, p);
 		}
+		check.optimize();
 		
-		if(singleAllocation) {
-			for(int k = 0; k < K; k++) {
-				for(int i = 0; i < I; i++) {
-					for(int j = 0; j < J; j++) {
-						double transportationCost = ck.get(k) * lij.get(i).get(j);
-						try {
-							x[k][i][j] = model.addVar(0, GRB.INFINITY, transportationCost, GRB.CONTINUOUS, "x" + i + "," + j + "," + k);
-						} catch (GRBException e) {
-							logDecisionVariableError("xijk", e);
-							cleanup(model, env);
-							return;
-						}
-					}
-				}
-			}
-					
-			for(int j = 0; j < J; j++) {
-				for(int r = 0; r < R; r++) {
-					double totalCost = 0;
-					for(int k = 0; k < K; k++) {
-						double transportationCost = ck.get(k) * ljr.get(j).get(r);
-						double marginalCost = gj.get(j);
-						totalCost += (transportationCost + marginalCost) * drk.get(r).get(k);
-					}
-					try {
-						y[j][r] = model.addVar(0, 1, totalCost, GRB.BINARY, "y" + j + "," + r);
-					} catch (GRBException e) {
-						logDecisionVariableError("yjr", e);
-						cleanup(model, env);
-						return;
-					}
-				}
-			}
-		} else {
-			for(int k = 0; k < K; k++) {
-				for(int i = 0; i < I; i++) {
-					for(int j = 0; j < J; j++) {
-						for(int r = 0; r < R; r++) {
-							double totalDistance = lij.get(i).get(j) + ljr.get(j).get(r);
-							double transportationCost = ck.get(k) * totalDistance;
-							double marginalCost = gj.get(j);
-							try {
-								s[k][i][j][r] = model.addVar(0, GRB.INFINITY, transportationCost + marginalCost, GRB.CONTINUOUS, "s" + k + "," + i + "," + j + "," + r);
-							} catch (GRBException e) {
-								logDecisionVariableError("skir", e);
-								cleanup(model, env);
-								return;
-							}
-						}
-					}
-				}
+		System.out.println();
+		System.out.println("***CROSS-CHECK***");
+		System.out.println();
+		System.out.format("%-12s%-20s%-20s%-12s%n", "Solver", "Total Cost", "Lower Bound", "Runtime (s)");
+		System.out.format("%-12s%-20.2f%-20.2f%-12.2f%n", "gurobi", model.getObjective(), model.getBound(), model.getRuntime());
+		System.out.format("%-12s%-20.2f%-20.2f%-12.2f%n", "java", check.getObjective(), check.getBound(), check.getRuntime());
+		
+		if(model.hasSolution() != check.hasSolution()) {
+			LOGGER.log(Level.SEVERE, "Cross-check failed. Only " + (model.hasSolution() ? "gurobi" : "the java solver") + " found a feasible solution.");
+		} else if(model.hasSolution()) {
+			double difference = Math.abs(model.getObjective() - check.getObjective());
+			if(difference > CROSS_CHECK_TOLERANCE * Math.max(1, Math.abs(model.getObjective()))) {
+				LOGGER.log(Level.SEVERE, "Cross-check failed. Objectives differ by " + difference + ".");
 			}
 		}
+		check.dispose();
 	}
 	
 	/**
-	 * This method logs decision variable errors.
+	 * This method ends a phase of the run when metrics are being collected.
 	 * 
-	 * @param decisionVariable the decision variable being added to the model
-	 * @param e the exception
+	 * @param phase the name of the phase which ended
 	 */
-	private static void logDecisionVariableError(String decisionVariable, Exception e) {
-		LOGGER.log(Level.SEVERE, "Error adding " + decisionVariable + " decision variable. " + e.getMessage());
+	private static void endPhase(String phase) {
+		if(metrics != null) {
+			metrics.end(phase);
+		}
 	}
 	
 	/**
-	 * This method cleans up the gurobi model and environment.
+	 * This method writes the JSON and Prometheus metrics files when metrics are being collected.
 	 * 
-	 * @param model the gurobi model
-	 * @param env the gurobi env
+	 * @param solver the solved CFLP model, or null if no model was solved
 	 */
-	private static void cleanup(GRBModel model, GRBEnv env) {
+	private static void writeMetrics(CFLPSolver solver) {
+		if(metrics == null) {
+			return;
+		}
 		try {
-			model.dispose();
-			env.dispose();
-		} catch(GRBException e) {
-			LOGGER.log(Level.SEVERE, "Error disposing model and environment. " + e.getMessage());
+			if(solver != null) {
+				metrics.recordModel(solver);
+			}
+			metrics.writeJson(metricsPrefix + ".json");
+			metrics.writePrometheus(metricsPrefix + ".prom");
+		} catch (IOException e) {
+			LOGGER.log(Level.SEVERE, "Error writing metrics files. " + e.getMessage());
 		}
 	}
 	
 	/**
-	 * This method adds constraints to the model based on if the model is single allocation or divisible demand.
+	 * This method gives the solver the greedy heuristic solution as a MIP start.
 	 * 
-	 * @param model the gurobi model
-	 * @param env the gurobi environment
+	 * @param model the CFLP model
+	 * @param desired the desired number of open facilities
 	 */
-	private static void addConstraints(GRBModel model, GRBEnv env) {
-		// Desired Open Facilities
-		GRBLinExpr numberOfFacilities = new GRBLinExpr();
-		for (int j = 0; j < J; j++) {
-			numberOfFacilities.addTerm(1, z[j]);
+	private static void setMIPStart(CFLPSolver model, int desired) {
+		SingleAllocationSolution solution = new GreedyHeuristic(instance, desired).solve(HEURISTIC_TIME_LIMIT);
+		if(solution != null) {
+			model.setStart(solution);
 		}
-		try {
-			model.addConstr(numberOfFacilities, GRB.EQUAL, p, "Desired number of open facilities");
-		} catch (GRBException e) {
-			logConstraintError("desired open facilities", e);
-			cleanup(model, env);
-			return;
+	}
+	
+	/**
+	 * This method prints the open facilities, the plant to facility flows and the customer assignments of a single
+	 * allocation solution found without gurobi.
+	 * 
+	 * @param solution the single allocation solution
+	 */
+	private static void printSolution(SingleAllocationSolution solution) {
+		for(int j = 0; j < J; j++) {
+			System.out.println("Facility " + (j + 1) + ": " + (solution.isOpen(j) ? "Open" : "Closed"));
 		}
-				
-		if(singleAllocation) {
-			//Single Allocation for Demand
-			for (int r = 0; r < R; r++) {
-				GRBLinExpr sumOfFacilityDoesSupply = new GRBLinExpr();
-				for (int j = 0; j < J; j++) {
-					sumOfFacilityDoesSupply.addTerm(1, y[j][r]);
+		System.out.println();
+		
+		for(int k = 0; k < K; k++) {
+			System.out.println("Product " + (k + 1));
+			for(int i = 0; i < I; i++) {
+				for(int j = 0; j < J; j++) {
+					double product = solution.getFlow(k, i, j);
+					if(product > 0) {
+						System.out.println("Plant " + (i + 1) + " ▷ " + "Facility " + (j + 1) + ": " + product);
+					}
 				}
+			}
+			System.out.println();
+		}
+		
+		for(int r = 0; r < R; r++) {
+			System.out.println("Customer " + (r + 1) + " ◁ Facility " + (solution.getAssignment(r) + 1));
+		}
+		System.out.println();
+	}
+	
+	/**
+	 * This method parses the optional arguments following the required arguments.
+	 * 
+	 * @param options the optional arguments
+	 * @return true if every option was recognized, false otherwise
+	 */
+	private static boolean parseOptions(String[] options) {
+		for(int index = 0; index < options.length; index++) {
+			String option = options[index];
+			if(option.equals("--no-names")) {
+				useNames = false;
+			} else if(option.equals("--lagrangian")) {
+				lagrangian = true;
+			} else if(option.equals("--heuristic")) {
+				heuristic = true;
+			} else if(option.equals("--no-mip-start")) {
+				mipStart = false;
+			} else if(option.equals("--benders")) {
+				benders = true;
+			} else if(option.equals("--benders-lazy")) {
+				benders = true;
+				lazyCuts = true;
+			} else if(option.equals("--serve") && index + 1 < options.length) {
 				try {
-					model.addConstr(sumOfFacilityDoesSupply, GRB.EQUAL, 1, "Customer " + r + "demand");
-				} catch (GRBException e) {
-					logConstraintError("demand", e);
-					cleanup(model, env);
-					return;
+					servePort = Integer.parseInt(options[++index]);
+				} catch (NumberFormatException e) {
+					servePort = -1;
 				}
-			}
-
-			//Production Plant Capacity
-			for (int i = 0; i < I; i++) {
-				for (int k = 0; k < K; k++) {
-					GRBLinExpr productFromPlant = new GRBLinExpr();
-					for (int j = 0; j < J; j++) {
-						productFromPlant.addTerm(1, x[k][i][j]);
-					}
-					try {
-						model.addConstr(productFromPlant, GRB.LESS_EQUAL, pik.get(i).get(k), "Product " + k + " capacity at plant " + i);
-					} catch (GRBException e) {
-						logConstraintError("plant capacity", e);
-						cleanup(model, env);
-						return;
-					}
+				if(servePort < 0 || servePort > 65535) {
+					LOGGER.log(Level.SEVERE, "Invalid port '" + options[index] + "'.");
+					return false;
 				}
-			}
-
-			//Maximum Facility Activity Level
-			for (int j = 0; j < J; j++) {
-				GRBLinExpr productFromFacility = new GRBLinExpr();
-				for (int r = 0; r < R; r++) {
-					for (int k = 0; k < K; k++) {
-						productFromFacility.addTerm(drk.get(r).get(k), y[j][r]);
-					}
+			} else if(option.equals("--solution") && index + 1 < options.length) {
+				solutionFile = options[++index];
+			} else if(option.equals("--no-print")) {
+				printSolution = false;
+			} else if(option.equals("--metrics") && index + 1 < options.length) {
+				metricsPrefix = options[++index];
+			} else if(option.equals("--nearest") && index + 1 < options.length) {
+				try {
+					nearestFacilities = Integer.parseInt(options[++index]);
+				} catch (NumberFormatException e) {
+					nearestFacilities = -1;
+				}
+				if(nearestFacilities < 1) {
+					LOGGER.log(Level.SEVERE, "Invalid number of nearest facilities '" + options[index] + "'.");
+					return false;
 				}
-				GRBLinExpr maxActivity = new GRBLinExpr();
-				maxActivity.addTerm(qj_max.get(j), z[j]);
+			} else if(option.equals("--max-distance") && index + 1 < options.length) {
 				try {
-					model.addConstr(productFromFacility, GRB.LESS_EQUAL, maxActivity, "Facility " + j + " maximum activity level");
-				} catch (GRBException e) {
-					logConstraintError("facility maximum activity level", e);
-					cleanup(model, env);
-					return;
+					maxDistance = Double.parseDouble(options[++index]);
+				} catch (NumberFormatException e) {
+					maxDistance = Double.NaN;
 				}
-			}
-
-			//Minimum Facility Activity Level
-			for (int j = 0; j < J; j++) {
-				GRBLinExpr productFromFacility = new GRBLinExpr();
-				for (int r = 0; r < R; r++) {
-					for (int k = 0; k < K; k++) {
-						productFromFacility.addTerm(drk.get(r).get(k), y[j][r]);
-					}
+				if(!(maxDistance >= 0)) {
+					LOGGER.log(Level.SEVERE, "Invalid maximum distance '" + options[index] + "'.");
+					return false;
 				}
-				GRBLinExpr minActivity = new GRBLinExpr();
-				minActivity.addTerm(qj_min.get(j), z[j]);
+			} else if(option.equals("--verify-candidates")) {
+				verifyCandidates = true;
+			} else if(option.equals("--linking-cuts")) {
+				linkingCuts = true;
+			} else if(option.equals("--solver") && index + 1 < options.length) {
+				backend = options[++index];
+				if(!backend.equals("gurobi") && !backend.equals("java") && !backend.equals("check")) {
+					LOGGER.log(Level.SEVERE, "Invalid solver '" + backend + "'.");
+					return false;
+				}
+			} else if(option.equals("--portfolio") && index + 1 < options.length) {
 				try {
-					model.addConstr(productFromFacility, GRB.GREATER_EQUAL, minActivity, "Facility " + j + " minimum activity level");
-				} catch (GRBException e) {
-					logConstraintError("facility minimum activity level", e);
-					cleanup(model, env);
-					return;
+					racers = Integer.parseInt(options[++index]);
+				} catch (NumberFormatException e) {
+					racers = -1;
 				}
-			}
-
-			//Facility Product Flow Balance
-			for (int j = 0; j < J; j++) {
-				for (int k = 0; k < K; k++) {
-					GRBLinExpr productIn = new GRBLinExpr();
-					for (int i = 0; i < I; i++) {
-						productIn.addTerm(1, x[k][i][j]);
-					}
-
-					GRBLinExpr productOut = new GRBLinExpr();
-					for (int r = 0; r < R; r++) {
-						productOut.addTerm(drk.get(r).get(k), y[j][r]);
-					}
-
-					try {
-						model.addConstr(productIn, GRB.EQUAL, productOut, "Product " + k + " flow balance at facility " + j);
-					} catch (GRBException e) {
-						logConstraintError("flow balance", e);
-						cleanup(model, env);
-						return;
-					}
+				if(racers < 1) {
+					LOGGER.log(Level.SEVERE, "Invalid number of portfolio racers '" + options[index] + "'.");
+					return false;
 				}
-			}
-		} else {
-			//Divisible Demand
-			for(int r = 0; r < R; r++) {
-				for(int k = 0; k < K; k++) {
-					GRBLinExpr productToCustomer = new GRBLinExpr();
-					for(int i = 0; i < I; i++) {
-						for(int j = 0; j < J; j++) {
-							productToCustomer.addTerm(1, s[k][i][j][r]);
-						}
-					}
-					try {
-						model.addConstr(productToCustomer, GRB.EQUAL, drk.get(r).get(k), "Customer " + r + " demand");
-					} catch (GRBException e) {
-						logConstraintError("demand", e);
-						cleanup(model, env);
-						return;
-					}
+			} else if(option.equals("--gap") && index + 1 < options.length) {
+				try {
+					gapTarget = Double.parseDouble(options[++index]);
+				} catch (NumberFormatException e) {
+					gapTarget = Double.NaN;
 				}
-			}
-			
-			//Production Plant Capacity
-			for(int i = 0; i < I; i++) {
-				for(int k = 0; k < K; k++) {
-					GRBLinExpr productFromPlant = new GRBLinExpr();
-					for(int j = 0; j < J; j++) {
-						for(int r = 0; r < R; r++) {
-							productFromPlant.addTerm(1, s[k][i][j][r]);
-						}
-					}
+				if(!(gapTarget >= 0)) {
+					LOGGER.log(Level.SEVERE, "Invalid gap '" + options[index] + "'.");
+					return false;
+				}
+			} else if(option.equals("--evaluate") && index + 1 < options.length) {
+				String[] facilities = options[++index].split(",");
+				evaluatedFacilities = new int[facilities.length];
+				for(int f = 0; f < facilities.length; f++) {
 					try {
-						model.addConstr(productFromPlant, GRB.LESS_EQUAL, pik.get(i).get(k), "Product " + k + " capacity at plant " + i);
-					} catch (GRBException e) {
-						logConstraintError("plant capacity", e);
-						cleanup(model, env);
-						return;
+						evaluatedFacilities[f] = Integer.parseInt(facilities[f].trim()) - 1;
+					} catch (NumberFormatException e) {
+						evaluatedFacilities[f] = -1;
 					}
-				}
-			}
-			
-			//Maximum Facility Activity Level
-			for(int j = 0; j < J; j++) {
-				GRBLinExpr productFromFacility = new GRBLinExpr();
-				for(int i = 0; i < I; i++) {
-					for(int r = 0; r < R; r++) {
-						for(int k = 0; k < K; k++) {
-							productFromFacility.addTerm(1, s[k][i][j][r]);
-						}
+					if(evaluatedFacilities[f] < 0) {
+						LOGGER.log(Level.SEVERE, "Invalid facility '" + facilities[f] + "'.");
+						return false;
 					}
 				}
-				GRBLinExpr maxActivity = new GRBLinExpr();
-				maxActivity.addTerm(qj_max.get(j), z[j]);
+			} else if(option.equals("--branch-and-price")) {
+				branchAndPrice = true;
+			} else if(option.equals("--metric") && index + 1 < options.length) {
+				metric = DistanceMetric.fromArgument(options[++index]);
+				if(metric == null) {
+					LOGGER.log(Level.SEVERE, "Invalid distance metric '" + options[index] + "'.");
+					return false;
+				}
+			} else if(option.equals("--time-limit") && index + 1 < options.length) {
 				try {
-					model.addConstr(productFromFacility, GRB.LESS_EQUAL, maxActivity, "Facility " + j + " maximum activity level");
-				} catch (GRBException e) {
-					logConstraintError("facility maximum activity level", e);
-					cleanup(model, env);
-					return;
+					timeLimit = Double.parseDouble(options[++index]);
+				} catch (NumberFormatException e) {
+					timeLimit = Double.NaN;
 				}
-			}
-			
-			//Minimum Facility Activity Level
-			for(int j = 0; j < J; j++) {
-				GRBLinExpr productFromFacility = new GRBLinExpr();
-				for(int i = 0; i < I; i++) {
-					for(int r = 0; r < R; r++) {
-						for(int k = 0; k < K; k++) {
-							productFromFacility.addTerm(1, s[k][i][j][r]);
-						}
-					}
+				if(!(timeLimit > 0)) {
+					LOGGER.log(Level.SEVERE, "Invalid time limit '" + options[index] + "'.");
+					return false;
 				}
-				GRBLinExpr minActivity = new GRBLinExpr();
-				minActivity.addTerm(qj_min.get(j), z[j]);
+			} else if(option.equals("--incumbent-file") && index + 1 < options.length) {
+				incumbentFile = options[++index];
+			} else if(option.equals("--model-cache") && index + 1 < options.length) {
+				cacheDirectory = options[++index];
+			} else if(option.equals("--model-cache-size") && index + 1 < options.length) {
 				try {
-					model.addConstr(productFromFacility, GRB.GREATER_EQUAL, minActivity, "Facility " + j + " minimum activity level");
-				} catch (GRBException e) {
-					logConstraintError("facility minimum activity level", e);
-					cleanup(model, env);
-					return;
+					cacheSize = Long.parseLong(options[++index]);
+				} catch (NumberFormatException e) {
+					cacheSize = -1;
 				}
+				if(cacheSize < 1) {
+					LOGGER.log(Level.SEVERE, "Invalid model cache size '" + options[index] + "'.");
+					return false;
+				}
+			} else if(option.equals("--distance-cache") && index + 1 < options.length) {
+				try {
+					cachedDistanceRows = Integer.parseInt(options[++index]);
+				} catch (NumberFormatException e) {
+					cachedDistanceRows = -1;
+				}
+				if(cachedDistanceRows < 0) {
+					LOGGER.log(Level.SEVERE, "Invalid number of cached distance rows '" + options[index] + "'.");
+					return false;
+				}
+			} else {
+				LOGGER.log(Level.SEVERE, "Unknown option '" + option + "'. Please reference README.md for execution instructions.");
+				return false;
 			}
 		}
+		
+		//Gurobi-only options
+		boolean restricted = nearestFacilities > 0 || maxDistance < Double.POSITIVE_INFINITY || verifyCandidates;
+		if(backend.equals("java") && (restricted || linkingCuts || servePort != -1)) {
+			LOGGER.log(Level.SEVERE, "Candidate facilities, linking cuts and demand updates are only supported with the gurobi solver.");
+			return false;
+		}
+		if(racers > 0 && (!backend.equals("gurobi") || linkingCuts || verifyCandidates || servePort != -1)) {
+			LOGGER.log(Level.SEVERE, "A portfolio races gurobi solves and cannot be combined with linking cuts, candidate verification or demand updates.");
+			return false;
+		}
+		if(branchAndPrice && (backend.equals("check") || restricted || linkingCuts || servePort != -1 || racers > 0)) {
+			LOGGER.log(Level.SEVERE, "Branch and price solves its own restricted master and cannot be combined with the cross-check, candidate facilities, linking cuts, demand updates or a portfolio.");
+			return false;
+		}
+		if((timeLimit < Double.POSITIVE_INFINITY || incumbentFile != null) && (!backend.equals("gurobi") || servePort != -1 || branchAndPrice || lagrangian || heuristic || benders || evaluatedFacilities != null)) {
+			LOGGER.log(Level.SEVERE, "A time limit and incumbent file apply to a single gurobi solve and cannot be combined with another solver, demand updates, branch and price, the Lagrangian relaxation, the heuristic, Benders decomposition or an evaluation.");
+			return false;
+		}
+		if(incumbentFile != null && racers > 0) {
+			LOGGER.log(Level.SEVERE, "An incumbent file cannot be combined with a portfolio, whose racers each solve their own copy of the model.");
+			return false;
+		}
+		if(cacheDirectory != null && (!backend.equals("gurobi") || restricted || branchAndPrice || lagrangian || heuristic || benders || evaluatedFacilities != null)) {
+			LOGGER.log(Level.SEVERE, "The model cache holds full gurobi models and cannot be combined with another solver, candidate facilities, branch and price, the Lagrangian relaxation, the heuristic, Benders decomposition or an evaluation.");
+			return false;
+		}
+		if(backend.equals("check") && restricted) {
+			LOGGER.log(Level.SEVERE, "Candidate facilities cannot be cross-checked, the java solver keeps every pair.");
+			return false;
+		}
+		return true;
 	}
 	
 	/**
-	 * This method logs constraint errors.
+	 * This method checks to see if a file exists.
 	 * 
-	 * @param constraint the constraint being added to the model
-	 * @param e the exception
+	 * @param filePath the path to the file to check 
+	 * @return true if the file exists, false otherwise
 	 */
-	private static void logConstraintError(String constraint, Exception e) {
-		LOGGER.log(Level.SEVERE, "Error adding " + constraint + " constraint. " + e.getMessage());
+	private static boolean fileExists(String filePath) {
+		Path pathToFile = Paths.get(filePath);
+		return Files.exists(pathToFile);
 	}
 	
 	/**
-	 * This model prints the solution to the console.
+	 * This method logs that the file does not exist.
 	 * 
-	 * @param model the gurobi model
-	 * @param env the gurobi environment
-	 * @param x the x decision variable
-	 * @param y the y decision variable
-	 * @param z the z decision variable
+	 * @param file the file which does not exist
 	 */
-	private static void printSolution(GRBModel model, GRBEnv env, GRBVar[][][] x, GRBVar y[][], GRBVar z[], GRBVar s[][][][]) {
-		System.out.println();
-		System.out.println("***OPTIMAL SOLUTION***");
-		System.out.println();
-		
-		try {
-			System.out.println("Total Cost: " + model.get(GRB.DoubleAttr.ObjVal));
-		} catch (GRBException e) {
-			LOGGER.log(Level.SEVERE, "Error obtaining objective function value. Model is likely infeasible... see details above. " + e.getMessage());
-			cleanup(model, env);
-			return;
-		}
-		System.out.println();
-		
-		for(int j = 0; j < J; j++) {
-			double facilityOpen;
-			try {
-				facilityOpen = z[j].get(GRB.DoubleAttr.X);
-			} catch (GRBException e) {
-				logDecisionVariableValue("zj", e);
-				cleanup(model, env);
-				return;
-			}
-			
-			if(facilityOpen > 0.99) {
-				System.out.println("Facility " + (j + 1) + ": Open");
-			} else {
-				System.out.println("Facility " + (j + 1) + ": Closed");
-			}
-		}
-		System.out.println();
-		
-		if(singleAllocation) {
-			for(int k = 0; k < K; k++) {
-				System.out.println("Product " + (k + 1));
-				
-				for(int j = 0; j < J; j++) {
-					if(j == 0) {
-						System.out.format("%-12s%-12s", "▽From/To▷", "Facility " + (j + 1));
-						continue;
-					}
-					System.out.format("%-12s", "Facility " + (j + 1));
-				}
-				System.out.println();
-				
-				for(int i = 0; i < I; i++) {
-					System.out.format("%-12s", "Plant " + (i + 1));
-					for(int j = 0; j < J; j++) {
-						double plantToFacilityAmount;
-						try {
-							plantToFacilityAmount = x[k][i][j].get(GRB.DoubleAttr.X);
-						} catch (GRBException e) {
-							logDecisionVariableValue("xijk", e);
-							cleanup(model, env);
-							return;
-						}
-						System.out.format("%-12.2f", plantToFacilityAmount);
-					}
-					System.out.println();
-				}
-				System.out.println();
-			}
-			
-			for(int k = 0; k < K; k++) {
-				System.out.println("Product " + (k + 1));
-				
-				for(int r = 0; r < R; r++) {
-					if(r == 0) {
-						System.out.format("%-12s%-12s", "▽From/To▷", "Customer " + (r + 1));
-						continue;
-					}
-					System.out.format("%-12s", "Customer " + (r + 1));
-				}
-				System.out.println();
-				
-				for(int j = 0; j < J; j++) {
-					System.out.format("%-12s", "Facility " + (j + 1));
-					for(int r = 0; r < R; r++) {
-						double demandFromFacility;
-						try {
-							demandFromFacility = y[j][r].get(GRB.DoubleAttr.X);
-						} catch (GRBException e) {
-							logDecisionVariableValue("yjr", e);
-							cleanup(model, env);
-							return;
-						}
-						System.out.format("%-12d", demandFromFacility == 1 ? drk.get(r).get(k) : 0);
-					}
-					System.out.println();
-				}
-				
-				System.out.println();
-			}
-		} else {
-			for(int k = 0; k < K; k++) {
-				System.out.println("Product " + (k + 1));
-				for(int i = 0; i < I; i++) {
-					for(int j = 0; j < J; j++) {
-						for(int r = 0; r < R; r++) {
-							double product;
-							try {
-								product = s[k][i][j][r].get(GRB.DoubleAttr.X);
-							} catch (GRBException e) {
-								logDecisionVariableValue("skijr", e);
-								cleanup(model, env);
-								return;
-							}
-							if(product > 0) {
-								System.out.println("Plant " + (i + 1) + " ▷ " + "Facility " + (j + 1) + " ▷ " + "Customer " + (r + 1) + ": " + product);
-							}
-						}
-					}
-				}
-				System.out.println();
-			}
+	private static void logFileDNE(String file) {
+		LOGGER.log(Level.SEVERE, "File '" + file + "' does not exist.");
+	}
+	
+	/**
+	 * This method cleans up the model and the gurobi environment.
+	 * 
+	 * @param model the CFLP model
+	 * @param env the gurobi env, or null if the model does not use gurobi
+	 */
+	private static void cleanup(CFLPSolver model, GRBEnv env) {
+		model.dispose();
+		if(env != null) {
+			cleanup(env);
 		}
-		
 	}
 	
 	/**
-	 * This method logs errors when obtaining the decision variable values.
+	 * This method cleans up a gurobi environment without a model.
 	 * 
-	 * @param decisionVariable the decision variable being obtained
-	 * @param e the exception
+	 * @param env the gurobi env
 	 */
-	private static void logDecisionVariableValue(String decisionVariable, Exception e) {
-		LOGGER.log(Level.SEVERE, "Error obtaining " + decisionVariable + " decision variable value. " + e.getMessage());
+	private static void cleanup(GRBEnv env) {
+		try {
+			env.dispose();
+		} catch(GRBException e) {
+			LOGGER.log(Level.SEVERE, "Error disposing environment. " + e.getMessage());
+		}
 	}
 	
 }
\ No newline at end of file
@@ -0,0 +1,264 @@
+/**
+ * This class holds the sets and parameters of a CFLP instance. Every parameter is stored in a flat row-major
+ * primitive array so that large instances fit in the heap and the cost loops read them without boxing. The distances
+ * are either dense matrices or computed on demand from the locations (see Distances). The demands can be changed in
+ * place (see setDemand) so a long running solver can follow demand updates without reloading.
+ *
+ * @author ryanhow
+ *
+ */
+public class CFLPInstance {
+
+	//Sets
+	private final int K; //Set of commodities/products
+	private final int I; //Set of production plant
+	private final int J; //Set of potential candidate facility locations
+	private final int R; //Set of customers
+
+	//Parameters
+	private final int[] drk; //Demand of product k for customer r, indexed [r * K + k]
+	private final int[] pik; //Capacity of product k for plant i, indexed [i * K + k]
+	private final int[] qj_min; //Minimum activity level for facility j
+	private final int[] qj_max; //Maximum activity level for facility j
+	private final double[] fj; //Facility fixed cost
+	private final double[] gj; //Facility marginal cost
+	private final double[] ck; //Unit transportation cost for product k
+	private final Distances distances; //Distance from plant i to facility j and from facility j to customer r
+
+	//Derived Parameters
+	private final int[] dr; //Total demand of customer r over all products
+	private final double[] cr; //Transportation cost per unit distance of the demand of customer r
+
+	/**
+	 * This constructor creates an instance from flat row-major parameter arrays. The arrays are not copied.
+	 *
+	 * @param K the number of products
+	 * @param I the number of production plants
+	 * @param J the number of candidate facility locations
+	 * @param R the number of customers
+	 * @param drk the demand of product k for customer r, indexed [r * K + k]
+	 * @param pik the capacity of product k for plant i, indexed [i * K + k]
+	 * @param qj_min the minimum activity level for facility j
+	 * @param qj_max the maximum activity level for facility j
+	 * @param fj the facility fixed costs
+	 * @param gj the facility marginal costs
+	 * @param ck the unit transportation cost for product k
+	 * @param lij the distance from plant i to facility j, indexed [i * J + j]
+	 * @param ljr the distance from facility j to customer r, indexed [j * R + r]
+	 */
+	public CFLPInstance(int K, int I, int J, int R, int[] drk, int[] pik, int[] qj_min, int[] qj_max, double[] fj, double[] gj, double[] ck, double[] lij, double[] ljr) {
+		this(K, I, J, R, drk, pik, qj_min, qj_max, fj, gj, ck, new MatrixDistances(I, J, R, lij, ljr));
+	}
+
+	/**
+	 * This constructor creates an instance from flat row-major parameter arrays and the distances between its
+	 * plants, facilities and customers. The arrays are not copied.
+	 *
+	 * @param K the number of products
+	 * @param I the number of production plants
+	 * @param J the number of candidate facility locations
+	 * @param R the number of customers
+	 * @param drk the demand of product k for customer r, indexed [r * K + k]
+	 * @param pik the capacity of product k for plant i, indexed [i * K + k]
+	 * @param qj_min the minimum activity level for facility j
+	 * @param qj_max the maximum activity level for facility j
+	 * @param fj the facility fixed costs
+	 * @param gj the facility marginal costs
+	 * @param ck the unit transportation cost for product k
+	 * @param distances the distances, which must have been created for the same I, J and R
+	 */
+	public CFLPInstance(int K, int I, int J, int R, int[] drk, int[] pik, int[] qj_min, int[] qj_max, double[] fj, double[] gj, double[] ck, Distances distances) {
+		checkLength("demands", drk.length, (long) R * K);
+		checkLength("plant capacities", pik.length, (long) I * K);
+		checkLength("minimum activity levels", qj_min.length, J);
+		checkLength("maximum activity levels", qj_max.length, J);
+		checkLength("fixed costs", fj.length, J);
+		checkLength("marginal costs", gj.length, J);
+		checkLength("unit transportation costs", ck.length, K);
+
+		this.K = K;
+		this.I = I;
+		this.J = J;
+		this.R = R;
+		this.drk = drk;
+		this.pik = pik;
+		this.qj_min = qj_min;
+		this.qj_max = qj_max;
+		this.fj = fj;
+		this.gj = gj;
+		this.ck = ck;
+		this.distances = distances;
+
+		dr = new int[R];
+		cr = new double[R];
+		for(int r = 0; r < R; r++) {
+			for(int k = 0; k < K; k++) {
+				dr[r] += drk[r * K + k];
+				cr[r] += ck[k] * drk[r * K + k];
+			}
+		}
+	}
+
+	/**
+	 * This method checks that a parameter array has the length implied by the sets.
+	 *
+	 * @param parameter the parameter being checked
+	 * @param length the length of the parameter array
+	 * @param expected the expected length
+	 */
+	static void checkLength(String parameter, int length, long expected) {
+		if(length != expected) {
+			throw new IllegalArgumentException("Expected " + expected + " " + parameter + " but found " + length + ".");
+		}
+	}
+
+	/**
+	 * @return the number of products K
+	 */
+	public int numProducts() {
+		return K;
+	}
+
+	/**
+	 * @return the number of production plants I
+	 */
+	public int numPlants() {
+		return I;
+	}
+
+	/**
+	 * @return the number of candidate facility locations J
+	 */
+	public int numFacilities() {
+		return J;
+	}
+
+	/**
+	 * @return the number of customers R
+	 */
+	public int numCustomers() {
+		return R;
+	}
+
+	/**
+	 * @param r the customer
+	 * @param k the product
+	 * @return the demand of product k for customer r
+	 */
+	public int demand(int r, int k) {
+		return drk[r * K + k];
+	}
+
+	/**
+	 * This method changes the demand of product k for customer r and updates the derived parameters of the customer.
+	 * Models and heuristics built from the instance are not updated.
+	 *
+	 * @param r the customer
+	 * @param k the product
+	 * @param demand the new demand of product k for customer r
+	 */
+	public void setDemand(int r, int k, int demand) {
+		drk[r * K + k] = demand;
+		dr[r] = 0;
+		cr[r] = 0;
+		for(int product = 0; product < K; product++) {
+			dr[r] += drk[r * K + product];
+			cr[r] += ck[product] * drk[r * K + product];
+		}
+	}
+
+	/**
+	 * @param r the customer
+	 * @return the total demand of customer r over all products
+	 */
+	public int customerDemand(int r) {
+		return dr[r];
+	}
+
+	/**
+	 * @param i the production plant
+	 * @param k the product
+	 * @return the capacity of product k for plant i
+	 */
+	public int capacity(int i, int k) {
+		return pik[i * K + k];
+	}
+
+	/**
+	 * @param j the facility
+	 * @return the minimum activity level for facility j
+	 */
+	public int minActivity(int j) {
+		return qj_min[j];
+	}
+
+	/**
+	 * @param j the facility
+	 * @return the maximum activity level for facility j
+	 */
+	public int maxActivity(int j) {
+		return qj_max[j];
+	}
+
+	/**
+	 * @param j the facility
+	 * @return the fixed cost of facility j
+	 */
+	public double fixedCost(int j) {
+		return fj[j];
+	}
+
+	/**
+	 * @param j the facility
+	 * @return the marginal cost of facility j
+	 */
+	public double marginalCost(int j) {
+		return gj[j];
+	}
+
+	/**
+	 * @param k the product
+	 * @return the unit transportation cost for product k
+	 */
+	public double unitCost(int k) {
+		return ck[k];
+	}
+
+	/**
+	 * @param i the production plant
+	 * @param j the facility
+	 * @return the distance from plant i to facility j
+	 */
+	public double plantDistance(int i, int j) {
+		return distances.plantDistance(i, j);
+	}
+
+	/**
+	 * @param j the facility
+	 * @param r the customer
+	 * @return the distance from facility j to customer r
+	 */
+	public double customerDistance(int j, int r) {
+		return distances.customerDistance(j, r);
+	}
+
+	/**
+	 * @return the distances between the plants, facilities and customers
+	 */
+	public Distances distances() {
+		return distances;
+	}
+
+	/**
+	 * This method obtains the cost of facility j serving all of the demand of customer r, which is the sum over the
+	 * products of (ck * ljr + gj) * drk.
+	 *
+	 * @param j the facility
+	 * @param r the customer
+	 * @return the assignment cost
+	 */
+	public double assignmentCost(int j, int r) {
+		return customerDistance(j, r) * cr[r] + gj[j] * dr[r];
+	}
+
+}
@@ -0,0 +1,1939 @@
+/**
+ * This class builds and solves the gurobi model of one CFLP instance. Every model owns its sets, parameters and
+ * decision variables, so several models can be built and solved at the same time, each on its own gurobi environment
+ * since an environment must not be used from several threads at once.
+ * 
+ * The objective coefficients and constraint rows are computed in parallel blocks of customers, facilities or plants
+ * on the common fork join pool, and the finished arrays are handed to gurobi from the building thread, since a
+ * gurobi model must not be changed from several threads at once.
+ * 
+ * @author ryanhow
+ *
+ */
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.ToIntFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import gurobi.*;
+
+public class CFLPModel implements CFLPSolver {
+	
+	private final static Logger LOGGER = Logger.getLogger(CFLPModel.class.getName());
+	
+	private static final int BLOCKS_PER_THREAD = 4; //Blocks of rows or facilities per pool thread when the model is built in parallel
+	private static final double REDUCED_COST_TOLERANCE = 1e-6; //Left out pairs are added back when a reduced cost is below minus this, gurobi's default optimality tolerance
+	
+	//Sets
+	private final int K; //Set of commodities/products
+	private final int I; //Set of production plant
+	private final int J; //Set of potential candidate facility locations
+	private final int R; //Set of customers
+	
+	//Parameters
+	private final CFLPInstance instance; //Demands, capacities, activity levels, costs and distances
+	private int p; //Desired number of facilities to be open
+	private final AllocationMode allocation; //Single allocation, divisible demand or arc-flow divisible demand
+	
+	//Options
+	private final boolean useNames; //Whether variables and constraints are given descriptive names
+	private RunMetrics metrics; //Timings of the build phases, or null
+	private boolean[] candidates; //If facility j may serve customer r, indexed [j * R + r], or null if every pair is kept (see CandidateFilter)
+	private int candidatePairs; //Number of facility and customer pairs kept
+	
+	private final GRBModel model;
+	private GRBConstr desiredFacilities; //Desired number of open facilities constraint, the only row which depends on p
+	
+	//Rows which depend on the demands (see updateDemands)
+	private GRBConstr[] demandConstraints; //Demand rows, indexed [r] (single allocation model) or [r * K + k] (divisible demand models)
+	private GRBConstr[] capacityConstraints; //Production plant capacity rows, indexed [i * K + k]
+	private GRBConstr[] balanceConstraints; //Flow balance rows, indexed [j * K + k] (single allocation and arc-flow models)
+	private GRBConstr[] maxActivityConstraints; //Maximum activity level row of facility j
+	private GRBConstr[] minActivityConstraints; //Minimum activity level row of facility j
+	
+	//Decision Variables (flat arrays, see xIndex, yIndex and sIndex, with null entries for pairs which are not candidates)
+	private GRBVar[] x; //Amount of product k supplied by plant i to facility j (single allocation and arc-flow models)
+	private GRBVar[] z; //If facility j is open or not (both models)
+	private GRBVar[] y; //If customer r receives supply from facility j (single allocation model)
+	private GRBVar[] s; //Amount of product k supplied by plant i to facility j to customer r (divisible demand model)
+	private GRBVar[] w; //Amount of product k supplied by facility j to customer r (arc-flow divisible demand model)
+	
+	/**
+	 * This constructor creates an empty gurobi model for an instance.
+	 * 
+	 * @param env the gurobi environment
+	 * @param instance the CFLP instance
+	 * @param p the desired number of open facilities
+	 * @param allocation the allocation mode
+	 * @param useNames whether variables and constraints are given descriptive names
+	 * @throws GRBException if the model cannot be created
+	 */
+	public CFLPModel(GRBEnv env, CFLPInstance instance, int p, AllocationMode allocation, boolean useNames) throws GRBException {
+		this.instance = instance;
+		this.p = p;
+		this.allocation = allocation;
+		this.useNames = useNames;
+		K = instance.numProducts();
+		I = instance.numPlants();
+		J = instance.numFacilities();
+		R = instance.numCustomers();
+		candidatePairs = J * R;
+		model = new GRBModel(env);
+	}
+	
+	/**
+	 * This constructor copies a built model into another gurobi environment (see copy).
+	 * 
+	 * @param original the built model
+	 * @param env the gurobi environment of the copy
+	 * @throws GRBException if the model cannot be copied
+	 */
+	private CFLPModel(CFLPModel original, GRBEnv env) throws GRBException {
+		instance = original.instance;
+		p = original.p;
+		allocation = original.allocation;
+		useNames = original.useNames;
+		K = original.K;
+		I = original.I;
+		J = original.J;
+		R = original.R;
+		candidates = original.candidates;
+		candidatePairs = original.candidatePairs;
+		
+		original.model.update();
+		model = new GRBModel(original.model, env);
+		GRBVar[] vars = model.getVars();
+		GRBConstr[] constrs = model.getConstrs();
+		desiredFacilities = constrs[original.desiredFacilities.index()];
+		demandConstraints = remap(original.demandConstraints, constrs, GRBConstr::index);
+		capacityConstraints = remap(original.capacityConstraints, constrs, GRBConstr::index);
+		balanceConstraints = remap(original.balanceConstraints, constrs, GRBConstr::index);
+		maxActivityConstraints = remap(original.maxActivityConstraints, constrs, GRBConstr::index);
+		minActivityConstraints = remap(original.minActivityConstraints, constrs, GRBConstr::index);
+		x = remap(original.x, vars, GRBVar::index);
+		z = remap(original.z, vars, GRBVar::index);
+		y = remap(original.y, vars, GRBVar::index);
+		s = remap(original.s, vars, GRBVar::index);
+		w = remap(original.w, vars, GRBVar::index);
+	}
+	
+	/**
+	 * This method copies the built model into another gurobi environment, so the copy can be solved on its own thread
+	 * with its own parameters. The copy shares the instance and candidates of this model and has the same variables
+	 * and constraints in the same order.
+	 * 
+	 * @param env the gurobi environment of the copy
+	 * @return the copy
+	 * @throws GRBException if the model cannot be copied
+	 */
+	public CFLPModel copy(GRBEnv env) throws GRBException {
+		return new CFLPModel(this, env);
+	}
+	
+	/**
+	 * This constructor reads a built model from a model file written by write, along with the position of each of its
+	 * variables and constraints.
+	 * 
+	 * @param env the gurobi environment
+	 * @param instance the CFLP instance the model was built for
+	 * @param p the desired number of open facilities the model was built for
+	 * @param allocation the allocation mode the model was built for
+	 * @param modelFile the model file, in any format gurobi reads
+	 * @param layout the positions written by write
+	 * @throws GRBException if the model cannot be read
+	 * @throws IOException if the positions cannot be read
+	 */
+	private CFLPModel(GRBEnv env, CFLPInstance instance, int p, AllocationMode allocation, String modelFile, DataInput layout) throws GRBException, IOException {
+		this.instance = instance;
+		this.p = p;
+		this.allocation = allocation;
+		useNames = false;
+		K = instance.numProducts();
+		I = instance.numPlants();
+		J = instance.numFacilities();
+		R = instance.numCustomers();
+		candidatePairs = J * R;
+		
+		model = new GRBModel(env, modelFile);
+		GRBVar[] vars = model.getVars();
+		GRBConstr[] constrs = model.getConstrs();
+		desiredFacilities = constrs[layout.readInt()];
+		demandConstraints = readIndices(layout, constrs);
+		capacityConstraints = readIndices(layout, constrs);
+		balanceConstraints = readIndices(layout, constrs);
+		maxActivityConstraints = readIndices(layout, constrs);
+		minActivityConstraints = readIndices(layout, constrs);
+		x = readIndices(layout, vars);
+		z = readIndices(layout, vars);
+		y = readIndices(layout, vars);
+		s = readIndices(layout, vars);
+		w = readIndices(layout, vars);
+	}
+	
+	/**
+	 * This method reads a model written by write for the same instance, desired number of open facilities and
+	 * allocation mode, which is solved like a built one (see ModelCache). Every facility and customer pair is a
+	 * candidate.
+	 * 
+	 * @param env the gurobi environment
+	 * @param instance the CFLP instance the model was built for
+	 * @param p the desired number of open facilities the model was built for
+	 * @param allocation the allocation mode the model was built for
+	 * @param modelFile the model file, in any format gurobi reads
+	 * @param layout the positions written by write
+	 * @return the model
+	 * @throws GRBException if the model cannot be read
+	 * @throws IOException if the positions cannot be read
+	 */
+	public static CFLPModel read(GRBEnv env, CFLPInstance instance, int p, AllocationMode allocation, String modelFile, DataInput layout) throws GRBException, IOException {
+		return new CFLPModel(env, instance, p, allocation, modelFile, layout);
+	}
+	
+	/**
+	 * This method writes the built model to a model file, and the position of each of its variables and constraints so
+	 * that read can find them again. Gurobi keeps the order of the variables and constraints in every model format and
+	 * compresses the file if its name ends in .gz, .bz2, .zip or .7z.
+	 * 
+	 * @param modelFile the model file, such as model.mps.gz
+	 * @param layout the output of the positions
+	 * @throws GRBException if the model cannot be written
+	 * @throws IOException if the positions cannot be written
+	 */
+	public void write(String modelFile, DataOutput layout) throws GRBException, IOException {
+		model.update();
+		model.write(modelFile);
+		layout.writeInt(desiredFacilities.index());
+		writeIndices(layout, demandConstraints, GRBConstr::index);
+		writeIndices(layout, capacityConstraints, GRBConstr::index);
+		writeIndices(layout, balanceConstraints, GRBConstr::index);
+		writeIndices(layout, maxActivityConstraints, GRBConstr::index);
+		writeIndices(layout, minActivityConstraints, GRBConstr::index);
+		writeIndices(layout, x, GRBVar::index);
+		writeIndices(layout, z, GRBVar::index);
+		writeIndices(layout, y, GRBVar::index);
+		writeIndices(layout, s, GRBVar::index);
+		writeIndices(layout, w, GRBVar::index);
+	}
+	
+	/**
+	 * @param layout the output of the positions
+	 * @param items the variables or constraints of a family, with null entries, or null
+	 * @param index the position of a variable or constraint in its model
+	 * @throws IOException if the positions cannot be written
+	 */
+	private static <T> void writeIndices(DataOutput layout, T[] items, ToIntFunction<T> index) throws IOException {
+		if(items == null) {
+			layout.writeInt(-1);
+			return;
+		}
+		layout.writeInt(items.length);
+		for(T item : items) {
+			layout.writeInt(item == null ? -1 : index.applyAsInt(item));
+		}
+	}
+	
+	/**
+	 * @param layout the positions written by writeIndices
+	 * @param all every variable or every constraint of the model, in model order
+	 * @return the variables or constraints of the family, with null entries, or null
+	 * @throws IOException if the positions cannot be read
+	 */
+	private static <T> T[] readIndices(DataInput layout, T[] all) throws IOException {
+		int length = layout.readInt();
+		if(length == -1) {
+			return null;
+		}
+		T[] items = Arrays.copyOf(all, length);
+		for(int n = 0; n < length; n++) {
+			int index = layout.readInt();
+			items[n] = index == -1 ? null : all[index];
+		}
+		return items;
+	}
+	
+	/**
+	 * This method finds the variables or constraints of a copied model which correspond to those of the original.
+	 * 
+	 * @param originals the variables or constraints of the original model, with null entries, or null
+	 * @param copies every variable or every constraint of the copy, in the order of the original
+	 * @param index the position of a variable or constraint in its model
+	 * @return the corresponding variables or constraints of the copy, or null
+	 */
+	private static <T> T[] remap(T[] originals, T[] copies, ToIntFunction<T> index) {
+		if(originals == null) {
+			return null;
+		}
+		T[] remapped = Arrays.copyOf(originals, originals.length);
+		for(int n = 0; n < originals.length; n++) {
+			if(originals[n] != null) {
+				remapped[n] = copies[index.applyAsInt(originals[n])];
+			}
+		}
+		return remapped;
+	}
+	
+	/**
+	 * This method adds the decision variables, objective and constraints to the model.
+	 * 
+	 * @return true if the model was built, false otherwise
+	 */
+	public boolean build() {
+		if(!addDecisionVariables()) {
+			return false;
+		}
+		if(metrics != null) {
+			metrics.end("add_decision_variables");
+		}
+		
+		//Objective Function
+		try {
+			model.set(GRB.IntAttr.ModelSense, GRB.MINIMIZE);
+		} catch (GRBException e) {
+			LOGGER.log(Level.SEVERE, "Error setting objective function. " + e.getMessage());
+			return false;
+		}
+		
+		if(!addConstraints()) {
+			return false;
+		}
+		if(metrics != null) {
+			metrics.end("add_constraints");
+		}
+		return true;
+	}
+	
+	/**
+	 * @param metrics the metrics which time the build phases, or null
+	 */
+	public void setMetrics(RunMetrics metrics) {
+		this.metrics = metrics;
+	}
+	
+	/**
+	 * This method restricts the facilities which may serve each customer. Only the y, w and s variables of the kept
+	 * facility and customer pairs are created, along with their terms in the constraints. It must be called before the
+	 * model is built. The array is not copied, and the pairs added back by addNegativeReducedCostCandidates are
+	 * marked in it.
+	 * 
+	 * @param candidates if facility j may serve customer r, indexed [j * R + r], or null to keep every pair
+	 */
+	public void setCandidates(boolean[] candidates) {
+		this.candidates = candidates;
+		candidatePairs = J * R;
+		if(candidates != null) {
+			candidatePairs = 0;
+			for(boolean candidate : candidates) {
+				if(candidate) {
+					candidatePairs++;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * @return true if some facility and customer pairs are left out of the model
+	 */
+	public boolean isRestricted() {
+		return candidatePairs < J * R;
+	}
+	
+	/**
+	 * This method changes the desired number of open facilities of a built model. Only the right hand side of the
+	 * desired open facilities constraint changes, so the model is not rebuilt.
+	 * 
+	 * @param p the desired number of open facilities
+	 * @return true if the constraint was changed, false otherwise
+	 */
+	public boolean setDesiredFacilities(int p) {
+		try {
+			desiredFacilities.set(GRB.DoubleAttr.RHS, p);
+		} catch (GRBException e) {
+			LOGGER.log(Level.SEVERE, "Error changing desired open facilities. " + e.getMessage());
+			return false;
+		}
+		this.p = p;
+		return true;
+	}
+	
+	/**
+	 * This method changes demands of the instance and patches the built model in place, so the work is proportional
+	 * to the number of changes rather than the size of the model. In the single allocation model the demand of a
+	 * customer is the coefficient of y[j][r] in the activity level and flow balance rows and part of the cost of
+	 * y[j][r], so the coefficients and costs of the changed customers are replaced for every facility. In the
+	 * divisible demand models only the right hand sides of the changed demand rows are replaced.
+	 * 
+	 * @param customers the customer of each change
+	 * @param products the product of each change
+	 * @param demands the new demand of each change
+	 * @return true if the model was patched, false otherwise
+	 */
+	public boolean updateDemands(int[] customers, int[] products, int[] demands) {
+		int changes = customers.length;
+		for(int change = 0; change < changes; change++) {
+			instance.setDemand(customers[change], products[change], demands[change]);
+		}
+		
+		try {
+			if(allocation != AllocationMode.SINGLE) {
+				GRBConstr[] rows = new GRBConstr[changes];
+				double[] rhs = new double[changes];
+				for(int change = 0; change < changes; change++) {
+					rows[change] = demandConstraints[customers[change] * K + products[change]];
+					rhs[change] = demands[change];
+				}
+				model.set(GRB.DoubleAttr.RHS, rows, rhs);
+				return true;
+			}
+			
+			//Customers changed more than once are patched once
+			int[] changedCustomers = Arrays.stream(customers).distinct().toArray();
+			int n = changedCustomers.length;
+			
+			//Costs of y[j][r]
+			GRBVar[] assignments = new GRBVar[n * J];
+			double[] assignmentCosts = new double[n * J];
+			for(int c = 0; c < n; c++) {
+				int r = changedCustomers[c];
+				for(int j = 0; j < J; j++) {
+					assignments[c * J + j] = y[yIndex(j, r)];
+					assignmentCosts[c * J + j] = instance.assignmentCost(j, r);
+				}
+			}
+			setValues(GRB.DoubleAttr.Obj, assignments, assignmentCosts);
+			
+			//Coefficients of y[j][r] in the activity level rows of the changed customers and the flow balance rows of the changed products
+			int count = 2 * n * J + changes * J;
+			GRBConstr[] rows = new GRBConstr[count];
+			GRBVar[] columns = new GRBVar[count];
+			double[] coefficients = new double[count];
+			int entry = 0;
+			for(int c = 0; c < n; c++) {
+				int r = changedCustomers[c];
+				for(int j = 0; j < J; j++) {
+					if(y[yIndex(j, r)] == null) {
+						continue;
+					}
+					rows[entry] = maxActivityConstraints[j];
+					columns[entry] = y[yIndex(j, r)];
+					coefficients[entry++] = instance.customerDemand(r);
+					rows[entry] = minActivityConstraints[j];
+					columns[entry] = y[yIndex(j, r)];
+					coefficients[entry++] = instance.customerDemand(r);
+				}
+			}
+			for(int change = 0; change < changes; change++) {
+				int r = customers[change];
+				int k = products[change];
+				for(int j = 0; j < J; j++) {
+					if(y[yIndex(j, r)] == null) {
+						continue;
+					}
+					rows[entry] = balanceConstraints[j * K + k];
+					columns[entry] = y[yIndex(j, r)];
+					coefficients[entry++] = -instance.demand(r, k);
+				}
+			}
+			if(entry < count) {
+				rows = Arrays.copyOf(rows, entry);
+				columns = Arrays.copyOf(columns, entry);
+				coefficients = Arrays.copyOf(coefficients, entry);
+			}
+			model.chgCoeffs(rows, columns, coefficients);
+		} catch (GRBException e) {
+			LOGGER.log(Level.SEVERE, "Error updating demands. " + e.getMessage());
+			return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * This method gives gurobi the incumbent solution as the MIP start of the next solve. The open facilities are
+	 * kept, along with the customer assignments in the single allocation model, and gurobi is left to complete the
+	 * flows since they rarely stay feasible when the demands change. Without an incumbent the start is unchanged.
+	 * 
+	 * @return true if the start was set, false otherwise
+	 */
+	public boolean startFromIncumbent() {
+		try {
+			if(model.get(GRB.IntAttr.SolCount) == 0) {
+				return true;
+			}
+			model.set(GRB.DoubleAttr.Start, z, model.get(GRB.DoubleAttr.X, z));
+			if(allocation == AllocationMode.SINGLE) {
+				setValues(GRB.DoubleAttr.Start, y, getValues(GRB.DoubleAttr.X, y));
+				model.set(GRB.DoubleAttr.Start, x, filled(x.length, GRB.UNDEFINED));
+			}
+		} catch (GRBException e) {
+			LOGGER.log(Level.SEVERE, "Error setting MIP start. " + e.getMessage());
+			return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * This method gives gurobi a single allocation solution as a MIP start. The single allocation model receives the
+	 * open facilities, customer assignments and plant to facility flows. A single allocation solution is also
+	 * feasible for the divisible demand models, which receive the open facilities and leave gurobi to complete the
+	 * flows.
+	 * 
+	 * @param solution the single allocation solution
+	 * @return true if the start was set, false otherwise
+	 */
+	public boolean setStart(SingleAllocationSolution solution) {
+		boolean[] open = new boolean[J];
+		for(int j = 0; j < J; j++) {
+			open[j] = solution.isOpen(j);
+		}
+		if(!setStart(open)) {
+			return false;
+		}
+		if(allocation != AllocationMode.SINGLE) {
+			return true;
+		}
+		
+		try {
+			double[] assignmentStart = new double[J * R];
+			for(int r = 0; r < R; r++) {
+				assignmentStart[yIndex(solution.getAssignment(r), r)] = 1;
+			}
+			setValues(GRB.DoubleAttr.Start, y, assignmentStart);
+			
+			double[] plantToFacilityStart = new double[K * I * J];
+			for(int k = 0; k < K; k++) {
+				for(int i = 0; i < I; i++) {
+					for(int j = 0; j < J; j++) {
+						plantToFacilityStart[xIndex(k, i, j)] = solution.getFlow(k, i, j);
+					}
+				}
+			}
+			model.set(GRB.DoubleAttr.Start, x, plantToFacilityStart);
+		} catch (GRBException e) {
+			LOGGER.log(Level.SEVERE, "Error setting MIP start. " + e.getMessage());
+			return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * This method gives gurobi the open facilities of a MIP start and leaves gurobi to complete the other variables.
+	 * 
+	 * @param open if each facility is open or not
+	 * @return true if the start was set, false otherwise
+	 */
+	public boolean setStart(boolean[] open) {
+		double[] facilityStart = new double[J];
+		for(int j = 0; j < J; j++) {
+			facilityStart[j] = open[j] ? 1 : 0;
+		}
+		try {
+			model.set(GRB.DoubleAttr.Start, z, facilityStart);
+		} catch (GRBException e) {
+			LOGGER.log(Level.SEVERE, "Error setting MIP start. " + e.getMessage());
+			return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * This method fixes the open facilities, and the customer assignments in the single allocation model, at their
+	 * values in the MIP start, so the next solve only completes the flows of that solution as a linear program.
+	 * 
+	 * @return true if they were fixed, false if the start leaves one of them out or cannot be obtained
+	 */
+	public boolean fixToStart() {
+		try {
+			double[] facilityStart = model.get(GRB.DoubleAttr.Start, z);
+			double[] assignmentStart = allocation == AllocationMode.SINGLE ? getValues(GRB.DoubleAttr.Start, y) : new double[0];
+			for(double value : facilityStart) {
+				if(value == GRB.UNDEFINED) {
+					return false;
+				}
+			}
+			for(int index = 0; index < assignmentStart.length; index++) {
+				if(y[index] != null && assignmentStart[index] == GRB.UNDEFINED) {
+					return false;
+				}
+			}
+			model.set(GRB.DoubleAttr.LB, z, facilityStart);
+			model.set(GRB.DoubleAttr.UB, z, facilityStart);
+			if(allocation == AllocationMode.SINGLE) {
+				setValues(GRB.DoubleAttr.LB, y, assignmentStart);
+				setValues(GRB.DoubleAttr.UB, y, assignmentStart);
+			}
+		} catch (GRBException e) {
+			LOGGER.log(Level.SEVERE, "Error fixing MIP start. " + e.getMessage());
+			return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * This method obtains the open facilities of the incumbent solution.
+	 * 
+	 * @return if each facility is open or not, or null if there is no incumbent
+	 */
+	public boolean[] getOpenFacilities() {
+		try {
+			if(model.get(GRB.IntAttr.SolCount) == 0) {
+				return null;
+			}
+			double[] facilityOpen = model.get(GRB.DoubleAttr.X, z);
+			boolean[] open = new boolean[J];
+			for(int j = 0; j < J; j++) {
+				open[j] = facilityOpen[j] > 0.5;
+			}
+			return open;
+		} catch (GRBException e) {
+			logDecisionVariableValue("zj", e);
+			return null;
+		}
+	}
+	
+	/**
+	 * This method solves the model.
+	 * 
+	 * @return true if gurobi finished, false otherwise
+	 */
+	public boolean optimize() {
+		try {
+			model.optimize();
+		} catch (GRBException e) {
+			LOGGER.log(Level.SEVERE, "Error optimizing model. " + e.getMessage());
+			return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * @return true if gurobi found a feasible solution
+	 */
+	public boolean hasSolution() {
+		try {
+			return model.get(GRB.IntAttr.SolCount) > 0;
+		} catch (GRBException e) {
+			LOGGER.log(Level.SEVERE, "Error obtaining solution count. " + e.getMessage());
+			return false;
+		}
+	}
+	
+	/**
+	 * @return the objective of the incumbent, or NaN without one
+	 */
+	public double getObjective() {
+		return getModelAttribute(GRB.DoubleAttr.ObjVal);
+	}
+	
+	/**
+	 * @return the best lower bound of the last solve
+	 */
+	public double getBound() {
+		return getModelAttribute(GRB.DoubleAttr.ObjBound);
+	}
+	
+	/**
+	 * @return the relative gap between the incumbent and the bound
+	 */
+	public double getGap() {
+		return getModelAttribute(GRB.DoubleAttr.MIPGap);
+	}
+	
+	/**
+	 * @return the wall clock time of the last solve in seconds
+	 */
+	public double getRuntime() {
+		return getModelAttribute(GRB.DoubleAttr.Runtime);
+	}
+	
+	/**
+	 * @return gurobi's status code of the last solve, or GRB.Status.LOADED before the first
+	 */
+	public int getStatus() {
+		try {
+			return model.get(GRB.IntAttr.Status);
+		} catch (GRBException e) {
+			LOGGER.log(Level.SEVERE, "Error obtaining model status. " + e.getMessage());
+			return GRB.Status.LOADED;
+		}
+	}
+	
+	/**
+	 * @return the number of branch and bound nodes of the last solve
+	 */
+	public long getNodes() {
+		return (long) getModelAttribute(GRB.DoubleAttr.NodeCount);
+	}
+	
+	/**
+	 * @return the number of variables of the model
+	 */
+	public int numVariables() {
+		return getModelSize(GRB.IntAttr.NumVars);
+	}
+	
+	/**
+	 * @return the number of constraints of the model
+	 */
+	public int numConstraints() {
+		return getModelSize(GRB.IntAttr.NumConstrs);
+	}
+	
+	/**
+	 * @return the number of nonzero constraint coefficients of the model
+	 */
+	public long numNonzeros() {
+		return (long) getModelAttribute(GRB.DoubleAttr.DNumNZs);
+	}
+	
+	/**
+	 * @param attribute a size attribute of the model, such as NumVars
+	 * @return the value of the attribute, or 0 if it cannot be obtained
+	 */
+	private int getModelSize(GRB.IntAttr attribute) {
+		try {
+			return model.get(attribute);
+		} catch (GRBException e) {
+			LOGGER.log(Level.SEVERE, "Error obtaining model size. " + e.getMessage());
+			return 0;
+		}
+	}
+	
+	/**
+	 * @param attribute a model attribute, such as ObjVal
+	 * @return the value of the attribute, or NaN if it cannot be obtained
+	 */
+	private double getModelAttribute(GRB.DoubleAttr attribute) {
+		try {
+			return model.get(attribute);
+		} catch (GRBException e) {
+			LOGGER.log(Level.SEVERE, "Error obtaining objective function value. " + e.getMessage());
+			return Double.NaN;
+		}
+	}
+	
+	/**
+	 * This method prices the facility and customer pairs left out by the candidate restriction against the incumbent
+	 * and adds back every pair with a negative reduced cost. The duals come from the linear program gurobi obtains by
+	 * fixing the integer variables of the model at the incumbent, and the reduced cost of a left out variable is its
+	 * cost less the duals of the demand, plant capacity, activity level and flow balance rows it would enter. A pair
+	 * is added back with every product and plant variable it has, and the incumbent becomes the MIP start of the next
+	 * solve. When no pair is added back, no left out pair can improve the incumbent for its open facilities.
+	 *
+	 * @return the number of pairs added back, or -1 if they could not be priced
+	 */
+	public int addNegativeReducedCostCandidates() {
+		if(!isRestricted()) {
+			return 0;
+		}
+		try {
+			if(model.get(GRB.IntAttr.SolCount) == 0) {
+				LOGGER.log(Level.SEVERE, "Error pricing left out candidates. The restricted model has no solution, keep more facilities per customer.");
+				return -1;
+			}
+
+			//Duals of the incumbent with the integer variables fixed
+			double[] pi;
+			GRBModel fixed = model.fixedModel();
+			try {
+				fixed.set(GRB.IntParam.OutputFlag, 0);
+				fixed.optimize();
+				if(fixed.get(GRB.IntAttr.Status) != GRB.Status.OPTIMAL) {
+					LOGGER.log(Level.SEVERE, "Error pricing left out candidates. The fixed model was not solved to optimality.");
+					return -1;
+				}
+				pi = fixed.get(GRB.DoubleAttr.Pi, fixed.getConstrs());
+			} finally {
+				fixed.dispose();
+			}
+
+			//Pairs with a negative reduced cost
+			boolean[] added = new boolean[J * R];
+			int pairs = 0;
+			for(int j = 0; j < J; j++) {
+				double activityDual = pi[maxActivityConstraints[j].index()] + pi[minActivityConstraints[j].index()];
+				for(int r = 0; r < R; r++) {
+					if(candidates[j * R + r]) {
+						continue;
+					}
+					if(reducedCost(pi, activityDual, j, r) < -REDUCED_COST_TOLERANCE) {
+						added[j * R + r] = true;
+						pairs++;
+					}
+				}
+			}
+			if(pairs == 0) {
+				return 0;
+			}
+
+			//The incumbent is kept as the MIP start before the new variables are added
+			if(!startFromIncumbent()) {
+				return -1;
+			}
+			addCandidates(added, pairs);
+			return pairs;
+		} catch (GRBException e) {
+			LOGGER.log(Level.SEVERE, "Error pricing left out candidates. " + e.getMessage());
+			return -1;
+		}
+	}
+
+	/**
+	 * This method obtains the smallest reduced cost of the variables a left out pair would add.
+	 *
+	 * @param pi the dual of every row, by constraint index
+	 * @param activityDual the sum of the duals of the maximum and minimum activity level rows of the facility
+	 * @param j the facility
+	 * @param r the customer
+	 * @return the smallest reduced cost
+	 * @throws GRBException if a constraint index cannot be obtained
+	 */
+	private double reducedCost(double[] pi, double activityDual, int j, int r) throws GRBException {
+		if(allocation == AllocationMode.SINGLE) {
+			double reducedCost = instance.assignmentCost(j, r) - pi[demandConstraints[r].index()] - instance.customerDemand(r) * activityDual;
+			for(int k = 0; k < K; k++) {
+				reducedCost += instance.demand(r, k) * pi[balanceConstraints[j * K + k].index()];
+			}
+			return reducedCost;
+		}
+
+		double smallest = Double.POSITIVE_INFINITY;
+		for(int k = 0; k < K; k++) {
+			double deliveryCost = instance.unitCost(k) * instance.customerDistance(j, r) + instance.marginalCost(j);
+			double reducedCost = deliveryCost - pi[demandConstraints[r * K + k].index()] - activityDual;
+			if(allocation == AllocationMode.ARC_FLOW) {
+				smallest = Math.min(smallest, reducedCost + pi[balanceConstraints[j * K + k].index()]);
+				continue;
+			}
+			for(int i = 0; i < I; i++) {
+				double plantCost = instance.unitCost(k) * instance.plantDistance(i, j);
+				smallest = Math.min(smallest, reducedCost + plantCost - pi[capacityConstraints[i * K + k].index()]);
+			}
+		}
+		return smallest;
+	}
+
+	/**
+	 * This method adds the variables of left out pairs to the built model along with their terms in the rows they
+	 * enter, and makes the pairs candidates.
+	 *
+	 * @param added if facility j and customer r are added, indexed [j * R + r]
+	 * @param pairs the number of pairs added
+	 * @throws GRBException if the variables or terms cannot be added
+	 */
+	private void addCandidates(boolean[] added, int pairs) throws GRBException {
+		int perPair = allocation == AllocationMode.SINGLE ? 1 : allocation == AllocationMode.ARC_FLOW ? K : K * I;
+		int[] indices = new int[pairs * perPair]; //Flat indices of the new variables
+		double[] costs = new double[indices.length];
+		String[] names = useNames ? new String[indices.length] : null;
+		int rowsPerVar = allocation == AllocationMode.SINGLE ? 3 + K : 4;
+		GRBConstr[] rows = new GRBConstr[indices.length * rowsPerVar];
+		int[] columns = new int[rows.length]; //Position of the new variable of each coefficient
+		double[] coefficients = new double[rows.length];
+		int n = 0;
+		int entry = 0;
+		for(int j = 0; j < J; j++) {
+			for(int r = 0; r < R; r++) {
+				if(!added[j * R + r]) {
+					continue;
+				}
+				if(allocation == AllocationMode.SINGLE) {
+					indices[n] = yIndex(j, r);
+					costs[n] = instance.assignmentCost(j, r);
+					if(useNames) {
+						names[n] = "y" + j + "," + r;
+					}
+					double demand = instance.customerDemand(r);
+					GRBConstr[] entered = {demandConstraints[r], maxActivityConstraints[j], minActivityConstraints[j]};
+					double[] enteredCoefficients = {1, demand, demand};
+					for(int row = 0; row < entered.length; row++) {
+						rows[entry] = entered[row];
+						columns[entry] = n;
+						coefficients[entry++] = enteredCoefficients[row];
+					}
+					for(int k = 0; k < K; k++) {
+						rows[entry] = balanceConstraints[j * K + k];
+						columns[entry] = n;
+						coefficients[entry++] = -instance.demand(r, k);
+					}
+					n++;
+					continue;
+				}
+				for(int k = 0; k < K; k++) {
+					double deliveryCost = instance.unitCost(k) * instance.customerDistance(j, r) + instance.marginalCost(j);
+					if(allocation == AllocationMode.ARC_FLOW) {
+						indices[n] = wIndex(k, j, r);
+						costs[n] = deliveryCost;
+						if(useNames) {
+							names[n] = "w" + k + "," + j + "," + r;
+						}
+						GRBConstr[] entered = {demandConstraints[r * K + k], maxActivityConstraints[j], minActivityConstraints[j], balanceConstraints[j * K + k]};
+						double[] enteredCoefficients = {1, 1, 1, -1};
+						for(int row = 0; row < entered.length; row++) {
+							rows[entry] = entered[row];
+							columns[entry] = n;
+							coefficients[entry++] = enteredCoefficients[row];
+						}
+						n++;
+						continue;
+					}
+					for(int i = 0; i < I; i++) {
+						indices[n] = sIndex(k, i, j, r);
+						costs[n] = deliveryCost + instance.unitCost(k) * instance.plantDistance(i, j);
+						if(useNames) {
+							names[n] = "s" + k + "," + i + "," + j + "," + r;
+						}
+						GRBConstr[] entered = {demandConstraints[r * K + k], capacityConstraints[i * K + k], maxActivityConstraints[j], minActivityConstraints[j]};
+						for(int row = 0; row < entered.length; row++) {
+							rows[entry] = entered[row];
+							columns[entry] = n;
+							coefficients[entry++] = 1;
+						}
+						n++;
+					}
+				}
+			}
+		}
+
+		GRBVar[] created;
+		if(allocation == AllocationMode.SINGLE) {
+			char[] types = new char[n];
+			Arrays.fill(types, GRB.BINARY);
+			created = model.addVars(null, filled(n, 1), costs, types, names);
+		} else {
+			created = model.addVars(null, null, costs, null, names);
+		}
+		model.update();
+		GRBVar[] vars = allocation == AllocationMode.SINGLE ? y : allocation == AllocationMode.ARC_FLOW ? w : s;
+		GRBVar[] enteredVars = new GRBVar[entry];
+		for(int e = 0; e < entry; e++) {
+			enteredVars[e] = created[columns[e]];
+		}
+		model.chgCoeffs(rows, enteredVars, coefficients);
+		for(int v = 0; v < n; v++) {
+			vars[indices[v]] = created[v];
+		}
+		for(int pair = 0; pair < added.length; pair++) {
+			if(added[pair]) {
+				candidates[pair] = true;
+			}
+		}
+		candidatePairs += pairs;
+	}
+
+	/**
+	 * This method creates the callback which adds linking and cover cuts to the single allocation model (see
+	 * LinkingCutCallback) and lets gurobi use the cuts in the presolved model. The callback still has to be set on
+	 * the gurobi model.
+	 *
+	 * @return the callback, or null if it could not be created
+	 */
+	public LinkingCutCallback createLinkingCutCallback() {
+		if(allocation != AllocationMode.SINGLE) {
+			LOGGER.log(Level.SEVERE, "Linking cuts only support the single allocation model.");
+			return null;
+		}
+		try {
+			model.set(GRB.IntParam.PreCrush, 1);
+		} catch (GRBException e) {
+			LOGGER.log(Level.SEVERE, "Error enabling user cuts. " + e.getMessage());
+			return null;
+		}
+
+		int[][] customers = new int[J][];
+		GRBVar[][] assignments = new GRBVar[J][];
+		for(int j = 0; j < J; j++) {
+			int count = 0;
+			for(int r = 0; r < R; r++) {
+				if(y[yIndex(j, r)] != null) {
+					count++;
+				}
+			}
+			customers[j] = new int[count];
+			assignments[j] = new GRBVar[count];
+			int n = 0;
+			for(int r = 0; r < R; r++) {
+				if(y[yIndex(j, r)] != null) {
+					customers[j][n] = r;
+					assignments[j][n++] = y[yIndex(j, r)];
+				}
+			}
+		}
+		return new LinkingCutCallback(instance, z, customers, assignments);
+	}
+
+	/**
+	 * This method creates the writer which streams the incumbents of the model to a file (see IncumbentWriter), with
+	 * the assignments of the candidate pairs in the single allocation model. The writer still has to be given to the
+	 * callback of the gurobi model.
+	 * 
+	 * @param filePath the path to the incumbent file, JSON if it ends in .json and CSV otherwise
+	 * @return the writer
+	 */
+	public IncumbentWriter createIncumbentWriter(String filePath) {
+		int count = 0;
+		if(allocation == AllocationMode.SINGLE) {
+			for(GRBVar var : y) {
+				if(var != null) {
+					count++;
+				}
+			}
+		}
+		GRBVar[] assignments = new GRBVar[count];
+		int[] facilities = new int[count];
+		int[] customers = new int[count];
+		int n = 0;
+		for(int j = 0; j < J && n < count; j++) {
+			for(int r = 0; r < R; r++) {
+				if(y[yIndex(j, r)] != null) {
+					assignments[n] = y[yIndex(j, r)];
+					facilities[n] = j;
+					customers[n++] = r;
+				}
+			}
+		}
+		return new IncumbentWriter(filePath, z, assignments, facilities, customers, R);
+	}
+	
+	/**
+	 * This method writes the incumbent and bound of the last solve to the incumbent file, marked final.
+	 * 
+	 * @param writer the writer of the incumbent file, created by createIncumbentWriter
+	 * @return true if the file was written, false if there is no incumbent or it cannot be obtained
+	 */
+	public boolean finishIncumbents(IncumbentWriter writer) {
+		try {
+			if(model.get(GRB.IntAttr.SolCount) == 0) {
+				return false;
+			}
+			return writer.finish(model.get(GRB.DoubleAttr.ObjVal), model.get(GRB.DoubleAttr.ObjBound), model.get(GRB.DoubleAttr.Runtime),
+					model.get(GRB.DoubleAttr.X, writer.getVars()));
+		} catch (GRBException e) {
+			LOGGER.log(Level.SEVERE, "Error obtaining incumbent. " + e.getMessage());
+			return false;
+		}
+	}
+	
+	/**
+	 * @return the allocation mode of the model
+	 */
+	public AllocationMode getAllocation() {
+		return allocation;
+	}
+	
+	/**
+	 * @return the gurobi model
+	 */
+	public GRBModel getModel() {
+		return model;
+	}
+	
+	/**
+	 * This method disposes the gurobi model.
+	 */
+	public void dispose() {
+		try {
+			model.dispose();
+		} catch (GRBException e) {
+			LOGGER.log(Level.SEVERE, "Error disposing model. " + e.getMessage());
+		}
+	}
+	
+	/**
+	 * This method adds decision variables to the model based on if the model is single allocation, divisible demand or arc-flow divisible demand.
+	 * The costs are computed in parallel facility blocks and each variable family is handed to gurobi in a single bulk call.
+	 * It is package-private so the benchmarks can time it apart from the constraints.
+	 * 
+	 * @return true if the variables were added, false otherwise
+	 */
+	boolean addDecisionVariables() {
+		double[] facilityUpperBounds = filled(J, 1);
+		char[] facilityTypes = new char[J];
+		Arrays.fill(facilityTypes, GRB.BINARY);
+		double[] facilityCosts = new double[J];
+		String[] facilityNames = useNames ? new String[J] : null;
+		for(int j = 0; j < J; j++) {
+			facilityCosts[j] = instance.fixedCost(j);
+			if(useNames) {
+				facilityNames[j] = "z" + j;
+			}
+		}
+		try {
+			z = model.addVars(null, facilityUpperBounds, facilityCosts, facilityTypes, facilityNames);
+		} catch (GRBException e) {
+			logDecisionVariableError("zj", e);
+			return false;
+		}
+		
+		if(allocation == AllocationMode.SINGLE || allocation == AllocationMode.ARC_FLOW) {
+			double[] plantToFacilityCosts = new double[K * I * J];
+			String[] plantToFacilityNames = useNames ? new String[K * I * J] : null;
+			for(int k = 0; k < K; k++) {
+				for(int i = 0; i < I; i++) {
+					for(int j = 0; j < J; j++) {
+						plantToFacilityCosts[xIndex(k, i, j)] = instance.unitCost(k) * instance.plantDistance(i, j);
+						if(useNames) {
+							plantToFacilityNames[xIndex(k, i, j)] = "x" + i + "," + j + "," + k;
+						}
+					}
+				}
+			}
+			try {
+				x = model.addVars(null, null, plantToFacilityCosts, null, plantToFacilityNames);
+			} catch (GRBException e) {
+				logDecisionVariableError("xijk", e);
+				return false;
+			}
+		}
+		
+		//Only the candidate pairs are created, in flat index order, and spread back over the flat arrays. The costs are
+		//computed in parallel facility blocks, each filling its own slice of the arrays (see candidateOffsets)
+		int[] offsets = candidateOffsets();
+		if(allocation == AllocationMode.SINGLE) {
+			double[] assignmentUpperBounds = filled(candidatePairs, 1);
+			char[] assignmentTypes = new char[candidatePairs];
+			Arrays.fill(assignmentTypes, GRB.BINARY);
+			double[] assignmentCosts = new double[candidatePairs];
+			String[] assignmentNames = useNames ? new String[candidatePairs] : null;
+			try {
+				inParallel(J, (first, last) -> {
+					for(int j = first; j < last; j++) {
+						int n = offsets[j];
+						for(int r = 0; r < R; r++) {
+							if(!isCandidate(j, r)) {
+								continue;
+							}
+							assignmentCosts[n] = instance.assignmentCost(j, r);
+							if(useNames) {
+								assignmentNames[n] = "y" + j + "," + r;
+							}
+							n++;
+						}
+					}
+				});
+				y = spread(model.addVars(null, assignmentUpperBounds, assignmentCosts, assignmentTypes, assignmentNames), J * R);
+			} catch (GRBException e) {
+				logDecisionVariableError("yjr", e);
+				return false;
+			}
+		} else if(allocation == AllocationMode.ARC_FLOW) {
+			double[] deliveryCosts = new double[K * candidatePairs];
+			String[] deliveryNames = useNames ? new String[K * candidatePairs] : null;
+			try {
+				inParallel(J, (first, last) -> {
+					for(int j = first; j < last; j++) {
+						double marginalCost = instance.marginalCost(j);
+						for(int k = 0; k < K; k++) {
+							int n = k * candidatePairs + offsets[j];
+							for(int r = 0; r < R; r++) {
+								if(!isCandidate(j, r)) {
+									continue;
+								}
+								double transportationCost = instance.unitCost(k) * instance.customerDistance(j, r);
+								deliveryCosts[n] = transportationCost + marginalCost;
+								if(useNames) {
+									deliveryNames[n] = "w" + k + "," + j + "," + r;
+								}
+								n++;
+							}
+						}
+					}
+				});
+				w = spread(model.addVars(null, null, deliveryCosts, null, deliveryNames), K * J * R);
+			} catch (GRBException e) {
+				logDecisionVariableError("wkjr", e);
+				return false;
+			}
+		} else {
+			double[] flowCosts = new double[K * I * candidatePairs];
+			String[] flowNames = useNames ? new String[K * I * candidatePairs] : null;
+			try {
+				inParallel(J, (first, last) -> {
+					for(int j = first; j < last; j++) {
+						double marginalCost = instance.marginalCost(j);
+						for(int k = 0; k < K; k++) {
+							for(int i = 0; i < I; i++) {
+								double plantDistance = instance.plantDistance(i, j);
+								int n = (k * I + i) * candidatePairs + offsets[j];
+								for(int r = 0; r < R; r++) {
+									if(!isCandidate(j, r)) {
+										continue;
+									}
+									double totalDistance = plantDistance + instance.customerDistance(j, r);
+									double transportationCost = instance.unitCost(k) * totalDistance;
+									flowCosts[n] = transportationCost + marginalCost;
+									if(useNames) {
+										flowNames[n] = "s" + k + "," + i + "," + j + "," + r;
+									}
+									n++;
+								}
+							}
+						}
+					}
+				});
+				s = spread(model.addVars(null, null, flowCosts, null, flowNames), K * I * J * R);
+			} catch (GRBException e) {
+				logDecisionVariableError("skir", e);
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * This method checks if a facility may serve a customer.
+	 * 
+	 * @param j the facility
+	 * @param r the customer
+	 * @return true if the pair is a candidate
+	 */
+	private boolean isCandidate(int j, int r) {
+		return candidates == null || candidates[j * R + r];
+	}
+	
+	/**
+	 * This method obtains the position of the first candidate pair of each facility among the candidate pairs in
+	 * facility then customer order. The variables of product k (and plant i) of facility j start at this position
+	 * plus k (or k * I + i) times the number of candidate pairs, so parallel blocks of facilities fill disjoint slices.
+	 * 
+	 * @return the position of the first candidate pair of facility j
+	 */
+	private int[] candidateOffsets() {
+		int[] offsets = new int[J];
+		int offset = 0;
+		for(int j = 0; j < J; j++) {
+			offsets[j] = offset;
+			if(candidates == null) {
+				offset += R;
+				continue;
+			}
+			for(int r = 0; r < R; r++) {
+				if(candidates[j * R + r]) {
+					offset++;
+				}
+			}
+		}
+		return offsets;
+	}
+	
+	/**
+	 * This method spreads the variables created for the candidate pairs over a flat y, w or s array, in which the
+	 * facility and customer of an index are index / R % J and index % R.
+	 * 
+	 * @param created the variables of the candidate pairs in flat index order
+	 * @param length the length of the flat array
+	 * @return the flat array, with null entries for the pairs which are not candidates
+	 */
+	private GRBVar[] spread(GRBVar[] created, int length) {
+		if(created.length == length) {
+			return created;
+		}
+		GRBVar[] vars = new GRBVar[length];
+		int n = 0;
+		for(int index = 0; index < length; index++) {
+			if(isCandidate(index / R % J, index % R)) {
+				vars[index] = created[n++];
+			}
+		}
+		return vars;
+	}
+	
+	/**
+	 * This method returns the position of x[k][i][j] in the flat x array.
+	 * 
+	 * @param k the product
+	 * @param i the production plant
+	 * @param j the facility
+	 * @return the index into x
+	 */
+	private int xIndex(int k, int i, int j) {
+		return (k * I + i) * J + j;
+	}
+	
+	/**
+	 * This method returns the position of y[j][r] in the flat y array.
+	 * 
+	 * @param j the facility
+	 * @param r the customer
+	 * @return the index into y
+	 */
+	private int yIndex(int j, int r) {
+		return j * R + r;
+	}
+	
+	/**
+	 * This method returns the position of w[k][j][r] in the flat w array.
+	 * 
+	 * @param k the product
+	 * @param j the facility
+	 * @param r the customer
+	 * @return the index into w
+	 */
+	private int wIndex(int k, int j, int r) {
+		return (k * J + j) * R + r;
+	}
+	
+	/**
+	 * This method returns the position of s[k][i][j][r] in the flat s array.
+	 * 
+	 * @param k the product
+	 * @param i the production plant
+	 * @param j the facility
+	 * @param r the customer
+	 * @return the index into s
+	 */
+	private int sIndex(int k, int i, int j, int r) {
+		return ((k * I + i) * J + j) * R + r;
+	}
+	
+	/**
+	 * This method creates an array with every entry set to the same value.
+	 * 
+	 * @param length the length of the array
+	 * @param value the value of every entry
+	 * @return the filled array
+	 */
+	private static double[] filled(int length, double value) {
+		double[] values = new double[length];
+		Arrays.fill(values, value);
+		return values;
+	}
+	
+	/**
+	 * This method logs decision variable errors.
+	 * 
+	 * @param decisionVariable the decision variable being added to the model
+	 * @param e the exception
+	 */
+	private static void logDecisionVariableError(String decisionVariable, Exception e) {
+		LOGGER.log(Level.SEVERE, "Error adding " + decisionVariable + " decision variable. " + e.getMessage());
+	}
+	
+	/**
+	 * This method adds constraints to the model based on if the model is single allocation, divisible demand or arc-flow divisible demand.
+	 * Rows are assembled from coefficient and variable arrays in parallel blocks and each constraint family is added in a single bulk call.
+	 * It is package-private so the benchmarks can time it apart from the decision variables.
+	 * 
+	 * @return true if the constraints were added, false otherwise
+	 */
+	boolean addConstraints() {
+		// Desired Open Facilities
+		GRBLinExpr numberOfFacilities = new GRBLinExpr();
+		try {
+			numberOfFacilities.addTerms(filled(J, 1), z);
+			desiredFacilities = model.addConstr(numberOfFacilities, GRB.EQUAL, p, "Desired number of open facilities");
+		} catch (GRBException e) {
+			logConstraintError("desired open facilities", e);
+			return false;
+		}
+				
+		if(allocation == AllocationMode.SINGLE) {
+			//Single Allocation for Demand
+			GRBLinExpr[] demandRows = new GRBLinExpr[R];
+			String[] demandNames = useNames ? new String[R] : null;
+			double[] ones = filled(J, 1);
+			try {
+				inParallel(R, (first, last) -> {
+					GRBVar[] facilitiesForCustomer = new GRBVar[J];
+					for (int r = first; r < last; r++) {
+						for (int j = 0; j < J; j++) {
+							facilitiesForCustomer[j] = y[yIndex(j, r)];
+						}
+						demandRows[r] = new GRBLinExpr();
+						addTerms(demandRows[r], ones, facilitiesForCustomer);
+						if(useNames) {
+							demandNames[r] = "Customer " + r + " demand";
+						}
+					}
+				});
+				demandConstraints = model.addConstrs(demandRows, senses(R, GRB.EQUAL), filled(R, 1), demandNames);
+			} catch (GRBException e) {
+				logConstraintError("demand", e);
+				return false;
+			}
+
+			//Production Plant Capacity
+			if(!addPlantCapacityConstraints()) {
+				return false;
+			}
+
+			//Per customer demand coefficients shared by the activity level and flow balance rows of every facility
+			double[] customerDemands = new double[R];
+			double[][] productDemands = new double[K][R];
+			for (int r = 0; r < R; r++) {
+				customerDemands[r] = instance.customerDemand(r);
+				for (int k = 0; k < K; k++) {
+					productDemands[k][r] = -instance.demand(r, k);
+				}
+			}
+
+			//Maximum and Minimum Facility Activity Level
+			GRBLinExpr[] productFromFacility = new GRBLinExpr[J];
+			try {
+				inParallel(J, (first, last) -> {
+					for (int j = first; j < last; j++) {
+						productFromFacility[j] = new GRBLinExpr();
+						addTerms(productFromFacility[j], customerDemands, Arrays.copyOfRange(y, yIndex(j, 0), yIndex(j, 0) + R));
+					}
+				});
+			} catch (GRBException e) {
+				logConstraintError("facility activity level", e);
+				return false;
+			}
+			if(!addActivityLevelConstraints(productFromFacility)) {
+				return false;
+			}
+
+			//Facility Product Flow Balance
+			GRBLinExpr[] balanceRows = new GRBLinExpr[J * K];
+			String[] balanceNames = useNames ? new String[J * K] : null;
+			double[] plantOnes = filled(I, 1);
+			try {
+				inParallel(J, (first, last) -> {
+					GRBVar[] plantsForFacility = new GRBVar[I];
+					for (int j = first; j < last; j++) {
+						GRBVar[] customersOfFacility = Arrays.copyOfRange(y, yIndex(j, 0), yIndex(j, 0) + R);
+						for (int k = 0; k < K; k++) {
+							for (int i = 0; i < I; i++) {
+								plantsForFacility[i] = x[xIndex(k, i, j)];
+							}
+							int row = j * K + k;
+							balanceRows[row] = new GRBLinExpr();
+							balanceRows[row].addTerms(plantOnes, plantsForFacility);
+							addTerms(balanceRows[row], productDemands[k], customersOfFacility);
+							if(useNames) {
+								balanceNames[row] = "Product " + k + " flow balance at facility " + j;
+							}
+						}
+					}
+				});
+				balanceConstraints = model.addConstrs(balanceRows, senses(J * K, GRB.EQUAL), new double[J * K], balanceNames);
+			} catch (GRBException e) {
+				logConstraintError("flow balance", e);
+				return false;
+			}
+		} else if(allocation == AllocationMode.ARC_FLOW) {
+			//Divisible Demand
+			GRBLinExpr[] demandRows = new GRBLinExpr[R * K];
+			double[] demands = new double[R * K];
+			String[] demandNames = useNames ? new String[R * K] : null;
+			double[] facilityOnes = filled(J, 1);
+			try {
+				inParallel(R, (first, last) -> {
+					GRBVar[] facilitiesToCustomer = new GRBVar[J];
+					for(int r = first; r < last; r++) {
+						for(int k = 0; k < K; k++) {
+							for(int j = 0; j < J; j++) {
+								facilitiesToCustomer[j] = w[wIndex(k, j, r)];
+							}
+							int row = r * K + k;
+							demandRows[row] = new GRBLinExpr();
+							addTerms(demandRows[row], facilityOnes, facilitiesToCustomer);
+							demands[row] = instance.demand(r, k);
+							if(useNames) {
+								demandNames[row] = "Customer " + r + " demand";
+							}
+						}
+					}
+				});
+				demandConstraints = model.addConstrs(demandRows, senses(R * K, GRB.EQUAL), demands, demandNames);
+			} catch (GRBException e) {
+				logConstraintError("demand", e);
+				return false;
+			}
+			
+			//Production Plant Capacity
+			if(!addPlantCapacityConstraints()) {
+				return false;
+			}
+			
+			//Maximum and Minimum Facility Activity Level
+			GRBLinExpr[] productFromFacility = new GRBLinExpr[J];
+			double[] throughputOnes = filled(K * R, 1);
+			try {
+				inParallel(J, (first, last) -> {
+					GRBVar[] deliveriesFromFacility = new GRBVar[K * R];
+					for(int j = first; j < last; j++) {
+						for(int k = 0; k < K; k++) {
+							System.arraycopy(w, wIndex(k, j, 0), deliveriesFromFacility, k * R, R);
+						}
+						productFromFacility[j] = new GRBLinExpr();
+						addTerms(productFromFacility[j], throughputOnes, deliveriesFromFacility);
+					}
+				});
+			} catch (GRBException e) {
+				logConstraintError("facility activity level", e);
+				return false;
+			}
+			if(!addActivityLevelConstraints(productFromFacility)) {
+				return false;
+			}
+			
+			//Facility Product Flow Balance
+			GRBLinExpr[] balanceRows = new GRBLinExpr[J * K];
+			String[] balanceNames = useNames ? new String[J * K] : null;
+			double[] plantOnes = filled(I, 1);
+			double[] customerOnes = filled(R, -1);
+			try {
+				inParallel(J, (first, last) -> {
+					GRBVar[] plantsForFacility = new GRBVar[I];
+					for(int j = first; j < last; j++) {
+						for(int k = 0; k < K; k++) {
+							for(int i = 0; i < I; i++) {
+								plantsForFacility[i] = x[xIndex(k, i, j)];
+							}
+							int row = j * K + k;
+							balanceRows[row] = new GRBLinExpr();
+							balanceRows[row].addTerms(plantOnes, plantsForFacility);
+							addTerms(balanceRows[row], customerOnes, Arrays.copyOfRange(w, wIndex(k, j, 0), wIndex(k, j, 0) + R));
+							if(useNames) {
+								balanceNames[row] = "Product " + k + " flow balance at facility " + j;
+							}
+						}
+					}
+				});
+				balanceConstraints = model.addConstrs(balanceRows, senses(J * K, GRB.EQUAL), new double[J * K], balanceNames);
+			} catch (GRBException e) {
+				logConstraintError("flow balance", e);
+				return false;
+			}
+		} else {
+			//Divisible Demand
+			GRBLinExpr[] demandRows = new GRBLinExpr[R * K];
+			double[] demands = new double[R * K];
+			String[] demandNames = useNames ? new String[R * K] : null;
+			double[] routeOnes = filled(I * J, 1);
+			try {
+				inParallel(R, (first, last) -> {
+					GRBVar[] routesToCustomer = new GRBVar[I * J];
+					for(int r = first; r < last; r++) {
+						for(int k = 0; k < K; k++) {
+							for(int i = 0; i < I; i++) {
+								for(int j = 0; j < J; j++) {
+									routesToCustomer[i * J + j] = s[sIndex(k, i, j, r)];
+								}
+							}
+							int row = r * K + k;
+							demandRows[row] = new GRBLinExpr();
+							addTerms(demandRows[row], routeOnes, routesToCustomer);
+							demands[row] = instance.demand(r, k);
+							if(useNames) {
+								demandNames[row] = "Customer " + r + " demand";
+							}
+						}
+					}
+				});
+				demandConstraints = model.addConstrs(demandRows, senses(R * K, GRB.EQUAL), demands, demandNames);
+			} catch (GRBException e) {
+				logConstraintError("demand", e);
+				return false;
+			}
+			
+			//Production Plant Capacity
+			GRBLinExpr[] capacityRows = new GRBLinExpr[I * K];
+			double[] capacities = new double[I * K];
+			String[] capacityNames = useNames ? new String[I * K] : null;
+			double[] deliveryOnes = filled(J * R, 1);
+			try {
+				inParallel(I * K, (first, last) -> {
+					for(int row = first; row < last; row++) {
+						int i = row / K;
+						int k = row % K;
+						capacityRows[row] = new GRBLinExpr();
+						addTerms(capacityRows[row], deliveryOnes, Arrays.copyOfRange(s, sIndex(k, i, 0, 0), sIndex(k, i, 0, 0) + J * R));
+						capacities[row] = instance.capacity(i, k);
+						if(useNames) {
+							capacityNames[row] = "Product " + k + " capacity at plant " + i;
+						}
+					}
+				});
+				capacityConstraints = model.addConstrs(capacityRows, senses(I * K, GRB.LESS_EQUAL), capacities, capacityNames);
+			} catch (GRBException e) {
+				logConstraintError("plant capacity", e);
+				return false;
+			}
+			
+			//Maximum and Minimum Facility Activity Level
+			GRBLinExpr[] productFromFacility = new GRBLinExpr[J];
+			double[] throughputOnes = filled(K * I * R, 1);
+			try {
+				inParallel(J, (first, last) -> {
+					GRBVar[] routesThroughFacility = new GRBVar[K * I * R];
+					for(int j = first; j < last; j++) {
+						for(int k = 0; k < K; k++) {
+							for(int i = 0; i < I; i++) {
+								System.arraycopy(s, sIndex(k, i, j, 0), routesThroughFacility, (k * I + i) * R, R);
+							}
+						}
+						productFromFacility[j] = new GRBLinExpr();
+						addTerms(productFromFacility[j], throughputOnes, routesThroughFacility);
+					}
+				});
+			} catch (GRBException e) {
+				logConstraintError("facility activity level", e);
+				return false;
+			}
+			if(!addActivityLevelConstraints(productFromFacility)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * This method adds the production plant capacity constraints on the plant to facility flows x.
+	 * 
+	 * @return true if the constraints were added, false otherwise
+	 */
+	private boolean addPlantCapacityConstraints() {
+		GRBLinExpr[] capacityRows = new GRBLinExpr[I * K];
+		double[] capacities = new double[I * K];
+		String[] capacityNames = useNames ? new String[I * K] : null;
+		double[] ones = filled(J, 1);
+		try {
+			for (int i = 0; i < I; i++) {
+				for (int k = 0; k < K; k++) {
+					int row = i * K + k;
+					capacityRows[row] = new GRBLinExpr();
+					capacityRows[row].addTerms(ones, Arrays.copyOfRange(x, xIndex(k, i, 0), xIndex(k, i, 0) + J));
+					capacities[row] = instance.capacity(i, k);
+					if(useNames) {
+						capacityNames[row] = "Product " + k + " capacity at plant " + i;
+					}
+				}
+			}
+			capacityConstraints = model.addConstrs(capacityRows, senses(I * K, GRB.LESS_EQUAL), capacities, capacityNames);
+		} catch (GRBException e) {
+			logConstraintError("plant capacity", e);
+			return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * This method adds the maximum and minimum activity level constraints of every facility. The product leaving
+	 * each facility is built once by the caller and shared by both rows.
+	 * 
+	 * @param productFromFacility the total product leaving each facility
+	 * @return true if the constraints were added, false otherwise
+	 */
+	private boolean addActivityLevelConstraints(GRBLinExpr[] productFromFacility) {
+		GRBLinExpr[] maxActivityRows = new GRBLinExpr[J];
+		GRBLinExpr[] minActivityRows = new GRBLinExpr[J];
+		String[] maxActivityNames = useNames ? new String[J] : null;
+		String[] minActivityNames = useNames ? new String[J] : null;
+		for (int j = 0; j < J; j++) {
+			maxActivityRows[j] = productFromFacility[j];
+			minActivityRows[j] = new GRBLinExpr(productFromFacility[j]);
+			maxActivityRows[j].addTerm(-instance.maxActivity(j), z[j]);
+			minActivityRows[j].addTerm(-instance.minActivity(j), z[j]);
+			if(useNames) {
+				maxActivityNames[j] = "Facility " + j + " maximum activity level";
+				minActivityNames[j] = "Facility " + j + " minimum activity level";
+			}
+		}
+		try {
+			maxActivityConstraints = model.addConstrs(maxActivityRows, senses(J, GRB.LESS_EQUAL), new double[J], maxActivityNames);
+		} catch (GRBException e) {
+			logConstraintError("facility maximum activity level", e);
+			return false;
+		}
+		try {
+			minActivityConstraints = model.addConstrs(minActivityRows, senses(J, GRB.GREATER_EQUAL), new double[J], minActivityNames);
+		} catch (GRBException e) {
+			logConstraintError("facility minimum activity level", e);
+			return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * This method runs a piece of the model build over a range of indices, split into blocks run in parallel on the
+	 * common fork join pool. Each block must write only its own entries of shared arrays.
+	 * 
+	 * @param count the number of indices
+	 * @param block the work on a block of indices
+	 * @throws GRBException if a block fails
+	 */
+	private static void inParallel(int count, BuildBlock block) throws GRBException {
+		int blocks = ForkJoinPool.getCommonPoolParallelism() * BLOCKS_PER_THREAD;
+		int blockSize = Math.max(1, (count + blocks - 1) / blocks);
+		if(blockSize >= count) {
+			block.build(0, count);
+			return;
+		}
+		List<RecursiveAction> actions = new ArrayList<>();
+		for(int first = 0; first < count; first += blockSize) {
+			int start = first;
+			int end = Math.min(count, first + blockSize);
+			actions.add(new RecursiveAction() {
+				@Override
+				protected void compute() {
+					try {
+						block.build(start, end);
+					} catch (GRBException e) {
+						throw new BuildException(e);
+					}
+				}
+			});
+		}
+		try {
+			ForkJoinTask.invokeAll(actions);
+		} catch (BuildException e) {
+			throw e.getCause();
+		}
+	}
+	
+	/**
+	 * This interface is the work on a block of indices of the model build.
+	 */
+	private interface BuildBlock {
+		
+		/**
+		 * @param first the first index of the block
+		 * @param last one past the last index of the block
+		 * @throws GRBException if a row cannot be built
+		 */
+		void build(int first, int last) throws GRBException;
+		
+	}
+	
+	/**
+	 * This class carries an error of a parallel block back to the building thread.
+	 */
+	private static final class BuildException extends RuntimeException {
+		
+		private static final long serialVersionUID = 1L;
+		
+		/**
+		 * @param cause the error of the block
+		 */
+		private BuildException(GRBException cause) {
+			super(cause);
+		}
+		
+		@Override
+		public synchronized GRBException getCause() {
+			return (GRBException) super.getCause();
+		}
+		
+	}
+	
+	/**
+	 * This method adds terms to a row, leaving out the null entries of pairs which are not candidates.
+	 * 
+	 * @param row the row
+	 * @param coefficients the coefficient of each variable
+	 * @param vars the variables, null for pairs which are not candidates
+	 * @throws GRBException if the terms cannot be added
+	 */
+	private static void addTerms(GRBLinExpr row, double[] coefficients, GRBVar[] vars) throws GRBException {
+		int count = 0;
+		for(GRBVar var : vars) {
+			if(var != null) {
+				count++;
+			}
+		}
+		if(count == vars.length) {
+			row.addTerms(coefficients, vars);
+			return;
+		}
+		double[] candidateCoefficients = new double[count];
+		GRBVar[] candidateVars = new GRBVar[count];
+		int n = 0;
+		for(int index = 0; index < vars.length; index++) {
+			if(vars[index] != null) {
+				candidateCoefficients[n] = coefficients[index];
+				candidateVars[n++] = vars[index];
+			}
+		}
+		row.addTerms(candidateCoefficients, candidateVars);
+	}
+	
+	/**
+	 * This method creates the sense array for a family of constraints which all share the same sense.
+	 * 
+	 * @param count the number of constraints
+	 * @param sense the sense of every constraint
+	 * @return the sense array
+	 */
+	private static char[] senses(int count, char sense) {
+		char[] senses = new char[count];
+		Arrays.fill(senses, sense);
+		return senses;
+	}
+	
+	/**
+	 * This method logs constraint errors.
+	 * 
+	 * @param constraint the constraint being added to the model
+	 * @param e the exception
+	 */
+	private static void logConstraintError(String constraint, Exception e) {
+		LOGGER.log(Level.SEVERE, "Error adding " + constraint + " constraint. " + e.getMessage());
+	}
+	
+	/**
+	 * This model prints the solution to the console. The values of each decision variable family are fetched from
+	 * gurobi in bulk rather than one variable at a time.
+	 * 
+	 */
+	public void printSolution() {
+		System.out.println();
+		System.out.println("***OPTIMAL SOLUTION***");
+		System.out.println();
+		
+		try {
+			System.out.println("Total Cost: " + model.get(GRB.DoubleAttr.ObjVal));
+		} catch (GRBException e) {
+			LOGGER.log(Level.SEVERE, "Error obtaining objective function value. Model is likely infeasible... see details above. " + e.getMessage());
+			return;
+		}
+		System.out.println();
+		
+		new SolutionPrinter(instance, allocation, this::getSolutionValues).print();
+	}
+	
+	/**
+	 * This method streams the nonzero values of the incumbent solution to a CSV or JSON file (see SolutionWriter).
+	 * The values are fetched from gurobi in bulk, a bounded chunk at a time, so only the nonzeros are formatted and
+	 * the dense flow arrays are never held at once.
+	 * 
+	 * @param filePath the path to the solution file, JSON if it ends in .json and CSV otherwise
+	 * @return true if the file was written, false otherwise
+	 */
+	public boolean writeSolution(String filePath) {
+		try {
+			if(model.get(GRB.IntAttr.SolCount) == 0) {
+				LOGGER.log(Level.SEVERE, "Error writing solution file. Model has no solution... see details above.");
+				return false;
+			}
+			SolutionPrinter printer = new SolutionPrinter(instance, allocation, this::getSolutionValues);
+			return printer.write(filePath, model.get(GRB.DoubleAttr.ObjVal), model.get(GRB.IntAttr.Status));
+		} catch (GRBException e) {
+			LOGGER.log(Level.SEVERE, "Error obtaining solution values. " + e.getMessage());
+			return false;
+		}
+	}
+	
+	/**
+	 * This method fetches a range of the solution values of a decision variable family (see SolutionPrinter).
+	 * 
+	 * @param family the decision variable family, z, x, y, w or s
+	 * @param from the first flat index
+	 * @param to one past the last flat index
+	 * @return the value of each variable in the range, 0 for pairs which are not candidates
+	 * @throws GRBException if the values cannot be obtained
+	 */
+	private double[] getSolutionValues(String family, int from, int to) throws GRBException {
+		GRBVar[] vars;
+		switch(family) {
+		case "z":
+			vars = z;
+			break;
+		case "x":
+			vars = x;
+			break;
+		case "y":
+			vars = y;
+			break;
+		case "w":
+			vars = w;
+			break;
+		default:
+			vars = s;
+			break;
+		}
+		return getValues(GRB.DoubleAttr.X, from == 0 && to == vars.length ? vars : Arrays.copyOfRange(vars, from, to));
+	}
+	
+	/**
+	 * This method obtains an attribute of a family of decision variables in one call.
+	 * 
+	 * @param attribute the attribute, such as X
+	 * @param vars the decision variables, null for pairs which are not candidates
+	 * @return the value of each variable, 0 for pairs which are not candidates
+	 * @throws GRBException if the values cannot be obtained
+	 */
+	private double[] getValues(GRB.DoubleAttr attribute, GRBVar[] vars) throws GRBException {
+		GRBVar[] candidateVars = candidateVars(vars);
+		if(candidateVars == vars) {
+			return model.get(attribute, vars);
+		}
+		double[] candidateValues = model.get(attribute, candidateVars);
+		double[] values = new double[vars.length];
+		int n = 0;
+		for(int index = 0; index < vars.length; index++) {
+			if(vars[index] != null) {
+				values[index] = candidateValues[n++];
+			}
+		}
+		return values;
+	}
+	
+	/**
+	 * This method sets an attribute of a family of decision variables in one call.
+	 * 
+	 * @param attribute the attribute, such as Start
+	 * @param vars the decision variables, null for pairs which are not candidates
+	 * @param values the value of each variable, ignored for pairs which are not candidates
+	 * @throws GRBException if the values cannot be set
+	 */
+	private void setValues(GRB.DoubleAttr attribute, GRBVar[] vars, double[] values) throws GRBException {
+		GRBVar[] candidateVars = candidateVars(vars);
+		if(candidateVars == vars) {
+			model.set(attribute, vars, values);
+			return;
+		}
+		double[] candidateValues = new double[candidateVars.length];
+		int n = 0;
+		for(int index = 0; index < vars.length; index++) {
+			if(vars[index] != null) {
+				candidateValues[n++] = values[index];
+			}
+		}
+		model.set(attribute, candidateVars, candidateValues);
+	}
+	
+	/**
+	 * @param vars the decision variables, null for pairs which are not candidates
+	 * @return the variables without the null entries, or vars itself if it has none
+	 */
+	private static GRBVar[] candidateVars(GRBVar[] vars) {
+		int count = 0;
+		for(GRBVar var : vars) {
+			if(var != null) {
+				count++;
+			}
+		}
+		if(count == vars.length) {
+			return vars;
+		}
+		GRBVar[] candidateVars = new GRBVar[count];
+		int n = 0;
+		for(GRBVar var : vars) {
+			if(var != null) {
+				candidateVars[n++] = var;
+			}
+		}
+		return candidateVars;
+	}
+	
+	/**
+	 * This method logs errors when obtaining the decision variable values.
+	 * 
+	 * @param decisionVariable the decision variable being obtained
+	 * @param e the exception
+	 */
+	private static void logDecisionVariableValue(String decisionVariable, Exception e) {
+		LOGGER.log(Level.SEVERE, "Error obtaining " + decisionVariable + " decision variable value. " + e.getMessage());
+	}
+	
+}
@@ -0,0 +1,127 @@
+/**
+ * This interface is a backend which builds and solves the model of one CFLP instance. CFLPModel solves it with
+ * gurobi and JavaCFLPModel solves it in pure java with a bounded simplex and branch and bound, so small instances
+ * can be solved without a gurobi licence. Both build the same single allocation, divisible demand or arc-flow
+ * formulation and print and write their solutions in the same format (see SolutionPrinter).
+ *
+ * @author ryanhow
+ *
+ */
+
+public interface CFLPSolver {
+
+	/**
+	 * This method adds the decision variables, objective and constraints to the model.
+	 *
+	 * @return true if the model was built, false otherwise
+	 */
+	boolean build();
+
+	/**
+	 * This method changes the desired number of open facilities of a built model.
+	 *
+	 * @param p the desired number of open facilities
+	 * @return true if the model was changed, false otherwise
+	 */
+	boolean setDesiredFacilities(int p);
+
+	/**
+	 * This method gives the solver a single allocation solution as a starting incumbent.
+	 *
+	 * @param solution the single allocation solution
+	 * @return true if the start was set, false otherwise
+	 */
+	boolean setStart(SingleAllocationSolution solution);
+
+	/**
+	 * This method gives the solver the open facilities of a starting incumbent and leaves it to complete the other
+	 * variables.
+	 *
+	 * @param open if each facility is open or not
+	 * @return true if the start was set, false otherwise
+	 */
+	boolean setStart(boolean[] open);
+
+	/**
+	 * This method solves the model.
+	 *
+	 * @return true if the solver finished, false otherwise
+	 */
+	boolean optimize();
+
+	/**
+	 * @return true if the last solve found a feasible solution
+	 */
+	boolean hasSolution();
+
+	/**
+	 * @return the objective of the incumbent, or NaN without one
+	 */
+	double getObjective();
+
+	/**
+	 * @return the best lower bound of the last solve
+	 */
+	double getBound();
+
+	/**
+	 * @return the relative gap between the incumbent and the bound
+	 */
+	double getGap();
+
+	/**
+	 * @return the wall clock time of the last solve in seconds
+	 */
+	double getRuntime();
+
+	/**
+	 * @return gurobi's status code of the last solve, or GRB.Status.LOADED before the first
+	 */
+	int getStatus();
+
+	/**
+	 * @return the number of branch and bound nodes of the last solve
+	 */
+	long getNodes();
+
+	/**
+	 * @return the number of variables of the model
+	 */
+	int numVariables();
+
+	/**
+	 * @return the number of constraints of the model
+	 */
+	int numConstraints();
+
+	/**
+	 * @return the number of nonzero constraint coefficients of the model
+	 */
+	long numNonzeros();
+
+	/**
+	 * This method obtains the open facilities of the incumbent solution.
+	 *
+	 * @return if each facility is open or not, or null if there is no incumbent
+	 */
+	boolean[] getOpenFacilities();
+
+	/**
+	 * This method prints the solution to the console.
+	 */
+	void printSolution();
+
+	/**
+	 * This method writes the nonzero values of the incumbent solution to a CSV or JSON file (see SolutionWriter).
+	 *
+	 * @param filePath the path to the solution file, JSON if it ends in .json and CSV otherwise
+	 * @return true if the file was written, false otherwise
+	 */
+	boolean writeSolution(String filePath);
+
+	/**
+	 * This method releases the resources of the model.
+	 */
+	void dispose();
+
+}
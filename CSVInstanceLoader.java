@@ -0,0 +1,565 @@
+/**
+ * This class loads the 9 CSV instance files (see README.md) into a CFLPInstance. Every file is memory-mapped and
+ * its numbers are parsed directly from the mapped bytes. Large files are split into row ranges which are parsed in
+ * parallel and the 9 files are loaded concurrently.
+ *
+ * A coordinate instance replaces the 2 distance files with 3 location files of the plants, facilities and
+ * customers, one x, y or latitude, longitude pair per row, and its distances are computed on demand (see
+ * CoordinateDistances).
+ *
+ * @author ryanhow
+ *
+ */
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+public class CSVInstanceLoader {
+
+	private static final long MIN_CHUNK_SIZE = 4L << 20; //Files smaller than this are parsed by a single task
+	private static final long MAX_CHUNK_SIZE = 1L << 30; //Mapped regions must stay well below 2GB
+	private static final int BOUNDARY_WINDOW = 4096; //Bytes read at a time when searching for the end of a line
+
+	//Names of the 9 instance files inside an instance directory, in the order of the command line arguments
+	public static final String[] FILE_NAMES = {
+		"demands.csv", "plant_capacities.csv", "min_activities.csv", "max_activities.csv", "fixed_costs.csv",
+		"marginal_costs.csv", "unit_transportation_costs.csv", "plant_to_facility_distances.csv",
+		"facility_to_customer_distances.csv"
+	};
+
+	//Names of the 10 files of a coordinate instance inside an instance directory, in the order of the command line arguments
+	public static final String[] COORDINATE_FILE_NAMES = {
+		"demands.csv", "plant_capacities.csv", "min_activities.csv", "max_activities.csv", "fixed_costs.csv",
+		"marginal_costs.csv", "unit_transportation_costs.csv", "plant_locations.csv", "facility_locations.csv",
+		"customer_locations.csv"
+	};
+
+	private static final double[] POWERS_OF_TEN = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+		1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+
+	private CSVInstanceLoader() {
+	}
+
+	/**
+	 * This method obtains the paths of the instance files inside an instance directory, the 10 files of a coordinate
+	 * instance if the directory holds customer locations but no facility to customer distances and the 9 files
+	 * otherwise.
+	 *
+	 * @param directory the instance directory
+	 * @return the paths, in the order of the command line arguments
+	 */
+	public static String[] instanceFiles(String directory) {
+		boolean coordinates = !Files.exists(Paths.get(directory, FILE_NAMES[8])) && Files.exists(Paths.get(directory, COORDINATE_FILE_NAMES[9]));
+		String[] fileNames = coordinates ? COORDINATE_FILE_NAMES : FILE_NAMES;
+		String[] filePaths = new String[fileNames.length];
+		for(int file = 0; file < fileNames.length; file++) {
+			filePaths[file] = Paths.get(directory, fileNames[file]).toString();
+		}
+		return filePaths;
+	}
+
+	/**
+	 * This method loads an instance from the 9 CSV files, or the 10 of a coordinate instance with euclidean
+	 * distances, in the order of the command line arguments.
+	 *
+	 * @param filePaths the paths to the instance files
+	 * @return the instance
+	 * @throws IOException if a file cannot be read or is malformed
+	 */
+	public static CFLPInstance load(String[] filePaths) throws IOException {
+		return load(filePaths, DistanceMetric.EUCLIDEAN, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * This method loads an instance from the 9 CSV files, or the 10 of a coordinate instance, in the order of the
+	 * command line arguments.
+	 *
+	 * @param filePaths the paths to the instance files
+	 * @param metric the metric of the distances of a coordinate instance
+	 * @return the instance
+	 * @throws IOException if a file cannot be read or is malformed
+	 */
+	public static CFLPInstance load(String[] filePaths, DistanceMetric metric) throws IOException {
+		return load(filePaths, metric, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * This method loads an instance from the 9 CSV files, or the 10 of a coordinate instance with euclidean
+	 * distances, in the order of the command line arguments.
+	 *
+	 * @param filePaths the paths to the instance files
+	 * @param pool the pool parsing the files
+	 * @return the instance
+	 * @throws IOException if a file cannot be read or is malformed
+	 */
+	public static CFLPInstance load(String[] filePaths, ForkJoinPool pool) throws IOException {
+		return load(filePaths, DistanceMetric.EUCLIDEAN, pool);
+	}
+
+	/**
+	 * This method loads an instance from the 9 CSV files, or the 10 of a coordinate instance, in the order of the
+	 * command line arguments.
+	 *
+	 * @param filePaths the paths to the instance files
+	 * @param metric the metric of the distances of a coordinate instance
+	 * @param pool the pool parsing the files
+	 * @return the instance
+	 * @throws IOException if a file cannot be read or is malformed
+	 */
+	public static CFLPInstance load(String[] filePaths, DistanceMetric metric, ForkJoinPool pool) throws IOException {
+		if(filePaths.length != 9 && filePaths.length != 10) {
+			throw new IllegalArgumentException("Expected 9 or 10 instance files but found " + filePaths.length + ".");
+		}
+
+		List<ForkJoinTask<Matrix>> files = new ArrayList<>();
+		for(int file = 0; file < filePaths.length; file++) {
+			String filePath = filePaths[file];
+			boolean integers = file < 4; //Demands, capacities and activity levels are integers
+			files.add(pool.submit(() -> parse(filePath, integers)));
+		}
+
+		Matrix demands = join(files.get(0));
+		Matrix capacities = join(files.get(1));
+		Matrix minActivities = join(files.get(2));
+		Matrix maxActivities = join(files.get(3));
+		Matrix fixedCosts = join(files.get(4));
+		Matrix marginalCosts = join(files.get(5));
+		Matrix unitCosts = join(files.get(6));
+
+		int R = demands.rows;
+		int K = demands.columns;
+		int I = capacities.rows;
+		int J = minActivities.integers.length;
+		try {
+			Distances distances;
+			if(filePaths.length == 10) {
+				Matrix[] locations = new Matrix[3];
+				for(int file = 7; file < 10; file++) {
+					locations[file - 7] = join(files.get(file));
+					if(locations[file - 7].rows > 0 && locations[file - 7].columns != 2) {
+						throw new IOException("File '" + filePaths[file] + "' has " + locations[file - 7].columns + " values per row where 2 coordinates were expected.");
+					}
+				}
+				distances = new CoordinateDistances(I, J, R, locations[0].doubles, locations[1].doubles, locations[2].doubles, metric);
+			} else {
+				distances = new MatrixDistances(I, J, R, join(files.get(7)).doubles, join(files.get(8)).doubles);
+			}
+			return new CFLPInstance(K, I, J, R, demands.integers, capacities.integers, minActivities.integers, maxActivities.integers,
+					fixedCosts.doubles, marginalCosts.doubles, unitCosts.doubles, distances);
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Inconsistent instance files. " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * This method waits for a file to be parsed, unwrapping the exception thrown by the parser.
+	 *
+	 * @param file the task parsing the file
+	 * @return the parsed file
+	 * @throws IOException if the file could not be parsed
+	 */
+	private static Matrix join(ForkJoinTask<Matrix> file) throws IOException {
+		try {
+			return file.join();
+		} catch (RuntimeException e) {
+			for(Throwable cause = e; cause != null; cause = cause.getCause()) {
+				if(cause instanceof IOException) {
+					throw (IOException) cause;
+				}
+			}
+			throw new IOException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * This method parses a whole file into a row-major matrix.
+	 *
+	 * @param filePath the path to the file
+	 * @param integers true if the file holds integers, false if it holds doubles
+	 * @return the parsed file
+	 * @throws IOException if the file cannot be read or is malformed
+	 */
+	static Matrix parse(String filePath, boolean integers) throws IOException {
+		try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+			List<Chunk> chunks = split(channel, filePath);
+
+			//First pass counts the rows of every chunk so each one knows where its values go
+			ForkJoinTask.invokeAll(chunks.stream().map(chunk -> action(chunk::countRows)).toArray(RecursiveAction[]::new));
+
+			int columns = 0;
+			long rows = 0;
+			for(Chunk chunk : chunks) {
+				chunk.firstRow = rows;
+				rows += chunk.rows;
+				if(columns == 0) {
+					columns = chunk.columns;
+				}
+			}
+			if(rows * columns > Integer.MAX_VALUE) {
+				throw new IOException("File '" + filePath + "' has too many values (" + rows * columns + ").");
+			}
+
+			Matrix matrix = new Matrix((int) rows, columns, integers);
+			ForkJoinTask.invokeAll(chunks.stream().map(chunk -> action(() -> chunk.parse(matrix))).toArray(RecursiveAction[]::new));
+			return matrix;
+		}
+	}
+
+	/**
+	 * This method splits a file into memory-mapped chunks which each end on a line break.
+	 *
+	 * @param channel the channel of the file
+	 * @param filePath the path to the file
+	 * @return the chunks of the file
+	 * @throws IOException if the file cannot be mapped
+	 */
+	private static List<Chunk> split(FileChannel channel, String filePath) throws IOException {
+		long size = channel.size();
+		long parallelism = ForkJoinPool.getCommonPoolParallelism();
+		long chunkSize = Math.min(MAX_CHUNK_SIZE, Math.max(MIN_CHUNK_SIZE, size / (parallelism * 4)));
+
+		List<Chunk> chunks = new ArrayList<>();
+		long start = 0;
+		while(start < size) {
+			long end = start + chunkSize >= size ? size : nextLineStart(channel, start + chunkSize, size);
+			if(end - start > Integer.MAX_VALUE) {
+				throw new IOException("File '" + filePath + "' has a line longer than " + Integer.MAX_VALUE + " bytes.");
+			}
+			chunks.add(new Chunk(filePath, channel.map(FileChannel.MapMode.READ_ONLY, start, end - start)));
+			start = end;
+		}
+		return chunks;
+	}
+
+	/**
+	 * This method finds the start of the first line after a position.
+	 *
+	 * @param channel the channel of the file
+	 * @param position the position to search from
+	 * @param size the size of the file
+	 * @return the position following the next line break, or the size of the file if there is none
+	 * @throws IOException if the file cannot be read
+	 */
+	private static long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+		ByteBuffer window = ByteBuffer.allocate(BOUNDARY_WINDOW);
+		while(position < size) {
+			window.clear();
+			int read = channel.read(window, position);
+			if(read <= 0) {
+				break;
+			}
+			for(int index = 0; index < read; index++) {
+				if(window.get(index) == '\n') {
+					return position + index + 1;
+				}
+			}
+			position += read;
+		}
+		return size;
+	}
+
+	/**
+	 * This method wraps a parsing step into a fork join action.
+	 *
+	 * @param step the parsing step
+	 * @return the action
+	 */
+	private static RecursiveAction action(ParseStep step) {
+		return new RecursiveAction() {
+			@Override
+			protected void compute() {
+				try {
+					step.run();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+		};
+	}
+
+	/**
+	 * This interface is a parsing step which may fail on malformed input.
+	 */
+	private interface ParseStep {
+		void run() throws IOException;
+	}
+
+	/**
+	 * This class holds the values of a parsed file in row-major order.
+	 */
+	static final class Matrix {
+		final int rows;
+		final int columns;
+		final int[] integers; //Values of an integer file, null otherwise
+		final double[] doubles; //Values of a double file, null otherwise
+
+		Matrix(int rows, int columns, boolean integers) {
+			this.rows = rows;
+			this.columns = columns;
+			this.integers = integers ? new int[rows * columns] : null;
+			this.doubles = integers ? null : new double[rows * columns];
+		}
+	}
+
+	/**
+	 * This class is a memory-mapped range of whole lines of a file.
+	 */
+	private static final class Chunk {
+		private final String filePath;
+		private final MappedByteBuffer buffer;
+		private long rows; //Number of non-blank lines in the chunk
+		private int columns; //Number of values on the first non-blank line in the chunk
+		private long firstRow; //Row of the file the first line of the chunk belongs to
+		private int position;
+
+		Chunk(String filePath, MappedByteBuffer buffer) {
+			this.filePath = filePath;
+			this.buffer = buffer;
+		}
+
+		/**
+		 * This method counts the non-blank lines of the chunk and the values on its first line.
+		 */
+		void countRows() {
+			int limit = buffer.limit();
+			boolean content = false;
+			int commas = 0;
+			for(int index = 0; index < limit; index++) {
+				byte b = buffer.get(index);
+				if(b == '\n') {
+					if(content) {
+						rows++;
+						content = false;
+					}
+				} else if(!isBlank(b)) {
+					content = true;
+					if(rows == 0 && b == ',') {
+						commas++;
+					}
+				}
+			}
+			if(content) {
+				rows++;
+			}
+			columns = rows > 0 ? commas + 1 : 0;
+		}
+
+		/**
+		 * This method parses every line of the chunk into its rows of the matrix.
+		 *
+		 * @param matrix the matrix of the whole file
+		 * @throws IOException if a line is malformed
+		 */
+		void parse(Matrix matrix) throws IOException {
+			int limit = buffer.limit();
+			int index = (int) (firstRow * matrix.columns);
+			long row = firstRow;
+			position = 0;
+			while(position < limit) {
+				skipBlanks(limit);
+				if(position >= limit) {
+					break;
+				}
+				if(buffer.get(position) == '\n') {
+					position++;
+					continue;
+				}
+
+				int values = 0;
+				while(true) {
+					if(values == matrix.columns) {
+						throw malformed(row, "more than " + matrix.columns + " values");
+					}
+					if(matrix.integers != null) {
+						matrix.integers[index++] = nextInteger(limit, row);
+					} else {
+						matrix.doubles[index++] = nextDouble(limit, row);
+					}
+					values++;
+					skipBlanks(limit);
+					if(position < limit && buffer.get(position) == ',') {
+						position++;
+						skipBlanks(limit);
+						continue;
+					}
+					break;
+				}
+				if(position < limit && buffer.get(position) != '\n') {
+					throw malformed(row, "unexpected character '" + (char) buffer.get(position) + "'");
+				}
+				if(values != matrix.columns) {
+					throw malformed(row, values + " values where " + matrix.columns + " were expected");
+				}
+				position++;
+				row++;
+			}
+		}
+
+		/**
+		 * This method skips spaces, tabs and carriage returns.
+		 *
+		 * @param limit the end of the chunk
+		 */
+		private void skipBlanks(int limit) {
+			while(position < limit && isBlank(buffer.get(position))) {
+				position++;
+			}
+		}
+
+		/**
+		 * This method parses an integer starting at the current position.
+		 *
+		 * @param limit the end of the chunk
+		 * @param row the row being parsed
+		 * @return the integer
+		 * @throws IOException if there is no integer at the current position
+		 */
+		private int nextInteger(int limit, long row) throws IOException {
+			boolean negative = false;
+			if(position < limit && (buffer.get(position) == '-' || buffer.get(position) == '+')) {
+				negative = buffer.get(position) == '-';
+				position++;
+			}
+			int start = position;
+			long value = 0;
+			while(position < limit && isDigit(buffer.get(position))) {
+				value = value * 10 + (buffer.get(position) - '0');
+				if(value > Integer.MAX_VALUE + 1L) {
+					throw malformed(row, "an integer out of range");
+				}
+				position++;
+			}
+			if(position == start) {
+				throw malformed(row, "a missing integer");
+			}
+			value = negative ? -value : value;
+			if(value > Integer.MAX_VALUE) {
+				throw malformed(row, "an integer out of range");
+			}
+			return (int) value;
+		}
+
+		/**
+		 * This method parses a double starting at the current position. Values with at most 15 significant digits
+		 * and a small exponent are converted exactly without creating a String, anything else falls back to
+		 * Double.parseDouble.
+		 *
+		 * @param limit the end of the chunk
+		 * @param row the row being parsed
+		 * @return the double
+		 * @throws IOException if there is no number at the current position
+		 */
+		private double nextDouble(int limit, long row) throws IOException {
+			int start = position;
+			boolean negative = false;
+			if(position < limit && (buffer.get(position) == '-' || buffer.get(position) == '+')) {
+				negative = buffer.get(position) == '-';
+				position++;
+			}
+
+			long mantissa = 0;
+			int digits = 0;
+			int exponent = 0;
+			boolean seenDigit = false;
+			while(position < limit && isDigit(buffer.get(position))) {
+				seenDigit = true;
+				if(digits < 18) {
+					mantissa = mantissa * 10 + (buffer.get(position) - '0');
+					if(mantissa != 0) {
+						digits++;
+					}
+				} else {
+					exponent++;
+				}
+				position++;
+			}
+			if(position < limit && buffer.get(position) == '.') {
+				position++;
+				while(position < limit && isDigit(buffer.get(position))) {
+					seenDigit = true;
+					if(digits < 18) {
+						mantissa = mantissa * 10 + (buffer.get(position) - '0');
+						if(mantissa != 0) {
+							digits++;
+						}
+						exponent--;
+					}
+					position++;
+				}
+			}
+			if(!seenDigit) {
+				throw malformed(row, "a missing number");
+			}
+			if(position < limit && (buffer.get(position) == 'e' || buffer.get(position) == 'E')) {
+				position++;
+				boolean negativeExponent = false;
+				if(position < limit && (buffer.get(position) == '-' || buffer.get(position) == '+')) {
+					negativeExponent = buffer.get(position) == '-';
+					position++;
+				}
+				int exponentStart = position;
+				int explicitExponent = 0;
+				while(position < limit && isDigit(buffer.get(position))) {
+					explicitExponent = Math.min(explicitExponent * 10 + (buffer.get(position) - '0'), 100000);
+					position++;
+				}
+				if(position == exponentStart) {
+					throw malformed(row, "a malformed exponent");
+				}
+				exponent += negativeExponent ? -explicitExponent : explicitExponent;
+			}
+
+			if(digits <= 15 && Math.abs(exponent) < POWERS_OF_TEN.length) {
+				double value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+				return negative ? -value : value;
+			}
+			byte[] text = new byte[position - start];
+			for(int index = 0; index < text.length; index++) {
+				text[index] = buffer.get(start + index);
+			}
+			return Double.parseDouble(new String(text, StandardCharsets.US_ASCII));
+		}
+
+		/**
+		 * This method creates the exception describing a malformed line.
+		 *
+		 * @param row the row being parsed
+		 * @param problem what is wrong with the line
+		 * @return the exception
+		 */
+		private IOException malformed(long row, String problem) {
+			return new IOException("Row " + (row + 1) + " of file '" + filePath + "' has " + problem + ".");
+		}
+	}
+
+	/**
+	 * @param b the byte
+	 * @return true if the byte is a space, tab or carriage return
+	 */
+	private static boolean isBlank(byte b) {
+		return b == ' ' || b == '\t' || b == '\r';
+	}
+
+	/**
+	 * @param b the byte
+	 * @return true if the byte is an ASCII digit
+	 */
+	private static boolean isDigit(byte b) {
+		return b >= '0' && b <= '9';
+	}
+
+}
@@ -0,0 +1,132 @@
+/**
+ * This class chooses the facilities which may serve each customer before the model is built, so the assignment and
+ * flow variables of facility and customer pairs no sensible plan would use are never created. Each customer keeps
+ * its nearest facilities ranked by the cost of serving it with every product bought from its cheapest plant, which
+ * combines the transportation and marginal cost terms of the y, w and s variables, and loses the facilities farther
+ * away than a distance cutoff. The cheapest facility of every customer is always kept so that no customer is left
+ * without a candidate.
+ *
+ * @author ryanhow
+ *
+ */
+
+public class CandidateFilter {
+
+	private CandidateFilter() {
+	}
+
+	/**
+	 * This method chooses the candidate facilities of every customer.
+	 *
+	 * @param instance the CFLP instance
+	 * @param nearest the number of cheapest facilities kept per customer, or 0 to keep them all
+	 * @param maxDistance the largest facility to customer distance kept, or infinity for no cutoff
+	 * @return if facility j may serve customer r, indexed [j * R + r]
+	 */
+	public static boolean[] select(CFLPInstance instance, int nearest, double maxDistance) {
+		int K = instance.numProducts();
+		int I = instance.numPlants();
+		int J = instance.numFacilities();
+		int R = instance.numCustomers();
+		int kept = nearest <= 0 ? J : Math.min(nearest, J);
+
+		//Cost of product k at facility j from its cheapest plant, indexed [j * K + k]
+		double[] supplyCost = new double[J * K];
+		for(int j = 0; j < J; j++) {
+			for(int k = 0; k < K; k++) {
+				double cheapest = I == 0 ? 0 : Double.POSITIVE_INFINITY;
+				for(int i = 0; i < I; i++) {
+					cheapest = Math.min(cheapest, instance.unitCost(k) * instance.plantDistance(i, j));
+				}
+				supplyCost[j * K + k] = cheapest;
+			}
+		}
+
+		boolean[] candidates = new boolean[J * R];
+		double[] costs = new double[J];
+		int[] heap = new int[kept];
+		for(int r = 0; r < R; r++) {
+			int cheapest = -1;
+			for(int j = 0; j < J; j++) {
+				double cost = instance.assignmentCost(j, r);
+				for(int k = 0; k < K; k++) {
+					cost += supplyCost[j * K + k] * instance.demand(r, k);
+				}
+				costs[j] = cost;
+				if(cheapest == -1 || cost < costs[cheapest]) {
+					cheapest = j;
+				}
+			}
+			if(cheapest == -1) {
+				continue;
+			}
+
+			int size = selectCheapest(costs, heap);
+			for(int n = 0; n < size; n++) {
+				int j = heap[n];
+				if(instance.customerDistance(j, r) <= maxDistance) {
+					candidates[j * R + r] = true;
+				}
+			}
+			candidates[cheapest * R + r] = true;
+		}
+		return candidates;
+	}
+
+	/**
+	 * This method finds the cheapest facilities with a bounded max-heap, so each customer costs O(J log n) rather
+	 * than a full sort. Ties are broken by the lower facility index.
+	 *
+	 * @param costs the cost of serving the customer from each facility
+	 * @param heap receives the cheapest facilities in no particular order, its length is the number kept
+	 * @return the number of facilities in the heap
+	 */
+	private static int selectCheapest(double[] costs, int[] heap) {
+		int size = 0;
+		for(int j = 0; j < costs.length; j++) {
+			if(size < heap.length) {
+				//Sift the new facility up
+				int child = size++;
+				while(child > 0) {
+					int parent = (child - 1) / 2;
+					if(!isCostlier(costs, j, heap[parent])) {
+						break;
+					}
+					heap[child] = heap[parent];
+					child = parent;
+				}
+				heap[child] = j;
+			} else if(size > 0 && isCostlier(costs, heap[0], j)) {
+				//Replace the costliest kept facility and sift it down
+				int parent = 0;
+				while(true) {
+					int child = 2 * parent + 1;
+					if(child >= size) {
+						break;
+					}
+					if(child + 1 < size && isCostlier(costs, heap[child + 1], heap[child])) {
+						child++;
+					}
+					if(!isCostlier(costs, heap[child], j)) {
+						break;
+					}
+					heap[parent] = heap[child];
+					parent = child;
+				}
+				heap[parent] = j;
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * @param costs the cost of serving the customer from each facility
+	 * @param a a facility
+	 * @param b another facility
+	 * @return true if facility a ranks after facility b
+	 */
+	private static boolean isCostlier(double[] costs, int a, int b) {
+		return costs[a] > costs[b] || (costs[a] == costs[b] && a > b);
+	}
+
+}
@@ -0,0 +1,199 @@
+/**
+ * This class computes the distances of an instance on demand from the locations of its plants, facilities and
+ * customers, so an instance takes O(I + J + R) memory instead of the O(I * J + J * R) of the distance matrices. Each
+ * location is a pair of x, y coordinates, or of latitude, longitude in degrees for the haversine metric.
+ *
+ * The distances from a facility to every customer can be kept in a bounded cache of rows, which pays off when the
+ * cost loops read the same facility for many products and plants or the haversine metric makes each distance costly.
+ * A row is only cached once it has been read R times since it was last cached, so computing it never costs more than
+ * the reads it serves, and a full cache evicts a row that was not read since the clock hand last passed it.
+ *
+ * @author ryanhow
+ *
+ */
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+public class CoordinateDistances implements Distances {
+
+	private final DistanceMetric metric;
+	private final Locations plants;
+	private final Locations facilities;
+	private final Locations customers;
+
+	//Row Cache
+	private AtomicReferenceArray<double[]> rows; //Cached distances from facility j to every customer, or null without a cache
+	private int[] reads; //Reads of the row of facility j since it was last cached
+	private boolean[] referenced; //Whether the row of facility j was read since the clock hand last passed it
+	private int[] slots; //Facility whose row is held in each slot of the cache, or -1
+	private int hand; //Next slot considered for eviction
+
+	/**
+	 * This constructor creates the distances between locations given as flat arrays of coordinate pairs. The arrays
+	 * are not kept.
+	 *
+	 * @param I the number of production plants
+	 * @param J the number of candidate facility locations
+	 * @param R the number of customers
+	 * @param plants the location of plant i, indexed [i * 2 + coordinate]
+	 * @param facilities the location of facility j, indexed [j * 2 + coordinate]
+	 * @param customers the location of customer r, indexed [r * 2 + coordinate]
+	 * @param metric the metric of the distances
+	 */
+	public CoordinateDistances(int I, int J, int R, double[] plants, double[] facilities, double[] customers, DistanceMetric metric) {
+		CFLPInstance.checkLength("plant coordinates", plants.length, 2L * I);
+		CFLPInstance.checkLength("facility coordinates", facilities.length, 2L * J);
+		CFLPInstance.checkLength("customer coordinates", customers.length, 2L * R);
+		this.metric = metric;
+		this.plants = new Locations(plants, metric);
+		this.facilities = new Locations(facilities, metric);
+		this.customers = new Locations(customers, metric);
+	}
+
+	/**
+	 * This method sets the number of facility rows kept in the cache. It must be called before the distances are
+	 * read by more than one thread.
+	 *
+	 * @param cachedRows the number of rows of R distances cached, or 0 for no cache
+	 */
+	public void setCacheSize(int cachedRows) {
+		int J = facilities.x.length;
+		cachedRows = Math.min(cachedRows, J);
+		if(cachedRows <= 0) {
+			rows = null;
+			return;
+		}
+		rows = new AtomicReferenceArray<>(J);
+		reads = new int[J];
+		referenced = new boolean[J];
+		slots = new int[cachedRows];
+		Arrays.fill(slots, -1);
+		hand = 0;
+	}
+
+	@Override
+	public double plantDistance(int i, int j) {
+		return distance(plants, i, facilities, j);
+	}
+
+	@Override
+	public double customerDistance(int j, int r) {
+		if(rows == null) {
+			return distance(facilities, j, customers, r);
+		}
+		double[] row = rows.get(j);
+		if(row != null) {
+			referenced[j] = true;
+			return row[r];
+		}
+		//The count is not synchronized, a lost read only delays caching the row
+		if(++reads[j] < customers.x.length) {
+			return distance(facilities, j, customers, r);
+		}
+		return cache(j)[r];
+	}
+
+	/**
+	 * This method computes the row of a facility and places it in the cache, evicting the first row the clock hand
+	 * finds unreferenced.
+	 *
+	 * @param j the facility
+	 * @return the distances from facility j to every customer
+	 */
+	private double[] cache(int j) {
+		double[] row = new double[customers.x.length];
+		for(int r = 0; r < row.length; r++) {
+			row[r] = distance(facilities, j, customers, r);
+		}
+		synchronized(this) {
+			if(rows.get(j) != null) {
+				return rows.get(j);
+			}
+			while(slots[hand] != -1 && referenced[slots[hand]]) {
+				referenced[slots[hand]] = false;
+				hand = (hand + 1) % slots.length;
+			}
+			if(slots[hand] != -1) {
+				rows.set(slots[hand], null);
+			}
+			slots[hand] = j;
+			reads[j] = 0;
+			referenced[j] = true;
+			rows.set(j, row);
+			hand = (hand + 1) % slots.length;
+		}
+		return row;
+	}
+
+	/**
+	 * @param from the origins
+	 * @param origin the origin
+	 * @param to the destinations
+	 * @param destination the destination
+	 * @return the distance from the origin to the destination
+	 */
+	private double distance(Locations from, int origin, Locations to, int destination) {
+		return metric.distance(from.x[origin], from.y[origin], from.cos[origin], to.x[destination], to.y[destination], to.cos[destination]);
+	}
+
+	/**
+	 * @return the metric of the distances
+	 */
+	public DistanceMetric getMetric() {
+		return metric;
+	}
+
+	/**
+	 * @param i the production plant
+	 * @return the location of plant i
+	 */
+	public double[] plantLocation(int i) {
+		return plants.location(i);
+	}
+
+	/**
+	 * @param j the facility
+	 * @return the location of facility j
+	 */
+	public double[] facilityLocation(int j) {
+		return facilities.location(j);
+	}
+
+	/**
+	 * @param r the customer
+	 * @return the location of customer r
+	 */
+	public double[] customerLocation(int r) {
+		return customers.location(r);
+	}
+
+	/**
+	 * This class holds the locations of one set, with the cosine of each latitude computed once for the haversine
+	 * metric.
+	 */
+	private static final class Locations {
+		private final double[] x;
+		private final double[] y;
+		private final double[] cos; //Cosine of the latitude of each location, 0 for the euclidean metric
+
+		Locations(double[] coordinates, DistanceMetric metric) {
+			int count = coordinates.length / 2;
+			x = new double[count];
+			y = new double[count];
+			cos = new double[count];
+			for(int point = 0; point < count; point++) {
+				x[point] = coordinates[2 * point];
+				y[point] = coordinates[2 * point + 1];
+				if(metric == DistanceMetric.HAVERSINE) {
+					cos[point] = Math.cos(Math.toRadians(x[point]));
+				}
+			}
+		}
+
+		double[] location(int point) {
+			return new double[] {x[point], y[point]};
+		}
+	}
+
+}
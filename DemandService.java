@@ -0,0 +1,211 @@
+/**
+ * This class keeps a solved CFLP model alive and re-optimizes it as demands change (see README.md). Clients connect
+ * to a port on the loopback interface and send one command per line:
+ *
+ * demand <customer> <product> <demand> stages a new demand, customers and products numbered from 1 as printed
+ * solve patches the model with the staged demands and re-optimizes it from the previous incumbent
+ * open lists the open facilities of the incumbent
+ * quit closes the connection, discarding demands which were not solved
+ * shutdown closes the connection and stops the service
+ *
+ * Every command is answered with a single line starting with ok or error. Only the coefficients, costs and right hand
+ * sides which depend on the changed demands are replaced (see CFLPModel.updateDemands), so the time to patch the
+ * model grows with the number of changes rather than the size of the network.
+ *
+ * @author ryanhow
+ *
+ */
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import gurobi.*;
+
+public class DemandService {
+
+	private final static Logger LOGGER = Logger.getLogger(DemandService.class.getName());
+
+	private final CFLPModel model;
+	private final CFLPInstance instance;
+
+	//Staged Demands
+	private final List<int[]> staged = new ArrayList<>(); //Customer, product and demand of each change, numbered from 0
+
+	private boolean running;
+
+	/**
+	 * This constructor creates the service for a built model.
+	 *
+	 * @param model the CFLP model
+	 * @param instance the CFLP instance of the model
+	 */
+	public DemandService(CFLPModel model, CFLPInstance instance) {
+		this.model = model;
+		this.instance = instance;
+	}
+
+	/**
+	 * This method accepts connections on a port of the loopback interface, one at a time, until a client sends
+	 * shutdown.
+	 *
+	 * @param port the port
+	 * @throws IOException if the port cannot be opened
+	 */
+	public void serve(int port) throws IOException {
+		running = true;
+		try(ServerSocket server = new ServerSocket(port, 0, InetAddress.getLoopbackAddress())) {
+			System.out.println("Listening for demand updates on " + server.getInetAddress().getHostAddress() + ":" + server.getLocalPort());
+			while(running) {
+				try(Socket client = server.accept();
+						BufferedReader reader = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+						PrintWriter writer = new PrintWriter(new OutputStreamWriter(client.getOutputStream(), StandardCharsets.UTF_8), true)) {
+					handle(reader, writer);
+				} catch (IOException e) {
+					LOGGER.log(Level.SEVERE, "Error communicating with client. " + e.getMessage());
+				}
+				staged.clear();
+			}
+		}
+	}
+
+	/**
+	 * This method answers the commands of one connection until the client quits, shuts the service down or
+	 * disconnects.
+	 *
+	 * @param reader the commands of the client
+	 * @param writer the replies to the client
+	 * @throws IOException if the connection fails
+	 */
+	private void handle(BufferedReader reader, PrintWriter writer) throws IOException {
+		String line;
+		while((line = reader.readLine()) != null) {
+			String[] command = line.trim().split("\\s+");
+			switch(command[0]) {
+			case "":
+				continue;
+			case "demand":
+				writer.println(stage(command));
+				break;
+			case "solve":
+				writer.println(solve());
+				break;
+			case "open":
+				writer.println(openFacilities());
+				break;
+			case "quit":
+				writer.println("ok");
+				return;
+			case "shutdown":
+				running = false;
+				writer.println("ok");
+				return;
+			default:
+				writer.println("error Unknown command '" + command[0] + "'.");
+			}
+		}
+	}
+
+	/**
+	 * This method stages a new demand.
+	 *
+	 * @param command the demand command and its arguments
+	 * @return the reply
+	 */
+	private String stage(String[] command) {
+		if(command.length != 4) {
+			return "error Expected demand <customer> <product> <demand>.";
+		}
+		int r;
+		int k;
+		int demand;
+		try {
+			r = Integer.parseInt(command[1]) - 1;
+			k = Integer.parseInt(command[2]) - 1;
+			demand = Integer.parseInt(command[3]);
+		} catch (NumberFormatException e) {
+			return "error Invalid number '" + e.getMessage() + "'.";
+		}
+		if(r < 0 || r >= instance.numCustomers()) {
+			return "error Customer must be between 1 and " + instance.numCustomers() + ".";
+		}
+		if(k < 0 || k >= instance.numProducts()) {
+			return "error Product must be between 1 and " + instance.numProducts() + ".";
+		}
+		if(demand < 0) {
+			return "error Demand must not be negative.";
+		}
+		staged.add(new int[] {r, k, demand});
+		return "ok " + staged.size() + " staged";
+	}
+
+	/**
+	 * This method patches the model with the staged demands and re-optimizes it from the previous incumbent.
+	 *
+	 * @return the reply with the gurobi status, objective, number of changes and the patch and solve times in milliseconds
+	 */
+	private String solve() {
+		int changes = staged.size();
+		int[] customers = new int[changes];
+		int[] products = new int[changes];
+		int[] demands = new int[changes];
+		for(int change = 0; change < changes; change++) {
+			customers[change] = staged.get(change)[0];
+			products[change] = staged.get(change)[1];
+			demands[change] = staged.get(change)[2];
+		}
+		staged.clear();
+
+		long start = System.nanoTime();
+		if(!model.startFromIncumbent() || !model.updateDemands(customers, products, demands)) {
+			return "error Error updating model, see log.";
+		}
+		long patched = System.nanoTime();
+		if(!model.optimize()) {
+			return "error Error optimizing model, see log.";
+		}
+		long solved = System.nanoTime();
+
+		GRBModel gurobiModel = model.getModel();
+		try {
+			int status = gurobiModel.get(GRB.IntAttr.Status);
+			String objective = gurobiModel.get(GRB.IntAttr.SolCount) > 0 ? Double.toString(gurobiModel.get(GRB.DoubleAttr.ObjVal)) : "none";
+			return String.format(Locale.ROOT, "ok status %d objective %s changes %d patch_ms %.3f solve_ms %.3f", status, objective,
+					changes, (patched - start) / 1e6, (solved - patched) / 1e6);
+		} catch (GRBException e) {
+			LOGGER.log(Level.SEVERE, "Error obtaining objective function value. " + e.getMessage());
+			return "error Error obtaining objective function value, see log.";
+		}
+	}
+
+	/**
+	 * This method lists the open facilities of the incumbent.
+	 *
+	 * @return the reply with the open facilities numbered from 1
+	 */
+	private String openFacilities() {
+		boolean[] open = model.getOpenFacilities();
+		if(open == null) {
+			return "error No incumbent solution.";
+		}
+		StringBuilder reply = new StringBuilder("ok");
+		for(int j = 0; j < open.length; j++) {
+			if(open[j]) {
+				reply.append(' ').append(j + 1);
+			}
+		}
+		return reply.toString();
+	}
+
+}
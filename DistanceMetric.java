@@ -0,0 +1,69 @@
+/**
+ * This enum lists the metrics the distances of a coordinate instance can be computed with, selected by the
+ * --metric option (see README.md)
+ * 
+ * @author ryanhow
+ *
+ */
+public enum DistanceMetric {
+	
+	EUCLIDEAN("euclidean"), //Straight line distance between x, y coordinates
+	HAVERSINE("haversine"); //Great circle distance in kilometres between latitude, longitude coordinates in degrees
+	
+	private static final double EARTH_RADIUS = 6371.0088; //Mean radius of the earth in kilometres
+	
+	private final String argument;
+	
+	DistanceMetric(String argument) {
+		this.argument = argument;
+	}
+	
+	/**
+	 * This method obtains the command line argument selecting this metric.
+	 * 
+	 * @return the argument
+	 */
+	public String getArgument() {
+		return argument;
+	}
+	
+	/**
+	 * This method obtains the metric for a command line argument.
+	 * 
+	 * @param argument the command line argument
+	 * @return the metric, or null if the argument is not recognized
+	 */
+	public static DistanceMetric fromArgument(String argument) {
+		for(DistanceMetric metric : values()) {
+			if(metric.argument.equals(argument)) {
+				return metric;
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * This method computes the distance between two points. Haversine points give their latitude and longitude in
+	 * degrees along with the cosine of the latitude, which is the costly part of the formula.
+	 * 
+	 * @param x1 the x coordinate or latitude of the first point
+	 * @param y1 the y coordinate or longitude of the first point
+	 * @param cos1 the cosine of the latitude of the first point, unused by the euclidean metric
+	 * @param x2 the x coordinate or latitude of the second point
+	 * @param y2 the y coordinate or longitude of the second point
+	 * @param cos2 the cosine of the latitude of the second point, unused by the euclidean metric
+	 * @return the distance
+	 */
+	double distance(double x1, double y1, double cos1, double x2, double y2, double cos2) {
+		if(this == EUCLIDEAN) {
+			double dx = x1 - x2;
+			double dy = y1 - y2;
+			return Math.sqrt(dx * dx + dy * dy);
+		}
+		double latitude = Math.sin(Math.toRadians(x1 - x2) / 2);
+		double longitude = Math.sin(Math.toRadians(y1 - y2) / 2);
+		double a = latitude * latitude + cos1 * cos2 * longitude * longitude;
+		return 2 * EARTH_RADIUS * Math.asin(Math.sqrt(Math.min(1, a)));
+	}
+	
+}
@@ -0,0 +1,26 @@
+/**
+ * This interface gives the plant to facility and facility to customer distances of a CFLPInstance. MatrixDistances
+ * holds them as dense matrices and CoordinateDistances computes them on demand from the locations of the plants,
+ * facilities and customers. Both may be read by many threads at once.
+ *
+ * @author ryanhow
+ *
+ */
+
+public interface Distances {
+
+	/**
+	 * @param i the production plant
+	 * @param j the facility
+	 * @return the distance from plant i to facility j
+	 */
+	double plantDistance(int i, int j);
+
+	/**
+	 * @param j the facility
+	 * @param r the customer
+	 * @return the distance from facility j to customer r
+	 */
+	double customerDistance(int j, int r);
+
+}
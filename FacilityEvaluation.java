@@ -0,0 +1,169 @@
+/**
+ * This class is the evaluation of a fixed set of open facilities under the divisible demand model (see
+ * FacilityEvaluator): the exact total cost of the cheapest flows and every plant to facility to customer flow, held
+ * as one list per product.
+ *
+ * @author ryanhow
+ *
+ */
+
+public class FacilityEvaluation {
+
+	private final boolean[] open; //If facility j is open or not
+	private final double fixedCost; //Fixed cost of the open facilities
+	private final double flowCost; //Transportation and marginal cost of the flows
+	private final double[] activity; //Total amount of every product served through facility j
+	private final boolean coupled; //If the activity levels coupled the products
+
+	//Flows of product k, the n-th flow running from plants[k][n] through facilities[k][n] to customers[k][n]
+	private final int[][] plants;
+	private final int[][] facilities;
+	private final int[][] customers;
+	private final double[][] amounts;
+
+	/**
+	 * This constructor creates an evaluation from the flows of every product.
+	 *
+	 * @param instance the CFLP instance
+	 * @param open if each facility is open or not
+	 * @param plants the plant of each flow of product k
+	 * @param facilities the facility of each flow of product k
+	 * @param customers the customer of each flow of product k
+	 * @param amounts the amount of each flow of product k
+	 * @param coupled whether the activity levels coupled the products
+	 */
+	FacilityEvaluation(CFLPInstance instance, boolean[] open, int[][] plants, int[][] facilities, int[][] customers, double[][] amounts, boolean coupled) {
+		this.open = open.clone();
+		this.plants = plants;
+		this.facilities = facilities;
+		this.customers = customers;
+		this.amounts = amounts;
+		this.coupled = coupled;
+
+		double fixed = 0;
+		for(int j = 0; j < open.length; j++) {
+			if(open[j]) {
+				fixed += instance.fixedCost(j);
+			}
+		}
+		double cost = 0;
+		activity = new double[open.length];
+		for(int k = 0; k < amounts.length; k++) {
+			for(int n = 0; n < amounts[k].length; n++) {
+				int i = plants[k][n];
+				int j = facilities[k][n];
+				int r = customers[k][n];
+				double totalDistance = instance.plantDistance(i, j) + instance.customerDistance(j, r);
+				cost += amounts[k][n] * (instance.unitCost(k) * totalDistance + instance.marginalCost(j));
+				activity[j] += amounts[k][n];
+			}
+		}
+		fixedCost = fixed;
+		flowCost = cost;
+	}
+
+	/**
+	 * This method checks the total activity of every open facility against its minimum and maximum activity levels.
+	 *
+	 * @param instance the CFLP instance
+	 * @param tolerance the largest violation accepted
+	 * @return true if every open facility is within its activity levels
+	 */
+	boolean withinActivityLevels(CFLPInstance instance, double tolerance) {
+		for(int j = 0; j < open.length; j++) {
+			if(open[j] && (activity[j] < instance.minActivity(j) - tolerance || activity[j] > instance.maxActivity(j) + tolerance)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return the total cost, the fixed cost of the open facilities plus the cost of the flows
+	 */
+	public double getCost() {
+		return fixedCost + flowCost;
+	}
+
+	/**
+	 * @return the fixed cost of the open facilities
+	 */
+	public double getFixedCost() {
+		return fixedCost;
+	}
+
+	/**
+	 * @return the transportation and marginal cost of the flows
+	 */
+	public double getFlowCost() {
+		return flowCost;
+	}
+
+	/**
+	 * @param j the facility
+	 * @return true if facility j is open
+	 */
+	public boolean isOpen(int j) {
+		return open[j];
+	}
+
+	/**
+	 * @param j the facility
+	 * @return the total amount of every product served through facility j
+	 */
+	public double getActivity(int j) {
+		return activity[j];
+	}
+
+	/**
+	 * @return true if the activity levels coupled the products and the flows were found by the linear program
+	 */
+	public boolean isCoupled() {
+		return coupled;
+	}
+
+	/**
+	 * @param k the product
+	 * @return the number of flows of product k
+	 */
+	public int numFlows(int k) {
+		return amounts[k].length;
+	}
+
+	/**
+	 * @param k the product
+	 * @param n the flow
+	 * @return the plant the n-th flow of product k leaves
+	 */
+	public int getPlant(int k, int n) {
+		return plants[k][n];
+	}
+
+	/**
+	 * @param k the product
+	 * @param n the flow
+	 * @return the facility the n-th flow of product k passes through
+	 */
+	public int getFacility(int k, int n) {
+		return facilities[k][n];
+	}
+
+	/**
+	 * @param k the product
+	 * @param n the flow
+	 * @return the customer the n-th flow of product k reaches
+	 */
+	public int getCustomer(int k, int n) {
+		return customers[k][n];
+	}
+
+	/**
+	 * @param k the product
+	 * @param n the flow
+	 * @return the amount of the n-th flow of product k
+	 */
+	public double getAmount(int k, int n) {
+		return amounts[k][n];
+	}
+
+}
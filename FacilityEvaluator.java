@@ -0,0 +1,685 @@
+/**
+ * This class evaluates a fixed set of open facilities under the divisible demand model: it finds the cheapest plant
+ * to facility to customer flows of every product and returns their exact total cost (see FacilityEvaluation). It
+ * needs no gurobi environment, keeps no state between evaluations and may be called from several threads, so local
+ * search heuristics can use it to price their moves.
+ *
+ * With the facilities fixed, each product is a transportation problem from the plants to the customers, where every
+ * plant and customer pair is joined by its cheapest route through an open facility. The products are solved in
+ * parallel by successive shortest paths, serving one customer at a time. Few plants serve many customers, so a
+ * shortest path only visits plants: moving a unit from plant b to plant a reroutes a customer of plant a, and the
+ * cheapest such customer of every pair of plants is kept in a heap.
+ *
+ * The activity levels of the facilities couple the products. When the flows of the separate products already respect
+ * them, the flows are optimal. Otherwise the products are coupled by Dantzig-Wolfe decomposition: a small master linear
+ * program, solved by BoundedSimplex, mixes whole flows of each product within the activity levels, and its duals price
+ * the facilities for the next flows of the products, which are again solved in parallel.
+ *
+ * @author ryanhow
+ *
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+
+public class FacilityEvaluator {
+
+	private final static Logger LOGGER = Logger.getLogger(FacilityEvaluator.class.getName());
+
+	private static final double EPSILON = 1e-9;
+	private static final double ACTIVITY_TOLERANCE = 1e-6; //Largest activity level violation accepted from the separate products
+	private static final double FLOW_TOLERANCE = 1e-7; //Largest violation of the activity levels that ends the first phase of the decomposition
+	private static final double PRICING_TOLERANCE = 1e-9; //Relative reduced cost below which the flows of a product enter the master
+	private static final int MAX_PRICING_ROUNDS = 1000; //Master solves of the decomposition before it gives up
+	private static final double SMOOTHING = 0.8; //Weight of the duals with the best Lagrangian bound in the duals the products are priced at
+	private static final int ITERATIONS_PER_COLUMN = 100; //Simplex iterations of the master per row and column
+
+	//Sets
+	private final int K; //Set of commodities/products
+	private final int I; //Set of production plant
+	private final int J; //Set of potential candidate facility locations
+	private final int R; //Set of customers
+
+	private final CFLPInstance instance;
+
+	/**
+	 * This constructor creates an evaluator for an instance.
+	 *
+	 * @param instance the CFLP instance
+	 */
+	public FacilityEvaluator(CFLPInstance instance) {
+		this.instance = instance;
+		K = instance.numProducts();
+		I = instance.numPlants();
+		J = instance.numFacilities();
+		R = instance.numCustomers();
+	}
+
+	/**
+	 * This method evaluates a set of open facilities given by their indices.
+	 *
+	 * @param facilities the open facilities
+	 * @return the evaluation, or null if the open facilities cannot serve the demand
+	 */
+	public FacilityEvaluation evaluate(int[] facilities) {
+		boolean[] open = new boolean[J];
+		for(int j : facilities) {
+			open[j] = true;
+		}
+		return evaluate(open);
+	}
+
+	/**
+	 * This method finds the cheapest flows of every product through a set of open facilities. The products are solved
+	 * in parallel, and coupled by the decomposition only if their flows break an activity level.
+	 *
+	 * @param open if each facility is open or not
+	 * @return the evaluation, or null if the open facilities cannot serve the demand
+	 */
+	public FacilityEvaluation evaluate(boolean[] open) {
+		int[] facilities = IntStream.range(0, J).filter(j -> open[j]).toArray();
+		if(facilities.length == 0) {
+			return null;
+		}
+
+		FlowList[] products = solveProducts(facilities, 1, new double[facilities.length]);
+		if(Arrays.asList(products).contains(null)) {
+			return null;
+		}
+		FacilityEvaluation evaluation = toEvaluation(open, products, false);
+		if(evaluation.withinActivityLevels(instance, ACTIVITY_TOLERANCE)) {
+			return evaluation;
+		}
+		return solveCoupled(open, facilities, products);
+	}
+
+	/**
+	 * This method finds the cheapest flows that respect the activity levels by Dantzig-Wolfe decomposition. The master
+	 * linear program mixes whole flows of each product, one convex combination per product, within the activity
+	 * levels, and the duals of the activity levels price the routes through each facility for the next flows of the
+	 * products. A first phase minimizes the violation of the activity levels, the second the cost.
+	 *
+	 * The duals are smoothed towards the ones that gave the best Lagrangian bound so far, which damps their swings
+	 * between rounds, and each phase ends once no flows price out at the duals of the master or the master meets the
+	 * bound.
+	 *
+	 * @param open if each facility is open or not
+	 * @param facilities the open facilities
+	 * @param products the flows of each product without the activity levels
+	 * @return the evaluation, or null if the open facilities cannot serve the demand
+	 */
+	private FacilityEvaluation solveCoupled(boolean[] open, int[] facilities, FlowList[] products) {
+		int F = facilities.length;
+		List<FlowList> columns = new ArrayList<>(Arrays.asList(products));
+		boolean phaseOne = true;
+		double[] center = null; //Duals of the activity levels with the best Lagrangian bound of the phase
+		double bestBound = Double.NEGATIVE_INFINITY;
+		BoundedSimplex simplex = null;
+		boolean converged = false;
+		for(int round = 0; round < MAX_PRICING_ROUNDS; round++) {
+			simplex = solveMaster(columns, facilities, phaseOne);
+			if(simplex == null) {
+				return null;
+			}
+			double objective = simplex.getObjective();
+			if(phaseOne && objective <= FLOW_TOLERANCE) {
+				phaseOne = false;
+				center = null;
+				bestBound = Double.NEGATIVE_INFINITY;
+				continue;
+			}
+			double tolerance = PRICING_TOLERANCE * Math.max(1, Math.abs(objective));
+			if(objective - bestBound <= tolerance) {
+				if(phaseOne) {
+					return null;
+				}
+				converged = true;
+				break;
+			}
+
+			//Price at the smoothed duals, and at the duals of the master if no flows price out there
+			double[] duals = simplex.getDuals();
+			double[] levels = Arrays.copyOfRange(duals, K, K + 2 * F);
+			boolean added = false;
+			for(double smoothing = center == null ? 0 : SMOOTHING; !added; smoothing = 0) {
+				double[] smoothed = levels.clone();
+				for(int row = 0; smoothing > 0 && row < 2 * F; row++) {
+					smoothed[row] = smoothing * center[row] + (1 - smoothing) * levels[row];
+				}
+				FlowList[] priced = solveProducts(facilities, phaseOne ? 0 : 1, prices(smoothed));
+
+				double bound = 0;
+				for(int f = 0; f < F; f++) {
+					bound += smoothed[2 * f] * instance.minActivity(facilities[f]) + smoothed[2 * f + 1] * instance.maxActivity(facilities[f]);
+				}
+				for(int k = 0; k < K; k++) {
+					bound += priced[k].pricedCost;
+				}
+				if(bound > bestBound) {
+					bestBound = bound;
+					center = smoothed;
+				}
+
+				//The reduced cost of the flows is taken at the duals of the master
+				double[] prices = prices(levels);
+				for(int k = 0; k < K; k++) {
+					double reducedCost = (phaseOne ? 0 : priced[k].cost) - duals[k];
+					for(int f = 0; f < F; f++) {
+						reducedCost -= prices[f] * priced[k].activity[f];
+					}
+					if(reducedCost < -tolerance) {
+						columns.add(priced[k]);
+						added = true;
+					}
+				}
+				if(smoothing == 0) {
+					break;
+				}
+			}
+			if(added) {
+				continue;
+			}
+			if(phaseOne) {
+				return null;
+			}
+			converged = true;
+			break;
+		}
+		if(!converged) {
+			LOGGER.log(Level.SEVERE, "Error evaluating open facilities. The activity levels were not met after " + MAX_PRICING_ROUNDS + " pricing rounds.");
+			return null;
+		}
+
+		//Mix the flows of every product by the weights of the master
+		double[] weights = simplex.getValues();
+		FlowList[] mixed = new FlowList[K];
+		List<Map<Long, Integer>> indices = new ArrayList<>();
+		for(int k = 0; k < K; k++) {
+			mixed[k] = new FlowList(k, F);
+			indices.add(new HashMap<>());
+		}
+		for(int c = 0; c < columns.size(); c++) {
+			FlowList flows = columns.get(c);
+			if(weights[c] <= EPSILON) {
+				continue;
+			}
+			for(int n = 0; n < flows.size; n++) {
+				long key = ((long) flows.customers[n] * I + flows.plants[n]) * J + flows.facilities[n];
+				Integer index = indices.get(flows.k).putIfAbsent(key, mixed[flows.k].size);
+				if(index == null) {
+					mixed[flows.k].add(flows.plants[n], flows.facilities[n], flows.customers[n], weights[c] * flows.amounts[n]);
+				} else {
+					mixed[flows.k].amounts[index] += weights[c] * flows.amounts[n];
+				}
+			}
+		}
+		return toEvaluation(open, mixed, true);
+	}
+
+	/**
+	 * This method solves the master linear program of the decomposition. Its rows are the convex combination of each
+	 * product, then the minimum and maximum activity level of each open facility.
+	 *
+	 * @param columns the flows of the products found so far
+	 * @param facilities the open facilities
+	 * @param phaseOne whether the violation of the activity levels is minimized instead of the cost
+	 * @return the solved master, or null if it could not be solved
+	 */
+	private BoundedSimplex solveMaster(List<FlowList> columns, int[] facilities, boolean phaseOne) {
+		int F = facilities.length;
+		LinearProgram master = new LinearProgram();
+		for(FlowList flows : columns) {
+			master.addColumn(phaseOne ? 0 : flows.cost, 0, Double.POSITIVE_INFINITY, false, 0);
+		}
+		int artificials = columns.size(); //Violation of each activity level, only in the first phase
+		if(phaseOne) {
+			for(int row = 0; row < 2 * F; row++) {
+				master.addColumn(1, 0, Double.POSITIVE_INFINITY, false, 0);
+			}
+		}
+
+		// Convex Combinations
+		for(int k = 0; k < K; k++) {
+			int product = k;
+			int[] productColumns = IntStream.range(0, columns.size()).filter(c -> columns.get(c).k == product).toArray();
+			master.addRow(productColumns, ones(productColumns.length), LinearProgram.EQUAL, 1);
+		}
+
+		// Activity Levels
+		for(int f = 0; f < F; f++) {
+			int[] rowColumns = new int[columns.size() + (phaseOne ? 1 : 0)];
+			double[] coefficients = new double[rowColumns.length];
+			for(int c = 0; c < columns.size(); c++) {
+				rowColumns[c] = c;
+				coefficients[c] = columns.get(c).activity[f];
+			}
+			if(phaseOne) {
+				rowColumns[columns.size()] = artificials + 2 * f;
+				coefficients[columns.size()] = 1;
+			}
+			master.addRow(rowColumns, coefficients, LinearProgram.GREATER_EQUAL, instance.minActivity(facilities[f]));
+			if(phaseOne) {
+				rowColumns[columns.size()] = artificials + 2 * f + 1;
+				coefficients[columns.size()] = -1;
+			}
+			master.addRow(rowColumns, coefficients, LinearProgram.LESS_EQUAL, instance.maxActivity(facilities[f]));
+		}
+		master.compile();
+
+		BoundedSimplex simplex = new BoundedSimplex(master);
+		BoundedSimplex.Status status = simplex.solve((long) ITERATIONS_PER_COLUMN * (master.numRows() + master.numColumns()));
+		if(status != BoundedSimplex.Status.OPTIMAL) {
+			LOGGER.log(Level.SEVERE, "Error evaluating open facilities. Simplex ended with status " + status + ".");
+			return null;
+		}
+		return simplex;
+	}
+
+	/**
+	 * @param levels the duals of the minimum and maximum activity level of each open facility
+	 * @return the price of a unit through each open facility
+	 */
+	private static double[] prices(double[] levels) {
+		double[] prices = new double[levels.length / 2];
+		for(int f = 0; f < prices.length; f++) {
+			prices[f] = levels[2 * f] + levels[2 * f + 1];
+		}
+		return prices;
+	}
+
+	/**
+	 * This method solves the transportation problem of every product in parallel.
+	 *
+	 * @param facilities the open facilities
+	 * @param scale the factor of the transportation and marginal costs, 0 to route by the prices alone
+	 * @param prices the price subtracted from the cost of a unit through each open facility
+	 * @return the flows of each product, null for a product whose demand the plants cannot supply
+	 */
+	private FlowList[] solveProducts(int[] facilities, double scale, double[] prices) {
+		return IntStream.range(0, K).parallel()
+				.mapToObj(k -> new ProductNetwork(k, facilities, scale, prices).solve())
+				.toArray(FlowList[]::new);
+	}
+
+	/**
+	 * @param length the number of coefficients
+	 * @return a row of unit coefficients
+	 */
+	private static double[] ones(int length) {
+		double[] coefficients = new double[length];
+		Arrays.fill(coefficients, 1);
+		return coefficients;
+	}
+
+	/**
+	 * @param open if each facility is open or not
+	 * @param products the flows of each product
+	 * @param coupled whether the activity levels coupled the products
+	 * @return the evaluation of the flows
+	 */
+	private FacilityEvaluation toEvaluation(boolean[] open, FlowList[] products, boolean coupled) {
+		int[][] plants = new int[K][];
+		int[][] facilities = new int[K][];
+		int[][] customers = new int[K][];
+		double[][] amounts = new double[K][];
+		for(int k = 0; k < K; k++) {
+			FlowList flows = products[k];
+			plants[k] = Arrays.copyOf(flows.plants, flows.size);
+			facilities[k] = Arrays.copyOf(flows.facilities, flows.size);
+			customers[k] = Arrays.copyOf(flows.customers, flows.size);
+			amounts[k] = Arrays.copyOf(flows.amounts, flows.size);
+		}
+		return new FacilityEvaluation(instance, open, plants, facilities, customers, amounts, coupled);
+	}
+
+	/**
+	 * This class is the transportation problem of one product from the plants to the customers through the open
+	 * facilities, solved by successive shortest paths. The customers are served in turn, and each shortest path runs
+	 * from a plant with spare capacity through a chain of rerouted customers to the plant which serves the new
+	 * customer. Every flow stays integral, as the demands and capacities are integers.
+	 */
+	private final class ProductNetwork {
+		private final int k;
+		private final int[] facilities; //Open facilities
+		private final double scale; //Factor of the transportation and marginal costs
+		private final double[] prices; //Price subtracted from the cost of a unit through open facility f
+		private final double[] plantLegs; //Cost of a unit from plant i to open facility f, indexed [i * F + f]
+		private final double[] customerLegs; //Cost of a unit from open facility f to the customer being routed
+		private final double[] routes; //Cost of the cheapest route from plant i to customer r, indexed [r * I + i]
+		private final int[] vias; //Open facility of the cheapest route from plant i to customer r, indexed [r * I + i]
+		private final int[] flows; //Amount shipped from plant i to customer r, indexed [r * I + i]
+		private final int[] spare; //Unused capacity of plant i
+		private final ExchangeHeap[] exchanges; //Customers of plant a that plant b can take over, by the cost of moving a unit, indexed [b * I + a]
+
+		//Shortest Paths
+		private final double[] distance; //Cost of freeing a unit of capacity at plant a
+		private final int[] previous; //Plant taking over a customer of plant a on the shortest path, or -1
+		private final int[] rerouted; //Customer of plant a taken over on the shortest path
+		private final int[] queue; //Plants whose cost fell since they were last scanned, a circular queue
+		private final boolean[] queued; //If plant a is in the queue
+
+		ProductNetwork(int k, int[] facilities, double scale, double[] prices) {
+			this.k = k;
+			this.facilities = facilities;
+			this.scale = scale;
+			this.prices = prices;
+			int F = facilities.length;
+			plantLegs = new double[I * F];
+			for(int i = 0; i < I; i++) {
+				for(int f = 0; f < F; f++) {
+					plantLegs[i * F + f] = scale * instance.unitCost(k) * instance.plantDistance(i, facilities[f]);
+				}
+			}
+			customerLegs = new double[F];
+			routes = new double[I * R];
+			vias = new int[I * R];
+			flows = new int[I * R];
+			spare = new int[I];
+			for(int i = 0; i < I; i++) {
+				spare[i] = instance.capacity(i, k);
+			}
+			exchanges = new ExchangeHeap[I * I];
+			distance = new double[I];
+			previous = new int[I];
+			rerouted = new int[I];
+			queue = new int[I];
+			queued = new boolean[I];
+		}
+
+		/**
+		 * This method serves the demand of every customer for the product.
+		 *
+		 * @return the flows of the product, or null if the plants cannot supply the demand
+		 */
+		FlowList solve() {
+			for(int r = 0; r < R; r++) {
+				int demand = instance.demand(r, k);
+				if(demand == 0) {
+					continue;
+				}
+				route(r);
+				while(demand > 0) {
+					int amount = augment(r, demand);
+					if(amount == 0) {
+						return null;
+					}
+					demand -= amount;
+				}
+			}
+
+			FlowList list = new FlowList(k, facilities.length);
+			for(int r = 0; r < R; r++) {
+				for(int i = 0; i < I; i++) {
+					int amount = flows[r * I + i];
+					if(amount > 0) {
+						int j = facilities[vias[r * I + i]];
+						double totalDistance = instance.plantDistance(i, j) + instance.customerDistance(j, r);
+						list.add(i, j, r, amount);
+						list.cost += amount * (instance.unitCost(k) * totalDistance + instance.marginalCost(j));
+						list.pricedCost += amount * routes[r * I + i];
+						list.activity[vias[r * I + i]] += amount;
+					}
+				}
+			}
+			return list;
+		}
+
+		/**
+		 * This method finds the cheapest route from every plant to a customer through the open facilities.
+		 *
+		 * @param r the customer
+		 */
+		private void route(int r) {
+			int F = facilities.length;
+			for(int f = 0; f < F; f++) {
+				int j = facilities[f];
+				customerLegs[f] = scale * (instance.unitCost(k) * instance.customerDistance(j, r) + instance.marginalCost(j)) - prices[f];
+			}
+			for(int i = 0; i < I; i++) {
+				double cheapest = Double.POSITIVE_INFINITY;
+				int via = 0;
+				for(int f = 0; f < F; f++) {
+					double cost = plantLegs[i * F + f] + customerLegs[f];
+					if(cost < cheapest) {
+						cheapest = cost;
+						via = f;
+					}
+				}
+				routes[r * I + i] = cheapest;
+				vias[r * I + i] = via;
+			}
+		}
+
+		/**
+		 * This method ships as much as it can of the unmet demand of a customer along the shortest path. The flows
+		 * are optimal for the demand served so far, so no plant can free capacity at a negative cost, and the path is
+		 * direct whenever the plant of the cheapest route has spare capacity.
+		 *
+		 * @param r the customer
+		 * @param demand the unmet demand of customer r
+		 * @return the amount shipped, or 0 if no plant can supply customer r
+		 */
+		private int augment(int r, int demand) {
+			int cheapest = 0;
+			for(int i = 1; i < I; i++) {
+				if(routes[r * I + i] < routes[r * I + cheapest]) {
+					cheapest = i;
+				}
+			}
+			if(spare[cheapest] > 0) {
+				int amount = Math.min(demand, spare[cheapest]);
+				ship(cheapest, r, amount);
+				spare[cheapest] -= amount;
+				return amount;
+			}
+
+			shortestPaths();
+			int last = -1;
+			for(int a = 0; a < I; a++) {
+				if(distance[a] < Double.POSITIVE_INFINITY && (last == -1 || distance[a] + routes[r * I + a] < distance[last] + routes[r * I + last])) {
+					last = a;
+				}
+			}
+			if(last == -1) {
+				return 0;
+			}
+
+			//The amount is bounded by the unmet demand, the rerouted flows and the spare capacity at the start
+			int amount = demand;
+			int first = last;
+			for(int steps = 0; previous[first] != -1; steps++) {
+				if(steps == I) {
+					LOGGER.log(Level.SEVERE, "Error evaluating open facilities. The shortest path of product " + (k + 1) + " has a cycle.");
+					return 0;
+				}
+				amount = Math.min(amount, flows[rerouted[first] * I + first]);
+				first = previous[first];
+			}
+			amount = Math.min(amount, spare[first]);
+
+			ship(last, r, amount);
+			for(int a = last; previous[a] != -1; a = previous[a]) {
+				ship(a, rerouted[a], -amount);
+				ship(previous[a], rerouted[a], amount);
+			}
+			spare[first] -= amount;
+			return amount;
+		}
+
+		/**
+		 * This method finds the cheapest way of freeing a unit of capacity at every plant by a label-correcting
+		 * search over the plants, which only scans again the plants whose cost fell. A plant with spare capacity frees
+		 * it at no cost, and plant b frees capacity at plant a by taking over the cheapest customer of plant a it can.
+		 */
+		private void shortestPaths() {
+			int head = 0;
+			int tail = 0;
+			for(int a = 0; a < I; a++) {
+				distance[a] = spare[a] > 0 ? 0 : Double.POSITIVE_INFINITY;
+				previous[a] = -1;
+				queued[a] = spare[a] > 0;
+				if(queued[a]) {
+					queue[tail++] = a;
+				}
+			}
+			tail %= I;
+			for(int scans = 0; scans < I * I && (head != tail || queued[queue[head]]); scans++) {
+				int b = queue[head];
+				head = (head + 1) % I;
+				queued[b] = false;
+				for(int a = 0; a < I; a++) {
+					ExchangeHeap heap = exchanges[b * I + a];
+					if(a == b || heap == null || !heap.prune(flows, I, a)) {
+						continue;
+					}
+					if(distance[b] + heap.minimumCost() < distance[a] - EPSILON) {
+						distance[a] = distance[b] + heap.minimumCost();
+						previous[a] = b;
+						rerouted[a] = heap.minimumCustomer();
+						if(!queued[a]) {
+							queued[a] = true;
+							queue[tail] = a;
+							tail = (tail + 1) % I;
+						}
+					}
+				}
+			}
+		}
+
+		/**
+		 * This method changes the amount shipped from a plant to a customer. When the customer becomes a customer of
+		 * the plant, every other plant can take it over.
+		 *
+		 * @param a the plant
+		 * @param r the customer
+		 * @param amount the change in the amount shipped
+		 */
+		private void ship(int a, int r, int amount) {
+			int index = r * I + a;
+			boolean added = flows[index] == 0 && amount > 0;
+			flows[index] += amount;
+			if(!added) {
+				return;
+			}
+			for(int b = 0; b < I; b++) {
+				if(b != a) {
+					if(exchanges[b * I + a] == null) {
+						exchanges[b * I + a] = new ExchangeHeap();
+					}
+					exchanges[b * I + a].push(routes[r * I + b] - routes[index], r);
+				}
+			}
+		}
+	}
+
+	/**
+	 * This class is a binary heap of the customers of one plant that another plant can take over, by the cost of
+	 * moving a unit. A customer the plant no longer serves is only removed when it reaches the top.
+	 */
+	private static final class ExchangeHeap {
+		private double[] costs = new double[8];
+		private int[] customers = new int[8];
+		private int size;
+
+		void push(double cost, int customer) {
+			if(size == costs.length) {
+				costs = Arrays.copyOf(costs, 2 * size);
+				customers = Arrays.copyOf(customers, 2 * size);
+			}
+			int child = size++;
+			while(child > 0 && costs[(child - 1) / 2] > cost) {
+				costs[child] = costs[(child - 1) / 2];
+				customers[child] = customers[(child - 1) / 2];
+				child = (child - 1) / 2;
+			}
+			costs[child] = cost;
+			customers[child] = customer;
+		}
+
+		/**
+		 * This method removes the customers at the top the plant no longer serves.
+		 *
+		 * @param flows the amount shipped from plant i to customer r, indexed [r * I + i]
+		 * @param I the number of plants
+		 * @param plant the plant whose customers the heap holds
+		 * @return true if the plant still serves a customer in the heap
+		 */
+		boolean prune(int[] flows, int I, int plant) {
+			while(size > 0 && flows[customers[0] * I + plant] == 0) {
+				pop();
+			}
+			return size > 0;
+		}
+
+		double minimumCost() {
+			return costs[0];
+		}
+
+		int minimumCustomer() {
+			return customers[0];
+		}
+
+		private void pop() {
+			size--;
+			double cost = costs[size];
+			int customer = customers[size];
+			int parent = 0;
+			while(2 * parent + 1 < size) {
+				int child = 2 * parent + 1;
+				if(child + 1 < size && costs[child + 1] < costs[child]) {
+					child++;
+				}
+				if(costs[child] >= cost) {
+					break;
+				}
+				costs[parent] = costs[child];
+				customers[parent] = customers[child];
+				parent = child;
+			}
+			costs[parent] = cost;
+			customers[parent] = customer;
+		}
+	}
+
+	/**
+	 * This class is a growing list of the plant to facility to customer flows of one product, with their cost and the
+	 * activity they give each open facility.
+	 */
+	private static final class FlowList {
+		private final int k; //Product
+		private final double[] activity; //Amount served through open facility f
+		private double cost; //Transportation and marginal cost
+		private double pricedCost; //Cost at the prices of the facilities the flows were routed by
+		private int[] plants = new int[16];
+		private int[] facilities = new int[16];
+		private int[] customers = new int[16];
+		private double[] amounts = new double[16];
+		private int size;
+
+		FlowList(int k, int F) {
+			this.k = k;
+			activity = new double[F];
+		}
+
+		void add(int i, int j, int r, double amount) {
+			if(size == amounts.length) {
+				plants = Arrays.copyOf(plants, 2 * size);
+				facilities = Arrays.copyOf(facilities, 2 * size);
+				customers = Arrays.copyOf(customers, 2 * size);
+				amounts = Arrays.copyOf(amounts, 2 * size);
+			}
+			plants[size] = i;
+			facilities[size] = j;
+			customers[size] = r;
+			amounts[size] = amount;
+			size++;
+		}
+	}
+
+}
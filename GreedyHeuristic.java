@@ -0,0 +1,344 @@
+/**
+ * This class finds good solutions of the single allocation model quickly without gurobi. It is used on its own for
+ * fast answers and to give gurobi a MIP start.
+ *
+ * The p facilities with the lowest cost per unit of capacity are opened and the customers are assigned to them
+ * respecting the minimum and maximum activity levels and the plant capacities. The solution is then improved with
+ * customer reassignment and facility swap (drop one facility, add another) moves. Moves are evaluated with
+ * incremental cost deltas in which every product is priced at its cheapest plant, and the products are routed
+ * exactly once the search ends.
+ *
+ * @author ryanhow
+ *
+ */
+
+import java.util.Arrays;
+
+public class GreedyHeuristic {
+
+	private static final int MAX_REPAIR_SWAPS = 100; //Facility swaps tried when the greedy open facilities cannot be assigned
+	private static final double IMPROVEMENT = 1e-9; //Minimum cost decrease of an accepted move
+
+	private final CFLPInstance instance;
+	private final int p; //Desired number of facilities to be open
+	private final int K;
+	private final int I;
+	private final int J;
+	private final int R;
+
+	private final double[] supplyCost; //Cost of product k at facility j from its cheapest plant, indexed [j * K + k]
+
+	//Current Solution
+	private boolean[] open; //If facility j is open or not
+	private int[] assignment; //Facility serving customer r
+	private long[] load; //Total demand served by facility j
+
+	//Swap Evaluation
+	private final int[] swapAssignment;
+	private final long[] swapLoad;
+
+	private int moves;
+
+	/**
+	 * This constructor creates the heuristic for an instance.
+	 *
+	 * @param instance the CFLP instance
+	 * @param p the desired number of open facilities
+	 */
+	public GreedyHeuristic(CFLPInstance instance, int p) {
+		this.instance = instance;
+		this.p = p;
+		K = instance.numProducts();
+		I = instance.numPlants();
+		J = instance.numFacilities();
+		R = instance.numCustomers();
+		swapAssignment = new int[R];
+		swapLoad = new long[J];
+
+		supplyCost = new double[J * K];
+		for(int j = 0; j < J; j++) {
+			for(int k = 0; k < K; k++) {
+				double cheapest = I == 0 ? 0 : Double.POSITIVE_INFINITY;
+				for(int i = 0; i < I; i++) {
+					cheapest = Math.min(cheapest, instance.unitCost(k) * instance.plantDistance(i, j));
+				}
+				supplyCost[j * K + k] = cheapest;
+			}
+		}
+	}
+
+	/**
+	 * This method constructs a solution and improves it with local search.
+	 *
+	 * @param timeLimitMillis the wall clock limit of the local search in milliseconds
+	 * @return the best solution found, or null if no feasible solution was found
+	 */
+	public SingleAllocationSolution solve(long timeLimitMillis) {
+		long deadline = System.currentTimeMillis() + timeLimitMillis;
+		SingleAllocationSolution initial = construct();
+		if(initial == null) {
+			return null;
+		}
+
+		open = new boolean[J];
+		assignment = new int[R];
+		load = new long[J];
+		for(int j = 0; j < J; j++) {
+			open[j] = initial.isOpen(j);
+			load[j] = initial.getLoad(j);
+		}
+		for(int r = 0; r < R; r++) {
+			assignment[r] = initial.getAssignment(r);
+		}
+
+		boolean improved = true;
+		while(improved && System.currentTimeMillis() < deadline) {
+			improved = reassignCustomers();
+			improved |= swapFacilities(deadline);
+		}
+
+		//The deltas price products at their cheapest plant, so the routed costs decide
+		SingleAllocationSolution solution = new SingleAllocationSolution(instance, open, assignment);
+		if(moves > 0 && solution.routeProducts() && solution.getCost() < initial.getCost()) {
+			return solution;
+		}
+		return initial;
+	}
+
+	/**
+	 * This method opens the p facilities with the lowest fixed and marginal cost per unit of capacity and assigns the
+	 * customers to them.
+	 *
+	 * @return the solution, or null if no feasible solution was found
+	 */
+	private SingleAllocationSolution construct() {
+		if(p > J) {
+			return null;
+		}
+		double[] rank = rankFacilities(instance);
+		return SingleAllocationSolution.repair(instance, resize(new boolean[J], p, rank), rank, MAX_REPAIR_SWAPS);
+	}
+
+	/**
+	 * This method ranks the facilities by their fixed and marginal cost per unit of capacity. Facilities which cannot
+	 * meet their activity levels are ranked positive infinity.
+	 *
+	 * @param instance the CFLP instance
+	 * @return the rank of each facility, lower is better
+	 */
+	public static double[] rankFacilities(CFLPInstance instance) {
+		double[] rank = new double[instance.numFacilities()];
+		for(int j = 0; j < rank.length; j++) {
+			long max = instance.maxActivity(j);
+			rank[j] = max > 0 && max >= instance.minActivity(j) ? instance.fixedCost(j) / max + instance.marginalCost(j) : Double.POSITIVE_INFINITY;
+		}
+		return rank;
+	}
+
+	/**
+	 * This method opens the best ranked closed facilities, or closes the worst ranked open facilities, until p
+	 * facilities are open. Facilities ranked positive infinity are never opened.
+	 *
+	 * @param open if each facility is open or not
+	 * @param p the desired number of open facilities
+	 * @param rank the rank of each facility, lower is better
+	 * @return if each facility is open in the resized set
+	 */
+	public static boolean[] resize(boolean[] open, int p, double[] rank) {
+		boolean[] resized = open.clone();
+		Integer[] order = new Integer[open.length];
+		int count = 0;
+		for(int j = 0; j < open.length; j++) {
+			order[j] = j;
+			if(open[j]) {
+				count++;
+			}
+		}
+		Arrays.sort(order, (a, b) -> Double.compare(rank[a], rank[b]));
+		for(int index = 0; index < order.length && count < p; index++) {
+			if(!resized[order[index]] && rank[order[index]] != Double.POSITIVE_INFINITY) {
+				resized[order[index]] = true;
+				count++;
+			}
+		}
+		for(int index = order.length - 1; index >= 0 && count > p; index--) {
+			if(resized[order[index]]) {
+				resized[order[index]] = false;
+				count--;
+			}
+		}
+		return resized;
+	}
+
+	/**
+	 * This method moves every customer to the cheapest open facility with room for it, as long as the facility it
+	 * leaves stays above its minimum activity level.
+	 *
+	 * @return true if a customer was moved, false otherwise
+	 */
+	private boolean reassignCustomers() {
+		int[] facilities = SingleAllocationSolution.openFacilities(open);
+		boolean improved = false;
+		for(int r = 0; r < R; r++) {
+			int from = assignment[r];
+			int demand = instance.customerDemand(r);
+			if(load[from] - demand < instance.minActivity(from)) {
+				continue;
+			}
+			double currentCost = cost(from, r);
+			int best = -1;
+			double bestDelta = -IMPROVEMENT;
+			for(int j : facilities) {
+				if(j == from || load[j] + demand > instance.maxActivity(j)) {
+					continue;
+				}
+				double delta = cost(j, r) - currentCost;
+				if(delta < bestDelta) {
+					bestDelta = delta;
+					best = j;
+				}
+			}
+			if(best != -1) {
+				load[from] -= demand;
+				load[best] += demand;
+				assignment[r] = best;
+				moves++;
+				improved = true;
+			}
+		}
+		return improved;
+	}
+
+	/**
+	 * This method tries to replace every open facility with the closed facility that lowers the cost the most.
+	 *
+	 * @param deadline the time at which the search stops
+	 * @return true if a facility was swapped, false otherwise
+	 */
+	private boolean swapFacilities(long deadline) {
+		boolean improved = false;
+		for(int out = 0; out < J; out++) {
+			if(!open[out]) {
+				continue;
+			}
+			int best = -1;
+			double bestDelta = -IMPROVEMENT;
+			for(int in = 0; in < J; in++) {
+				if(open[in]) {
+					continue;
+				}
+				if(System.currentTimeMillis() >= deadline) {
+					return improved;
+				}
+				double delta = evaluateSwap(out, in);
+				if(delta < bestDelta) {
+					bestDelta = delta;
+					best = in;
+				}
+			}
+			if(best != -1) {
+				evaluateSwap(out, best);
+				open[out] = false;
+				open[best] = true;
+				System.arraycopy(swapAssignment, 0, assignment, 0, R);
+				System.arraycopy(swapLoad, 0, load, 0, J);
+				moves++;
+				improved = true;
+			}
+		}
+		return improved;
+	}
+
+	/**
+	 * This method computes the change in cost of closing one facility and opening another. The customers of the
+	 * closed facility move to their cheapest open facility with room, then customers of the other facilities move to
+	 * the new facility while it saves cost. The resulting assignment and loads are left in swapAssignment and
+	 * swapLoad.
+	 *
+	 * @param out the open facility to close
+	 * @param in the closed facility to open
+	 * @return the change in cost, or positive infinity if the activity levels cannot be met
+	 */
+	private double evaluateSwap(int out, int in) {
+		System.arraycopy(assignment, 0, swapAssignment, 0, R);
+		System.arraycopy(load, 0, swapLoad, 0, J);
+		open[out] = false;
+		open[in] = true;
+		int[] facilities = SingleAllocationSolution.openFacilities(open);
+		open[in] = false;
+		open[out] = true;
+
+		double delta = instance.fixedCost(in) - instance.fixedCost(out);
+
+		//Customers of the closed facility
+		for(int r = 0; r < R; r++) {
+			if(assignment[r] != out) {
+				continue;
+			}
+			int demand = instance.customerDemand(r);
+			int best = -1;
+			double bestCost = Double.POSITIVE_INFINITY;
+			for(int j : facilities) {
+				if(swapLoad[j] + demand <= instance.maxActivity(j)) {
+					double cost = cost(j, r);
+					if(cost < bestCost) {
+						bestCost = cost;
+						best = j;
+					}
+				}
+			}
+			if(best == -1) {
+				return Double.POSITIVE_INFINITY;
+			}
+			delta += bestCost - cost(out, r);
+			swapLoad[out] -= demand;
+			swapLoad[best] += demand;
+			swapAssignment[r] = best;
+		}
+
+		//Customers of the other facilities which are cheaper to serve from the new facility
+		for(int r = 0; r < R; r++) {
+			int from = swapAssignment[r];
+			if(assignment[r] == out || from == in) {
+				continue;
+			}
+			int demand = instance.customerDemand(r);
+			if(swapLoad[in] + demand > instance.maxActivity(in) || swapLoad[from] - demand < instance.minActivity(from)) {
+				continue;
+			}
+			double saving = cost(in, r) - cost(from, r);
+			if(saving < 0) {
+				delta += saving;
+				swapLoad[from] -= demand;
+				swapLoad[in] += demand;
+				swapAssignment[r] = in;
+			}
+		}
+
+		return swapLoad[in] < instance.minActivity(in) ? Double.POSITIVE_INFINITY : delta;
+	}
+
+	/**
+	 * This method obtains the cost of serving a customer from a facility with every product bought from its cheapest
+	 * plant.
+	 *
+	 * @param j the facility
+	 * @param r the customer
+	 * @return the cost
+	 */
+	private double cost(int j, int r) {
+		double cost = instance.assignmentCost(j, r);
+		for(int k = 0; k < K; k++) {
+			cost += supplyCost[j * K + k] * instance.demand(r, k);
+		}
+		return cost;
+	}
+
+	/**
+	 * @return the number of improving moves applied by the local search
+	 */
+	public int getMoves() {
+		return moves;
+	}
+
+}
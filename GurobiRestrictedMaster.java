@@ -0,0 +1,136 @@
+/**
+ * This class is a restricted master solved by gurobi. The master is a continuous gurobi model which keeps its basis
+ * between solves, so after columns are added the next solve starts from the last optimal basis.
+ *
+ * @author ryanhow
+ *
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import gurobi.*;
+
+public class GurobiRestrictedMaster implements RestrictedMaster {
+
+	private final static Logger LOGGER = Logger.getLogger(GurobiRestrictedMaster.class.getName());
+
+	private final GRBModel model;
+	private final List<GRBConstr> rows = new ArrayList<>();
+	private final List<GRBVar> columns = new ArrayList<>();
+	private long nonzeros; //Entries of the columns
+
+	/**
+	 * This constructor creates an empty master in a gurobi environment.
+	 *
+	 * @param env the gurobi environment
+	 * @throws GRBException if the model cannot be created
+	 */
+	public GurobiRestrictedMaster(GRBEnv env) throws GRBException {
+		model = new GRBModel(env);
+		model.set(GRB.IntParam.OutputFlag, 0);
+	}
+
+	/**
+	 * This method adds an empty row. The senses of LinearProgram are those of gurobi.
+	 *
+	 * @param sense the sense of the row
+	 * @param rhs the right hand side
+	 * @return the index of the row
+	 * @throws GRBException if the row cannot be added
+	 */
+	@Override
+	public int addRow(char sense, double rhs) throws GRBException {
+		rows.add(model.addConstr(new GRBLinExpr(), sense, rhs, null));
+		return rows.size() - 1;
+	}
+
+	@Override
+	public void setRhs(int row, double rhs) throws GRBException {
+		rows.get(row).set(GRB.DoubleAttr.RHS, rhs);
+	}
+
+	@Override
+	public int addColumn(double cost, double upperBound, int[] rowIndices, double[] coefficients) throws GRBException {
+		GRBConstr[] constrs = new GRBConstr[rowIndices.length];
+		for(int n = 0; n < rowIndices.length; n++) {
+			constrs[n] = rows.get(rowIndices[n]);
+		}
+		columns.add(model.addVar(0, upperBound, cost, GRB.CONTINUOUS, constrs, coefficients, null));
+		nonzeros += rowIndices.length;
+		return columns.size() - 1;
+	}
+
+	@Override
+	public void setCost(int column, double cost) throws GRBException {
+		columns.get(column).set(GRB.DoubleAttr.Obj, cost);
+	}
+
+	@Override
+	public void setBounds(int column, double lowerBound, double upperBound) throws GRBException {
+		GRBVar var = columns.get(column);
+		var.set(GRB.DoubleAttr.LB, lowerBound);
+		var.set(GRB.DoubleAttr.UB, upperBound);
+	}
+
+	/**
+	 * This method solves the master from the last basis. The master is bounded below by its nonnegative costs, so
+	 * gurobi's infeasible or unbounded status means it is infeasible.
+	 *
+	 * @return the outcome of the solve
+	 * @throws GRBException if gurobi fails
+	 */
+	@Override
+	public BoundedSimplex.Status solve() throws GRBException {
+		model.optimize();
+		int status = model.get(GRB.IntAttr.Status);
+		switch(status) {
+		case GRB.Status.OPTIMAL:
+			return BoundedSimplex.Status.OPTIMAL;
+		case GRB.Status.INFEASIBLE:
+		case GRB.Status.INF_OR_UNBD:
+			return BoundedSimplex.Status.INFEASIBLE;
+		default:
+			LOGGER.log(Level.SEVERE, "Error solving restricted master. Gurobi ended with status " + status + ".");
+			return BoundedSimplex.Status.ITERATION_LIMIT;
+		}
+	}
+
+	@Override
+	public double getObjective() throws GRBException {
+		return model.get(GRB.DoubleAttr.ObjVal);
+	}
+
+	@Override
+	public double[] getValues() throws GRBException {
+		return model.get(GRB.DoubleAttr.X, columns.toArray(new GRBVar[0]));
+	}
+
+	@Override
+	public double[] getDuals() throws GRBException {
+		return model.get(GRB.DoubleAttr.Pi, rows.toArray(new GRBConstr[0]));
+	}
+
+	@Override
+	public int numRows() {
+		return rows.size();
+	}
+
+	@Override
+	public int numColumns() {
+		return columns.size();
+	}
+
+	@Override
+	public long numNonzeros() {
+		return nonzeros;
+	}
+
+	@Override
+	public void dispose() throws GRBException {
+		model.dispose();
+	}
+
+}
@@ -0,0 +1,276 @@
+/**
+ * This class streams the incumbents of a solve to a file as they are found, so a run stopped by its deadline still
+ * leaves its best plan behind. Every improving incumbent replaces the file atomically, through a temporary file moved
+ * over it, and readers only ever see a whole incumbent. The file holds the objective, the best bound and gap when the
+ * incumbent was found, the seconds since the solve started, the open facilities and, in the single allocation model,
+ * the facility of each customer, numbered from 1 as in the printed solution. It is CSV or JSON, chosen by the file
+ * extension (.json for JSON, CSV otherwise):
+ *
+ * <pre>
+ * entry,customer,facility,value
+ * objective,,,10552.34
+ * open,,2,1
+ * assignment,1,2,1
+ * </pre>
+ *
+ * The final entry is 1 once the solve has ended and the file holds its last incumbent and bound.
+ *
+ * @author ryanhow
+ *
+ */
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import gurobi.*;
+
+public class IncumbentWriter {
+
+	private final static Logger LOGGER = Logger.getLogger(IncumbentWriter.class.getName());
+
+	private final Path target;
+	private final boolean json;
+	private final int facilities; //Number of facility variables at the front of vars
+	private final int[] assignmentFacility; //Facility of each assignment variable after them
+	private final int[] assignmentCustomer; //Customer of each assignment variable after them
+	private final int R;
+	private final GRBVar[] vars; //Facility variables followed by the assignment variables, in the order of the values written
+
+	private double written = GRB.INFINITY; //Objective of the last incumbent written
+	private int incumbents; //Incumbents written so far
+
+	/**
+	 * This constructor creates a writer for the incumbents of a model. Nothing is written until the first incumbent.
+	 *
+	 * @param filePath the path to the incumbent file, JSON if it ends in .json and CSV otherwise
+	 * @param z the facility variables, indexed [j]
+	 * @param assignments the candidate assignment variables of the single allocation model, or an empty array
+	 * @param assignmentFacility the facility of each assignment variable
+	 * @param assignmentCustomer the customer of each assignment variable
+	 * @param R the number of customers
+	 */
+	public IncumbentWriter(String filePath, GRBVar[] z, GRBVar[] assignments, int[] assignmentFacility, int[] assignmentCustomer, int R) {
+		target = Paths.get(filePath);
+		json = filePath.toLowerCase().endsWith(".json");
+		facilities = z.length;
+		this.assignmentFacility = assignmentFacility;
+		this.assignmentCustomer = assignmentCustomer;
+		this.R = R;
+		vars = new GRBVar[z.length + assignments.length];
+		System.arraycopy(z, 0, vars, 0, z.length);
+		System.arraycopy(assignments, 0, vars, z.length, assignments.length);
+	}
+
+	/**
+	 * @return the variables whose values an incumbent is written with, in order
+	 */
+	public GRBVar[] getVars() {
+		return vars;
+	}
+
+	/**
+	 * @param objective the objective of a new solution
+	 * @return true if the solution improves on the last incumbent written
+	 */
+	public synchronized boolean improves(double objective) {
+		return objective < written;
+	}
+
+	/**
+	 * This method writes an incumbent if it improves on the last one written.
+	 *
+	 * @param objective the objective of the incumbent
+	 * @param bound the best bound when it was found
+	 * @param seconds the time since the solve started
+	 * @param values the value of each variable of getVars
+	 * @return true if the incumbent was written
+	 */
+	public synchronized boolean write(double objective, double bound, double seconds, double[] values) {
+		if(!improves(objective)) {
+			return false;
+		}
+		if(!replace(objective, bound, seconds, values, false)) {
+			return false;
+		}
+		written = objective;
+		incumbents++;
+		return true;
+	}
+
+	/**
+	 * This method writes the incumbent and bound the solve ended with, marked final, whether or not the incumbent
+	 * improves on the last one written.
+	 *
+	 * @param objective the objective of the incumbent
+	 * @param bound the best bound of the solve
+	 * @param seconds the runtime of the solve
+	 * @param values the value of each variable of getVars
+	 * @return true if the incumbent was written
+	 */
+	public synchronized boolean finish(double objective, double bound, double seconds, double[] values) {
+		if(!replace(objective, bound, seconds, values, true)) {
+			return false;
+		}
+		written = objective;
+		return true;
+	}
+
+	/**
+	 * @return the number of improving incumbents written during the solve
+	 */
+	public synchronized int getIncumbents() {
+		return incumbents;
+	}
+
+	/**
+	 * This method writes an incumbent to a temporary file and moves it over the incumbent file.
+	 *
+	 * @param objective the objective of the incumbent
+	 * @param bound the best bound
+	 * @param seconds the time since the solve started
+	 * @param values the value of each variable of getVars
+	 * @param last whether the solve has ended
+	 * @return true if the file was replaced, false otherwise
+	 */
+	private boolean replace(double objective, double bound, double seconds, double[] values, boolean last) {
+		Path temporary = null;
+		try {
+			temporary = Files.createTempFile(target.toAbsolutePath().getParent(), target.getFileName().toString(), ".tmp");
+			try(BufferedWriter writer = Files.newBufferedWriter(temporary)) {
+				if(json) {
+					writeJson(writer, objective, bound, seconds, values, last);
+				} else {
+					writeCsv(writer, objective, bound, seconds, values, last);
+				}
+			}
+			Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			LOGGER.log(Level.SEVERE, "Error writing incumbent file. " + e.getMessage());
+			if(temporary != null) {
+				try {
+					Files.deleteIfExists(temporary);
+				} catch (IOException ignored) {
+					//The temporary file is left behind
+				}
+			}
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @param writer the temporary file
+	 * @param objective the objective of the incumbent
+	 * @param bound the best bound
+	 * @param seconds the time since the solve started
+	 * @param values the value of each variable of getVars
+	 * @param last whether the solve has ended
+	 * @throws IOException if the file cannot be written
+	 */
+	private void writeJson(BufferedWriter writer, double objective, double bound, double seconds, double[] values, boolean last) throws IOException {
+		writer.write(String.format(Locale.ROOT, "{\"objective\": %s, \"bound\": %s, \"gap\": %s, \"seconds\": %s, \"final\": %b, \"open_facilities\": [",
+				number(objective), number(bound), number(ProgressCallback.gap(objective, bound)), number(seconds), last));
+		boolean first = true;
+		for(int j = 0; j < facilities; j++) {
+			if(values[j] > 0.5) {
+				writer.write((first ? "" : ", ") + (j + 1));
+				first = false;
+			}
+		}
+		writer.write("]");
+		int[] assigned = assignments(values);
+		if(assigned != null) {
+			writer.write(", \"assignments\": [");
+			for(int r = 0; r < R; r++) {
+				writer.write((r == 0 ? "" : ", ") + (assigned[r] + 1));
+			}
+			writer.write("]");
+		}
+		writer.write("}");
+		writer.newLine();
+	}
+
+	/**
+	 * @param writer the temporary file
+	 * @param objective the objective of the incumbent
+	 * @param bound the best bound
+	 * @param seconds the time since the solve started
+	 * @param values the value of each variable of getVars
+	 * @param last whether the solve has ended
+	 * @throws IOException if the file cannot be written
+	 */
+	private void writeCsv(BufferedWriter writer, double objective, double bound, double seconds, double[] values, boolean last) throws IOException {
+		writer.write("entry,customer,facility,value");
+		writer.newLine();
+		writer.write("objective,,," + csvNumber(objective));
+		writer.newLine();
+		writer.write("bound,,," + csvNumber(bound));
+		writer.newLine();
+		writer.write("gap,,," + csvNumber(ProgressCallback.gap(objective, bound)));
+		writer.newLine();
+		writer.write("seconds,,," + csvNumber(seconds));
+		writer.newLine();
+		writer.write("final,,," + (last ? 1 : 0));
+		writer.newLine();
+		for(int j = 0; j < facilities; j++) {
+			if(values[j] > 0.5) {
+				writer.write("open,," + (j + 1) + ",1");
+				writer.newLine();
+			}
+		}
+		int[] assigned = assignments(values);
+		if(assigned != null) {
+			for(int r = 0; r < R; r++) {
+				writer.write("assignment," + (r + 1) + "," + (assigned[r] + 1) + ",1");
+				writer.newLine();
+			}
+		}
+	}
+
+	/**
+	 * @param values the value of each variable of getVars
+	 * @return the facility of each customer, -1 for none, or null outside the single allocation model
+	 */
+	private int[] assignments(double[] values) {
+		if(assignmentFacility.length == 0) {
+			return null;
+		}
+		int[] assigned = new int[R];
+		Arrays.fill(assigned, -1);
+		for(int n = 0; n < assignmentFacility.length; n++) {
+			if(values[facilities + n] > 0.5) {
+				assigned[assignmentCustomer[n]] = assignmentFacility[n];
+			}
+		}
+		return assigned;
+	}
+
+	/**
+	 * @param value a number
+	 * @return the number, or null if it is NaN or infinite
+	 */
+	private static String number(double value) {
+		if(Double.isNaN(value) || Double.isInfinite(value) || Math.abs(value) >= GRB.INFINITY) {
+			return "null";
+		}
+		return Double.toString(value);
+	}
+
+	/**
+	 * @param value a number
+	 * @return the number, or an empty column if it is NaN or infinite
+	 */
+	private static String csvNumber(double value) {
+		String number = number(value);
+		return number.equals("null") ? "" : number;
+	}
+
+}
@@ -0,0 +1,586 @@
+/**
+ * This class generates random CFLP instances in the 9 CSV file layout (see README.md) for stress and scaling tests.
+ * The same seed and settings always give the same files.
+ *
+ * Plants, facilities and customers are placed uniformly at random in a square and every distance is the euclidean
+ * distance between two points. Each product of a customer has no demand with probability equal to the sparsity, and
+ * otherwise a demand of at most the maximum demand scaled by the weight of the product in the mix. The capacities and
+ * activity levels are derived from the demands so that every choice of p open facilities can serve the customers,
+ * even with single allocation:
+ *
+ * - the plants hold slack times the total demand of every product,
+ * - every maximum activity level is at least slack times the total demand over p, plus the largest customer demand,
+ * - every minimum activity level is at most the total demand over p, less the largest customer demand.
+ *
+ * Rows are written as they are generated, so only the coordinates are kept in memory and the largest file (the J x R
+ * facility to customer distances) streams to disk. With coordinates the 2 distance files are replaced by the 3
+ * location files of a coordinate instance (see CSVInstanceLoader.COORDINATE_FILE_NAMES), which are euclidean.
+ *
+ * Running this class writes an instance to a directory:
+ * java InstanceGenerator [directory] [K] [I] [J] [R] [options]
+ *
+ * @author ryanhow
+ *
+ */
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class InstanceGenerator {
+
+	private final static Logger LOGGER = Logger.getLogger(InstanceGenerator.class.getName());
+
+	private static final int WRITE_BUFFER_SIZE = 1 << 20; //Characters buffered by each file writer
+	private static final int ROW_FLUSH_SIZE = 1 << 16; //Characters of a row collected before they are written
+
+	//Sets
+	private final int K; //Set of commodities/products
+	private final int I; //Set of production plant
+	private final int J; //Set of potential candidate facility locations
+	private final int R; //Set of customers
+
+	private final int p; //Desired number of facilities to be open
+	private final long seed;
+
+	//Settings
+	private double[] mix; //Weight of each product, the largest demand of a product is maxDemand scaled by its weight over the largest weight
+	private double sparsity = 0; //Probability that a customer has no demand for a product
+	private int maxDemand = 10; //Largest demand of a product for a customer
+	private double slack = 1.5; //Plant capacity and activity levels over the demand, at least 1
+	private double minLevel = 0.5; //Largest minimum activity level as a fraction of the bound which keeps the instance feasible
+	private double side = 1000; //Side of the square holding the plants, facilities and customers
+	private boolean coordinates = false; //Whether the locations are written instead of the distance matrices
+
+	//Totals of the last instance written
+	private long totalDemand;
+	private int largestDemand;
+
+	/**
+	 * This constructor creates a generator with an even product mix, dense demands and the default settings.
+	 *
+	 * @param K the number of products
+	 * @param I the number of production plants
+	 * @param J the number of candidate facility locations
+	 * @param R the number of customers
+	 * @param p the desired number of open facilities the instance must be feasible for
+	 * @param seed the random seed
+	 */
+	public InstanceGenerator(int K, int I, int J, int R, int p, long seed) {
+		if(K < 1 || I < 1 || J < 1 || R < 1) {
+			throw new IllegalArgumentException("Every set must have at least one element.");
+		}
+		if(p < 1 || p > J) {
+			throw new IllegalArgumentException("The desired number of open facilities must be between 1 and " + J + ".");
+		}
+		this.K = K;
+		this.I = I;
+		this.J = J;
+		this.R = R;
+		this.p = p;
+		this.seed = seed;
+		mix = new double[K];
+		Arrays.fill(mix, 1);
+	}
+
+	/**
+	 * This method obtains the desired number of open facilities used when none is given.
+	 *
+	 * @param J the number of candidate facility locations
+	 * @return the desired number of open facilities
+	 */
+	public static int defaultDesiredFacilities(int J) {
+		return Math.max(1, J / 4);
+	}
+
+	public static void main(String[] args) {
+		if(args.length < 5 || (args.length - 5) % 2 != 0) {
+			LOGGER.log(Level.SEVERE, "Invalid input. Please reference README.md for execution instructions.");
+			return;
+		}
+
+		InstanceGenerator generator;
+		try {
+			int J = Integer.parseInt(args[3]);
+			int p = defaultDesiredFacilities(J);
+			long seed = 1;
+			for(int option = 5; option < args.length; option += 2) {
+				if(args[option].equals("--p")) {
+					p = Integer.parseInt(args[option + 1]);
+				} else if(args[option].equals("--seed")) {
+					seed = Long.parseLong(args[option + 1]);
+				}
+			}
+			generator = new InstanceGenerator(Integer.parseInt(args[1]), Integer.parseInt(args[2]), J, Integer.parseInt(args[4]), p, seed);
+
+			for(int option = 5; option < args.length; option += 2) {
+				String value = args[option + 1];
+				switch(args[option]) {
+				case "--p":
+				case "--seed":
+					break;
+				case "--mix":
+					String[] weights = value.split(",");
+					double[] mix = new double[weights.length];
+					for(int k = 0; k < weights.length; k++) {
+						mix[k] = Double.parseDouble(weights[k]);
+					}
+					generator.setProductMix(mix);
+					break;
+				case "--sparsity":
+					generator.setSparsity(Double.parseDouble(value));
+					break;
+				case "--max-demand":
+					generator.setMaxDemand(Integer.parseInt(value));
+					break;
+				case "--slack":
+					generator.setSlack(Double.parseDouble(value));
+					break;
+				case "--min-level":
+					generator.setMinLevel(Double.parseDouble(value));
+					break;
+				case "--side":
+					generator.setSide(Double.parseDouble(value));
+					break;
+				case "--distances":
+					if(!value.equals("matrix") && !value.equals("coordinates")) {
+						throw new IllegalArgumentException("The distances must be 'matrix' or 'coordinates'.");
+					}
+					generator.setCoordinates(value.equals("coordinates"));
+					break;
+				default:
+					LOGGER.log(Level.SEVERE, "Unknown option '" + args[option] + "'. Please reference README.md for execution instructions.");
+					return;
+				}
+			}
+		} catch (IllegalArgumentException e) {
+			LOGGER.log(Level.SEVERE, "Invalid input. " + e.getMessage());
+			return;
+		}
+
+		try {
+			generator.write(Paths.get(args[0]));
+		} catch (IOException e) {
+			LOGGER.log(Level.SEVERE, "Error writing instance files. " + e.getMessage());
+			return;
+		}
+		System.out.println("Total Demand: " + generator.getTotalDemand());
+		System.out.println("Desired Open Facilities: " + generator.getDesiredFacilities());
+	}
+
+	/**
+	 * @param mix the weight of each product, the largest demand of a product is the maximum demand scaled by its
+	 * weight over the largest weight
+	 */
+	public void setProductMix(double[] mix) {
+		if(mix.length != K) {
+			throw new IllegalArgumentException("Expected " + K + " product weights but found " + mix.length + ".");
+		}
+		double largest = 0;
+		for(double weight : mix) {
+			if(weight < 0) {
+				throw new IllegalArgumentException("Product weights must not be negative.");
+			}
+			largest = Math.max(largest, weight);
+		}
+		if(largest == 0) {
+			throw new IllegalArgumentException("At least one product weight must be positive.");
+		}
+		this.mix = mix.clone();
+	}
+
+	/**
+	 * @param sparsity the probability that a customer has no demand for a product, between 0 and 1
+	 */
+	public void setSparsity(double sparsity) {
+		if(sparsity < 0 || sparsity > 1) {
+			throw new IllegalArgumentException("The sparsity must be between 0 and 1.");
+		}
+		this.sparsity = sparsity;
+	}
+
+	/**
+	 * @param maxDemand the largest demand of a product for a customer
+	 */
+	public void setMaxDemand(int maxDemand) {
+		if(maxDemand < 1) {
+			throw new IllegalArgumentException("The maximum demand must be at least 1.");
+		}
+		this.maxDemand = maxDemand;
+	}
+
+	/**
+	 * @param slack the plant capacity and maximum activity levels over the demand, at least 1
+	 */
+	public void setSlack(double slack) {
+		if(slack < 1) {
+			throw new IllegalArgumentException("The slack must be at least 1.");
+		}
+		this.slack = slack;
+	}
+
+	/**
+	 * @param minLevel the largest minimum activity level as a fraction of the bound which keeps the instance
+	 * feasible, between 0 and 1
+	 */
+	public void setMinLevel(double minLevel) {
+		if(minLevel < 0 || minLevel > 1) {
+			throw new IllegalArgumentException("The minimum activity level fraction must be between 0 and 1.");
+		}
+		this.minLevel = minLevel;
+	}
+
+	/**
+	 * @param side the side of the square holding the plants, facilities and customers
+	 */
+	public void setSide(double side) {
+		if(!(side > 0)) {
+			throw new IllegalArgumentException("The side of the square must be positive.");
+		}
+		this.side = side;
+	}
+
+	/**
+	 * @param coordinates true to write the locations of a coordinate instance, false to write the distance matrices
+	 */
+	public void setCoordinates(boolean coordinates) {
+		this.coordinates = coordinates;
+	}
+
+	/**
+	 * This method writes the 9 CSV files of the instance to a directory, or the 10 of a coordinate instance,
+	 * creating it if needed.
+	 *
+	 * @param directory the instance directory
+	 * @throws IOException if the files cannot be written
+	 */
+	public void write(Path directory) throws IOException {
+		Files.createDirectories(directory);
+
+		//Every part of the instance draws from its own stream so the settings of one part do not move another
+		SplittableRandom root = new SplittableRandom(seed);
+		SplittableRandom demandRandom = root.split();
+		SplittableRandom capacityRandom = root.split();
+		SplittableRandom activityRandom = root.split();
+		SplittableRandom costRandom = root.split();
+		SplittableRandom locationRandom = root.split();
+
+		long[] productDemand = writeDemands(directory, demandRandom);
+		writePlantCapacities(directory, capacityRandom, productDemand);
+		writeActivityLevels(directory, activityRandom);
+
+		//Facility Fixed and Marginal Costs, Unit Transportation Costs
+		try(BufferedWriter writer = writer(directory, 4)) {
+			StringBuilder row = new StringBuilder();
+			for(int j = 0; j < J; j++) {
+				appendNumber(row, j, 500 + 1500 * costRandom.nextDouble());
+			}
+			writeRow(writer, row);
+		}
+		try(BufferedWriter writer = writer(directory, 5)) {
+			StringBuilder row = new StringBuilder();
+			for(int j = 0; j < J; j++) {
+				appendNumber(row, j, 0.5 + costRandom.nextDouble());
+			}
+			writeRow(writer, row);
+		}
+		try(BufferedWriter writer = writer(directory, 6)) {
+			StringBuilder row = new StringBuilder();
+			for(int k = 0; k < K; k++) {
+				appendNumber(row, k, 0.01 + 0.09 * costRandom.nextDouble());
+			}
+			writeRow(writer, row);
+		}
+
+		//Plant to Facility and Facility to Customer Distances
+		double[] plantX = coordinates(locationRandom, I);
+		double[] plantY = coordinates(locationRandom, I);
+		double[] facilityX = coordinates(locationRandom, J);
+		double[] facilityY = coordinates(locationRandom, J);
+		double[] customerX = coordinates(locationRandom, R);
+		double[] customerY = coordinates(locationRandom, R);
+		if(coordinates) {
+			writeLocations(directory, 7, plantX, plantY);
+			writeLocations(directory, 8, facilityX, facilityY);
+			writeLocations(directory, 9, customerX, customerY);
+			return;
+		}
+		writeDistances(directory, 7, plantX, plantY, facilityX, facilityY);
+		writeDistances(directory, 8, facilityX, facilityY, customerX, customerY);
+	}
+
+	/**
+	 * This method writes the demands one customer at a time.
+	 *
+	 * @param directory the instance directory
+	 * @param random the random numbers of the demands
+	 * @return the total demand of each product
+	 * @throws IOException if the file cannot be written
+	 */
+	private long[] writeDemands(Path directory, SplittableRandom random) throws IOException {
+		double largestWeight = 0;
+		for(double weight : mix) {
+			largestWeight = Math.max(largestWeight, weight);
+		}
+		int[] productMax = new int[K];
+		for(int k = 0; k < K; k++) {
+			productMax[k] = (int) Math.round(maxDemand * mix[k] / largestWeight);
+		}
+
+		long[] productDemand = new long[K];
+		totalDemand = 0;
+		largestDemand = 0;
+		try(BufferedWriter writer = writer(directory, 0)) {
+			StringBuilder row = new StringBuilder();
+			for(int r = 0; r < R; r++) {
+				int customerDemand = 0;
+				for(int k = 0; k < K; k++) {
+					int demand = productMax[k] == 0 || random.nextDouble() < sparsity ? 0 : 1 + random.nextInt(productMax[k]);
+					if(k > 0) {
+						row.append(',');
+					}
+					row.append(demand);
+					productDemand[k] += demand;
+					customerDemand += demand;
+				}
+				totalDemand += customerDemand;
+				largestDemand = Math.max(largestDemand, customerDemand);
+				row.append('\n');
+				if(row.length() >= ROW_FLUSH_SIZE) {
+					writer.append(row);
+					row.setLength(0);
+				}
+			}
+			writer.append(row);
+		}
+		return productDemand;
+	}
+
+	/**
+	 * This method writes the plant capacities. The capacity of a product is split between the plants at random and
+	 * rounded up, so the plants together hold at least slack times the demand of the product.
+	 *
+	 * @param directory the instance directory
+	 * @param random the random numbers of the capacities
+	 * @param productDemand the total demand of each product
+	 * @throws IOException if the file cannot be written
+	 */
+	private void writePlantCapacities(Path directory, SplittableRandom random, long[] productDemand) throws IOException {
+		double[][] share = new double[I][K];
+		double[] shareTotal = new double[K];
+		for(int i = 0; i < I; i++) {
+			for(int k = 0; k < K; k++) {
+				share[i][k] = 0.5 + random.nextDouble();
+				shareTotal[k] += share[i][k];
+			}
+		}
+		try(BufferedWriter writer = writer(directory, 1)) {
+			StringBuilder row = new StringBuilder();
+			for(int i = 0; i < I; i++) {
+				for(int k = 0; k < K; k++) {
+					if(k > 0) {
+						row.append(',');
+					}
+					row.append(checkedInt(Math.ceil(slack * productDemand[k] * share[i][k] / shareTotal[k]), "plant capacity"));
+				}
+				writeRow(writer, row);
+			}
+		}
+	}
+
+	/**
+	 * This method writes the minimum and maximum activity levels, which vary at random between facilities within
+	 * the bounds that keep every choice of p open facilities feasible.
+	 *
+	 * @param directory the instance directory
+	 * @param random the random numbers of the activity levels
+	 * @throws IOException if the files cannot be written
+	 */
+	private void writeActivityLevels(Path directory, SplittableRandom random) throws IOException {
+		double perFacility = (double) totalDemand / p;
+		double minBound = Math.max(0, perFacility - largestDemand);
+		double maxBound = Math.ceil(slack * perFacility) + largestDemand;
+
+		try(BufferedWriter writer = writer(directory, 2)) {
+			StringBuilder row = new StringBuilder();
+			for(int j = 0; j < J; j++) {
+				if(j > 0) {
+					row.append(',');
+				}
+				row.append((int) Math.floor(minLevel * minBound * random.nextDouble()));
+			}
+			writeRow(writer, row);
+		}
+		try(BufferedWriter writer = writer(directory, 3)) {
+			StringBuilder row = new StringBuilder();
+			for(int j = 0; j < J; j++) {
+				if(j > 0) {
+					row.append(',');
+				}
+				row.append(checkedInt(Math.ceil(maxBound * (1 + 0.5 * random.nextDouble())), "maximum activity level"));
+			}
+			writeRow(writer, row);
+		}
+	}
+
+	/**
+	 * This method writes the euclidean distances from one set of points to another, one row per origin.
+	 *
+	 * @param directory the instance directory
+	 * @param file the position of the file in CSVInstanceLoader.FILE_NAMES
+	 * @param fromX the x coordinate of each origin
+	 * @param fromY the y coordinate of each origin
+	 * @param toX the x coordinate of each destination
+	 * @param toY the y coordinate of each destination
+	 * @throws IOException if the file cannot be written
+	 */
+	private static void writeDistances(Path directory, int file, double[] fromX, double[] fromY, double[] toX, double[] toY) throws IOException {
+		try(BufferedWriter writer = writer(directory, file)) {
+			StringBuilder row = new StringBuilder();
+			for(int from = 0; from < fromX.length; from++) {
+				for(int to = 0; to < toX.length; to++) {
+					appendNumber(row, to, Math.hypot(fromX[from] - toX[to], fromY[from] - toY[to]));
+					if(row.length() >= ROW_FLUSH_SIZE) {
+						writer.append(row);
+						row.setLength(0);
+					}
+				}
+				writeRow(writer, row);
+			}
+		}
+	}
+
+	/**
+	 * This method writes the locations of a set of points, one x, y pair per row.
+	 *
+	 * @param directory the instance directory
+	 * @param file the position of the file in CSVInstanceLoader.COORDINATE_FILE_NAMES
+	 * @param x the x coordinate of each point
+	 * @param y the y coordinate of each point
+	 * @throws IOException if the file cannot be written
+	 */
+	private static void writeLocations(Path directory, int file, double[] x, double[] y) throws IOException {
+		try(BufferedWriter writer = writer(directory, CSVInstanceLoader.COORDINATE_FILE_NAMES[file])) {
+			StringBuilder row = new StringBuilder();
+			for(int point = 0; point < x.length; point++) {
+				appendNumber(row, 0, x[point]);
+				appendNumber(row, 1, y[point]);
+				row.append('\n');
+				if(row.length() >= ROW_FLUSH_SIZE) {
+					writer.append(row);
+					row.setLength(0);
+				}
+			}
+			writer.append(row);
+		}
+	}
+
+	/**
+	 * This method draws one coordinate of random points in the square.
+	 *
+	 * @param random the random numbers of the locations
+	 * @param count the number of points
+	 * @return the coordinate of each point
+	 */
+	private double[] coordinates(SplittableRandom random, int count) {
+		double[] coordinates = new double[count];
+		for(int point = 0; point < count; point++) {
+			coordinates[point] = side * random.nextDouble();
+		}
+		return coordinates;
+	}
+
+	/**
+	 * This method appends a non-negative number with two decimals to a row, preceded by a comma unless it is the
+	 * first column. It avoids String.format, which dominates the time of the large distance files.
+	 *
+	 * @param row the row
+	 * @param column the column of the number
+	 * @param value the number
+	 */
+	private static void appendNumber(StringBuilder row, int column, double value) {
+		if(column > 0) {
+			row.append(',');
+		}
+		long hundredths = Math.round(value * 100);
+		long fraction = hundredths % 100;
+		row.append(hundredths / 100).append('.');
+		if(fraction < 10) {
+			row.append('0');
+		}
+		row.append(fraction);
+	}
+
+	/**
+	 * This method ends a row and writes it.
+	 *
+	 * @param writer the file writer
+	 * @param row the row, which is cleared
+	 * @throws IOException if the row cannot be written
+	 */
+	private static void writeRow(Writer writer, StringBuilder row) throws IOException {
+		row.append('\n');
+		writer.append(row);
+		row.setLength(0);
+	}
+
+	/**
+	 * This method checks that a generated parameter fits the integer columns of the instance files.
+	 *
+	 * @param value the parameter
+	 * @param parameter the name of the parameter
+	 * @return the parameter as an integer
+	 */
+	private static int checkedInt(double value, String parameter) {
+		if(value > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("The " + parameter + " " + (long) value + " does not fit in an integer, lower the demands.");
+		}
+		return (int) value;
+	}
+
+	/**
+	 * This method opens one of the 9 instance files for writing.
+	 *
+	 * @param directory the instance directory
+	 * @param file the position of the file in CSVInstanceLoader.FILE_NAMES
+	 * @return the writer
+	 * @throws IOException if the file cannot be opened
+	 */
+	private static BufferedWriter writer(Path directory, int file) throws IOException {
+		return writer(directory, CSVInstanceLoader.FILE_NAMES[file]);
+	}
+
+	/**
+	 * This method opens an instance file for writing.
+	 *
+	 * @param directory the instance directory
+	 * @param fileName the name of the file
+	 * @return the writer
+	 * @throws IOException if the file cannot be opened
+	 */
+	private static BufferedWriter writer(Path directory, String fileName) throws IOException {
+		return new BufferedWriter(Files.newBufferedWriter(directory.resolve(fileName)), WRITE_BUFFER_SIZE);
+	}
+
+	/**
+	 * @return the total demand of the last instance written
+	 */
+	public long getTotalDemand() {
+		return totalDemand;
+	}
+
+	/**
+	 * @return the desired number of open facilities the instance is feasible for
+	 */
+	public int getDesiredFacilities() {
+		return p;
+	}
+
+}
@@ -0,0 +1,556 @@
+/**
+ * This class builds and solves the model of one CFLP instance in pure java, without a gurobi environment or
+ * licence. It builds the same single allocation, divisible demand or arc-flow formulation as CFLPModel into a
+ * LinearProgram and solves it by BranchAndBound, which suits small and medium instances whose basis fits a dense
+ * inverse.
+ *
+ * The search is tuned for the p facility structure: the facilities z[j] are branched on before the assignments
+ * y[j][r], so the dive settles which facilities open first, and the relaxation is rounded by opening the p
+ * facilities it opens the most and completing the flows with the linear program. The MIP start, such as the greedy
+ * heuristic solution, is tried before the root.
+ *
+ * @author ryanhow
+ *
+ */
+
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import gurobi.GRB;
+
+public class JavaCFLPModel implements CFLPSolver {
+
+	private final static Logger LOGGER = Logger.getLogger(JavaCFLPModel.class.getName());
+
+	private static final int FACILITY_PRIORITY = 2; //Branching priority of z[j]
+	private static final int ASSIGNMENT_PRIORITY = 1; //Branching priority of y[j][r]
+
+	//Sets
+	private final int K; //Set of commodities/products
+	private final int I; //Set of production plant
+	private final int J; //Set of potential candidate facility locations
+	private final int R; //Set of customers
+
+	//Parameters
+	private final CFLPInstance instance; //Demands, capacities, activity levels, costs and distances
+	private int p; //Desired number of facilities to be open
+	private final AllocationMode allocation; //Single allocation, divisible demand or arc-flow divisible demand
+
+	private final LinearProgram lp = new LinearProgram();
+	private int desiredFacilities; //Desired number of open facilities row, the only row which depends on p
+
+	//First column of each decision variable family, flattened as in CFLPModel
+	private final int zOffset; //If facility j is open or not (both models)
+	private final int xOffset; //Amount of product k supplied by plant i to facility j (single allocation and arc-flow models)
+	private final int flowOffset; //y[j][r] (single allocation model), s[k][i][j][r] (divisible demand model) or w[k][j][r] (arc-flow divisible demand model)
+
+	private double[] start; //Value of each column of the MIP start, NaN for columns left to the linear program, or null
+	private double[] solution; //Value of each column of the incumbent, or null
+	private double objective = Double.NaN;
+	private double bound = Double.NEGATIVE_INFINITY;
+	private boolean finished;
+	private int status = GRB.Status.LOADED; //Gurobi's status code of the last solve
+	private double runtime;
+	private long nodes;
+	private long iterations;
+
+	/**
+	 * This constructor creates an empty model for an instance.
+	 *
+	 * @param instance the CFLP instance
+	 * @param p the desired number of open facilities
+	 * @param allocation the allocation mode
+	 */
+	public JavaCFLPModel(CFLPInstance instance, int p, AllocationMode allocation) {
+		this.instance = instance;
+		this.p = p;
+		this.allocation = allocation;
+		K = instance.numProducts();
+		I = instance.numPlants();
+		J = instance.numFacilities();
+		R = instance.numCustomers();
+		zOffset = 0;
+		xOffset = J;
+		flowOffset = allocation == AllocationMode.DIVISIBLE ? J : J + K * I * J;
+	}
+
+	/**
+	 * This method adds the decision variables, objective and constraints to the model.
+	 *
+	 * @return true if the model was built
+	 */
+	public boolean build() {
+		addDecisionVariables();
+		addConstraints();
+		lp.compile();
+		return true;
+	}
+
+	/**
+	 * This method adds the decision variables with their costs in the flat order of CFLPModel.
+	 */
+	private void addDecisionVariables() {
+		for(int j = 0; j < J; j++) {
+			lp.addColumn(instance.fixedCost(j), 0, 1, true, FACILITY_PRIORITY);
+		}
+		if(allocation != AllocationMode.DIVISIBLE) {
+			for(int k = 0; k < K; k++) {
+				for(int i = 0; i < I; i++) {
+					for(int j = 0; j < J; j++) {
+						lp.addColumn(instance.unitCost(k) * instance.plantDistance(i, j), 0, Double.POSITIVE_INFINITY, false, 0);
+					}
+				}
+			}
+		}
+		if(allocation == AllocationMode.SINGLE) {
+			for(int j = 0; j < J; j++) {
+				for(int r = 0; r < R; r++) {
+					lp.addColumn(instance.assignmentCost(j, r), 0, 1, true, ASSIGNMENT_PRIORITY);
+				}
+			}
+		} else if(allocation == AllocationMode.ARC_FLOW) {
+			for(int k = 0; k < K; k++) {
+				for(int j = 0; j < J; j++) {
+					for(int r = 0; r < R; r++) {
+						double transportationCost = instance.unitCost(k) * instance.customerDistance(j, r);
+						lp.addColumn(transportationCost + instance.marginalCost(j), 0, Double.POSITIVE_INFINITY, false, 0);
+					}
+				}
+			}
+		} else {
+			for(int k = 0; k < K; k++) {
+				for(int i = 0; i < I; i++) {
+					for(int j = 0; j < J; j++) {
+						for(int r = 0; r < R; r++) {
+							double totalDistance = instance.plantDistance(i, j) + instance.customerDistance(j, r);
+							lp.addColumn(instance.unitCost(k) * totalDistance + instance.marginalCost(j), 0, Double.POSITIVE_INFINITY, false, 0);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * This method adds the constraints of CFLPModel.
+	 */
+	private void addConstraints() {
+		// Desired Open Facilities
+		int[] facilities = new int[J];
+		for(int j = 0; j < J; j++) {
+			facilities[j] = zOffset + j;
+		}
+		desiredFacilities = lp.addRow(facilities, filled(J, 1), LinearProgram.EQUAL, p);
+
+		if(allocation == AllocationMode.SINGLE) {
+			//Single Allocation for Demand
+			for(int r = 0; r < R; r++) {
+				int[] columns = new int[J];
+				for(int j = 0; j < J; j++) {
+					columns[j] = flowOffset + j * R + r;
+				}
+				lp.addRow(columns, filled(J, 1), LinearProgram.EQUAL, 1);
+			}
+			addPlantCapacityConstraints();
+
+			//Maximum and Minimum Facility Activity Level
+			for(int j = 0; j < J; j++) {
+				int[] columns = new int[R + 1];
+				double[] demands = new double[R + 1];
+				for(int r = 0; r < R; r++) {
+					columns[r] = flowOffset + j * R + r;
+					demands[r] = instance.customerDemand(r);
+				}
+				addActivityLevelConstraints(j, columns, demands);
+			}
+
+			//Facility Product Flow Balance
+			for(int j = 0; j < J; j++) {
+				for(int k = 0; k < K; k++) {
+					int[] columns = new int[I + R];
+					double[] coefficients = new double[I + R];
+					for(int i = 0; i < I; i++) {
+						columns[i] = xOffset + (k * I + i) * J + j;
+						coefficients[i] = 1;
+					}
+					for(int r = 0; r < R; r++) {
+						columns[I + r] = flowOffset + j * R + r;
+						coefficients[I + r] = -instance.demand(r, k);
+					}
+					lp.addRow(columns, coefficients, LinearProgram.EQUAL, 0);
+				}
+			}
+		} else if(allocation == AllocationMode.ARC_FLOW) {
+			//Divisible Demand
+			for(int r = 0; r < R; r++) {
+				for(int k = 0; k < K; k++) {
+					int[] columns = new int[J];
+					for(int j = 0; j < J; j++) {
+						columns[j] = flowOffset + (k * J + j) * R + r;
+					}
+					lp.addRow(columns, filled(J, 1), LinearProgram.EQUAL, instance.demand(r, k));
+				}
+			}
+			addPlantCapacityConstraints();
+
+			//Maximum and Minimum Facility Activity Level
+			for(int j = 0; j < J; j++) {
+				int[] columns = new int[K * R + 1];
+				for(int k = 0; k < K; k++) {
+					for(int r = 0; r < R; r++) {
+						columns[k * R + r] = flowOffset + (k * J + j) * R + r;
+					}
+				}
+				addActivityLevelConstraints(j, columns, filled(K * R + 1, 1));
+			}
+
+			//Facility Product Flow Balance
+			for(int j = 0; j < J; j++) {
+				for(int k = 0; k < K; k++) {
+					int[] columns = new int[I + R];
+					double[] coefficients = new double[I + R];
+					for(int i = 0; i < I; i++) {
+						columns[i] = xOffset + (k * I + i) * J + j;
+						coefficients[i] = 1;
+					}
+					for(int r = 0; r < R; r++) {
+						columns[I + r] = flowOffset + (k * J + j) * R + r;
+						coefficients[I + r] = -1;
+					}
+					lp.addRow(columns, coefficients, LinearProgram.EQUAL, 0);
+				}
+			}
+		} else {
+			//Divisible Demand
+			for(int r = 0; r < R; r++) {
+				for(int k = 0; k < K; k++) {
+					int[] columns = new int[I * J];
+					for(int i = 0; i < I; i++) {
+						for(int j = 0; j < J; j++) {
+							columns[i * J + j] = flowOffset + ((k * I + i) * J + j) * R + r;
+						}
+					}
+					lp.addRow(columns, filled(I * J, 1), LinearProgram.EQUAL, instance.demand(r, k));
+				}
+			}
+
+			//Production Plant Capacity
+			for(int i = 0; i < I; i++) {
+				for(int k = 0; k < K; k++) {
+					int[] columns = new int[J * R];
+					for(int jr = 0; jr < J * R; jr++) {
+						columns[jr] = flowOffset + (k * I + i) * J * R + jr;
+					}
+					lp.addRow(columns, filled(J * R, 1), LinearProgram.LESS_EQUAL, instance.capacity(i, k));
+				}
+			}
+
+			//Maximum and Minimum Facility Activity Level
+			for(int j = 0; j < J; j++) {
+				int[] columns = new int[K * I * R + 1];
+				for(int k = 0; k < K; k++) {
+					for(int i = 0; i < I; i++) {
+						for(int r = 0; r < R; r++) {
+							columns[(k * I + i) * R + r] = flowOffset + ((k * I + i) * J + j) * R + r;
+						}
+					}
+				}
+				addActivityLevelConstraints(j, columns, filled(K * I * R + 1, 1));
+			}
+		}
+	}
+
+	/**
+	 * This method adds the production plant capacity constraints on the plant to facility flows x.
+	 */
+	private void addPlantCapacityConstraints() {
+		for(int i = 0; i < I; i++) {
+			for(int k = 0; k < K; k++) {
+				int[] columns = new int[J];
+				for(int j = 0; j < J; j++) {
+					columns[j] = xOffset + (k * I + i) * J + j;
+				}
+				lp.addRow(columns, filled(J, 1), LinearProgram.LESS_EQUAL, instance.capacity(i, k));
+			}
+		}
+	}
+
+	/**
+	 * This method adds the maximum and minimum activity level constraints of a facility.
+	 *
+	 * @param j the facility
+	 * @param columns the columns of the product leaving the facility, with a last entry left for z[j]
+	 * @param coefficients the coefficients of the product leaving the facility, with a last entry left for z[j]
+	 */
+	private void addActivityLevelConstraints(int j, int[] columns, double[] coefficients) {
+		int last = columns.length - 1;
+		columns[last] = zOffset + j;
+		coefficients[last] = -instance.maxActivity(j);
+		lp.addRow(columns, coefficients, LinearProgram.LESS_EQUAL, 0);
+		coefficients[last] = -instance.minActivity(j);
+		lp.addRow(columns, coefficients, LinearProgram.GREATER_EQUAL, 0);
+	}
+
+	/**
+	 * This method changes the desired number of open facilities of a built model. Only the right hand side of the
+	 * desired open facilities row changes.
+	 *
+	 * @param p the desired number of open facilities
+	 * @return true
+	 */
+	public boolean setDesiredFacilities(int p) {
+		lp.setRhs(desiredFacilities, p);
+		this.p = p;
+		return true;
+	}
+
+	/**
+	 * This method sets a single allocation solution as the MIP start. The single allocation model fixes the open
+	 * facilities and customer assignments, and the divisible demand models fix the open facilities, and the flows are
+	 * completed by the linear program.
+	 *
+	 * @param solution the single allocation solution
+	 * @return true
+	 */
+	public boolean setStart(SingleAllocationSolution solution) {
+		boolean[] open = new boolean[J];
+		for(int j = 0; j < J; j++) {
+			open[j] = solution.isOpen(j);
+		}
+		setStart(open);
+		if(allocation == AllocationMode.SINGLE) {
+			for(int j = 0; j < J; j++) {
+				for(int r = 0; r < R; r++) {
+					start[flowOffset + j * R + r] = solution.getAssignment(r) == j ? 1 : 0;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * This method sets the open facilities of the MIP start and leaves the other variables to the search.
+	 *
+	 * @param open if each facility is open or not
+	 * @return true
+	 */
+	public boolean setStart(boolean[] open) {
+		start = filled(lp.numColumns(), Double.NaN);
+		for(int j = 0; j < J; j++) {
+			start[zOffset + j] = open[j] ? 1 : 0;
+		}
+		return true;
+	}
+
+	/**
+	 * This method solves the model by branch and bound, starting from the MIP start if there is one.
+	 *
+	 * @return true if the search finished, false if a relaxation could not be solved
+	 */
+	public boolean optimize() {
+		long begin = System.nanoTime();
+		BranchAndBound search = new BranchAndBound(lp);
+		search.setRounding(this::round);
+		if(start != null) {
+			search.tryStart(start);
+		}
+		finished = search.solve();
+		runtime = (System.nanoTime() - begin) / 1e9;
+		nodes = search.getNodes();
+		iterations = search.getIterations();
+		solution = search.getIncumbent();
+		objective = solution == null ? Double.NaN : search.getObjective();
+		bound = search.getBound();
+		status = !finished ? GRB.Status.NUMERIC : solution != null ? GRB.Status.OPTIMAL : GRB.Status.INFEASIBLE;
+		return finished;
+	}
+
+	/**
+	 * This method rounds a relaxation by opening the p facilities with the largest z[j], ties going to the lower
+	 * facility, and leaving every other column to the linear program.
+	 *
+	 * @param relaxation the value of each column of a relaxation
+	 * @return the start
+	 */
+	private double[] round(double[] relaxation) {
+		Integer[] order = new Integer[J];
+		for(int j = 0; j < J; j++) {
+			order[j] = j;
+		}
+		Arrays.sort(order, (a, b) -> Double.compare(relaxation[zOffset + b], relaxation[zOffset + a]));
+		double[] rounded = filled(lp.numColumns(), Double.NaN);
+		for(int n = 0; n < J; n++) {
+			rounded[zOffset + order[n]] = n < p ? 1 : 0;
+		}
+		return rounded;
+	}
+
+	/**
+	 * @return true if the search found a feasible solution
+	 */
+	public boolean hasSolution() {
+		return solution != null;
+	}
+
+	/**
+	 * @return the objective of the incumbent, or NaN without one
+	 */
+	public double getObjective() {
+		return objective;
+	}
+
+	/**
+	 * @return the best lower bound of the last solve
+	 */
+	public double getBound() {
+		return bound;
+	}
+
+	/**
+	 * @return the relative gap between the incumbent and the bound, as gurobi computes it
+	 */
+	public double getGap() {
+		if(solution == null) {
+			return Double.POSITIVE_INFINITY;
+		}
+		if(objective == bound) {
+			return 0;
+		}
+		return Math.abs(bound - objective) / Math.abs(objective);
+	}
+
+	/**
+	 * @return the wall clock time of the last solve in seconds
+	 */
+	public double getRuntime() {
+		return runtime;
+	}
+
+	/**
+	 * @return gurobi's status code of the last solve: optimal or infeasible once the search finished, a numerical
+	 * failure if it did not, and loaded before the first solve
+	 */
+	public int getStatus() {
+		return status;
+	}
+
+	/**
+	 * @return the number of branch and bound nodes of the last solve
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * @return the number of columns of the model
+	 */
+	public int numVariables() {
+		return lp.numColumns();
+	}
+
+	/**
+	 * @return the number of rows of the model
+	 */
+	public int numConstraints() {
+		return lp.numRows();
+	}
+
+	/**
+	 * @return the number of nonzero entries of the model
+	 */
+	public long numNonzeros() {
+		return lp.numEntries();
+	}
+
+	/**
+	 * @return the number of simplex iterations of the last solve
+	 */
+	public long getIterations() {
+		return iterations;
+	}
+
+	/**
+	 * This method obtains the open facilities of the incumbent solution.
+	 *
+	 * @return if each facility is open or not, or null if there is no incumbent
+	 */
+	public boolean[] getOpenFacilities() {
+		if(solution == null) {
+			return null;
+		}
+		boolean[] open = new boolean[J];
+		for(int j = 0; j < J; j++) {
+			open[j] = solution[zOffset + j] > 0.5;
+		}
+		return open;
+	}
+
+	/**
+	 * This method prints the solution to the console.
+	 */
+	public void printSolution() {
+		System.out.println();
+		System.out.println("***OPTIMAL SOLUTION***");
+		System.out.println();
+
+		if(solution == null) {
+			LOGGER.log(Level.SEVERE, "Error obtaining objective function value. Model is infeasible.");
+			return;
+		}
+		System.out.println("Total Cost: " + objective);
+		System.out.println();
+
+		new SolutionPrinter(instance, allocation, this::getSolutionValues).print();
+	}
+
+	/**
+	 * This method writes the nonzero values of the incumbent solution to a CSV or JSON file (see SolutionWriter).
+	 * The status is gurobi's code for an optimal solve, or for a numerical failure if the search did not finish.
+	 *
+	 * @param filePath the path to the solution file, JSON if it ends in .json and CSV otherwise
+	 * @return true if the file was written, false otherwise
+	 */
+	public boolean writeSolution(String filePath) {
+		if(solution == null) {
+			LOGGER.log(Level.SEVERE, "Error writing solution file. Model has no solution.");
+			return false;
+		}
+		SolutionPrinter printer = new SolutionPrinter(instance, allocation, this::getSolutionValues);
+		return printer.write(filePath, objective, finished ? GRB.Status.OPTIMAL : GRB.Status.NUMERIC);
+	}
+
+	/**
+	 * This method copies a range of the solution values of a decision variable family (see SolutionPrinter).
+	 *
+	 * @param family the decision variable family, z, x, y, w or s
+	 * @param from the first flat index
+	 * @param to one past the last flat index
+	 * @return the value of each variable in the range
+	 */
+	private double[] getSolutionValues(String family, int from, int to) {
+		int offset = family.equals("z") ? zOffset : family.equals("x") ? xOffset : flowOffset;
+		return Arrays.copyOfRange(solution, offset + from, offset + to);
+	}
+
+	/**
+	 * This method releases the model, which holds no native resources.
+	 */
+	public void dispose() {
+		solution = null;
+	}
+
+	/**
+	 * This method creates an array with every entry set to the same value.
+	 *
+	 * @param length the length of the array
+	 * @param value the value of every entry
+	 * @return the filled array
+	 */
+	private static double[] filled(int length, double value) {
+		double[] values = new double[length];
+		Arrays.fill(values, value);
+		return values;
+	}
+
+}
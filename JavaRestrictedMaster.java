@@ -0,0 +1,158 @@
+/**
+ * This class is a restricted master solved in pure java. The rows and columns are kept as they are added, and every
+ * solve compiles them into a LinearProgram solved by BoundedSimplex from the basis of the last solve, which suits the
+ * small masters of instances solved without a gurobi licence.
+ *
+ * @author ryanhow
+ *
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class JavaRestrictedMaster implements RestrictedMaster {
+
+	private final static Logger LOGGER = Logger.getLogger(JavaRestrictedMaster.class.getName());
+
+	private static final int ITERATIONS_PER_COLUMN = 100; //Simplex iterations per row and column
+
+	//Rows
+	private final List<Character> senses = new ArrayList<>();
+	private final List<Double> rhs = new ArrayList<>();
+
+	//Columns
+	private final List<Double> costs = new ArrayList<>();
+	private final List<double[]> bounds = new ArrayList<>();
+	private final List<int[]> columnRows = new ArrayList<>();
+	private final List<double[]> columnCoefficients = new ArrayList<>();
+	private long nonzeros; //Entries of the columns
+
+	private BoundedSimplex simplex; //Solution of the last solve, or null
+	private int[] basis; //Basis of the last optimal solve, or null
+	private boolean[] nonbasicAtUpper; //If each column rested at its upper bound in the last optimal solve
+
+	@Override
+	public int addRow(char sense, double value) {
+		senses.add(sense);
+		rhs.add(value);
+		return senses.size() - 1;
+	}
+
+	@Override
+	public void setRhs(int row, double value) {
+		rhs.set(row, value);
+	}
+
+	@Override
+	public int addColumn(double cost, double upperBound, int[] rows, double[] coefficients) {
+		costs.add(cost);
+		bounds.add(new double[] {0, upperBound});
+		columnRows.add(rows.clone());
+		columnCoefficients.add(coefficients.clone());
+		nonzeros += rows.length;
+		return costs.size() - 1;
+	}
+
+	@Override
+	public void setCost(int column, double cost) {
+		costs.set(column, cost);
+	}
+
+	@Override
+	public void setBounds(int column, double lowerBound, double upperBound) {
+		bounds.set(column, new double[] {lowerBound, upperBound});
+	}
+
+	/**
+	 * This method compiles the rows and columns into a linear program and solves it from the basis of the last solve.
+	 *
+	 * @return the outcome of the solve
+	 */
+	@Override
+	public BoundedSimplex.Status solve() {
+		LinearProgram lp = new LinearProgram();
+		int[] entries = new int[senses.size()];
+		for(int column = 0; column < costs.size(); column++) {
+			lp.addColumn(costs.get(column), bounds.get(column)[0], bounds.get(column)[1], false, 0);
+			for(int row : columnRows.get(column)) {
+				entries[row]++;
+			}
+		}
+
+		//Transpose the columns into rows
+		int[][] rowColumns = new int[senses.size()][];
+		double[][] rowCoefficients = new double[senses.size()][];
+		for(int row = 0; row < senses.size(); row++) {
+			rowColumns[row] = new int[entries[row]];
+			rowCoefficients[row] = new double[entries[row]];
+			entries[row] = 0;
+		}
+		for(int column = 0; column < costs.size(); column++) {
+			int[] rows = columnRows.get(column);
+			double[] coefficients = columnCoefficients.get(column);
+			for(int n = 0; n < rows.length; n++) {
+				int row = rows[n];
+				rowColumns[row][entries[row]] = column;
+				rowCoefficients[row][entries[row]++] = coefficients[n];
+			}
+		}
+		for(int row = 0; row < senses.size(); row++) {
+			lp.addRow(rowColumns[row], rowCoefficients[row], senses.get(row), rhs.get(row));
+		}
+		lp.compile();
+
+		simplex = new BoundedSimplex(lp);
+		if(basis != null && basis.length == lp.numRows()) {
+			simplex.setBasis(basis, nonbasicAtUpper);
+		}
+		BoundedSimplex.Status status = simplex.solve((long) ITERATIONS_PER_COLUMN * (lp.numRows() + lp.numColumns()));
+		if(status == BoundedSimplex.Status.OPTIMAL) {
+			basis = simplex.getBasis();
+			nonbasicAtUpper = simplex.getNonbasicAtUpper();
+		} else if(status != BoundedSimplex.Status.INFEASIBLE) {
+			LOGGER.log(Level.SEVERE, "Error solving restricted master. Simplex ended with status " + status + ".");
+		}
+		return status;
+	}
+
+	@Override
+	public double getObjective() {
+		return simplex.getObjective();
+	}
+
+	@Override
+	public double[] getValues() {
+		return simplex.getValues();
+	}
+
+	@Override
+	public double[] getDuals() {
+		return simplex.getDuals();
+	}
+
+	@Override
+	public int numRows() {
+		return senses.size();
+	}
+
+	@Override
+	public int numColumns() {
+		return costs.size();
+	}
+
+	@Override
+	public long numNonzeros() {
+		return nonzeros;
+	}
+
+	/**
+	 * This method releases the last solution, the master holds no native resources.
+	 */
+	@Override
+	public void dispose() {
+		simplex = null;
+	}
+
+}
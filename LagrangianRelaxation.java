@@ -0,0 +1,414 @@
+/**
+ * This class computes lower bounds for the single allocation model with a Lagrangian relaxation solved in pure java.
+ *
+ * The customer demand constraints (sum over j of y[j][r] = 1) are dualized with multipliers lambda[r] and the plant
+ * capacity constraints (sum over j of x[k][i][j] <= pik) with multipliers nu[i][k] >= 0. Without the capacities every
+ * facility buys each product from the plant with the lowest priced supply, so what remains separates into one
+ * continuous knapsack per facility over its customers, bounded by the minimum and maximum activity levels, and a
+ * choice of the p cheapest facilities. The multipliers are optimized with subgradient steps, and the open facilities
+ * of the relaxed solution are periodically repaired into a feasible solution which provides the upper bound.
+ *
+ * Dualizing the flow balance constraints instead, with the capacities kept, separates as well, into one LP per plant
+ * and product which sends its whole capacity to the facility with the lowest reduced cost, and the same knapsacks.
+ * Both relaxations keep the same knapsacks and choice of facilities and otherwise only linear constraints, so their
+ * best bounds are equal, but the flows of that one move a whole plant capacity between facilities with each step and
+ * the subgradient search stalls far below the bound these multipliers reach in the same number of iterations.
+ *
+ * @author ryanhow
+ *
+ */
+
+import java.util.Arrays;
+
+public class LagrangianRelaxation {
+
+	private static final int REPAIR_INTERVAL = 10; //Iterations between attempts to repair the relaxed solution
+	private static final int MAX_REPAIR_SWAPS = 50; //Facility swaps tried when the relaxed open facilities cannot be repaired
+	private static final int STALL_LIMIT = 5; //Iterations without improvement before the step size is halved
+	private static final double MIN_STEP_SCALE = 1e-4; //Step scale at which the subgradient search stops
+	private static final double GAP_TOLERANCE = 1e-4; //Relative gap at which the search stops
+
+	private final CFLPInstance instance;
+	private final int p; //Desired number of facilities to be open
+	private final int K;
+	private final int I;
+	private final int J;
+	private final int R;
+
+	//Multipliers
+	private final double[] lambda; //Customer r demand
+	private final double[] nu; //Product k capacity at plant i, indexed [i * K + k]
+
+	//Relaxed Solution
+	private final double[] facilityValue; //Cost of opening facility j in the relaxed problem
+	private final double[] reducedCost; //Reduced cost of y[j][r] for the facility being solved
+	private final double[] assignment; //Value of y[j][r] for the facility being solved
+	private final double[] ratio; //Reduced cost per unit of demand used to order the customers
+	private final int[] customers; //Customers ordered by ratio
+	private final double[] supplyCost; //Lowest priced supply of product k at facility j, indexed [j * K + k]
+	private final int[] supplyPlant; //Plant providing the lowest priced supply, indexed [j * K + k]
+
+	private final double[] bestLambda; //Multipliers of the best lower bound
+	private final double[] bestNu;
+
+	private double lowerBound = Double.NEGATIVE_INFINITY;
+	private SingleAllocationSolution bestSolution;
+	private int iterations;
+
+	/**
+	 * This constructor creates the relaxation of an instance.
+	 *
+	 * @param instance the CFLP instance
+	 * @param p the desired number of open facilities
+	 */
+	public LagrangianRelaxation(CFLPInstance instance, int p) {
+		this.instance = instance;
+		this.p = p;
+		K = instance.numProducts();
+		I = instance.numPlants();
+		J = instance.numFacilities();
+		R = instance.numCustomers();
+		lambda = new double[R];
+		nu = new double[I * K];
+		bestLambda = new double[R];
+		bestNu = new double[I * K];
+		facilityValue = new double[J];
+		reducedCost = new double[R];
+		assignment = new double[R];
+		ratio = new double[R];
+		customers = new int[R];
+		supplyCost = new double[J * K];
+		supplyPlant = new int[J * K];
+
+		//Start every customer at the cost of its cheapest facility, including the cheapest supply of its products
+		priceSupply();
+		for(int r = 0; r < R; r++) {
+			lambda[r] = Double.POSITIVE_INFINITY;
+			for(int j = 0; j < J; j++) {
+				lambda[r] = Math.min(lambda[r], instance.assignmentCost(j, r) + supplyCost(j, r));
+			}
+			if(J == 0) {
+				lambda[r] = 0;
+			}
+		}
+	}
+
+	/**
+	 * This method optimizes the multipliers with subgradient steps.
+	 *
+	 * @param maxIterations the maximum number of subgradient iterations
+	 * @param timeLimitMillis the wall clock limit in milliseconds
+	 */
+	public void solve(int maxIterations, long timeLimitMillis) {
+		long deadline = System.currentTimeMillis() + timeLimitMillis;
+		double[] lambdaGradient = new double[R];
+		double[] nuGradient = new double[I * K];
+		double stepScale = 2;
+		int stall = 0;
+
+		while(iterations < maxIterations && System.currentTimeMillis() < deadline) {
+			iterations++;
+			Arrays.fill(lambdaGradient, 1);
+			double bound = 0;
+			for(int r = 0; r < R; r++) {
+				bound += lambda[r];
+			}
+			for(int i = 0; i < I; i++) {
+				for(int k = 0; k < K; k++) {
+					nuGradient[i * K + k] = -instance.capacity(i, k);
+					bound -= nu[i * K + k] * instance.capacity(i, k);
+				}
+			}
+			priceSupply();
+
+			//Facilities
+			for(int j = 0; j < J; j++) {
+				facilityValue[j] = instance.fixedCost(j) + solveFacility(j);
+			}
+			boolean[] open = cheapestFacilities();
+			if(open == null) {
+				return;
+			}
+			for(int j = 0; j < J; j++) {
+				if(!open[j]) {
+					continue;
+				}
+				bound += facilityValue[j];
+				solveFacility(j);
+				for(int r = 0; r < R; r++) {
+					if(assignment[r] > 0) {
+						lambdaGradient[r] -= assignment[r];
+						for(int k = 0; k < K; k++) {
+							nuGradient[supplyPlant[j * K + k] * K + k] += instance.demand(r, k) * assignment[r];
+						}
+					}
+				}
+			}
+
+			if(lowerBound == Double.NEGATIVE_INFINITY || bound > lowerBound + 1e-9 * Math.abs(lowerBound)) {
+				lowerBound = bound;
+				System.arraycopy(lambda, 0, bestLambda, 0, R);
+				System.arraycopy(nu, 0, bestNu, 0, I * K);
+				stall = 0;
+			} else if(++stall >= STALL_LIMIT) {
+				//Restart from the best multipliers with a shorter step
+				stepScale /= 2;
+				stall = 0;
+				System.arraycopy(bestLambda, 0, lambda, 0, R);
+				System.arraycopy(bestNu, 0, nu, 0, I * K);
+				continue;
+			}
+
+			if(bestSolution == null || iterations % REPAIR_INTERVAL == 0) {
+				SingleAllocationSolution repaired = SingleAllocationSolution.repair(instance, open, facilityValue, MAX_REPAIR_SWAPS);
+				if(repaired != null && (bestSolution == null || repaired.getCost() < bestSolution.getCost())) {
+					bestSolution = repaired;
+				}
+			}
+
+			if(getGap() <= GAP_TOLERANCE || stepScale < MIN_STEP_SCALE) {
+				return;
+			}
+
+			//Polyak step towards the best known solution
+			double norm = 0;
+			for(double g : lambdaGradient) {
+				norm += g * g;
+			}
+			for(int index = 0; index < I * K; index++) {
+				//Multipliers at zero only move up
+				if(nu[index] > 0 || nuGradient[index] > 0) {
+					norm += nuGradient[index] * nuGradient[index];
+				}
+			}
+			if(norm < 1e-12) {
+				return;
+			}
+			double target = bestSolution != null ? bestSolution.getCost() : bound + 0.1 * Math.abs(bound) + 1;
+			double step = stepScale * (target - bound) / norm;
+			for(int r = 0; r < R; r++) {
+				lambda[r] += step * lambdaGradient[r];
+			}
+			for(int index = 0; index < I * K; index++) {
+				nu[index] = Math.max(0, nu[index] + step * nuGradient[index]);
+			}
+		}
+	}
+
+	/**
+	 * This method finds the lowest priced supply of every product at every facility: the transportation cost from a
+	 * plant plus the price of its capacity.
+	 */
+	private void priceSupply() {
+		for(int j = 0; j < J; j++) {
+			for(int k = 0; k < K; k++) {
+				double cheapest = Double.POSITIVE_INFINITY;
+				int plant = 0;
+				for(int i = 0; i < I; i++) {
+					double cost = instance.unitCost(k) * instance.plantDistance(i, j) + nu[i * K + k];
+					if(cost < cheapest) {
+						cheapest = cost;
+						plant = i;
+					}
+				}
+				supplyCost[j * K + k] = cheapest;
+				supplyPlant[j * K + k] = plant;
+			}
+		}
+	}
+
+	/**
+	 * This method obtains the cost of supplying the products demanded by a customer to a facility at the current
+	 * prices.
+	 *
+	 * @param j the facility
+	 * @param r the customer
+	 * @return the supply cost
+	 */
+	private double supplyCost(int j, int r) {
+		double cost = 0;
+		for(int k = 0; k < K; k++) {
+			if(instance.demand(r, k) > 0) {
+				cost += supplyCost[j * K + k] * instance.demand(r, k);
+			}
+		}
+		return cost;
+	}
+
+	/**
+	 * This method solves the continuous knapsack of a facility: choose the fraction of each customer served so that
+	 * the total demand lies between the minimum and maximum activity levels at minimum reduced cost. The fractions
+	 * are left in the assignment array.
+	 *
+	 * @param j the facility
+	 * @return the reduced cost of the customers served, or positive infinity if the activity levels cannot be met
+	 */
+	private double solveFacility(int j) {
+		Arrays.fill(assignment, 0);
+		double value = 0;
+		long negativeDemand = 0;
+		int negatives = 0;
+		int positives = R;
+		for(int r = 0; r < R; r++) {
+			double cost = instance.assignmentCost(j, r) + supplyCost(j, r) - lambda[r];
+			reducedCost[r] = cost;
+			int demand = instance.customerDemand(r);
+			if(demand == 0) {
+				if(cost < 0) {
+					assignment[r] = 1;
+					value += cost;
+				}
+				continue;
+			}
+			ratio[r] = cost / demand;
+			if(cost < 0) {
+				customers[negatives++] = r;
+				negativeDemand += demand;
+			} else {
+				customers[--positives] = r;
+			}
+		}
+
+		long min = instance.minActivity(j);
+		long max = instance.maxActivity(j);
+		if(min > max) {
+			return Double.POSITIVE_INFINITY;
+		}
+		if(negativeDemand > max) {
+			//Too many profitable customers, keep those with the most negative cost per unit
+			return value + fillByRatio(0, negatives, max);
+		}
+
+		for(int index = 0; index < negatives; index++) {
+			assignment[customers[index]] = 1;
+			value += reducedCost[customers[index]];
+		}
+		if(negativeDemand >= min) {
+			return value;
+		}
+
+		//Too little demand, add the customers with the least positive cost per unit
+		long available = 0;
+		for(int index = positives; index < R; index++) {
+			available += instance.customerDemand(customers[index]);
+		}
+		if(negativeDemand + available < min) {
+			return Double.POSITIVE_INFINITY;
+		}
+		return value + fillByRatio(positives, R, min - negativeDemand);
+	}
+
+	/**
+	 * This method serves the customers of a range with the lowest ratio until the given amount of demand is reached,
+	 * serving the last customer fractionally. Only the part of the range that is needed is ordered, by repeatedly
+	 * partitioning it around a pivot ratio, so the expected time is linear in the size of the range.
+	 *
+	 * @param from the first position in the customer order
+	 * @param to the position after the last in the customer order
+	 * @param amount the demand to reach
+	 * @return the reduced cost of the customers served
+	 */
+	private double fillByRatio(int from, int to, double amount) {
+		double value = 0;
+		while(from < to && amount > 0) {
+			//Partition into ratios below, equal to and above the pivot
+			double pivot = ratio[customers[(from + to) >>> 1]];
+			int below = from;
+			int above = to;
+			int index = from;
+			while(index < above) {
+				int r = customers[index];
+				if(ratio[r] < pivot) {
+					customers[index++] = customers[below];
+					customers[below++] = r;
+				} else if(ratio[r] > pivot) {
+					customers[index] = customers[--above];
+					customers[above] = r;
+				} else {
+					index++;
+				}
+			}
+
+			long belowDemand = 0;
+			for(index = from; index < below; index++) {
+				belowDemand += instance.customerDemand(customers[index]);
+			}
+			if(belowDemand >= amount && below - from > 0 && below < to) {
+				to = below;
+				continue;
+			}
+
+			//Serve every customer below the pivot, then customers at the pivot until the amount is reached
+			for(index = from; index < above && amount > 0; index++) {
+				int r = customers[index];
+				double fraction = Math.min(1, amount / instance.customerDemand(r));
+				assignment[r] = fraction;
+				value += fraction * reducedCost[r];
+				amount -= fraction * instance.customerDemand(r);
+			}
+			from = above;
+		}
+		return value;
+	}
+
+	/**
+	 * This method opens the p facilities with the lowest relaxed cost.
+	 *
+	 * @return if each facility is open, or null if fewer than p facilities can be opened
+	 */
+	private boolean[] cheapestFacilities() {
+		Integer[] order = new Integer[J];
+		for(int j = 0; j < J; j++) {
+			order[j] = j;
+		}
+		Arrays.sort(order, (a, b) -> Double.compare(facilityValue[a], facilityValue[b]));
+		if(p > J || (p > 0 && facilityValue[order[p - 1]] == Double.POSITIVE_INFINITY)) {
+			return null;
+		}
+		boolean[] open = new boolean[J];
+		for(int index = 0; index < p; index++) {
+			open[order[index]] = true;
+		}
+		return open;
+	}
+
+	/**
+	 * @return the best lower bound found on the optimal cost
+	 */
+	public double getLowerBound() {
+		return lowerBound;
+	}
+
+	/**
+	 * @return the cost of the best feasible solution found, or positive infinity if there is none
+	 */
+	public double getUpperBound() {
+		return bestSolution != null ? bestSolution.getCost() : Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * @return the best feasible solution found, or null if there is none
+	 */
+	public SingleAllocationSolution getBestSolution() {
+		return bestSolution;
+	}
+
+	/**
+	 * @return the relative gap between the best feasible solution and the lower bound
+	 */
+	public double getGap() {
+		double upperBound = getUpperBound();
+		if(upperBound == Double.POSITIVE_INFINITY || lowerBound == Double.NEGATIVE_INFINITY) {
+			return Double.POSITIVE_INFINITY;
+		}
+		return Math.max(0, upperBound - lowerBound) / Math.max(1e-10, Math.abs(upperBound));
+	}
+
+	/**
+	 * @return the number of subgradient iterations performed
+	 */
+	public int getIterations() {
+		return iterations;
+	}
+
+}
@@ -0,0 +1,243 @@
+/**
+ * This class holds a mixed integer linear program in the form solved by BoundedSimplex and BranchAndBound:
+ * minimize c * x subject to rows a * x (<=, >= or =) b and bounds lb <= x <= ub, with some of the variables integer.
+ * Columns and rows are added one at a time, and compile() stores the matrix column-wise for the simplex.
+ *
+ * @author ryanhow
+ *
+ */
+
+import java.util.Arrays;
+
+public class LinearProgram {
+
+	public static final char LESS_EQUAL = '<';
+	public static final char GREATER_EQUAL = '>';
+	public static final char EQUAL = '=';
+
+	//Columns
+	private int columns;
+	private double[] costs = new double[16];
+	private double[] lowerBounds = new double[16];
+	private double[] upperBounds = new double[16];
+	private boolean[] integers = new boolean[16];
+	private int[] priorities = new int[16]; //Columns with a higher priority are branched on first
+
+	//Rows, held as triplets until compile()
+	private int rows;
+	private char[] senses = new char[16];
+	private double[] rhs = new double[16];
+	private int entries;
+	private int[] entryRows = new int[64];
+	private int[] entryColumns = new int[64];
+	private double[] entryValues = new double[64];
+
+	//Compiled matrix, column-wise
+	private int[] columnStarts;
+	private int[] rowIndices;
+	private double[] values;
+
+	/**
+	 * This method adds a column.
+	 *
+	 * @param cost the objective coefficient
+	 * @param lowerBound the lower bound, which must be finite
+	 * @param upperBound the upper bound, or infinity
+	 * @param integer whether the column must take an integer value
+	 * @param priority the branching priority, higher is branched on first
+	 * @return the index of the column
+	 */
+	public int addColumn(double cost, double lowerBound, double upperBound, boolean integer, int priority) {
+		if(columns == costs.length) {
+			int capacity = 2 * columns;
+			costs = Arrays.copyOf(costs, capacity);
+			lowerBounds = Arrays.copyOf(lowerBounds, capacity);
+			upperBounds = Arrays.copyOf(upperBounds, capacity);
+			integers = Arrays.copyOf(integers, capacity);
+			priorities = Arrays.copyOf(priorities, capacity);
+		}
+		costs[columns] = cost;
+		lowerBounds[columns] = lowerBound;
+		upperBounds[columns] = upperBound;
+		integers[columns] = integer;
+		priorities[columns] = priority;
+		columnStarts = null;
+		return columns++;
+	}
+
+	/**
+	 * This method adds a row. Zero coefficients are left out.
+	 *
+	 * @param rowColumns the column of each coefficient
+	 * @param coefficients the coefficients
+	 * @param sense LESS_EQUAL, GREATER_EQUAL or EQUAL
+	 * @param value the right hand side
+	 * @return the index of the row
+	 */
+	public int addRow(int[] rowColumns, double[] coefficients, char sense, double value) {
+		if(rows == senses.length) {
+			senses = Arrays.copyOf(senses, 2 * rows);
+			rhs = Arrays.copyOf(rhs, 2 * rows);
+		}
+		for(int n = 0; n < rowColumns.length; n++) {
+			if(coefficients[n] == 0) {
+				continue;
+			}
+			if(entries == entryRows.length) {
+				entryRows = Arrays.copyOf(entryRows, 2 * entries);
+				entryColumns = Arrays.copyOf(entryColumns, 2 * entries);
+				entryValues = Arrays.copyOf(entryValues, 2 * entries);
+			}
+			entryRows[entries] = rows;
+			entryColumns[entries] = rowColumns[n];
+			entryValues[entries++] = coefficients[n];
+		}
+		senses[rows] = sense;
+		rhs[rows] = value;
+		columnStarts = null;
+		return rows++;
+	}
+
+	/**
+	 * This method stores the matrix column-wise. It is called by the solvers and again only after rows or columns
+	 * are added.
+	 */
+	public void compile() {
+		if(columnStarts != null) {
+			return;
+		}
+		columnStarts = new int[columns + 1];
+		for(int n = 0; n < entries; n++) {
+			columnStarts[entryColumns[n] + 1]++;
+		}
+		for(int j = 0; j < columns; j++) {
+			columnStarts[j + 1] += columnStarts[j];
+		}
+		int[] next = Arrays.copyOf(columnStarts, columns);
+		rowIndices = new int[entries];
+		values = new double[entries];
+		for(int n = 0; n < entries; n++) {
+			int position = next[entryColumns[n]]++;
+			rowIndices[position] = entryRows[n];
+			values[position] = entryValues[n];
+		}
+	}
+
+	/**
+	 * @return the number of columns
+	 */
+	public int numColumns() {
+		return columns;
+	}
+
+	/**
+	 * @return the number of rows
+	 */
+	public int numRows() {
+		return rows;
+	}
+
+	/**
+	 * @return the number of nonzero entries
+	 */
+	public int numEntries() {
+		return entries;
+	}
+
+	/**
+	 * @param j the column
+	 * @return the objective coefficient of the column
+	 */
+	public double cost(int j) {
+		return costs[j];
+	}
+
+	/**
+	 * @param j the column
+	 * @return the lower bound of the column
+	 */
+	public double lowerBound(int j) {
+		return lowerBounds[j];
+	}
+
+	/**
+	 * @param j the column
+	 * @return the upper bound of the column
+	 */
+	public double upperBound(int j) {
+		return upperBounds[j];
+	}
+
+	/**
+	 * @param j the column
+	 * @return true if the column must take an integer value
+	 */
+	public boolean isInteger(int j) {
+		return integers[j];
+	}
+
+	/**
+	 * @param j the column
+	 * @return the branching priority of the column
+	 */
+	public int priority(int j) {
+		return priorities[j];
+	}
+
+	/**
+	 * @param row the row
+	 * @return the sense of the row
+	 */
+	public char sense(int row) {
+		return senses[row];
+	}
+
+	/**
+	 * @param row the row
+	 * @return the right hand side of the row
+	 */
+	public double rhs(int row) {
+		return rhs[row];
+	}
+
+	/**
+	 * @param row the row
+	 * @param value the new right hand side of the row
+	 */
+	public void setRhs(int row, double value) {
+		rhs[row] = value;
+	}
+
+	/**
+	 * @param j the column
+	 * @return the position of the first entry of the column in rowIndices and values
+	 */
+	int columnStart(int j) {
+		return columnStarts[j];
+	}
+
+	/**
+	 * @param j the column
+	 * @return one past the position of the last entry of the column
+	 */
+	int columnEnd(int j) {
+		return columnStarts[j + 1];
+	}
+
+	/**
+	 * @param position the position of an entry
+	 * @return the row of the entry
+	 */
+	int rowIndex(int position) {
+		return rowIndices[position];
+	}
+
+	/**
+	 * @param position the position of an entry
+	 * @return the coefficient of the entry
+	 */
+	double value(int position) {
+		return values[position];
+	}
+
+}
@@ -0,0 +1,171 @@
+/**
+ * This class strengthens the LP relaxation of the single allocation model with cuts separated at the nodes of the
+ * branch and bound tree. The model links the customer assignments y[j][r] to the facility z[j] only through the
+ * aggregated maximum activity level row, so the relaxation can open a facility a fraction and assign customers to it
+ * fully. Two families of cuts are added from the callback when the node relaxation violates them, rather than up
+ * front, so the model itself does not grow:
+ *
+ * - the disaggregated linking inequalities y[j][r] <= z[j]
+ * - cover inequalities of the knapsack sum over r of d[r] * y[j][r] <= qmax[j] * z[j]. A cover C is a set of
+ *   customers whose demands exceed the maximum activity level, so at most |C| - 1 of them can be assigned to the
+ *   facility: sum over r in C of y[j][r] <= (|C| - 1) * z[j]
+ *
+ * Customers without demand are left out of both families, since they may be assigned to closed facilities at no
+ * cost. The MIP progress is sampled as in ProgressCallback.
+ *
+ * @author ryanhow
+ *
+ */
+
+import java.util.Arrays;
+
+import gurobi.*;
+
+public class LinkingCutCallback extends ProgressCallback {
+
+	private static final double VIOLATION = 1e-4; //Smallest violation of a cut added at a node
+	private static final int MAX_CUTS_PER_NODE = 1000; //Cuts added at one node at most
+
+	private final CFLPInstance instance;
+	private final GRBVar[] z; //If facility j is open or not
+	private final int[][] customers; //Customers which may be assigned to facility j
+	private final GRBVar[][] assignments; //Assignment variable y[j][r] of each customer of facility j
+
+	private long linkingCuts;
+	private long coverCuts;
+
+	/**
+	 * This constructor creates the callback for a single allocation model.
+	 *
+	 * @param instance the CFLP instance
+	 * @param z the facility variables
+	 * @param customers the customers which may be assigned to each facility
+	 * @param assignments the assignment variable of each customer of each facility
+	 */
+	public LinkingCutCallback(CFLPInstance instance, GRBVar[] z, int[][] customers, GRBVar[][] assignments) {
+		this.instance = instance;
+		this.z = z;
+		this.customers = customers;
+		this.assignments = assignments;
+	}
+
+	@Override
+	protected void callback() {
+		super.callback();
+		if(where != GRB.CB_MIPNODE) {
+			return;
+		}
+		try {
+			if(getIntInfo(GRB.CB_MIPNODE_STATUS) != GRB.Status.OPTIMAL) {
+				return;
+			}
+			double[] open = getNodeRel(z);
+			int cuts = 0;
+			for(int j = 0; j < z.length && cuts < MAX_CUTS_PER_NODE; j++) {
+				if(assignments[j].length == 0) {
+					continue;
+				}
+				double[] assigned = getNodeRel(assignments[j]);
+				cuts += addLinkingCuts(j, open[j], assigned, MAX_CUTS_PER_NODE - cuts);
+				if(cuts < MAX_CUTS_PER_NODE && addCoverCut(j, open[j], assigned)) {
+					cuts++;
+				}
+			}
+		} catch (GRBException e) {
+			fail(e);
+		}
+	}
+
+	/**
+	 * This method adds the violated linking inequalities y[j][r] <= z[j] of a facility.
+	 *
+	 * @param j the facility
+	 * @param open the relaxation value of z[j]
+	 * @param assigned the relaxation value of each assignment variable of the facility
+	 * @param limit the number of cuts which may still be added at the node
+	 * @return the number of cuts added
+	 * @throws GRBException if a cut cannot be added
+	 */
+	private int addLinkingCuts(int j, double open, double[] assigned, int limit) throws GRBException {
+		int cuts = 0;
+		for(int c = 0; c < assigned.length && cuts < limit; c++) {
+			if(assigned[c] - open > VIOLATION && instance.customerDemand(customers[j][c]) > 0) {
+				GRBLinExpr cut = new GRBLinExpr();
+				cut.addTerm(1, assignments[j][c]);
+				cut.addTerm(-1, z[j]);
+				addCut(cut, GRB.LESS_EQUAL, 0);
+				cuts++;
+			}
+		}
+		linkingCuts += cuts;
+		return cuts;
+	}
+
+	/**
+	 * This method separates a cover inequality of a facility greedily. The customers assigned to the facility in the
+	 * relaxation are taken in order of (1 - y[j][r]) / d[r], so those nearly assigned with large demands come first,
+	 * until their demands exceed the maximum activity level.
+	 *
+	 * @param j the facility
+	 * @param open the relaxation value of z[j]
+	 * @param assigned the relaxation value of each assignment variable of the facility
+	 * @return true if a violated cover inequality was added
+	 * @throws GRBException if the cut cannot be added
+	 */
+	private boolean addCoverCut(int j, double open, double[] assigned) throws GRBException {
+		int count = 0;
+		int[] order = new int[assigned.length];
+		double[] ratios = new double[assigned.length];
+		for(int c = 0; c < assigned.length; c++) {
+			int demand = instance.customerDemand(customers[j][c]);
+			if(assigned[c] > VIOLATION && demand > 0) {
+				ratios[count] = (1 - assigned[c]) / demand;
+				order[count] = c;
+				count++;
+			}
+		}
+		Integer[] sorted = new Integer[count];
+		for(int n = 0; n < count; n++) {
+			sorted[n] = n;
+		}
+		Arrays.sort(sorted, (a, b) -> Double.compare(ratios[a], ratios[b]));
+
+		long capacity = instance.maxActivity(j);
+		long weight = 0;
+		double lhs = 0;
+		int size = 0;
+		for(int n = 0; n < count && weight <= capacity; n++) {
+			int c = order[sorted[n]];
+			weight += instance.customerDemand(customers[j][c]);
+			lhs += assigned[c];
+			size++;
+		}
+		if(weight <= capacity || lhs - (size - 1) * open <= VIOLATION) {
+			return false;
+		}
+
+		GRBLinExpr cut = new GRBLinExpr();
+		for(int n = 0; n < size; n++) {
+			cut.addTerm(1, assignments[j][order[sorted[n]]]);
+		}
+		cut.addTerm(-(size - 1), z[j]);
+		addCut(cut, GRB.LESS_EQUAL, 0);
+		coverCuts++;
+		return true;
+	}
+
+	/**
+	 * @return the number of linking inequalities added
+	 */
+	public long getLinkingCuts() {
+		return linkingCuts;
+	}
+
+	/**
+	 * @return the number of cover inequalities added
+	 */
+	public long getCoverCuts() {
+		return coverCuts;
+	}
+
+}
@@ -0,0 +1,45 @@
+/**
+ * This class holds the distances of an instance as the dense I x J and J x R matrices of the CSV and binary
+ * instance files.
+ *
+ * @author ryanhow
+ *
+ */
+
+public class MatrixDistances implements Distances {
+
+	private final int J; //Set of potential candidate facility locations
+	private final int R; //Set of customers
+
+	private final double[] lij; //Distance from plant i to facility j, indexed [i * J + j]
+	private final double[] ljr; //Distance from facility j to customer r, indexed [j * R + r]
+
+	/**
+	 * This constructor wraps the distance matrices. The arrays are not copied.
+	 *
+	 * @param I the number of production plants
+	 * @param J the number of candidate facility locations
+	 * @param R the number of customers
+	 * @param lij the distance from plant i to facility j, indexed [i * J + j]
+	 * @param ljr the distance from facility j to customer r, indexed [j * R + r]
+	 */
+	public MatrixDistances(int I, int J, int R, double[] lij, double[] ljr) {
+		CFLPInstance.checkLength("plant to facility distances", lij.length, (long) I * J);
+		CFLPInstance.checkLength("facility to customer distances", ljr.length, (long) J * R);
+		this.J = J;
+		this.R = R;
+		this.lij = lij;
+		this.ljr = ljr;
+	}
+
+	@Override
+	public double plantDistance(int i, int j) {
+		return lij[i * J + j];
+	}
+
+	@Override
+	public double customerDistance(int j, int r) {
+		return ljr[j * R + r];
+	}
+
+}
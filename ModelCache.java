@@ -0,0 +1,357 @@
+/**
+ * This class caches built gurobi models on disk, so a run of an instance which was solved before skips building its
+ * model. An entry is keyed by the SHA-256 hash of the contents of the instance files, the desired number of open
+ * facilities, the allocation mode and the options which shape the model (the distance metric of a coordinate
+ * instance and whether the model has names), so an entry is never stale: any change to the model is a new key.
+ *
+ * Each entry is a directory named by its key holding the compressed model file, the position of every variable and
+ * constraint (see CFLPModel.write) and, once the model was solved, the incumbent as a compressed MIP start along with
+ * the status and gap target of the solve. Entries and files are written to temporary names and moved into place, so
+ * a run which is killed midway never leaves a partial entry, and runs sharing the cache may store the same entry at
+ * once. The cache is bounded in size and evicts the least recently used entries, the modification time of an entry
+ * directory marking its last use.
+ *
+ * @author ryanhow
+ *
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import gurobi.*;
+
+public class ModelCache {
+
+	private final static Logger LOGGER = Logger.getLogger(ModelCache.class.getName());
+
+	private static final String MODEL_FILE = "model.mps.gz";
+	private static final String LAYOUT_FILE = "layout.gz";
+	private static final String START_FILE = "start.mst.gz";
+	private static final String SOLUTION_FILE = "solution.properties"; //Status and gap target of the solve which found the start
+	private static final int BUFFER_SIZE = 1 << 16; //Bytes read from an instance file at a time when it is hashed
+	private static final String KEY_PATTERN = "[0-9a-f]{64}"; //Name of an entry directory, temporary directories add a suffix
+
+	private final Path directory;
+	private final long maxBytes; //Largest total size of the entries
+	private final String key;
+	private final Path entry;
+	private boolean startLoaded; //If the last load also read the MIP start of the entry
+
+	/**
+	 * This constructor opens the cache in a directory, creating it if needed, and hashes the instance into the key of
+	 * its entry.
+	 *
+	 * @param directory the cache directory
+	 * @param maxBytes the largest total size of the entries in bytes
+	 * @param instanceFiles the instance files
+	 * @param p the desired number of open facilities
+	 * @param allocation the allocation mode
+	 * @param metric the distance metric of a coordinate instance
+	 * @param useNames whether variables and constraints are given descriptive names
+	 * @throws IOException if the directory cannot be created or an instance file cannot be read
+	 */
+	public ModelCache(String directory, long maxBytes, String[] instanceFiles, int p, AllocationMode allocation, DistanceMetric metric, boolean useNames) throws IOException {
+		this.directory = Paths.get(directory);
+		this.maxBytes = maxBytes;
+		Files.createDirectories(this.directory);
+		key = hash(instanceFiles, p, allocation, metric, useNames);
+		entry = this.directory.resolve(key);
+	}
+
+	/**
+	 * This method hashes the contents of the instance files, each preceded by its length so that moving bytes
+	 * between files changes the hash, followed by the desired number of open facilities, the allocation mode and the
+	 * options which shape the model. The metric only shapes coordinate instances, but hashing it for every instance
+	 * keeps the key simple.
+	 *
+	 * @param instanceFiles the instance files
+	 * @param p the desired number of open facilities
+	 * @param allocation the allocation mode
+	 * @param metric the distance metric of a coordinate instance
+	 * @param useNames whether variables and constraints are given descriptive names
+	 * @return the SHA-256 hash in hexadecimal
+	 * @throws IOException if an instance file cannot be read
+	 */
+	private static String hash(String[] instanceFiles, int p, AllocationMode allocation, DistanceMetric metric, boolean useNames) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("Every java platform supports SHA-256.", e);
+		}
+		byte[] buffer = new byte[BUFFER_SIZE];
+		for(String file : instanceFiles) {
+			Path path = Paths.get(file);
+			digest.update((Files.size(path) + ";").getBytes("UTF-8"));
+			try(InputStream input = Files.newInputStream(path)) {
+				for(int read = input.read(buffer); read != -1; read = input.read(buffer)) {
+					digest.update(buffer, 0, read);
+				}
+			}
+		}
+		digest.update((";" + p + ";" + allocation.name() + ";" + metric.name() + ";" + useNames).getBytes("UTF-8"));
+
+		StringBuilder hex = new StringBuilder();
+		for(byte b : digest.digest()) {
+			hex.append(String.format("%02x", b));
+		}
+		return hex.toString();
+	}
+
+	/**
+	 * @return the key of the entry of the instance
+	 */
+	public String getKey() {
+		return key;
+	}
+
+	/**
+	 * This method reads the model of the instance from its entry, along with the MIP start of the entry if it has
+	 * one, and marks the entry as used.
+	 *
+	 * @param env the gurobi environment
+	 * @param instance the CFLP instance
+	 * @param p the desired number of open facilities
+	 * @param allocation the allocation mode
+	 * @return the model, or null if the instance has no entry or it cannot be read
+	 */
+	public CFLPModel load(GRBEnv env, CFLPInstance instance, int p, AllocationMode allocation) {
+		startLoaded = false;
+		if(!Files.isDirectory(entry)) {
+			return null;
+		}
+		CFLPModel model;
+		try(DataInputStream layout = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(entry.resolve(LAYOUT_FILE)))))) {
+			model = CFLPModel.read(env, instance, p, allocation, entry.resolve(MODEL_FILE).toString(), layout);
+		} catch (GRBException | IOException e) {
+			LOGGER.log(Level.SEVERE, "Error reading cached model " + key + ", building it instead. " + e.getMessage());
+			return null;
+		}
+		touch();
+
+		Path start = entry.resolve(START_FILE);
+		if(Files.exists(start)) {
+			try {
+				model.getModel().read(start.toString());
+				startLoaded = true;
+			} catch (GRBException e) {
+				LOGGER.log(Level.SEVERE, "Error reading cached MIP start " + key + ". " + e.getMessage());
+			}
+		}
+		return model;
+	}
+
+	/**
+	 * @return true if the last load also read the MIP start of the entry
+	 */
+	public boolean isStartLoaded() {
+		return startLoaded;
+	}
+
+	/**
+	 * This method checks if the MIP start of the entry is a solution gurobi proved optimal within a gap target, in
+	 * which case the model needs no search.
+	 *
+	 * @param gapTarget the relative MIP gap of this run
+	 * @return true if the start was proved optimal within the gap target or a smaller one
+	 */
+	public boolean isSolved(double gapTarget) {
+		Properties solution = new Properties();
+		try(InputStream input = Files.newInputStream(entry.resolve(SOLUTION_FILE))) {
+			solution.load(input);
+			return Integer.parseInt(solution.getProperty("status")) == GRB.Status.OPTIMAL
+					&& Double.parseDouble(solution.getProperty("gap_target")) <= gapTarget;
+		} catch (IOException | RuntimeException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * This method writes a built model as the entry of the instance, unless another run already has, and evicts the
+	 * least recently used entries beyond the size of the cache.
+	 *
+	 * @param model the built model
+	 * @return true if the entry exists, false if it could not be written
+	 */
+	public boolean store(CFLPModel model) {
+		if(Files.isDirectory(entry)) {
+			touch();
+			return true;
+		}
+		Path temporary = null;
+		try {
+			temporary = Files.createTempDirectory(directory, key + ".");
+			try(DataOutputStream layout = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(temporary.resolve(LAYOUT_FILE)))))) {
+				model.write(temporary.resolve(MODEL_FILE).toString(), layout);
+			}
+			try {
+				Files.move(temporary, entry, StandardCopyOption.ATOMIC_MOVE);
+			} catch (FileAlreadyExistsException | DirectoryNotEmptyException e) {
+				delete(temporary);
+			}
+		} catch (GRBException | IOException e) {
+			LOGGER.log(Level.SEVERE, "Error writing cached model " + key + ". " + e.getMessage());
+			if(temporary != null) {
+				delete(temporary);
+			}
+			return false;
+		}
+		evict();
+		return true;
+	}
+
+	/**
+	 * This method writes the incumbent of a solved model to the entry of the instance as its MIP start, along with the
+	 * status of the solve and the gap target it was solved to.
+	 *
+	 * @param model the solved model, the one stored in the entry
+	 * @param gapTarget the relative MIP gap the model was solved to
+	 * @return true if the start was written, false otherwise
+	 */
+	public boolean storeSolution(CFLPModel model, double gapTarget) {
+		if(!Files.isDirectory(entry) || !model.hasSolution()) {
+			return false;
+		}
+		Path start = null;
+		Path solution = null;
+		try {
+			start = Files.createTempFile(entry, "start", ".mst.gz");
+			model.getModel().write(start.toString());
+			Files.move(start, entry.resolve(START_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+			Properties properties = new Properties();
+			properties.setProperty("status", Integer.toString(model.getModel().get(GRB.IntAttr.Status)));
+			properties.setProperty("gap_target", Double.toString(gapTarget));
+			properties.setProperty("objective", Double.toString(model.getObjective()));
+			solution = Files.createTempFile(entry, "solution", ".tmp");
+			try(OutputStream output = Files.newOutputStream(solution)) {
+				properties.store(output, "Solve of the MIP start");
+			}
+			Files.move(solution, entry.resolve(SOLUTION_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (GRBException | IOException e) {
+			LOGGER.log(Level.SEVERE, "Error writing cached MIP start " + key + ". " + e.getMessage());
+			for(Path temporary : new Path[] {start, solution}) {
+				if(temporary != null) {
+					delete(temporary);
+				}
+			}
+			return false;
+		}
+		evict();
+		return true;
+	}
+
+	/**
+	 * This method marks the entry of the instance as the most recently used.
+	 */
+	private void touch() {
+		try {
+			Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+		} catch (IOException e) {
+			LOGGER.log(Level.SEVERE, "Error marking cached model " + key + " as used. " + e.getMessage());
+		}
+	}
+
+	/**
+	 * This method deletes the least recently used entries, other than the entry of the instance, until the entries
+	 * fit in the size of the cache. Only directories named by a key are entries, the temporary directories other runs
+	 * are storing entries in are left alone.
+	 */
+	private void evict() {
+		List<Path> entries;
+		try(Stream<Path> files = Files.list(directory)) {
+			entries = files.filter(file -> Files.isDirectory(file) && file.getFileName().toString().matches(KEY_PATTERN)).collect(Collectors.toList());
+		} catch (IOException e) {
+			LOGGER.log(Level.SEVERE, "Error listing model cache. " + e.getMessage());
+			return;
+		}
+		List<Long> sizes = new ArrayList<>();
+		List<FileTime> used = new ArrayList<>();
+		long total = 0;
+		for(Path cached : entries) {
+			long size = size(cached);
+			sizes.add(size);
+			total += size;
+			try {
+				used.add(Files.getLastModifiedTime(cached));
+			} catch (IOException e) {
+				used.add(FileTime.fromMillis(0));
+			}
+		}
+
+		List<Integer> order = new ArrayList<>();
+		for(int n = 0; n < entries.size(); n++) {
+			order.add(n);
+		}
+		order.sort(Comparator.comparing(used::get));
+		for(int n : order) {
+			if(total <= maxBytes) {
+				break;
+			}
+			if(entries.get(n).equals(entry)) {
+				continue;
+			}
+			delete(entries.get(n));
+			total -= sizes.get(n);
+		}
+	}
+
+	/**
+	 * @param path a file or directory
+	 * @return the total size of the files under it in bytes, as far as they can be read
+	 */
+	private static long size(Path path) {
+		try(Stream<Path> files = Files.walk(path)) {
+			return files.filter(Files::isRegularFile).mapToLong(file -> {
+				try {
+					return Files.size(file);
+				} catch (IOException e) {
+					return 0;
+				}
+			}).sum();
+		} catch (IOException e) {
+			return 0;
+		}
+	}
+
+	/**
+	 * This method deletes a file or a directory and everything under it, as far as it can. Another run may be
+	 * reading an evicted entry, so a failure is logged and left for a later eviction.
+	 *
+	 * @param path the file or directory
+	 */
+	private static void delete(Path path) {
+		try(Stream<Path> files = Files.walk(path)) {
+			for(Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+				Files.deleteIfExists(file);
+			}
+		} catch (IOException e) {
+			LOGGER.log(Level.SEVERE, "Error deleting cached model " + path.getFileName() + ". " + e.getMessage());
+		}
+	}
+
+}
@@ -0,0 +1,348 @@
+/**
+ * This class races differently configured gurobi solves of one CFLP model on parallel threads. The model is built
+ * once and copied into a gurobi environment per racer, and each racer differs in its seed, MIP focus and heuristics
+ * emphasis, and in the single allocation model also in its formulation, with half of the racers strengthened by the
+ * linking and cover cuts (see LinkingCutCallback). Every racer shares its incumbents and bounds with the others
+ * through its callback (see SharedIncumbent), and all of them are terminated as soon as one proves optimality or the
+ * shared incumbent and bound reach the gap target. The best racer then answers for the portfolio.
+ *
+ * @author ryanhow
+ *
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import gurobi.*;
+
+public class PortfolioSolver implements CFLPSolver {
+
+	private final static Logger LOGGER = Logger.getLogger(PortfolioSolver.class.getName());
+
+	private static final int[] MIP_FOCUS = {0, 1, 2, 3}; //MIP focus of each racer in turn, balanced, feasibility, optimality and bound
+	private static final double[] HEURISTICS = {0.05, 0.25, 0.05, 0.15}; //Heuristics emphasis of each racer in turn, 0.05 is gurobi's default
+
+	private final CFLPModel model; //Built model which every racer copies
+	private final int racerCount;
+	private final double gapTarget;
+	private double timeLimit = GRB.INFINITY; //Seconds every racer may run
+
+	private final List<GRBEnv> envs = new ArrayList<>();
+	private final List<CFLPModel> racers = new ArrayList<>();
+	private final List<ProgressCallback> callbacks = new ArrayList<>(); //Callback of each racer
+	private final List<String> configurations = new ArrayList<>();
+	private final List<Double> runtimes = new ArrayList<>();
+	private SingleAllocationSolution startSolution; //Start given to every racer, or null
+	private boolean[] startOpen; //Open facilities given to every racer as a start, or null
+
+	private CFLPModel winner; //Racer with the best incumbent, or null
+	private double bound = Double.NaN;
+	private double runtime = Double.NaN;
+
+	/**
+	 * This constructor creates a portfolio around a model.
+	 *
+	 * @param model the CFLP model, built before the portfolio is solved
+	 * @param racers the number of racing solves
+	 * @param gapTarget the relative gap at which every racer stops
+	 */
+	public PortfolioSolver(CFLPModel model, int racers, double gapTarget) {
+		this.model = model;
+		this.racerCount = racers;
+		this.gapTarget = gapTarget;
+	}
+
+	/**
+	 * This method limits the wall clock time of the race. Every racer stops with its incumbent once the limit is
+	 * reached.
+	 *
+	 * @param seconds the time limit in seconds
+	 */
+	public void setTimeLimit(double seconds) {
+		timeLimit = seconds;
+	}
+
+	@Override
+	public boolean build() {
+		return model.build();
+	}
+
+	@Override
+	public boolean setDesiredFacilities(int p) {
+		return model.setDesiredFacilities(p);
+	}
+
+	@Override
+	public boolean setStart(SingleAllocationSolution solution) {
+		startSolution = solution;
+		return true;
+	}
+
+	@Override
+	public boolean setStart(boolean[] open) {
+		startOpen = open;
+		return true;
+	}
+
+	/**
+	 * This method copies the model for every racer, solves the copies in parallel and keeps the best one. Each racer
+	 * gets an equal share of the cores.
+	 *
+	 * @return true if every racer finished, false otherwise
+	 */
+	@Override
+	public boolean optimize() {
+		SharedIncumbent shared = new SharedIncumbent(gapTarget);
+		int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / racerCount);
+		try {
+			for(int racer = 0; racer < racerCount; racer++) {
+				GRBEnv env = new GRBEnv();
+				envs.add(env);
+				CFLPModel copy = model.copy(env);
+				racers.add(copy);
+				ProgressCallback callback = configure(copy, racer, threads);
+				callbacks.add(callback);
+				callback.share(shared, shared.register(copy.getModel()), copy.getModel().getVars());
+				copy.getModel().setCallback(callback);
+				if(startSolution != null) {
+					copy.setStart(startSolution);
+				} else if(startOpen != null) {
+					copy.setStart(startOpen);
+				}
+			}
+		} catch (GRBException e) {
+			LOGGER.log(Level.SEVERE, "Error creating portfolio racers. " + e.getMessage());
+			return false;
+		}
+
+		//Race, stopping every racer once one of them proves optimality
+		long start = System.nanoTime();
+		ExecutorService pool = Executors.newFixedThreadPool(racerCount);
+		List<Future<Boolean>> races = new ArrayList<>();
+		for(CFLPModel racer : racers) {
+			races.add(pool.submit(() -> {
+				boolean finished = racer.optimize();
+				if(finished && racer.getModel().get(GRB.IntAttr.Status) == GRB.Status.OPTIMAL) {
+					shared.finish();
+				}
+				return finished;
+			}));
+		}
+		boolean finished = true;
+		for(Future<Boolean> race : races) {
+			try {
+				finished &= race.get();
+			} catch (InterruptedException | ExecutionException e) {
+				LOGGER.log(Level.SEVERE, "Error racing portfolio solves. " + e.getMessage());
+				finished = false;
+			}
+		}
+		pool.shutdown();
+		runtime = (System.nanoTime() - start) / 1e9;
+
+		for(int racer = 0; racer < callbacks.size(); racer++) {
+			if(callbacks.get(racer).getException() != null) {
+				LOGGER.log(Level.SEVERE, "Error in callback of racer " + (racer + 1) + ". " + callbacks.get(racer).getException().getMessage());
+			}
+		}
+
+		//The best incumbent answers for the portfolio, and every bound holds for all of the racers
+		bound = shared.getBound();
+		for(CFLPModel racer : racers) {
+			runtimes.add(racer.getRuntime());
+			if(racer.hasSolution() && (winner == null || racer.getObjective() < winner.getObjective())) {
+				winner = racer;
+			}
+			if(!Double.isNaN(racer.getBound()) && !(racer.getBound() <= bound)) {
+				bound = racer.getBound();
+			}
+		}
+		return finished;
+	}
+
+	/**
+	 * This method sets the parameters of a racer and creates its callback. The racers cycle through the MIP focus
+	 * and heuristics settings, each with its own seed, and every other single allocation racer adds the linking and
+	 * cover cuts.
+	 *
+	 * @param racer the copy of the model
+	 * @param number the number of the racer
+	 * @param threads the number of threads of the racer
+	 * @return the callback of the racer
+	 * @throws GRBException if a parameter cannot be set
+	 */
+	private ProgressCallback configure(CFLPModel racer, int number, int threads) throws GRBException {
+		GRBModel gurobiModel = racer.getModel();
+		int setting = number % MIP_FOCUS.length;
+		gurobiModel.set(GRB.IntParam.OutputFlag, 0);
+		gurobiModel.set(GRB.IntParam.Threads, threads);
+		gurobiModel.set(GRB.IntParam.Seed, number);
+		gurobiModel.set(GRB.IntParam.MIPFocus, MIP_FOCUS[setting]);
+		gurobiModel.set(GRB.DoubleParam.Heuristics, HEURISTICS[setting]);
+		gurobiModel.set(GRB.DoubleParam.MIPGap, gapTarget);
+		gurobiModel.set(GRB.DoubleParam.TimeLimit, timeLimit);
+
+		String configuration = "seed " + number + ", focus " + MIP_FOCUS[setting] + ", heuristics " + HEURISTICS[setting];
+		ProgressCallback callback = null;
+		if(number % 2 == 1 && racer.getAllocation() == AllocationMode.SINGLE) {
+			callback = racer.createLinkingCutCallback();
+			configuration += ", linking cuts";
+		}
+		configurations.add(configuration);
+		return callback != null ? callback : new ProgressCallback();
+	}
+
+	/**
+	 * This method prints the configuration and outcome of every racer.
+	 */
+	public void printRacers() {
+		System.out.println();
+		System.out.println("***PORTFOLIO***");
+		System.out.println();
+		System.out.format("%-8s%-52s%-12s%-20s%-20s%-12s%n", "Racer", "Configuration", "Status", "Total Cost", "Lower Bound", "Runtime (s)");
+		for(int racer = 0; racer < racers.size(); racer++) {
+			CFLPModel copy = racers.get(racer);
+			String status;
+			try {
+				status = statusName(copy.getModel().get(GRB.IntAttr.Status));
+			} catch (GRBException e) {
+				status = "unknown";
+			}
+			System.out.format("%-8s%-52s%-12s%-20.2f%-20.2f%-12.2f%n", (copy == winner ? "*" : "") + (racer + 1), configurations.get(racer),
+					status, copy.getObjective(), copy.getBound(), runtimes.get(racer));
+		}
+	}
+
+	/**
+	 * @param status a gurobi optimization status
+	 * @return the name of the statuses a racer can end with
+	 */
+	private static String statusName(int status) {
+		switch(status) {
+		case GRB.Status.OPTIMAL:
+			return "optimal";
+		case GRB.Status.INTERRUPTED:
+			return "stopped";
+		case GRB.Status.INFEASIBLE:
+			return "infeasible";
+		case GRB.Status.TIME_LIMIT:
+			return "time limit";
+		default:
+			return "status " + status;
+		}
+	}
+
+	/**
+	 * @return the racer with the best incumbent, or null if none found one
+	 */
+	public CFLPModel getWinner() {
+		return winner;
+	}
+
+	@Override
+	public boolean hasSolution() {
+		return winner != null;
+	}
+
+	@Override
+	public double getObjective() {
+		return winner != null ? winner.getObjective() : Double.NaN;
+	}
+
+	@Override
+	public double getBound() {
+		return bound;
+	}
+
+	@Override
+	public double getGap() {
+		return winner != null ? ProgressCallback.gap(winner.getObjective(), bound) : Double.NaN;
+	}
+
+	@Override
+	public double getRuntime() {
+		return runtime;
+	}
+
+	/**
+	 * @return the status of the winner, or of the first racer if none found an incumbent
+	 */
+	@Override
+	public int getStatus() {
+		if(winner != null) {
+			return winner.getStatus();
+		}
+		return racers.isEmpty() ? GRB.Status.LOADED : racers.get(0).getStatus();
+	}
+
+	/**
+	 * @return the number of nodes the winner explored
+	 */
+	@Override
+	public long getNodes() {
+		return winner != null ? winner.getNodes() : 0;
+	}
+
+	@Override
+	public int numVariables() {
+		return model.numVariables();
+	}
+
+	@Override
+	public int numConstraints() {
+		return model.numConstraints();
+	}
+
+	@Override
+	public long numNonzeros() {
+		return model.numNonzeros();
+	}
+
+	@Override
+	public boolean[] getOpenFacilities() {
+		return winner != null ? winner.getOpenFacilities() : null;
+	}
+
+	@Override
+	public void printSolution() {
+		if(winner == null) {
+			LOGGER.log(Level.SEVERE, "No racer found a feasible solution.");
+			return;
+		}
+		winner.printSolution();
+	}
+
+	@Override
+	public boolean writeSolution(String filePath) {
+		if(winner == null) {
+			LOGGER.log(Level.SEVERE, "No racer found a feasible solution to write.");
+			return false;
+		}
+		return winner.writeSolution(filePath);
+	}
+
+	/**
+	 * This method disposes the racers and their environments along with the model.
+	 */
+	@Override
+	public void dispose() {
+		for(CFLPModel racer : racers) {
+			racer.dispose();
+		}
+		for(GRBEnv env : envs) {
+			try {
+				env.dispose();
+			} catch (GRBException e) {
+				LOGGER.log(Level.SEVERE, "Error disposing racer environment. " + e.getMessage());
+			}
+		}
+		model.dispose();
+	}
+
+}
@@ -0,0 +1,248 @@
+/**
+ * This class samples the progress of a MIP solve from gurobi callbacks: the incumbent, best bound, gap and node
+ * count at most once per sampling interval and at every new incumbent, along with the time to the first incumbent
+ * and the time spent in presolve. The samples are exported by RunMetrics. Gurobi takes one callback per model, so
+ * callbacks which also add cuts extend this class and call callback of the superclass first. The racers of a
+ * portfolio also share their incumbents and bounds through this callback (see share), and an anytime solve streams
+ * its improving incumbents to a file from it (see stream).
+ *
+ * @author ryanhow
+ *
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import gurobi.*;
+
+public class ProgressCallback extends GRBCallback {
+
+	private static final double SAMPLE_INTERVAL = 1.0; //Seconds between samples taken while the MIP makes no new incumbent
+
+	private final List<Sample> samples = new ArrayList<>();
+	private double lastSample = Double.NEGATIVE_INFINITY;
+	private double firstIncumbentTime = Double.NaN;
+	private double presolveTime = Double.NaN;
+	private GRBException exception; //First error thrown by gurobi inside the callback
+
+	//Portfolio
+	private SharedIncumbent shared; //Incumbent and bound shared with the other racers, or null
+	private int racer; //Number of this racer in the shared incumbent
+	private GRBVar[] vars; //Every variable of the model, in the order of the shared solutions
+	private int seen; //Version of the last shared incumbent this racer considered
+
+	//Anytime
+	private IncumbentWriter incumbents; //Writer of the improving incumbents, or null
+
+	@Override
+	protected void callback() {
+		try {
+			if(where == GRB.CB_POLLING || where == GRB.CB_MESSAGE) {
+				return;
+			}
+			double runtime = getDoubleInfo(GRB.CB_RUNTIME);
+			if(Double.isNaN(presolveTime) && where != GRB.CB_PRESOLVE) {
+				presolveTime = runtime;
+			}
+
+			if(where == GRB.CB_MIPSOL) {
+				if(Double.isNaN(firstIncumbentTime)) {
+					firstIncumbentTime = runtime;
+				}
+				//The new solution is only the incumbent if it improves on the previous one
+				double incumbent = Math.min(getDoubleInfo(GRB.CB_MIPSOL_OBJ), getDoubleInfo(GRB.CB_MIPSOL_OBJBST));
+				sample(runtime, incumbent, getDoubleInfo(GRB.CB_MIPSOL_OBJBND), getDoubleInfo(GRB.CB_MIPSOL_NODCNT));
+				double objective = getDoubleInfo(GRB.CB_MIPSOL_OBJ);
+				if(incumbents != null && incumbents.improves(objective)) {
+					incumbents.write(objective, getDoubleInfo(GRB.CB_MIPSOL_OBJBND), runtime, getSolution(incumbents.getVars()));
+				}
+			} else if(where == GRB.CB_MIP && runtime - lastSample >= SAMPLE_INTERVAL) {
+				sample(runtime, getDoubleInfo(GRB.CB_MIP_OBJBST), getDoubleInfo(GRB.CB_MIP_OBJBND), getDoubleInfo(GRB.CB_MIP_NODCNT));
+			}
+			if(shared != null) {
+				exchange();
+			}
+		} catch (GRBException e) {
+			fail(e);
+		}
+	}
+
+	/**
+	 * This method makes the callback share the incumbents and bounds of its model with the other racers of a
+	 * portfolio.
+	 *
+	 * @param shared the incumbent and bound shared by the racers
+	 * @param racer the number of this racer in the shared incumbent
+	 * @param vars every variable of the model
+	 */
+	public void share(SharedIncumbent shared, int racer, GRBVar[] vars) {
+		this.shared = shared;
+		this.racer = racer;
+		this.vars = vars;
+	}
+
+	/**
+	 * This method makes the callback write every improving incumbent of its model as it is found.
+	 *
+	 * @param incumbents the writer of the incumbent file
+	 */
+	public void stream(IncumbentWriter incumbents) {
+		this.incumbents = incumbents;
+	}
+
+	/**
+	 * This method offers the new incumbents and bounds of this racer to the others, and hands gurobi a better
+	 * incumbent found by another racer at the next node.
+	 *
+	 * @throws GRBException if the callback information cannot be read
+	 */
+	private void exchange() throws GRBException {
+		if(where == GRB.CB_MIPSOL) {
+			double objective = getDoubleInfo(GRB.CB_MIPSOL_OBJ);
+			if(objective < shared.getObjective()) {
+				shared.offer(racer, objective, getSolution(vars));
+			}
+			shared.offerBound(getDoubleInfo(GRB.CB_MIPSOL_OBJBND));
+		} else if(where == GRB.CB_MIP) {
+			shared.offerBound(getDoubleInfo(GRB.CB_MIP_OBJBND));
+		} else if(where == GRB.CB_MIPNODE && shared.getVersion() != seen) {
+			seen = shared.getVersion();
+			double[] values = shared.getValues();
+			if(shared.getSource() != racer && shared.getObjective() < getDoubleInfo(GRB.CB_MIPNODE_OBJBST)) {
+				setSolution(vars, values);
+				useSolution();
+			}
+		}
+	}
+
+	/**
+	 * This method records an error thrown by gurobi inside the callback, keeping the first.
+	 * 
+	 * @param e the exception
+	 */
+	protected void fail(GRBException e) {
+		if(exception == null) {
+			exception = e;
+		}
+	}
+
+	/**
+	 * This method records a sample.
+	 *
+	 * @param runtime the time since the solve started in seconds
+	 * @param incumbent the objective of the incumbent, or GRB.INFINITY without one
+	 * @param bound the best bound
+	 * @param nodes the number of explored nodes
+	 */
+	private void sample(double runtime, double incumbent, double bound, double nodes) {
+		samples.add(new Sample(runtime, incumbent, bound, nodes));
+		lastSample = runtime;
+	}
+
+	/**
+	 * This method obtains the relative gap between an incumbent and a bound, as gurobi reports it.
+	 *
+	 * @param incumbent the objective of the incumbent
+	 * @param bound the bound
+	 * @return the gap, or NaN if there is no incumbent
+	 */
+	public static double gap(double incumbent, double bound) {
+		if(Math.abs(incumbent) >= GRB.INFINITY) {
+			return Double.NaN;
+		}
+		if(incumbent == 0) {
+			return bound == 0 ? 0 : Double.POSITIVE_INFINITY;
+		}
+		return Math.abs(incumbent - bound) / Math.abs(incumbent);
+	}
+
+	/**
+	 * @return the samples in the order they were taken
+	 */
+	public List<Sample> getSamples() {
+		return Collections.unmodifiableList(samples);
+	}
+
+	/**
+	 * @return the time to the first incumbent in seconds, or NaN if none was found
+	 */
+	public double getFirstIncumbentTime() {
+		return firstIncumbentTime;
+	}
+
+	/**
+	 * @return the time spent in presolve in seconds, or NaN if presolve did not finish
+	 */
+	public double getPresolveTime() {
+		return presolveTime;
+	}
+
+	/**
+	 * @return the first error thrown by gurobi inside the callback, or null if there was none
+	 */
+	public GRBException getException() {
+		return exception;
+	}
+
+	/**
+	 * This class is the progress of the solve at one point in time.
+	 */
+	public static final class Sample {
+
+		private final double time;
+		private final double incumbent;
+		private final double bound;
+		private final double nodes;
+
+		/**
+		 * @param time the time since the solve started in seconds
+		 * @param incumbent the objective of the incumbent, or GRB.INFINITY without one
+		 * @param bound the best bound
+		 * @param nodes the number of explored nodes
+		 */
+		private Sample(double time, double incumbent, double bound, double nodes) {
+			this.time = time;
+			this.incumbent = incumbent;
+			this.bound = bound;
+			this.nodes = nodes;
+		}
+
+		/**
+		 * @return the time since the solve started in seconds
+		 */
+		public double getTime() {
+			return time;
+		}
+
+		/**
+		 * @return the objective of the incumbent, or GRB.INFINITY without one
+		 */
+		public double getIncumbent() {
+			return incumbent;
+		}
+
+		/**
+		 * @return the best bound
+		 */
+		public double getBound() {
+			return bound;
+		}
+
+		/**
+		 * @return the relative gap, or NaN without an incumbent
+		 */
+		public double getGap() {
+			return gap(incumbent, bound);
+		}
+
+		/**
+		 * @return the number of explored nodes
+		 */
+		public double getNodes() {
+			return nodes;
+		}
+
+	}
+
+}
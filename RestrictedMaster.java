@@ -0,0 +1,116 @@
+/**
+ * This interface is the restricted master linear program of a column generation, such as the customer sets of
+ * BranchAndPrice. Rows are added first, empty, and every column is then added with its entries in them, so columns
+ * can keep arriving between solves. JavaRestrictedMaster solves it in pure java and GurobiRestrictedMaster with
+ * gurobi, which keeps its basis between solves.
+ *
+ * The duals follow the convention of BoundedSimplex and gurobi: the reduced cost of a column is its cost less the
+ * duals of its rows times its coefficients.
+ *
+ * @author ryanhow
+ *
+ */
+
+import gurobi.GRBException;
+
+public interface RestrictedMaster {
+
+	/**
+	 * This method adds an empty row.
+	 *
+	 * @param sense the sense of the row, LinearProgram.LESS_EQUAL, GREATER_EQUAL or EQUAL
+	 * @param rhs the right hand side
+	 * @return the index of the row
+	 * @throws GRBException if the row cannot be added
+	 */
+	int addRow(char sense, double rhs) throws GRBException;
+
+	/**
+	 * This method changes the right hand side of a row.
+	 *
+	 * @param row the row
+	 * @param rhs the right hand side
+	 * @throws GRBException if the row cannot be changed
+	 */
+	void setRhs(int row, double rhs) throws GRBException;
+
+	/**
+	 * This method adds a column with a lower bound of zero.
+	 *
+	 * @param cost the cost of the column
+	 * @param upperBound the upper bound of the column
+	 * @param rows the rows of its nonzero entries
+	 * @param coefficients the coefficient of each of its rows
+	 * @return the index of the column
+	 * @throws GRBException if the column cannot be added
+	 */
+	int addColumn(double cost, double upperBound, int[] rows, double[] coefficients) throws GRBException;
+
+	/**
+	 * This method changes the cost of a column.
+	 *
+	 * @param column the column
+	 * @param cost the cost
+	 * @throws GRBException if the cost cannot be changed
+	 */
+	void setCost(int column, double cost) throws GRBException;
+
+	/**
+	 * This method changes the bounds of a column.
+	 *
+	 * @param column the column
+	 * @param lowerBound the lower bound
+	 * @param upperBound the upper bound
+	 * @throws GRBException if the bounds cannot be changed
+	 */
+	void setBounds(int column, double lowerBound, double upperBound) throws GRBException;
+
+	/**
+	 * This method solves the linear program.
+	 *
+	 * @return the outcome of the solve, as BoundedSimplex reports it
+	 * @throws GRBException if gurobi fails
+	 */
+	BoundedSimplex.Status solve() throws GRBException;
+
+	/**
+	 * @return the objective of the last solve
+	 * @throws GRBException if the objective cannot be obtained
+	 */
+	double getObjective() throws GRBException;
+
+	/**
+	 * @return the value of each column in the last solve
+	 * @throws GRBException if the values cannot be obtained
+	 */
+	double[] getValues() throws GRBException;
+
+	/**
+	 * @return the dual of each row in the last solve
+	 * @throws GRBException if the duals cannot be obtained
+	 */
+	double[] getDuals() throws GRBException;
+
+	/**
+	 * @return the number of rows
+	 */
+	int numRows();
+
+	/**
+	 * @return the number of columns
+	 */
+	int numColumns();
+
+	/**
+	 * @return the number of nonzero entries of the columns
+	 */
+	long numNonzeros();
+
+	/**
+	 * This method releases the resources of the linear program.
+	 *
+	 * @throws GRBException if gurobi fails
+	 */
+	void dispose() throws GRBException;
+
+}
@@ -0,0 +1,310 @@
+/**
+ * This class collects the timings and sizes of a run and exports them (see README.md): the wall clock time and heap
+ * usage at the end of every phase, the numbers of variables, constraints and nonzeros of the model, the peak heap
+ * usage and the MIP progress sampled by a ProgressCallback. The metrics are written as a JSON summary and as a
+ * Prometheus text format file for the node exporter textfile collector. Both files are replaced atomically so a
+ * scrape never reads a partial file.
+ *
+ * @author ryanhow
+ *
+ */
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import gurobi.*;
+
+public class RunMetrics {
+
+	private final List<String> phases = new ArrayList<>(); //Names of the phases in the order they ended
+	private final List<Double> phaseSeconds = new ArrayList<>();
+	private final List<Long> phaseHeap = new ArrayList<>(); //Heap used at the end of each phase in bytes
+	private long phaseStart = System.nanoTime();
+
+	//Instance
+	private String allocation = "";
+	private int K;
+	private int I;
+	private int J;
+	private int R;
+	private int p;
+
+	//Model
+	private int variables;
+	private int constraints;
+	private long nonzeros;
+
+	//MIP
+	private ProgressCallback progress;
+	private int status;
+	private double incumbent = Double.NaN;
+	private double bound = Double.NaN;
+	private double nodes = Double.NaN;
+	private double runtime = Double.NaN;
+
+	/**
+	 * This method starts timing the next phase. The time between the end of a phase and the start of the next is
+	 * not counted.
+	 */
+	public void start() {
+		phaseStart = System.nanoTime();
+	}
+
+	/**
+	 * This method ends the current phase and starts the next.
+	 *
+	 * @param phase the name of the phase which ended
+	 */
+	public void end(String phase) {
+		long now = System.nanoTime();
+		phases.add(phase);
+		phaseSeconds.add((now - phaseStart) / 1e9);
+		Runtime runtime = Runtime.getRuntime();
+		phaseHeap.add(runtime.totalMemory() - runtime.freeMemory());
+		phaseStart = now;
+	}
+
+	/**
+	 * This method records the sets of the instance.
+	 *
+	 * @param instance the CFLP instance
+	 * @param p the desired number of open facilities
+	 * @param allocation the allocation mode
+	 */
+	public void recordInstance(CFLPInstance instance, int p, AllocationMode allocation) {
+		K = instance.numProducts();
+		I = instance.numPlants();
+		J = instance.numFacilities();
+		R = instance.numCustomers();
+		this.p = p;
+		this.allocation = allocation.getArgument();
+	}
+
+	/**
+	 * This method records the size of a model and, once it has been solved, the result of the solve. Any backend
+	 * reports them: gurobi, the pure java solver, branch and price with the size of its restricted master, and a
+	 * portfolio with the result of its winner.
+	 *
+	 * @param solver the CFLP model
+	 */
+	public void recordModel(CFLPSolver solver) {
+		variables = solver.numVariables();
+		constraints = solver.numConstraints();
+		nonzeros = solver.numNonzeros();
+		status = solver.getStatus();
+		if(status == GRB.Status.LOADED) {
+			return;
+		}
+		runtime = solver.getRuntime();
+		bound = solver.getBound();
+		nodes = solver.getNodes();
+		if(solver.hasSolution()) {
+			incumbent = solver.getObjective();
+		}
+	}
+
+	/**
+	 * @param progress the callback which sampled the MIP progress
+	 */
+	public void setProgress(ProgressCallback progress) {
+		this.progress = progress;
+	}
+
+	/**
+	 * This method writes the JSON summary.
+	 *
+	 * @param filePath the path to the JSON file
+	 * @throws IOException if the file cannot be written
+	 */
+	public void writeJson(String filePath) throws IOException {
+		Path target = Paths.get(filePath);
+		Path temporary = temporaryFile(target);
+		try(BufferedWriter writer = Files.newBufferedWriter(temporary)) {
+			writer.write("{\n");
+			writer.write(String.format(Locale.ROOT, "  \"instance\": {\"K\": %d, \"I\": %d, \"J\": %d, \"R\": %d, \"p\": %d, \"allocation\": \"%s\"},%n",
+					K, I, J, R, p, allocation));
+
+			writer.write("  \"phases\": [");
+			for(int phase = 0; phase < phases.size(); phase++) {
+				writer.write(String.format(Locale.ROOT, "%s%n    {\"name\": \"%s\", \"seconds\": %s, \"heap_used_bytes\": %d}", phase == 0 ? "" : ",",
+						phases.get(phase), number(phaseSeconds.get(phase)), phaseHeap.get(phase)));
+			}
+			writer.write(String.format("%n  ],%n"));
+
+			writer.write(String.format(Locale.ROOT, "  \"model\": {\"variables\": %d, \"constraints\": %d, \"nonzeros\": %d},%n",
+					variables, constraints, nonzeros));
+			writer.write(String.format(Locale.ROOT, "  \"heap\": {\"peak_used_bytes\": %d, \"max_bytes\": %d},%n",
+					peakHeap(), Runtime.getRuntime().maxMemory()));
+
+			writer.write(String.format(Locale.ROOT, "  \"mip\": {\"status\": %d, \"incumbent\": %s, \"bound\": %s, \"gap\": %s, \"nodes\": %s, "
+					+ "\"runtime_seconds\": %s, \"presolve_seconds\": %s, \"time_to_first_incumbent_seconds\": %s, \"samples\": [",
+					status, number(incumbent), number(bound), number(gap()), number(nodes), number(runtime),
+					number(progress == null ? Double.NaN : progress.getPresolveTime()),
+					number(progress == null ? Double.NaN : progress.getFirstIncumbentTime())));
+			if(progress != null) {
+				List<ProgressCallback.Sample> samples = progress.getSamples();
+				for(int sample = 0; sample < samples.size(); sample++) {
+					ProgressCallback.Sample s = samples.get(sample);
+					writer.write(String.format(Locale.ROOT, "%s%n    {\"seconds\": %s, \"incumbent\": %s, \"bound\": %s, \"gap\": %s, \"nodes\": %s}",
+							sample == 0 ? "" : ",", number(s.getTime()), number(s.getIncumbent()), number(s.getBound()), number(s.getGap()), number(s.getNodes())));
+				}
+				if(!samples.isEmpty()) {
+					writer.write(String.format("%n  "));
+				}
+			}
+			writer.write(String.format("]}%n}%n"));
+		}
+		replace(temporary, target);
+	}
+
+	/**
+	 * This method writes the Prometheus text format file. Metrics without a value (such as the incumbent of an
+	 * infeasible model) are left out.
+	 *
+	 * @param filePath the path to the Prometheus file, which should end in .prom for the textfile collector
+	 * @throws IOException if the file cannot be written
+	 */
+	public void writePrometheus(String filePath) throws IOException {
+		Path target = Paths.get(filePath);
+		Path temporary = temporaryFile(target);
+		String labels = String.format(Locale.ROOT, "allocation=\"%s\",K=\"%d\",I=\"%d\",J=\"%d\",R=\"%d\",p=\"%d\"", allocation, K, I, J, R, p);
+		try(BufferedWriter writer = Files.newBufferedWriter(temporary)) {
+			writer.write(header("cflp_phase_seconds", "Wall clock time of each phase of the run."));
+			for(int phase = 0; phase < phases.size(); phase++) {
+				writer.write(metric("cflp_phase_seconds", labels + ",phase=\"" + phases.get(phase) + "\"", phaseSeconds.get(phase)));
+			}
+			writer.write(header("cflp_phase_heap_used_bytes", "Heap used at the end of each phase of the run."));
+			for(int phase = 0; phase < phases.size(); phase++) {
+				writer.write(metric("cflp_phase_heap_used_bytes", labels + ",phase=\"" + phases.get(phase) + "\"", phaseHeap.get(phase)));
+			}
+			writeGauge(writer, "cflp_heap_peak_used_bytes", "Peak heap used during the run.", labels, peakHeap());
+			writeGauge(writer, "cflp_model_variables", "Number of variables of the model.", labels, variables);
+			writeGauge(writer, "cflp_model_constraints", "Number of constraints of the model.", labels, constraints);
+			writeGauge(writer, "cflp_model_nonzeros", "Number of nonzero constraint coefficients of the model.", labels, nonzeros);
+			writeGauge(writer, "cflp_mip_status", "Gurobi status code of the solve.", labels, status);
+			writeGauge(writer, "cflp_mip_incumbent", "Objective of the best solution found.", labels, incumbent);
+			writeGauge(writer, "cflp_mip_bound", "Best bound on the objective.", labels, bound);
+			writeGauge(writer, "cflp_mip_gap", "Relative gap between the incumbent and the bound.", labels, gap());
+			writeGauge(writer, "cflp_mip_nodes", "Number of explored branch-and-bound nodes.", labels, nodes);
+			writeGauge(writer, "cflp_mip_runtime_seconds", "Time the solver spent solving.", labels, runtime);
+			if(progress != null) {
+				writeGauge(writer, "cflp_mip_presolve_seconds", "Time gurobi spent in presolve.", labels, progress.getPresolveTime());
+				writeGauge(writer, "cflp_mip_time_to_first_incumbent_seconds", "Time to the first solution found.", labels, progress.getFirstIncumbentTime());
+			}
+		}
+		replace(temporary, target);
+	}
+
+	/**
+	 * @return the relative gap of the solve, or NaN without an incumbent
+	 */
+	private double gap() {
+		return Double.isNaN(incumbent) || Double.isNaN(bound) ? Double.NaN : ProgressCallback.gap(incumbent, bound);
+	}
+
+	/**
+	 * This method obtains the peak heap usage of the JVM so far, summed over the heap memory pools.
+	 *
+	 * @return the peak heap used in bytes
+	 */
+	private static long peakHeap() {
+		long peak = 0;
+		for(MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if(pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+				peak += pool.getPeakUsage().getUsed();
+			}
+		}
+		return peak;
+	}
+
+	/**
+	 * This method writes a gauge with its header, unless it has no value.
+	 *
+	 * @param writer the Prometheus file writer
+	 * @param name the name of the metric
+	 * @param help the description of the metric
+	 * @param labels the labels of the metric
+	 * @param value the value of the metric
+	 * @throws IOException if the file cannot be written
+	 */
+	private static void writeGauge(BufferedWriter writer, String name, String help, String labels, double value) throws IOException {
+		if(Double.isNaN(value) || Math.abs(value) >= GRB.INFINITY) {
+			return;
+		}
+		writer.write(header(name, help));
+		writer.write(metric(name, labels, value));
+	}
+
+	/**
+	 * @param name the name of the metric
+	 * @param help the description of the metric
+	 * @return the HELP and TYPE lines of a gauge
+	 */
+	private static String header(String name, String help) {
+		return "# HELP " + name + " " + help + "\n# TYPE " + name + " gauge\n";
+	}
+
+	/**
+	 * @param name the name of the metric
+	 * @param labels the labels of the metric
+	 * @param value the value of the metric
+	 * @return the sample line of the metric
+	 */
+	private static String metric(String name, String labels, double value) {
+		return name + "{" + labels + "} " + number(value) + "\n";
+	}
+
+	/**
+	 * This method formats a number for either file. Integral values are written without a fraction and values
+	 * without a meaning (NaN, or gurobi's infinity when there is no incumbent) are written as null.
+	 *
+	 * @param value the value
+	 * @return the formatted value
+	 */
+	private static String number(double value) {
+		if(Double.isNaN(value) || Math.abs(value) >= GRB.INFINITY) {
+			return "null";
+		}
+		if(value == Math.rint(value) && Math.abs(value) < 1e15) {
+			return Long.toString((long) value);
+		}
+		return Double.toString(value);
+	}
+
+	/**
+	 * @param target the file being written
+	 * @return a temporary file next to it
+	 * @throws IOException if the temporary file cannot be created
+	 */
+	private static Path temporaryFile(Path target) throws IOException {
+		Path parent = target.toAbsolutePath().getParent();
+		return Files.createTempFile(parent, target.getFileName().toString(), ".tmp");
+	}
+
+	/**
+	 * This method moves a written temporary file over its target.
+	 *
+	 * @param temporary the temporary file
+	 * @param target the target
+	 * @throws IOException if the file cannot be moved
+	 */
+	private static void replace(Path temporary, Path target) throws IOException {
+		try {
+			Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			Files.deleteIfExists(temporary);
+			throw e;
+		}
+	}
+
+}
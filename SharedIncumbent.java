@@ -0,0 +1,143 @@
+/**
+ * This class is the incumbent and bound shared by the racing solves of a portfolio (see PortfolioSolver). Every
+ * racer solves a copy of the same model, so a solution of one is a solution of all of them with the variables in the
+ * same order, and the bound of any racer bounds them all. The callback of each racer (see ProgressCallback) offers its
+ * new incumbents and bounds here and picks up the incumbents of the others. Once the best incumbent and the best
+ * bound of all the racers are within the gap target, every racer is terminated.
+ *
+ * @author ryanhow
+ *
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+
+import gurobi.*;
+
+public class SharedIncumbent {
+
+	private final double gapTarget; //Relative gap between the shared incumbent and bound at which every racer stops
+	private final List<GRBModel> racers = new ArrayList<>();
+
+	private double objective = GRB.INFINITY;
+	private double[] values; //Value of every variable of the incumbent, or null without one
+	private int version; //Incumbents offered so far, so a racer can tell if it has seen the last one
+	private int source = -1; //Racer which found the incumbent
+	private double bound = -GRB.INFINITY;
+	private boolean finished;
+
+	/**
+	 * This constructor creates an empty pool.
+	 *
+	 * @param gapTarget the relative gap at which every racer stops
+	 */
+	public SharedIncumbent(double gapTarget) {
+		this.gapTarget = gapTarget;
+	}
+
+	/**
+	 * This method adds a racer which is terminated when the gap target is reached.
+	 *
+	 * @param model the gurobi model of the racer
+	 * @return the number of the racer
+	 */
+	public synchronized int register(GRBModel model) {
+		racers.add(model);
+		return racers.size() - 1;
+	}
+
+	/**
+	 * This method offers a new solution of a racer, which becomes the shared incumbent if it is better.
+	 *
+	 * @param racer the number of the racer
+	 * @param objective the objective of the solution
+	 * @param values the value of every variable of the solution
+	 * @return true if the solution became the shared incumbent
+	 */
+	public synchronized boolean offer(int racer, double objective, double[] values) {
+		if(objective >= this.objective) {
+			return false;
+		}
+		this.objective = objective;
+		this.values = values;
+		this.source = racer;
+		version++;
+		checkGap();
+		return true;
+	}
+
+	/**
+	 * This method offers the bound of a racer, which becomes the shared bound if it is higher.
+	 *
+	 * @param bound the bound of the racer
+	 */
+	public synchronized void offerBound(double bound) {
+		if(bound > this.bound) {
+			this.bound = bound;
+			checkGap();
+		}
+	}
+
+	/**
+	 * This method terminates every racer once the shared incumbent and bound are within the gap target.
+	 */
+	private void checkGap() {
+		if(finished || !(ProgressCallback.gap(objective, bound) <= gapTarget)) {
+			return;
+		}
+		finish();
+	}
+
+	/**
+	 * This method terminates every racer, as when one of them proves optimality.
+	 */
+	public synchronized void finish() {
+		finished = true;
+		for(GRBModel model : racers) {
+			model.terminate();
+		}
+	}
+
+	/**
+	 * @return true if the racers were terminated
+	 */
+	public synchronized boolean isFinished() {
+		return finished;
+	}
+
+	/**
+	 * @return the number of incumbents offered so far
+	 */
+	public synchronized int getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return the objective of the shared incumbent, or GRB.INFINITY without one
+	 */
+	public synchronized double getObjective() {
+		return objective;
+	}
+
+	/**
+	 * @return the value of every variable of the shared incumbent, or null without one
+	 */
+	public synchronized double[] getValues() {
+		return values;
+	}
+
+	/**
+	 * @return the racer which found the shared incumbent, or -1 without one
+	 */
+	public synchronized int getSource() {
+		return source;
+	}
+
+	/**
+	 * @return the best bound of the racers
+	 */
+	public synchronized double getBound() {
+		return bound;
+	}
+
+}
@@ -0,0 +1,323 @@
+/**
+ * This class is a feasible solution of the single allocation model built in pure java: the open facilities, the
+ * facility serving each customer and the plant to facility flows of every product. It is produced by the heuristics
+ * and relaxations that do not need gurobi.
+ *
+ * @author ryanhow
+ *
+ */
+
+import java.util.Arrays;
+
+public class SingleAllocationSolution {
+
+	private final CFLPInstance instance;
+	private final boolean[] open; //If facility j is open or not
+	private final int[] assignment; //Facility serving customer r
+	private final long[] load; //Total demand served by facility j
+	private double[] flows; //Amount of product k supplied by plant i to facility j, indexed [(k * I + i) * J + j]
+	private double transportationCost; //Cost of the plant to facility flows
+
+	/**
+	 * This constructor creates a solution from a customer assignment. The plant to facility flows are not routed
+	 * until routeProducts is called.
+	 *
+	 * @param instance the CFLP instance
+	 * @param open if each facility is open or not
+	 * @param assignment the facility serving each customer
+	 */
+	public SingleAllocationSolution(CFLPInstance instance, boolean[] open, int[] assignment) {
+		this.instance = instance;
+		this.open = open.clone();
+		this.assignment = assignment.clone();
+		this.load = new long[instance.numFacilities()];
+		for(int r = 0; r < assignment.length; r++) {
+			load[assignment[r]] += instance.customerDemand(r);
+		}
+	}
+
+	/**
+	 * This method assigns every customer to one of the open facilities, respecting the minimum and maximum activity
+	 * levels, and routes the products from the plants.
+	 *
+	 * Customers are placed in order of decreasing regret (the extra cost of their second cheapest open facility)
+	 * on their cheapest open facility with room left. Facilities below their minimum activity level then take
+	 * over the customers that are cheapest to move from facilities which stay above their own minimum.
+	 *
+	 * @param instance the CFLP instance
+	 * @param open if each facility is open or not
+	 * @return the solution, or null if no feasible assignment was found
+	 */
+	public static SingleAllocationSolution assign(CFLPInstance instance, boolean[] open) {
+		int J = instance.numFacilities();
+		int R = instance.numCustomers();
+		int[] openFacilities = openFacilities(open);
+		if(openFacilities.length == 0) {
+			return R == 0 ? new SingleAllocationSolution(instance, open, new int[0]).routed() : null;
+		}
+
+		//Regret of every customer over the open facilities
+		double[] regret = new double[R];
+		Integer[] order = new Integer[R];
+		for(int r = 0; r < R; r++) {
+			double best = Double.POSITIVE_INFINITY;
+			double second = Double.POSITIVE_INFINITY;
+			for(int j : openFacilities) {
+				double cost = instance.assignmentCost(j, r);
+				if(cost < best) {
+					second = best;
+					best = cost;
+				} else if(cost < second) {
+					second = cost;
+				}
+			}
+			regret[r] = second == Double.POSITIVE_INFINITY ? 0 : second - best;
+			order[r] = r;
+		}
+		Arrays.sort(order, (a, b) -> Double.compare(regret[b], regret[a]));
+
+		int[] assignment = new int[R];
+		long[] load = new long[J];
+		for(int r : order) {
+			int best = -1;
+			for(int j : openFacilities) {
+				if(load[j] + instance.customerDemand(r) <= instance.maxActivity(j)
+						&& (best == -1 || instance.assignmentCost(j, r) < instance.assignmentCost(best, r))) {
+					best = j;
+				}
+			}
+			if(best == -1) {
+				return null;
+			}
+			assignment[r] = best;
+			load[best] += instance.customerDemand(r);
+		}
+
+		//Raise every open facility to its minimum activity level
+		for(int j : openFacilities) {
+			while(load[j] < instance.minActivity(j)) {
+				int move = -1;
+				double moveCost = Double.POSITIVE_INFINITY;
+				for(int r = 0; r < R; r++) {
+					int from = assignment[r];
+					int demand = instance.customerDemand(r);
+					if(from == j || demand == 0 || load[from] - demand < instance.minActivity(from) || load[j] + demand > instance.maxActivity(j)) {
+						continue;
+					}
+					double delta = instance.assignmentCost(j, r) - instance.assignmentCost(from, r);
+					if(delta < moveCost) {
+						moveCost = delta;
+						move = r;
+					}
+				}
+				if(move == -1) {
+					return null;
+				}
+				load[assignment[move]] -= instance.customerDemand(move);
+				load[j] += instance.customerDemand(move);
+				assignment[move] = j;
+			}
+		}
+
+		return new SingleAllocationSolution(instance, open, assignment).routed();
+	}
+
+	/**
+	 * This method assigns the customers to a set of open facilities and, if they cannot be assigned, tries single
+	 * swaps of an open facility for a closed one: the worst ranked open facilities are swapped out first for the best
+	 * ranked closed facilities. Facilities ranked positive infinity are never opened.
+	 *
+	 * @param instance the CFLP instance
+	 * @param open if each facility is open or not
+	 * @param rank the rank of each facility, lower is better
+	 * @param maxSwaps the maximum number of swaps tried
+	 * @return the solution, or null if no feasible assignment was found
+	 */
+	public static SingleAllocationSolution repair(CFLPInstance instance, boolean[] open, double[] rank, int maxSwaps) {
+		SingleAllocationSolution solution = assign(instance, open);
+		if(solution != null) {
+			return solution;
+		}
+
+		int J = instance.numFacilities();
+		Integer[] order = new Integer[J];
+		for(int j = 0; j < J; j++) {
+			order[j] = j;
+		}
+		Arrays.sort(order, (a, b) -> Double.compare(rank[a], rank[b]));
+		int attempts = 0;
+		for(int out = J - 1; out >= 0; out--) {
+			if(!open[order[out]]) {
+				continue;
+			}
+			for(int in = 0; in < J; in++) {
+				if(open[order[in]] || rank[order[in]] == Double.POSITIVE_INFINITY) {
+					continue;
+				}
+				if(++attempts > maxSwaps) {
+					return null;
+				}
+				open[order[out]] = false;
+				open[order[in]] = true;
+				solution = assign(instance, open);
+				open[order[in]] = false;
+				open[order[out]] = true;
+				if(solution != null) {
+					return solution;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * This method routes the products and returns this solution, or null if the plants cannot supply the demand.
+	 *
+	 * @return this solution or null
+	 */
+	private SingleAllocationSolution routed() {
+		return routeProducts() ? this : null;
+	}
+
+	/**
+	 * This method computes the cheapest plant to facility flows of every product for the current assignment.
+	 *
+	 * @return true if the plants can supply the demand, false otherwise
+	 */
+	public boolean routeProducts() {
+		int K = instance.numProducts();
+		int I = instance.numPlants();
+		int J = instance.numFacilities();
+		flows = new double[K * I * J];
+		transportationCost = 0;
+		double[] facilityDemand = new double[J];
+		for(int k = 0; k < K; k++) {
+			Arrays.fill(facilityDemand, 0);
+			for(int r = 0; r < assignment.length; r++) {
+				facilityDemand[assignment[r]] += instance.demand(r, k);
+			}
+			double[] productFlows = TransportationProblem.solve(instance, k, facilityDemand);
+			if(productFlows == null) {
+				return false;
+			}
+			for(int i = 0; i < I; i++) {
+				for(int j = 0; j < J; j++) {
+					double flow = productFlows[i * J + j];
+					flows[(k * I + i) * J + j] = flow;
+					transportationCost += flow * instance.unitCost(k) * instance.plantDistance(i, j);
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * This method obtains the open facilities.
+	 *
+	 * @param open if each facility is open or not
+	 * @return the indices of the open facilities
+	 */
+	static int[] openFacilities(boolean[] open) {
+		int count = 0;
+		for(boolean isOpen : open) {
+			if(isOpen) {
+				count++;
+			}
+		}
+		int[] facilities = new int[count];
+		count = 0;
+		for(int j = 0; j < open.length; j++) {
+			if(open[j]) {
+				facilities[count++] = j;
+			}
+		}
+		return facilities;
+	}
+
+	/**
+	 * This method checks the solution against every constraint of the single allocation model.
+	 *
+	 * @param p the desired number of open facilities
+	 * @return true if the solution is feasible, false otherwise
+	 */
+	public boolean isFeasible(int p) {
+		int J = instance.numFacilities();
+		if(openFacilities(open).length != p || flows == null) {
+			return false;
+		}
+		for(int r = 0; r < assignment.length; r++) {
+			if(!open[assignment[r]]) {
+				return false;
+			}
+		}
+		for(int j = 0; j < J; j++) {
+			long min = open[j] ? instance.minActivity(j) : 0;
+			long max = open[j] ? instance.maxActivity(j) : 0;
+			if(load[j] < min || load[j] > max) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * This method obtains the total cost of the solution: fixed costs, plant to facility transportation and the
+	 * cost of serving every customer from its facility.
+	 *
+	 * @return the total cost
+	 */
+	public double getCost() {
+		double cost = transportationCost;
+		for(int j = 0; j < open.length; j++) {
+			if(open[j]) {
+				cost += instance.fixedCost(j);
+			}
+		}
+		for(int r = 0; r < assignment.length; r++) {
+			cost += instance.assignmentCost(assignment[r], r);
+		}
+		return cost;
+	}
+
+	/**
+	 * @param j the facility
+	 * @return true if facility j is open, false otherwise
+	 */
+	public boolean isOpen(int j) {
+		return open[j];
+	}
+
+	/**
+	 * @param r the customer
+	 * @return the facility serving customer r
+	 */
+	public int getAssignment(int r) {
+		return assignment[r];
+	}
+
+	/**
+	 * @param j the facility
+	 * @return the total demand served by facility j
+	 */
+	public long getLoad(int j) {
+		return load[j];
+	}
+
+	/**
+	 * @param k the product
+	 * @param i the production plant
+	 * @param j the facility
+	 * @return the amount of product k supplied by plant i to facility j
+	 */
+	public double getFlow(int k, int i, int j) {
+		return flows[(k * instance.numPlants() + i) * instance.numFacilities() + j];
+	}
+
+	/**
+	 * @return the CFLP instance
+	 */
+	public CFLPInstance getInstance() {
+		return instance;
+	}
+
+}
@@ -0,0 +1,285 @@
+/**
+ * This class prints the solution of a CFLP model to the console and streams its nonzero values to a solution file
+ * (see SolutionWriter) the same way for every solver backend. The values of each decision variable family are read
+ * through a SolutionValues source, a range at a time, so a backend holding the values outside the JVM fetches them
+ * in bulk and the dense flow arrays are never held at once.
+ *
+ * The families are z[j], x[k][i][j], y[j][r], w[k][j][r] and s[k][i][j][r], flattened in that index order.
+ *
+ * @author ryanhow
+ *
+ */
+
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import gurobi.*;
+
+public class SolutionPrinter {
+
+	private final static Logger LOGGER = Logger.getLogger(SolutionPrinter.class.getName());
+
+	private static final int RETRIEVAL_CHUNK = 1 << 20; //Values fetched from the backend in one call when writing the solution
+	private static final double ZERO_TOLERANCE = 1e-9; //Values at most this far from zero are left out of the solution file
+
+	//Sets
+	private final int K; //Set of commodities/products
+	private final int I; //Set of production plant
+	private final int J; //Set of potential candidate facility locations
+	private final int R; //Set of customers
+
+	private final CFLPInstance instance;
+	private final AllocationMode allocation;
+	private final SolutionValues values;
+
+	/**
+	 * This interface reads a range of the solution values of a decision variable family.
+	 */
+	public interface SolutionValues {
+
+		/**
+		 * @param family the decision variable family, z, x, y, w or s
+		 * @param from the first flat index
+		 * @param to one past the last flat index
+		 * @return the value of each variable in the range
+		 * @throws GRBException if the values cannot be obtained
+		 */
+		double[] get(String family, int from, int to) throws GRBException;
+
+	}
+
+	/**
+	 * This constructor creates a printer of the solution of a model.
+	 *
+	 * @param instance the CFLP instance
+	 * @param allocation the allocation mode of the model
+	 * @param values the solution values
+	 */
+	public SolutionPrinter(CFLPInstance instance, AllocationMode allocation, SolutionValues values) {
+		this.instance = instance;
+		this.allocation = allocation;
+		this.values = values;
+		K = instance.numProducts();
+		I = instance.numPlants();
+		J = instance.numFacilities();
+		R = instance.numCustomers();
+	}
+
+	/**
+	 * This method prints the solution to the console, following the total cost printed by the backend.
+	 */
+	public void print() {
+		double[] facilityOpen;
+		try {
+			facilityOpen = values.get("z", 0, J);
+		} catch (GRBException e) {
+			logDecisionVariableValue("zj", e);
+			return;
+		}
+		for(int j = 0; j < J; j++) {
+			if(facilityOpen[j] > 0.99) {
+				System.out.println("Facility " + (j + 1) + ": Open");
+			} else {
+				System.out.println("Facility " + (j + 1) + ": Closed");
+			}
+		}
+		System.out.println();
+
+		if(allocation == AllocationMode.SINGLE || allocation == AllocationMode.ARC_FLOW) {
+			double[] plantToFacilityAmounts;
+			try {
+				plantToFacilityAmounts = values.get("x", 0, K * I * J);
+			} catch (GRBException e) {
+				logDecisionVariableValue("xijk", e);
+				return;
+			}
+			for(int k = 0; k < K; k++) {
+				System.out.println("Product " + (k + 1));
+
+				for(int j = 0; j < J; j++) {
+					if(j == 0) {
+						System.out.format("%-12s%-12s", "▽From/To▷", "Facility " + (j + 1));
+						continue;
+					}
+					System.out.format("%-12s", "Facility " + (j + 1));
+				}
+				System.out.println();
+
+				for(int i = 0; i < I; i++) {
+					System.out.format("%-12s", "Plant " + (i + 1));
+					for(int j = 0; j < J; j++) {
+						System.out.format("%-12.2f", plantToFacilityAmounts[(k * I + i) * J + j]);
+					}
+					System.out.println();
+				}
+				System.out.println();
+			}
+		}
+
+		if(allocation == AllocationMode.SINGLE) {
+			double[] demandFromFacility;
+			try {
+				demandFromFacility = values.get("y", 0, J * R);
+			} catch (GRBException e) {
+				logDecisionVariableValue("yjr", e);
+				return;
+			}
+			for(int k = 0; k < K; k++) {
+				System.out.println("Product " + (k + 1));
+
+				for(int r = 0; r < R; r++) {
+					if(r == 0) {
+						System.out.format("%-12s%-12s", "▽From/To▷", "Customer " + (r + 1));
+						continue;
+					}
+					System.out.format("%-12s", "Customer " + (r + 1));
+				}
+				System.out.println();
+
+				for(int j = 0; j < J; j++) {
+					System.out.format("%-12s", "Facility " + (j + 1));
+					for(int r = 0; r < R; r++) {
+						System.out.format("%-12d", demandFromFacility[j * R + r] == 1 ? instance.demand(r, k) : 0);
+					}
+					System.out.println();
+				}
+
+				System.out.println();
+			}
+		} else if(allocation == AllocationMode.ARC_FLOW) {
+			double[] facilityToCustomerAmounts;
+			try {
+				facilityToCustomerAmounts = values.get("w", 0, K * J * R);
+			} catch (GRBException e) {
+				logDecisionVariableValue("wkjr", e);
+				return;
+			}
+			for(int k = 0; k < K; k++) {
+				System.out.println("Product " + (k + 1));
+
+				for(int r = 0; r < R; r++) {
+					if(r == 0) {
+						System.out.format("%-12s%-12s", "▽From/To▷", "Customer " + (r + 1));
+						continue;
+					}
+					System.out.format("%-12s", "Customer " + (r + 1));
+				}
+				System.out.println();
+
+				for(int j = 0; j < J; j++) {
+					System.out.format("%-12s", "Facility " + (j + 1));
+					for(int r = 0; r < R; r++) {
+						System.out.format("%-12.2f", facilityToCustomerAmounts[(k * J + j) * R + r]);
+					}
+					System.out.println();
+				}
+
+				System.out.println();
+			}
+		} else {
+			for(int k = 0; k < K; k++) {
+				System.out.println("Product " + (k + 1));
+				for(int i = 0; i < I; i++) {
+					//One plant of one product at a time keeps the fetched values small
+					double[] products;
+					try {
+						int first = (k * I + i) * J * R;
+						products = values.get("s", first, first + J * R);
+					} catch (GRBException e) {
+						logDecisionVariableValue("skijr", e);
+						return;
+					}
+					for(int j = 0; j < J; j++) {
+						for(int r = 0; r < R; r++) {
+							double product = products[j * R + r];
+							if(product > 0) {
+								System.out.println("Plant " + (i + 1) + " ▷ " + "Facility " + (j + 1) + " ▷ " + "Customer " + (r + 1) + ": " + product);
+							}
+						}
+					}
+				}
+				System.out.println();
+			}
+		}
+
+	}
+
+	/**
+	 * This method streams the nonzero values of the solution to a CSV or JSON file (see SolutionWriter), a bounded
+	 * chunk at a time, so only the nonzeros are formatted.
+	 *
+	 * @param filePath the path to the solution file, JSON if it ends in .json and CSV otherwise
+	 * @param objective the objective value of the solution
+	 * @param status the gurobi status code of the solve
+	 * @return true if the file was written, false otherwise
+	 */
+	public boolean write(String filePath, double objective, int status) {
+		try(SolutionWriter writer = new SolutionWriter(filePath, objective, status)) {
+			forEachNonzero("z", J, (index, value) -> writer.write("z", -1, -1, index, -1, value));
+			if(allocation == AllocationMode.SINGLE || allocation == AllocationMode.ARC_FLOW) {
+				forEachNonzero("x", K * I * J, (index, value) -> writer.write("x", index / (I * J), index / J % I, index % J, -1, value));
+			}
+			if(allocation == AllocationMode.SINGLE) {
+				forEachNonzero("y", J * R, (index, value) -> writer.write("y", -1, -1, index / R, index % R, value));
+			} else if(allocation == AllocationMode.ARC_FLOW) {
+				forEachNonzero("w", K * J * R, (index, value) -> writer.write("w", index / (J * R), -1, index / R % J, index % R, value));
+			} else {
+				forEachNonzero("s", K * I * J * R, (index, value) -> writer.write("s", index / (I * J * R), index / (J * R) % I, index / R % J, index % R, value));
+			}
+		} catch (GRBException e) {
+			LOGGER.log(Level.SEVERE, "Error obtaining solution values. " + e.getMessage());
+			return false;
+		} catch (IOException e) {
+			LOGGER.log(Level.SEVERE, "Error writing solution file '" + filePath + "'. " + e.getMessage());
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * This method visits the nonzero values of a decision variable family in index order, reading them a chunk at a
+	 * time.
+	 *
+	 * @param family the decision variable family
+	 * @param length the number of variables of the family
+	 * @param visitor the visitor of each nonzero value
+	 * @throws GRBException if the values cannot be obtained
+	 * @throws IOException if the visitor fails to write a value
+	 */
+	private void forEachNonzero(String family, int length, NonzeroVisitor visitor) throws GRBException, IOException {
+		for(int start = 0; start < length; start += RETRIEVAL_CHUNK) {
+			double[] chunk = values.get(family, start, Math.min(length, start + RETRIEVAL_CHUNK));
+			for(int index = 0; index < chunk.length; index++) {
+				if(Math.abs(chunk[index]) > ZERO_TOLERANCE) {
+					visitor.visit(start + index, chunk[index]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * This interface receives the nonzero values of a decision variable family.
+	 */
+	private interface NonzeroVisitor {
+
+		/**
+		 * @param index the index of the variable in its flat array
+		 * @param value the value of the variable
+		 * @throws IOException if the value cannot be written
+		 */
+		void visit(int index, double value) throws IOException;
+
+	}
+
+	/**
+	 * This method logs errors when obtaining the decision variable values.
+	 *
+	 * @param decisionVariable the decision variable being obtained
+	 * @param e the exception
+	 */
+	private static void logDecisionVariableValue(String decisionVariable, Exception e) {
+		LOGGER.log(Level.SEVERE, "Error obtaining " + decisionVariable + " decision variable value. " + e.getMessage());
+	}
+
+}
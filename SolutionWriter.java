@@ -0,0 +1,118 @@
+/**
+ * This class streams the nonzero values of a solution to a buffered CSV or JSON file, chosen by the file extension
+ * (.json for JSON, CSV otherwise). Every value names its decision variable and the products, plants, facilities and
+ * customers it belongs to, numbered from 1 as in the printed solution:
+ *
+ * <pre>
+ * variable,product,plant,facility,customer,value
+ * z,,,2,,1
+ * x,1,2,2,,15.0
+ * </pre>
+ *
+ * The JSON file holds the objective, the Gurobi status and a flows array with one object per value.
+ *
+ * @author ryanhow
+ *
+ */
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+public class SolutionWriter implements Closeable {
+
+	private static final int WRITE_BUFFER_SIZE = 1 << 20; //Characters buffered before they are written
+
+	private final BufferedWriter writer;
+	private final boolean json;
+	private final StringBuilder line = new StringBuilder();
+	private boolean firstValue = true;
+
+	/**
+	 * This constructor opens the solution file and writes its header.
+	 *
+	 * @param filePath the path to the solution file
+	 * @param objective the objective value of the solution
+	 * @param status the gurobi status code of the solve
+	 * @throws IOException if the file cannot be written
+	 */
+	public SolutionWriter(String filePath, double objective, int status) throws IOException {
+		writer = new BufferedWriter(Files.newBufferedWriter(Paths.get(filePath)), WRITE_BUFFER_SIZE);
+		json = filePath.toLowerCase().endsWith(".json");
+		if(json) {
+			writer.write("{\"objective\": " + objective + ", \"status\": " + status + ", \"flows\": [");
+		} else {
+			writer.write("variable,product,plant,facility,customer,value");
+			writer.newLine();
+			writer.write("objective,,,,," + objective);
+			writer.newLine();
+		}
+	}
+
+	/**
+	 * This method writes one nonzero value. Indices are numbered from 0 and are written numbered from 1.
+	 *
+	 * @param variable the name of the decision variable family, such as x or s
+	 * @param k the product, or -1 if the variable has none
+	 * @param i the production plant, or -1 if the variable has none
+	 * @param j the facility, or -1 if the variable has none
+	 * @param r the customer, or -1 if the variable has none
+	 * @param value the value
+	 * @throws IOException if the file cannot be written
+	 */
+	public void write(String variable, int k, int i, int j, int r, double value) throws IOException {
+		line.setLength(0);
+		if(json) {
+			line.append(firstValue ? "\n" : ",\n").append("{\"variable\": \"").append(variable).append('"');
+			appendJson("product", k);
+			appendJson("plant", i);
+			appendJson("facility", j);
+			appendJson("customer", r);
+			line.append(", \"value\": ").append(value).append('}');
+		} else {
+			line.append(variable);
+			appendCsv(k);
+			appendCsv(i);
+			appendCsv(j);
+			appendCsv(r);
+			line.append(',').append(value).append('\n');
+		}
+		firstValue = false;
+		writer.append(line);
+	}
+
+	/**
+	 * @param name the name of the index
+	 * @param index the index numbered from 0, or -1 to leave it out
+	 */
+	private void appendJson(String name, int index) {
+		if(index >= 0) {
+			line.append(", \"").append(name).append("\": ").append(index + 1);
+		}
+	}
+
+	/**
+	 * @param index the index numbered from 0, or -1 for an empty column
+	 */
+	private void appendCsv(int index) {
+		line.append(',');
+		if(index >= 0) {
+			line.append(index + 1);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			if(json) {
+				writer.write(firstValue ? "]}" : "\n]}");
+				writer.newLine();
+			}
+		} finally {
+			writer.close();
+		}
+	}
+
+}
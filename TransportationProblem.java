@@ -0,0 +1,189 @@
+/**
+ * This class solves the plant to facility transportation problem of a single product: ship the product demanded at
+ * every facility from the production plants at minimum cost without exceeding the plant capacities. It uses
+ * successive shortest paths with node potentials on the dense plant to facility network.
+ *
+ * @author ryanhow
+ *
+ */
+
+import java.util.Arrays;
+
+public class TransportationProblem {
+
+	private static final double EPSILON = 1e-9;
+
+	private TransportationProblem() {
+	}
+
+	/**
+	 * This method ships the demand of product k at every facility from the production plants at minimum cost.
+	 *
+	 * @param instance the CFLP instance
+	 * @param k the product
+	 * @param facilityDemand the amount of product k required at each facility
+	 * @return the amount shipped from plant i to facility j, indexed [i * J + j], or null if the plants cannot
+	 * supply the demand
+	 */
+	public static double[] solve(CFLPInstance instance, int k, double[] facilityDemand) {
+		int I = instance.numPlants();
+		int J = instance.numFacilities();
+
+		//Only facilities with demand take part in the network
+		int[] facilities = new int[J];
+		int F = 0;
+		for(int j = 0; j < J; j++) {
+			if(facilityDemand[j] > EPSILON) {
+				facilities[F++] = j;
+			}
+		}
+		double[] flows = new double[I * J];
+		if(F == 0) {
+			return flows;
+		}
+
+		//Nodes: source, plants, facilities with demand, sink
+		int source = 0;
+		int sink = I + F + 1;
+		int nodes = I + F + 2;
+		double[] supply = new double[I]; //Residual capacity of source to plant arcs
+		double[] demand = new double[F]; //Residual capacity of facility to sink arcs
+		double[] cost = new double[I * F];
+		double unmet = 0;
+		for(int i = 0; i < I; i++) {
+			supply[i] = instance.capacity(i, k);
+		}
+		for(int f = 0; f < F; f++) {
+			demand[f] = facilityDemand[facilities[f]];
+			unmet += demand[f];
+			for(int i = 0; i < I; i++) {
+				cost[i * F + f] = instance.unitCost(k) * instance.plantDistance(i, facilities[f]);
+			}
+		}
+		double[] flow = new double[I * F];
+
+		double[] potential = new double[nodes];
+		double[] distance = new double[nodes];
+		int[] previous = new int[nodes];
+		boolean[] done = new boolean[nodes];
+		while(unmet > EPSILON) {
+			//Dijkstra on reduced costs over the residual network
+			Arrays.fill(distance, Double.POSITIVE_INFINITY);
+			Arrays.fill(previous, -1);
+			Arrays.fill(done, false);
+			distance[source] = 0;
+			while(true) {
+				int u = -1;
+				for(int v = 0; v < nodes; v++) {
+					if(!done[v] && distance[v] < Double.POSITIVE_INFINITY && (u == -1 || distance[v] < distance[u])) {
+						u = v;
+					}
+				}
+				if(u == -1 || u == sink) {
+					break;
+				}
+				done[u] = true;
+				if(u == source) {
+					for(int i = 0; i < I; i++) {
+						if(supply[i] > EPSILON) {
+							relax(u, 1 + i, 0, potential, distance, previous);
+						}
+					}
+				} else if(u <= I) {
+					int i = u - 1;
+					for(int f = 0; f < F; f++) {
+						relax(u, 1 + I + f, cost[i * F + f], potential, distance, previous);
+					}
+				} else {
+					int f = u - 1 - I;
+					for(int i = 0; i < I; i++) {
+						if(flow[i * F + f] > EPSILON) {
+							relax(u, 1 + i, -cost[i * F + f], potential, distance, previous);
+						}
+					}
+					if(demand[f] > EPSILON) {
+						relax(u, sink, 0, potential, distance, previous);
+					}
+				}
+			}
+			if(distance[sink] == Double.POSITIVE_INFINITY) {
+				return null;
+			}
+			for(int v = 0; v < nodes; v++) {
+				potential[v] += Math.min(distance[v], distance[sink]);
+			}
+
+			//Bottleneck of the shortest path
+			double amount = Double.POSITIVE_INFINITY;
+			for(int v = sink; v != source; v = previous[v]) {
+				int u = previous[v];
+				amount = Math.min(amount, residual(u, v, I, F, supply, demand, flow));
+			}
+
+			for(int v = sink; v != source; v = previous[v]) {
+				int u = previous[v];
+				if(u == source) {
+					supply[v - 1] -= amount;
+				} else if(v == sink) {
+					demand[u - 1 - I] -= amount;
+				} else if(u <= I) {
+					flow[(u - 1) * F + (v - 1 - I)] += amount;
+				} else {
+					flow[(v - 1) * F + (u - 1 - I)] -= amount;
+				}
+			}
+			unmet -= amount;
+		}
+
+		for(int i = 0; i < I; i++) {
+			for(int f = 0; f < F; f++) {
+				flows[i * J + facilities[f]] = flow[i * F + f];
+			}
+		}
+		return flows;
+	}
+
+	/**
+	 * This method relaxes an arc of the residual network using its reduced cost.
+	 *
+	 * @param u the tail of the arc
+	 * @param v the head of the arc
+	 * @param cost the cost of the arc
+	 * @param potential the node potentials
+	 * @param distance the tentative distances
+	 * @param previous the predecessor of every node on its shortest path
+	 */
+	private static void relax(int u, int v, double cost, double[] potential, double[] distance, int[] previous) {
+		double reducedCost = Math.max(0, cost + potential[u] - potential[v]);
+		if(distance[u] + reducedCost < distance[v]) {
+			distance[v] = distance[u] + reducedCost;
+			previous[v] = u;
+		}
+	}
+
+	/**
+	 * This method obtains the residual capacity of an arc on a shortest path. Paths never return to the source, so
+	 * the arcs are source to plant, plant to facility, facility back to plant and facility to sink.
+	 *
+	 * @param u the tail of the arc
+	 * @param v the head of the arc
+	 * @param I the number of plants
+	 * @param F the number of facilities with demand
+	 * @param supply the residual capacity of the source to plant arcs
+	 * @param demand the residual capacity of the facility to sink arcs
+	 * @param flow the flow on the plant to facility arcs
+	 * @return the residual capacity
+	 */
+	private static double residual(int u, int v, int I, int F, double[] supply, double[] demand, double[] flow) {
+		if(u == 0) {
+			return supply[v - 1];
+		} else if(v == I + F + 1) {
+			return demand[u - 1 - I];
+		} else if(u <= I) {
+			return Double.POSITIVE_INFINITY;
+		} else {
+			return flow[(v - 1) * F + (u - 1 - I)];
+		}
+	}
+
+}
@@ -0,0 +1,100 @@
+/**
+ * This class implements the phases of a CFLP run for the benchmarks in cflp.bench (see Phases). It lives in the
+ * default package so it can reach the solver classes. The gurobi phases are delegated to GurobiPhases, so this class
+ * loads no gurobi class and the parsing and pure java construction phases run without gurobi.
+ *
+ * @author ryanhow
+ *
+ */
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import cflp.bench.Phases;
+
+public class BenchmarkPhases implements Phases {
+
+	private CFLPInstance instance;
+	private GurobiPhases gurobi; //Gurobi environment and model, or null before createEnvironment
+
+	@Override
+	public void writeInstance(int K, int I, int J, int R, long seed, Path directory) throws IOException {
+		new InstanceGenerator(K, I, J, R, InstanceGenerator.defaultDesiredFacilities(J), seed).write(directory);
+	}
+
+	@Override
+	public Object load(Path directory) throws IOException {
+		instance = CSVInstanceLoader.load(CSVInstanceLoader.instanceFiles(directory.toString()));
+		return instance;
+	}
+
+	@Override
+	public int desiredFacilities() {
+		return InstanceGenerator.defaultDesiredFacilities(instance.numFacilities());
+	}
+
+	@Override
+	public Object buildJavaModel(String allocation) {
+		JavaCFLPModel model = new JavaCFLPModel(instance, desiredFacilities(), AllocationMode.fromArgument(allocation));
+		if(!model.build()) {
+			throw new IllegalStateException("Error building java model, see log.");
+		}
+		return model;
+	}
+
+	@Override
+	public boolean isGurobiAvailable() {
+		try {
+			Class.forName("gurobi.GRBEnv");
+		} catch (ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+		return GurobiPhases.isAvailable();
+	}
+
+	@Override
+	public void createEnvironment() throws Exception {
+		gurobi = new GurobiPhases(instance, desiredFacilities());
+	}
+
+	@Override
+	public void createModel(String allocation) throws Exception {
+		gurobi.createModel(allocation);
+	}
+
+	@Override
+	public void addDecisionVariables() {
+		gurobi.addDecisionVariables();
+	}
+
+	@Override
+	public void addConstraints() {
+		gurobi.addConstraints();
+	}
+
+	@Override
+	public void optimize() {
+		gurobi.optimize();
+	}
+
+	@Override
+	public void printSolution() {
+		gurobi.printSolution();
+	}
+
+	@Override
+	public void disposeModel() {
+		if(gurobi != null) {
+			gurobi.disposeModel();
+		}
+	}
+
+	@Override
+	public void disposeEnvironment() throws Exception {
+		if(gurobi != null) {
+			gurobi.dispose();
+			gurobi = null;
+		}
+	}
+
+}
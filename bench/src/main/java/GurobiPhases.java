@@ -0,0 +1,107 @@
+/**
+ * This class holds the gurobi environment and model of a benchmark for BenchmarkPhases. It is kept apart so that
+ * BenchmarkPhases never loads a gurobi class, and the benchmarks which do not need gurobi still run when gurobi.jar or
+ * its native libraries are missing.
+ *
+ * @author ryanhow
+ *
+ */
+
+import gurobi.*;
+
+public class GurobiPhases {
+
+	private final CFLPInstance instance;
+	private final int p;
+	private GRBEnv env;
+	private CFLPModel model;
+
+	/**
+	 * This constructor starts a gurobi environment with logging disabled.
+	 *
+	 * @param instance the loaded instance
+	 * @param p the desired number of open facilities
+	 * @throws GRBException if the environment cannot be started
+	 */
+	public GurobiPhases(CFLPInstance instance, int p) throws GRBException {
+		this.instance = instance;
+		this.p = p;
+		env = new GRBEnv(true);
+		env.set(GRB.IntParam.OutputFlag, 0);
+		env.start();
+	}
+
+	/**
+	 * This method checks whether a gurobi environment can be started, which needs the native libraries and a licence.
+	 *
+	 * @return true if gurobi is available, false otherwise
+	 */
+	public static boolean isAvailable() {
+		try {
+			GRBEnv probe = new GRBEnv(true);
+			probe.set(GRB.IntParam.OutputFlag, 0);
+			probe.start();
+			probe.dispose();
+			return true;
+		} catch (GRBException | LinkageError e) {
+			return false;
+		}
+	}
+
+	/**
+	 * This method creates an empty model of the instance, replacing the previous model.
+	 *
+	 * @param allocation the allocation mode argument
+	 * @throws GRBException if the model cannot be created
+	 */
+	public void createModel(String allocation) throws GRBException {
+		disposeModel();
+		model = new CFLPModel(env, instance, p, AllocationMode.fromArgument(allocation), false);
+	}
+
+	public void addDecisionVariables() {
+		if(!model.addDecisionVariables()) {
+			throw new IllegalStateException("Error adding decision variables, see log.");
+		}
+	}
+
+	public void addConstraints() {
+		if(!model.addConstraints()) {
+			throw new IllegalStateException("Error adding constraints, see log.");
+		}
+	}
+
+	public void optimize() {
+		if(!model.optimize()) {
+			throw new IllegalStateException("Error optimizing model, see log.");
+		}
+	}
+
+	public void printSolution() {
+		model.printSolution();
+	}
+
+	/**
+	 * This method disposes the model.
+	 */
+	public void disposeModel() {
+		if(model != null) {
+			model.dispose();
+			model = null;
+		}
+	}
+
+	/**
+	 * This method disposes the model and the environment.
+	 *
+	 * @throws GRBException if the environment cannot be disposed
+	 */
+	public void dispose() throws GRBException {
+		disposeModel();
+		if(env != null) {
+			env.dispose();
+			env = null;
+		}
+	}
+
+}
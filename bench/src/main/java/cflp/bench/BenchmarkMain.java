@@ -0,0 +1,29 @@
+package cflp.bench;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * This program runs the benchmarks (see README.md). It accepts the usual JMH command line options and leaves out
+ * GurobiBenchmark when no gurobi environment can be started, so the parsing and pure java construction benchmarks
+ * still run without gurobi.jar or a licence.
+ *
+ * @author ryanhow
+ *
+ */
+public class BenchmarkMain {
+
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+		ChainedOptionsBuilder options = new OptionsBuilder().parent(new CommandLineOptions(args));
+		if(!Phases.create().isGurobiAvailable()) {
+			System.out.println("Gurobi is not available, skipping " + GurobiBenchmark.class.getSimpleName() + ".");
+			options.exclude(GurobiBenchmark.class.getSimpleName());
+		}
+		new Runner(options.build()).run();
+	}
+
+}
@@ -0,0 +1,69 @@
+package cflp.bench;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This benchmark measures building the model of an instance in pure java (see JavaCFLPModel): computing the
+ * objective coefficients and assembling the constraint rows of the same formulation as the gurobi model. It does not
+ * need gurobi, so model construction can be measured on machines without a licence.
+ *
+ * @author ryanhow
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ConstructionBenchmark {
+
+	@Param({"2"})
+	public int K;
+
+	@Param({"5"})
+	public int I;
+
+	@Param({"20", "50"})
+	public int J;
+
+	@Param({"200", "1000"})
+	public int R;
+
+	@Param({"single", "divisible"})
+	public String allocation;
+
+	private Phases phases;
+
+	@Setup
+	public void loadInstance() throws Exception {
+		phases = Phases.create();
+		Path directory = Files.createTempDirectory("cflp-bench");
+		try {
+			phases.writeInstance(K, I, J, R, 1, directory);
+			phases.load(directory);
+		} finally {
+			ParseBenchmark.deleteDirectory(directory);
+		}
+	}
+
+	@Benchmark
+	public Object build() {
+		return phases.buildJavaModel(allocation);
+	}
+
+}
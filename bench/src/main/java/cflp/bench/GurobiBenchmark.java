@@ -0,0 +1,168 @@
+package cflp.bench;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This benchmark measures the gurobi phases of CFLP.main: adding the decision variables, adding the constraints,
+ * solving the model and printing the solution. Each phase runs on a model prepared up to the phase before it. The
+ * benchmark needs the gurobi native libraries and a licence, and BenchmarkMain leaves it out when they are missing.
+ *
+ * @author ryanhow
+ *
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GurobiBenchmark {
+
+	/**
+	 * This class is an instance and gurobi environment shared by the iterations of a benchmark.
+	 */
+	@State(Scope.Benchmark)
+	public static class Instance {
+
+		@Param({"2"})
+		public int K;
+
+		@Param({"5"})
+		public int I;
+
+		@Param({"20", "50"})
+		public int J;
+
+		@Param({"200", "1000"})
+		public int R;
+
+		@Param({"single", "divisible"})
+		public String allocation;
+
+		Phases phases;
+
+		@Setup(Level.Trial)
+		public void createEnvironment() throws Exception {
+			phases = Phases.create();
+			Path directory = Files.createTempDirectory("cflp-bench");
+			try {
+				phases.writeInstance(K, I, J, R, 1, directory);
+				phases.load(directory);
+			} finally {
+				ParseBenchmark.deleteDirectory(directory);
+			}
+			phases.createEnvironment();
+		}
+
+		@TearDown(Level.Trial)
+		public void disposeEnvironment() throws Exception {
+			phases.disposeEnvironment();
+		}
+
+	}
+
+	/**
+	 * This class is an empty model.
+	 */
+	@State(Scope.Benchmark)
+	public static class EmptyModel {
+
+		@Setup(Level.Invocation)
+		public void createModel(Instance instance) throws Exception {
+			instance.phases.createModel(instance.allocation);
+		}
+
+	}
+
+	/**
+	 * This class is a model with its decision variables.
+	 */
+	@State(Scope.Benchmark)
+	public static class ModelWithVariables {
+
+		@Setup(Level.Invocation)
+		public void createModel(Instance instance) throws Exception {
+			instance.phases.createModel(instance.allocation);
+			instance.phases.addDecisionVariables();
+		}
+
+	}
+
+	/**
+	 * This class is a built model.
+	 */
+	@State(Scope.Benchmark)
+	public static class BuiltModel {
+
+		@Setup(Level.Invocation)
+		public void createModel(Instance instance) throws Exception {
+			instance.phases.createModel(instance.allocation);
+			instance.phases.addDecisionVariables();
+			instance.phases.addConstraints();
+		}
+
+	}
+
+	/**
+	 * This class is a solved model, with the console replaced by a stream which discards the printed solution.
+	 */
+	@State(Scope.Benchmark)
+	public static class SolvedModel {
+
+		private PrintStream console;
+
+		@Setup(Level.Trial)
+		public void solveModel(Instance instance) throws Exception {
+			instance.phases.createModel(instance.allocation);
+			instance.phases.addDecisionVariables();
+			instance.phases.addConstraints();
+			instance.phases.optimize();
+			console = System.out;
+			System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+		}
+
+		@TearDown(Level.Trial)
+		public void restoreConsole() {
+			System.setOut(console);
+		}
+
+	}
+
+	@Benchmark
+	public void addDecisionVariables(Instance instance, EmptyModel model) {
+		instance.phases.addDecisionVariables();
+	}
+
+	@Benchmark
+	public void addConstraints(Instance instance, ModelWithVariables model) {
+		instance.phases.addConstraints();
+	}
+
+	@Benchmark
+	public void optimize(Instance instance, BuiltModel model) {
+		instance.phases.optimize();
+	}
+
+	@Benchmark
+	public void printSolution(Instance instance, SolvedModel model) {
+		instance.phases.printSolution();
+	}
+
+}
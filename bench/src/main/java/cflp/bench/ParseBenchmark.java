@@ -0,0 +1,83 @@
+package cflp.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This benchmark measures loading the 9 CSV instance files, the first phase of CFLP.main. It does not need gurobi.
+ *
+ * @author ryanhow
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParseBenchmark {
+
+	@Param({"2"})
+	public int K;
+
+	@Param({"5"})
+	public int I;
+
+	@Param({"20", "100"})
+	public int J;
+
+	@Param({"1000", "10000"})
+	public int R;
+
+	private Phases phases;
+	private Path directory;
+
+	@Setup
+	public void writeInstance() throws IOException {
+		phases = Phases.create();
+		directory = Files.createTempDirectory("cflp-bench");
+		phases.writeInstance(K, I, J, R, 1, directory);
+	}
+
+	@Benchmark
+	public Object load() throws IOException {
+		return phases.load(directory);
+	}
+
+	@TearDown
+	public void deleteInstance() throws IOException {
+		deleteDirectory(directory);
+	}
+
+	/**
+	 * This method deletes a directory and the files inside it.
+	 *
+	 * @param directory the directory
+	 * @throws IOException if a file cannot be deleted
+	 */
+	static void deleteDirectory(Path directory) throws IOException {
+		try(Stream<Path> paths = Files.walk(directory)) {
+			for(Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+				Files.delete(path);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,123 @@
+package cflp.bench;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * This interface exposes each phase of a CFLP run to the benchmarks. The solver classes live in the default package,
+ * which a named package cannot import, so the phases are implemented by BenchmarkPhases in the default package and
+ * loaded by name. An implementation holds the instance, environment and model of one benchmark. The parsing and pure
+ * java construction phases must not touch gurobi, so they run on machines without gurobi.jar or a licence.
+ *
+ * @author ryanhow
+ *
+ */
+public interface Phases {
+
+	/**
+	 * This method creates the phases of a new benchmark.
+	 *
+	 * @return the phases
+	 */
+	static Phases create() {
+		try {
+			return (Phases) Class.forName("BenchmarkPhases").getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException | LinkageError e) {
+			throw new IllegalStateException("Error loading BenchmarkPhases. " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * This method writes a random feasible instance to the 9 CSV files of a directory.
+	 *
+	 * @param K the number of products
+	 * @param I the number of production plants
+	 * @param J the number of candidate facility locations
+	 * @param R the number of customers
+	 * @param seed the random seed
+	 * @param directory the instance directory
+	 * @throws IOException if the files cannot be written
+	 */
+	void writeInstance(int K, int I, int J, int R, long seed, Path directory) throws IOException;
+
+	/**
+	 * This method loads the instance from the 9 CSV files of a directory, as init does.
+	 *
+	 * @param directory the instance directory
+	 * @return the loaded instance
+	 * @throws IOException if the files cannot be read
+	 */
+	Object load(Path directory) throws IOException;
+
+	/**
+	 * @return the desired number of open facilities of the loaded instance
+	 */
+	int desiredFacilities();
+
+	/**
+	 * This method builds the pure java model of the loaded instance (see JavaCFLPModel), assembling the same
+	 * coefficients and rows as the gurobi model without a gurobi environment.
+	 *
+	 * @param allocation the allocation mode argument
+	 * @return the built model
+	 */
+	Object buildJavaModel(String allocation);
+
+	/**
+	 * This method checks whether a gurobi environment can be started, which needs gurobi.jar, the native libraries
+	 * and a licence.
+	 *
+	 * @return true if gurobi is available, false otherwise
+	 */
+	boolean isGurobiAvailable();
+
+	/**
+	 * This method starts a gurobi environment with logging disabled.
+	 *
+	 * @throws Exception if the environment cannot be started
+	 */
+	void createEnvironment() throws Exception;
+
+	/**
+	 * This method creates an empty model of the loaded instance, replacing the previous model.
+	 *
+	 * @param allocation the allocation mode argument
+	 * @throws Exception if the model cannot be created
+	 */
+	void createModel(String allocation) throws Exception;
+
+	/**
+	 * This method adds the decision variables to the model.
+	 */
+	void addDecisionVariables();
+
+	/**
+	 * This method adds the constraints to the model.
+	 */
+	void addConstraints();
+
+	/**
+	 * This method solves the model.
+	 */
+	void optimize();
+
+	/**
+	 * This method prints the solution of the model to the console.
+	 */
+	void printSolution();
+
+	/**
+	 * This method disposes the model.
+	 *
+	 * @throws Exception if the model cannot be disposed
+	 */
+	void disposeModel() throws Exception;
+
+	/**
+	 * This method disposes the model and the environment.
+	 *
+	 * @throws Exception if they cannot be disposed
+	 */
+	void disposeEnvironment() throws Exception;
+
+}